@@ -0,0 +1,37 @@
+package com.physics.bench;
+
+import java.awt.Point;
+import java.util.Random;
+
+import com.physics.engine.SimulationEngine;
+import com.physics.model.BallStore;
+
+// Одинаковый для всех бенчмарков мир: шары с постоянным посевом по всему экрану
+public final class BenchWorld {
+    public static final int WIDTH = 1920;
+    public static final int HEIGHT = 1080;
+    public static final long SEED = 42;
+
+    private BenchWorld() {
+    }
+
+    public static SimulationEngine create(int ballCount) {
+        System.setProperty("java.awt.headless", "true");
+        SimulationEngine engine = new SimulationEngine(WIDTH, HEIGHT);
+        engine.setSeed(SEED);
+        engine.setHistorySpillEnabled(false);
+        engine.setMousePosition(new Point(WIDTH / 2, HEIGHT / 2));
+
+        Random random = new Random(SEED);
+        BallStore balls = engine.getBalls();
+        balls.ensureCapacity(ballCount);
+        for (int i = 0; i < ballCount; i++) {
+            float radius = 3 + random.nextFloat() * 12;
+            int index = engine.addBall(radius + random.nextFloat() * (WIDTH - 2 * radius),
+                                       radius + random.nextFloat() * (HEIGHT - 2 * radius),
+                                       radius);
+            balls.setVelocity(index, random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2);
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,89 @@
+package com.physics.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.effects.QuantumTunnel;
+import com.physics.engine.SimulationEngine;
+import com.physics.model.BallStore;
+
+// Эффекты, которые обходят тела сами, а не через общий проход полей
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class BodyEffectBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int bodies;
+
+    private SimulationEngine engine;
+    private BallStore balls;
+
+    @Setup(Level.Trial)
+    public void createWorld() {
+        engine = BenchWorld.create(bodies);
+        balls = engine.getBalls();
+        engine.getQuantumTunnel().setActive(true);
+        engine.getTimeReversal().setActive(true);
+    }
+
+    // Разделение удваивает шары и гаснет, поэтому мир восстанавливается перед каждым вызовом
+    @State(Scope.Benchmark)
+    public static class SplitWorld {
+        private SimulationEngine engine;
+        private float[] radius;
+        private int bodies;
+
+        @Setup(Level.Trial)
+        public void createWorld(BodyEffectBenchmark benchmark) {
+            bodies = benchmark.bodies;
+            engine = BenchWorld.create(bodies);
+            radius = engine.getBalls().radius().clone();
+        }
+
+        @Setup(Level.Invocation)
+        public void restore() {
+            engine.getBalls().setSize(bodies);
+            System.arraycopy(radius, 0, engine.getBalls().radius(), 0, bodies);
+            engine.getParticles().clear();
+            engine.getSplit().setActive(true);
+        }
+    }
+
+    @Benchmark
+    public int split(SplitWorld world) {
+        world.engine.getSplit().applyEffect(world.engine.getBalls(), world.engine.getParticles());
+        return world.engine.getBalls().size();
+    }
+
+    // Тот же цикл, что в шаге движка
+    @Benchmark
+    public int quantumTunnel() {
+        QuantumTunnel tunnel = engine.getQuantumTunnel();
+        tunnel.update();
+        for (int i = 0; i < balls.size(); i++) {
+            tunnel.checkTunneling(balls, i, BenchWorld.WIDTH, BenchWorld.HEIGHT);
+            tunnel.applyTunneling(balls, i);
+        }
+        return tunnel.getTunnelCount();
+    }
+
+    @Benchmark
+    public void timeReversalApply() {
+        engine.getTimeReversal().applyEffect(balls, BenchWorld.WIDTH / 2, BenchWorld.HEIGHT / 2);
+    }
+}
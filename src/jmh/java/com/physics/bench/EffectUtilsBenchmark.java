@@ -0,0 +1,62 @@
+package com.physics.bench;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.effects.EffectUtils;
+
+// Общие пиксельные операции эффектов: смешение цветов и параллельный обход
+// внеэкранного буфера в разрешении экрана
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class EffectUtilsBenchmark {
+    private static final int COLORS = 1024;
+
+    private final int[] from = new int[COLORS];
+    private final int[] to = new int[COLORS];
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void createData() {
+        Random random = new Random(BenchWorld.SEED);
+        for (int i = 0; i < COLORS; i++) {
+            from[i] = random.nextInt();
+            to[i] = random.nextInt();
+        }
+        image = new BufferedImage(BenchWorld.WIDTH, BenchWorld.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // Время на весь массив; на один вызов - поделить на COLORS
+    @Benchmark
+    public int blendColors() {
+        int sum = 0;
+        for (int i = 0; i < COLORS; i++) {
+            sum += EffectUtils.blendColors(from[i], to[i], (i & 255) / 255.0f);
+        }
+        return sum;
+    }
+
+    // Затухание, как у следов эффектов
+    @Benchmark
+    public void processImageParallel() {
+        EffectUtils.processImageParallel(image, (x, y, pixel) ->
+            EffectUtils.blendColors(pixel, 0xFF000000 | x << 8 | y, 0.1f));
+    }
+}
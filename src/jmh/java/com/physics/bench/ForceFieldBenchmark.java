@@ -0,0 +1,84 @@
+package com.physics.bench;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.engine.SimulationEngine;
+import com.physics.field.ForceFieldPass;
+
+// Воздействие одного эффекта на тела. Эффекты-поля применяются общим проходом
+// ForceFieldPass, поэтому замеряется проход, в котором включено только это поле
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class ForceFieldBenchmark {
+    public enum Effect { BLACK_HOLE, GRAVITY_WAVE, MAGNET, RAINBOW, SLOW_MOTION, TELEPORT, TIME_VORTEX }
+
+    @Param({"1000", "10000", "100000"})
+    public int bodies;
+
+    @Param
+    public Effect effect;
+
+    private SimulationEngine engine;
+    private ForceFieldPass forceFields;
+    private long tick = 0;
+
+    @Setup(Level.Trial)
+    public void createWorld() {
+        engine = BenchWorld.create(bodies);
+        forceFields = engine.getForceFields();
+        int centerX = BenchWorld.WIDTH / 2;
+        int centerY = BenchWorld.HEIGHT / 2;
+        switch (effect) {
+            case BLACK_HOLE:
+                engine.getBlackHole().setActive(true);
+                break;
+            case GRAVITY_WAVE:
+                engine.getGravityWave().setActive(true, centerX, centerY);
+                // Несколько расходящихся колец, как в установившемся режиме
+                for (int i = 0; i < 200; i++) {
+                    engine.getGravityWave().update();
+                }
+                break;
+            case MAGNET:
+                engine.getMagnet().setActive(true, centerX, centerY);
+                break;
+            case RAINBOW:
+                engine.getRainbow().setActive(true);
+                break;
+            case SLOW_MOTION:
+                engine.getSlowMotion().setActive(true, centerX, centerY);
+                break;
+            case TELEPORT:
+                engine.getTeleport().setActive(true, centerX, centerY);
+                break;
+            case TIME_VORTEX:
+                engine.getTimeVortex().setActive(true);
+                engine.getTimeVortex().setCenter(new Point(centerX, centerY));
+                break;
+        }
+    }
+
+    @Benchmark
+    public int apply() {
+        forceFields.apply(engine.getBalls(), engine.getParticles(), BenchWorld.WIDTH, BenchWorld.HEIGHT, tick++);
+        return forceFields.getActiveCount();
+    }
+}
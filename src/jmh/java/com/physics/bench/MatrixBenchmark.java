@@ -0,0 +1,84 @@
+package com.physics.bench;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.effects.Matrix;
+
+// Шаг, снимок и кадр символьного дождя вместе с копированием фона, как в SceneRenderer
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class MatrixBenchmark {
+    @Param({"1920x1080", "3840x2160"})
+    public String screen;
+
+    private int width;
+    private int height;
+    private BufferedImage background;
+    private BufferedImage frame;
+    private Graphics2D g2d;
+    private Matrix matrix;
+    private final Matrix.Frame matrixFrame = new Matrix.Frame();
+
+    @Setup(Level.Trial)
+    public void createMatrix() {
+        String[] size = screen.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        background = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D fill = background.createGraphics();
+        fill.setPaint(new GradientPaint(0, 0, new Color(0, 0, 50), 0, height, new Color(0, 0, 100)));
+        fill.fillRect(0, 0, width, height);
+        fill.dispose();
+        frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        g2d = frame.createGraphics();
+
+        matrix = new Matrix();
+        matrix.setActive(true);
+        // Цепочки успевают опуститься и занять весь экран
+        for (int i = 0; i < height / 2; i++) {
+            matrix.update(width, height);
+        }
+        matrix.capture(matrixFrame);
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public void stepAndDraw() {
+        matrix.update(width, height);
+        matrix.capture(matrixFrame);
+        g2d.drawImage(background, 0, 0, null);
+        matrix.draw(g2d, matrixFrame, width, height);
+    }
+
+    @Benchmark
+    public void draw() {
+        g2d.drawImage(background, 0, 0, null);
+        matrix.draw(g2d, matrixFrame, width, height);
+    }
+}
@@ -0,0 +1,96 @@
+package com.physics.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.effects.Palette;
+import com.physics.effects.ParticleSplatter;
+
+// Кадр частиц в разрешении экрана: программная закраска в int[] против
+// setColor + fillOval на каждую частицу, как рисовал SceneRenderer раньше
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class ParticleSplatBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int particles;
+
+    private float[] x;
+    private float[] y;
+    private float[] radius;
+    private int[] argb;
+    private BufferedImage frame;
+    private Graphics2D g2d;
+    private ParticleSplatter alphaSplatter;
+    private ParticleSplatter additiveSplatter;
+
+    @Setup(Level.Trial)
+    public void createParticles() {
+        Random random = new Random(BenchWorld.SEED);
+        x = new float[particles];
+        y = new float[particles];
+        radius = new float[particles];
+        argb = new int[particles];
+        for (int i = 0; i < particles; i++) {
+            x[i] = random.nextFloat() * BenchWorld.WIDTH;
+            y[i] = random.nextFloat() * BenchWorld.HEIGHT;
+            radius[i] = 0.5f + random.nextFloat() * 2;
+            argb[i] = (64 + random.nextInt(192)) << 24 | random.nextInt(0x1000000);
+        }
+        frame = new BufferedImage(BenchWorld.WIDTH, BenchWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g2d = frame.createGraphics();
+        alphaSplatter = new ParticleSplatter("bench.splatAlpha", ParticleSplatter.Blend.ALPHA);
+        additiveSplatter = new ParticleSplatter("bench.splatAdditive", ParticleSplatter.Blend.ADDITIVE);
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public void splatAlpha() {
+        splat(alphaSplatter);
+    }
+
+    @Benchmark
+    public void splatAdditive() {
+        splat(additiveSplatter);
+    }
+
+    @Benchmark
+    public void fillOval() {
+        for (int i = 0; i < particles; i++) {
+            float size = radius[i] * 2;
+            g2d.setColor(Palette.argb(argb[i]));
+            g2d.fillOval((int)(x[i] - radius[i]), (int)(y[i] - radius[i]), (int)size, (int)size);
+        }
+    }
+
+    private void splat(ParticleSplatter splatter) {
+        splatter.begin(BenchWorld.WIDTH, BenchWorld.HEIGHT);
+        for (int i = 0; i < particles; i++) {
+            splatter.add(x[i], y[i], radius[i], argb[i]);
+        }
+        splatter.flush(g2d);
+    }
+}
@@ -0,0 +1,46 @@
+package com.physics.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.engine.RenderState;
+import com.physics.engine.SimulationEngine;
+
+// Передача тел отрисовке: копия хранилищ в RenderState под блокировкой шага
+// (то, что раньше делал GameState.getBalls)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class RenderCaptureBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int bodies;
+
+    private SimulationEngine engine;
+    private final RenderState state = new RenderState();
+
+    @Setup(Level.Trial)
+    public void createWorld() {
+        engine = BenchWorld.create(bodies);
+    }
+
+    @Benchmark
+    public RenderState capture() {
+        engine.capture(state);
+        return state;
+    }
+}
@@ -0,0 +1,89 @@
+package com.physics.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.effects.TimeReversal;
+import com.physics.engine.SimulationEngine;
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+
+// Снимок в историю отката (TimeReversal.saveState) и восстановление из неё (applyReversal). Чтобы разности кадров
+// не были нулевыми, сохраняются по очереди мир и тот же мир шагом позже
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class TimeReversalBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int bodies;
+
+    private final BallStore[] frames = new BallStore[2];
+    private ParticlePool particles;
+    private TimeReversal saving;
+    private int frame = 0;
+
+    @Setup(Level.Trial)
+    public void createWorld() {
+        frames[0] = BenchWorld.create(bodies).getBalls();
+        SimulationEngine later = BenchWorld.create(bodies);
+        later.step();
+        frames[1] = later.getBalls();
+        particles = new ParticlePool(1);
+        saving = new TimeReversal();
+        // Замеряется кодирование разностей, а не запись вытесненной истории на диск
+        saving.getHistory().setSpillEnabled(false);
+    }
+
+    // История для отката; опустевшая история заполняется заново вне замера,
+    // так что откат идёт подряд и по разностям, и по ключевым кадрам
+    @State(Scope.Benchmark)
+    public static class History {
+        private static final int FRAMES = 256;
+
+        private final TimeReversal reversal = new TimeReversal();
+        private final BallStore restored = new BallStore();
+        private TimeReversalBenchmark world;
+
+        @Setup(Level.Trial)
+        public void bind(TimeReversalBenchmark benchmark) {
+            world = benchmark;
+            reversal.getHistory().setSpillEnabled(false);
+            restored.ensureCapacity(benchmark.bodies);
+        }
+
+        @Setup(Level.Invocation)
+        public void refill() {
+            if (!reversal.getHistory().isEmpty()) return;
+            reversal.setReversing(false);
+            for (int i = 0; i < FRAMES; i++) {
+                reversal.saveState(world.frames[i & 1], world.particles);
+            }
+            reversal.setReversing(true);
+        }
+    }
+
+    @Benchmark
+    public void saveState() {
+        saving.saveState(frames[frame++ & 1], particles);
+    }
+
+    @Benchmark
+    public void applyReversal(History history) {
+        history.reversal.applyReversal(history.restored, particles);
+    }
+}
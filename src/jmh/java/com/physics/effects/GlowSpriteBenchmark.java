@@ -0,0 +1,87 @@
+package com.physics.effects;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.bench.BenchWorld;
+import com.physics.data.Constants;
+
+// Свечение частиц радужного режима: градиент на каждую частицу против готового спрайта.
+// Лежит в пакете эффектов, потому что GlowPaints и GlowSprites закрыты от остального кода
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class GlowSpriteBenchmark {
+    private static final int HUE_STEPS = 128;
+
+    @Param({"150", "2000"})
+    public int particles;
+
+    private float[] x;
+    private float[] y;
+    private float[] size;
+    private int[] rgb;
+    private BufferedImage frame;
+    private Graphics2D g2d;
+    private GlowPaints paints;
+    private GlowSprites sprites;
+
+    @Setup(Level.Trial)
+    public void createParticles() {
+        Random random = new Random(BenchWorld.SEED);
+        x = new float[particles];
+        y = new float[particles];
+        size = new float[particles];
+        rgb = new int[particles];
+        for (int i = 0; i < particles; i++) {
+            x[i] = random.nextFloat() * BenchWorld.WIDTH;
+            y[i] = random.nextFloat() * BenchWorld.HEIGHT;
+            size[i] = 5 + random.nextFloat() * 15;
+            rgb[i] = Palette.hueRgb(random.nextFloat(), HUE_STEPS, 0.8f);
+        }
+        frame = EffectUtils.createCompatibleImage(BenchWorld.WIDTH, BenchWorld.HEIGHT, true);
+        g2d = frame.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        paints = new GlowPaints(new float[]{0.0f, 0.5f, 1.0f}, new int[]{255, 127, 0}, 2.0f);
+        sprites = new GlowSprites("bench.sprites", paints, Constants.GLOW_SPRITE_BYTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public void gradient() {
+        for (int i = 0; i < particles; i++) {
+            paints.fill(g2d, rgb[i], x[i], y[i], size[i], 0.6f);
+        }
+    }
+
+    @Benchmark
+    public void sprite() {
+        for (int i = 0; i < particles; i++) {
+            sprites.draw(g2d, rgb[i], x[i], y[i], size[i], 0.6f);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.physics.engine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.physics.bench.BenchWorld;
+import com.physics.model.ParticlePool;
+
+// Интегрирование тел: цикл шаров движка (бывший Ball.update), ParticlePool.update
+// (бывший Particle.update) и полный шаг для сравнения.
+// Лежит в пакете движка, чтобы звать закрытый от UI updateBalls напрямую
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = "-Djava.awt.headless=true")
+public class BodyUpdateBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int bodies;
+
+    private SimulationEngine engine;
+    private ParticlePool particles;
+    private final Random random = new Random(BenchWorld.SEED);
+
+    // Без тяжести шары не разбиваются о пол: число тел в замере равно bodies
+    @Setup(Level.Trial)
+    public void createWorld() {
+        engine = BenchWorld.create(bodies);
+        engine.setGravity(0);
+        particles = new ParticlePool(bodies);
+    }
+
+    // Частицы без скорости и с бесконечной жизнью: пул не пустеет между вызовами
+    @Setup(Level.Iteration)
+    public void spawnParticles() {
+        particles.clear();
+        for (int i = 0; i < bodies; i++) {
+            particles.spawn(random.nextFloat() * BenchWorld.WIDTH, random.nextFloat() * BenchWorld.HEIGHT,
+                            0, 0, Integer.MAX_VALUE, 0xFFFFFFFF, 3);
+        }
+    }
+
+    @Benchmark
+    public void ballIntegration() {
+        engine.updateBalls();
+    }
+
+    @Benchmark
+    public void particleUpdate() {
+        particles.update(BenchWorld.WIDTH, BenchWorld.HEIGHT, 0.0f);
+    }
+
+    @Benchmark
+    public void fullTick() {
+        engine.step();
+    }
+}
@@ -1,9 +1,19 @@
 package com.physics;
 
+import java.util.Arrays;
+
 import javax.swing.SwingUtilities;
 
+import com.physics.bench.ScenarioBenchmark;
+
 public class Main {
     public static void main(String[] args) {
+        // java -jar PhysicsSim.jar bench key=value... - замер сценария без окна
+        if (args.length > 0 && args[0].equals("bench")) {
+            ScenarioBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         System.out.println("Запуск физической симуляции...");
         
         try {
@@ -1,90 +1,77 @@
 package com.physics;
 
-import java.awt.BasicStroke;
 import java.awt.BorderLayout;
+import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.FontMetrics;
 import java.awt.GradientPaint;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.awt.Point;
-import java.awt.RadialGradientPaint;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JFrame;
-import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import com.physics.data.Constants;
-import com.physics.effects.BlackHole;
-import com.physics.effects.Explosion;
-import com.physics.effects.GravityWave;
-import com.physics.effects.Magnet;
-import com.physics.effects.Matrix;
-import com.physics.effects.QuantumTunnel;
-import com.physics.effects.Rainbow;
-import com.physics.effects.SlowMotion;
-import com.physics.effects.Split;
-import com.physics.effects.Teleport;
-import com.physics.effects.TimeFreeze;
-import com.physics.effects.TimeReversal;
-import com.physics.effects.TimeVortex;
-import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.effects.Palette;
+import com.physics.engine.RenderState;
+import com.physics.engine.SimulationEngine;
+import com.physics.engine.SimulationLoop;
+import com.physics.export.FrameExporter;
+import com.physics.history.RewindMode;
+import com.physics.history.SessionRecorder;
+import com.physics.profile.Profiler;
+import com.physics.profile.RollingHistogram;
 import com.physics.ui.InfoPanel;
+import com.physics.ui.ProfilerOverlay;
+import com.physics.ui.RenderLoop;
+import com.physics.ui.SceneRenderer;
 
 public class PhysicsSimulation extends JFrame {
-    private final ArrayList<Ball> balls = new ArrayList<>(100);
-    private final ArrayList<Particle> particles = new ArrayList<>(500);
-    private final JPanel canvas;
-    private double timeScale = 1.0;
+    private final SimulationEngine engine;
+    private final SimulationLoop simulationLoop;
+    private final Canvas canvas;
+    private final RenderLoop renderLoop;
     private static final double TIME_STEP = 0.1;
-    private double gravity = 0.3;
-    private double spaceWarp = 1.0;
     private static final int FPS = 120;
-    private double energyField = 1.0;
+    private static final int RENDER_BUFFERS = 3;
+    // Панель - обычный компонент Swing, ей хватает и меньшей частоты
+    private static final int INFO_PANEL_FPS = 30;
     private static final double ENERGY_STEP = 0.1;
-    private Point mousePosition = new Point(0, 0);
-    private static final int WARP_RADIUS = 150;
-    private final TimeFreeze timeFreeze = new TimeFreeze();
-    private final BlackHole blackHole = new BlackHole();
-    private final Explosion explosion = new Explosion();
-    private final double backgroundDistortion = 0.0;
     private Point tooltipPosition = null;
     private String tooltipText = null;
 
     private InfoPanel infoPanel;
-    private final TimeReversal timeReversal = new TimeReversal();
-    private final Matrix matrix = new Matrix();
-    private final TimeVortex timeVortex = new TimeVortex();
-    private final GravityWave gravityWave = new GravityWave();
-    private final Rainbow rainbow = new Rainbow();
-    private final QuantumTunnel quantumTunnel = new QuantumTunnel();
-
-    private int canvasWidth;
-    private int canvasHeight;
-    private final Rectangle canvasBounds = new Rectangle();
-    private final Point centerPoint = new Point();
-    
-    private final ArrayList<Ball> ballsToRemove = new ArrayList<>();
-    private final ArrayList<Particle> newParticles = new ArrayList<>();
+    private final SceneRenderer sceneRenderer;
+    private final ProfilerOverlay profilerOverlay = new ProfilerOverlay(Profiler.shared());
+    private final RollingHistogram tooltipTime = Profiler.shared().histogram("paint.tooltip");
+    private final RollingHistogram canvasTime = Profiler.shared().histogram("paint.canvas");
+    private FrameExporter exporter;
+    // Снимки сцены пишутся и читаются здесь, а не на EDT: большой файл не должен замораживать ввод
+    private final ExecutorService snapshotIo = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-io");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private int mouseX, mouseY;
 
-    private Teleport teleport;
-    private Split split;
-    private Magnet magnet;
-    private SlowMotion slowMotion;
-
     public PhysicsSimulation() {
         setTitle("Физическая Симуляция");
         GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
@@ -95,151 +82,172 @@ public class PhysicsSimulation extends JFrame {
         setUndecorated(true);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        teleport = new Teleport();
-        split = new Split();
-        magnet = new Magnet();
-        slowMotion = new SlowMotion();
+        engine = new SimulationEngine(bounds.width, bounds.height - Constants.INFO_PANEL_HEIGHT);
+        simulationLoop = new SimulationLoop(engine);
         
-        infoPanel = new InfoPanel(teleport, split, magnet, slowMotion);
+        sceneRenderer = new SceneRenderer();
+        infoPanel = new InfoPanel(engine.getTeleport(), engine.getSplit(), engine.getMagnet(), engine.getSlowMotion());
         
-        canvas = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, 
-                                   RenderingHints.VALUE_ANTIALIAS_ON);
-                
-                drawBackground(g2d);
-                
-                drawSpaceWarp(g2d);
-                
-                for (Particle particle : particles) {
-                    particle.draw(g2d);
-                }
-                
-                for (Ball ball : balls) {
-                    ball.draw(g2d);
-                }
-                
-                drawTooltip(g2d);
-                
-                teleport.draw(g2d);
-                magnet.draw(g2d);
-                slowMotion.draw(g2d);
-                
-                tooltipPosition = null;
-                tooltipText = null;
-            }
-        };
+        // Сцену рисует свой поток в BufferStrategy холста, EDT остаётся вводу и панели
+        canvas = new Canvas();
+        renderLoop = new RenderLoop(canvas, RENDER_BUFFERS, FPS, this::drawFrame);
         
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    if (exporter != null) {
+                        exporter.finish();
+                    }
+                    SessionRecorder recording = engine.stopRecording();
+                    if (recording != null) {
+                        recording.awaitTermination();
+                    }
+                    // Начатое сохранение снимка дописывается до конца
+                    snapshotIo.shutdown();
+                    try {
+                        snapshotIo.awaitTermination(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    simulationLoop.stop();
+                    engine.close();
                     System.exit(0);
                 }
                 switch (e.getKeyCode()) {
                     case KeyEvent.VK_UP:
-                        if (!timeReversal.isReversing()) {
-                            timeScale = Math.min(timeScale + TIME_STEP, Constants.MAX_TIME_SCALE);
-                            infoPanel.setTimeScale(timeScale);
-                        }
+                        apply(() -> {
+                            if (!engine.getTimeReversal().isReversing()) {
+                                engine.setTimeScale(Math.min(engine.getTimeScale() + TIME_STEP, Constants.MAX_TIME_SCALE));
+                            }
+                        });
                         break;
                     case KeyEvent.VK_DOWN:
-                        if (!timeReversal.isReversing()) {
-                            timeScale = Math.max(timeScale - TIME_STEP, Constants.MIN_TIME_SCALE);
-                            infoPanel.setTimeScale(timeScale);
-                        }
+                        apply(() -> {
+                            if (!engine.getTimeReversal().isReversing()) {
+                                engine.setTimeScale(Math.max(engine.getTimeScale() - TIME_STEP, Constants.MIN_TIME_SCALE));
+                            }
+                        });
                         break;
                     case KeyEvent.VK_W:
-                        gravity = Math.min(gravity + TIME_STEP, Constants.MAX_GRAVITY);
-                        infoPanel.setGravity(gravity);
+                        apply(() -> engine.setGravity(Math.min(engine.getGravity() + TIME_STEP, Constants.MAX_GRAVITY)));
                         break;
                     case KeyEvent.VK_S:
-                        gravity = Math.max(gravity - TIME_STEP, Constants.MIN_GRAVITY);
-                        infoPanel.setGravity(gravity);
+                        apply(() -> engine.setGravity(Math.max(engine.getGravity() - TIME_STEP, Constants.MIN_GRAVITY)));
                         break;
                     case KeyEvent.VK_A:
-                        spaceWarp = Math.max(spaceWarp - TIME_STEP, Constants.MIN_WARP);
-                        infoPanel.setSpaceWarp(spaceWarp);
+                        apply(() -> engine.setSpaceWarp(Math.max(engine.getSpaceWarp() - TIME_STEP, Constants.MIN_WARP)));
                         break;
                     case KeyEvent.VK_D:
-                        spaceWarp = Math.min(spaceWarp + TIME_STEP, Constants.MAX_WARP);
-                        infoPanel.setSpaceWarp(spaceWarp);
+                        apply(() -> engine.setSpaceWarp(Math.min(engine.getSpaceWarp() + TIME_STEP, Constants.MAX_WARP)));
                         break;
                     case KeyEvent.VK_E:
-                        energyField = Math.min(energyField + ENERGY_STEP, Constants.MAX_ENERGY);
-                        infoPanel.setEnergyField(energyField);
+                        apply(() -> engine.setEnergyField(Math.min(engine.getEnergyField() + ENERGY_STEP, Constants.MAX_ENERGY)));
                         break;
                     case KeyEvent.VK_C:
-                        energyField = Math.max(energyField - ENERGY_STEP, Constants.MIN_ENERGY);
-                        infoPanel.setEnergyField(energyField);
+                        apply(() -> engine.setEnergyField(Math.max(engine.getEnergyField() - ENERGY_STEP, Constants.MIN_ENERGY)));
                         break;
                     case KeyEvent.VK_Q:
-                        timeReversal.setReversing(true);
+                        apply(() -> engine.getTimeReversal().setReversing(true));
                         break;
                     case KeyEvent.VK_H:
                         infoPanel.setShowHelp(!infoPanel.isShowHelp());
                         break;
                     case KeyEvent.VK_F:
-                        timeFreeze.setActive(!timeFreeze.isActive());
-                        infoPanel.setTimeFreeze(timeFreeze.isActive());
+                        apply(() -> engine.getTimeFreeze().setActive(!engine.getTimeFreeze().isActive()));
                         break;
                     case KeyEvent.VK_B:
-                        blackHole.setActive(!blackHole.isActive());
-                        infoPanel.setBlackHoleMode(blackHole.isActive());
+                        apply(() -> engine.getBlackHole().setActive(!engine.getBlackHole().isActive()));
                         break;
                     case KeyEvent.VK_V:
-                        timeVortex.setActive(!timeVortex.isActive());
-                        infoPanel.setTimeVortexMode(timeVortex.isActive());
+                        apply(() -> engine.getTimeVortex().setActive(!engine.getTimeVortex().isActive()));
                         break;
                     case KeyEvent.VK_L:
-                        rainbow.setActive(!rainbow.isActive());
-                        infoPanel.setRainbowMode(rainbow.isActive());
+                        apply(() -> engine.getRainbow().setActive(!engine.getRainbow().isActive()));
                         break;
                     case KeyEvent.VK_X:
-                        quantumTunnel.setActive(!quantumTunnel.isActive());
-                        infoPanel.setQuantumTunneling(quantumTunnel.isActive());
+                        apply(() -> engine.getQuantumTunnel().setActive(!engine.getQuantumTunnel().isActive()));
                         break;
                     case KeyEvent.VK_Z:
-                        explosion.setActive(!explosion.isActive());
-                        infoPanel.setExplosionMode(explosion.isActive());
+                        apply(() -> engine.getExplosion().setActive(!engine.getExplosion().isActive()));
                         break;
                     case KeyEvent.VK_M:
-                        matrix.setActive(!matrix.isActive());
-                        infoPanel.setMatrixMode(matrix.isActive());
+                        apply(() -> engine.getMatrix().setActive(!engine.getMatrix().isActive()));
                         break;
                     case KeyEvent.VK_G:
-                        gravityWave.setActive(!gravityWave.isActive(), mouseX, mouseY);
-                        infoPanel.setGravityWaves(gravityWave.isActive());
+                        apply(() -> engine.getGravityWave().setActive(!engine.getGravityWave().isActive(), mouseX, mouseY));
                         break;
                     case KeyEvent.VK_T:
-                        teleport.setActive(!teleport.isActive(), canvas.getWidth()/2, canvas.getHeight()/2);
-                        infoPanel.setTeleportMode(teleport.isActive());
+                        apply(() -> engine.getTeleport().setActive(!engine.getTeleport().isActive(), 
+                            engine.getWidth()/2, engine.getHeight()/2));
                         break;
                     case KeyEvent.VK_Y:
-                        split.setActive(!split.isActive());
-                        infoPanel.setSplitMode(split.isActive());
+                        apply(() -> engine.getSplit().setActive(!engine.getSplit().isActive()));
                         break;
                     case KeyEvent.VK_U:
-                        magnet.setActive(!magnet.isActive(), canvas.getWidth()/2, canvas.getHeight()/2);
-                        infoPanel.setMagnetMode(magnet.isActive());
+                        apply(() -> engine.getMagnet().setActive(!engine.getMagnet().isActive(), 
+                            engine.getWidth()/2, engine.getHeight()/2));
                         break;
                     case KeyEvent.VK_I:
-                        slowMotion.setActive(!slowMotion.isActive(), 
-                            canvas.getWidth()/2, 
-                            canvas.getHeight()/2);
-                        infoPanel.setSlowMode(slowMotion.isActive());
+                        apply(() -> engine.getSlowMotion().setActive(!engine.getSlowMotion().isActive(), 
+                            engine.getWidth()/2, 
+                            engine.getHeight()/2));
+                        break;
+                    case KeyEvent.VK_N:
+                        apply(() -> engine.setGravityMode(engine.getGravityMode().next()));
+                        break;
+                    case KeyEvent.VK_J:
+                        // Не через очередь: переключение не должно попасть в журнал повтора
+                        engine.setRewindMode(engine.getRewindMode() == RewindMode.SNAPSHOTS
+                            ? RewindMode.REPLAY : RewindMode.SNAPSHOTS);
+                        syncInfoPanel();
+                        break;
+                    case KeyEvent.VK_F3:
+                        profilerOverlay.setVisible(!profilerOverlay.isVisible());
+                        break;
+                    case KeyEvent.VK_F5:
+                        snapshotIo.execute(() -> {
+                            try {
+                                engine.saveSnapshot(Paths.get(Constants.SNAPSHOT_FILE));
+                            } catch (IOException ex) {
+                                System.err.println("Не удалось сохранить сцену: " + ex.getMessage());
+                            }
+                        });
+                        break;
+                    case KeyEvent.VK_F6:
+                        if (engine.isRecording()) {
+                            engine.stopRecording();
+                        } else {
+                            try {
+                                engine.startRecording(Paths.get(Constants.SESSION_FILE_PREFIX
+                                    + System.currentTimeMillis() + Constants.SESSION_FILE_SUFFIX));
+                            } catch (IOException ex) {
+                                System.err.println("Не удалось начать запись: " + ex.getMessage());
+                            }
+                        }
+                        syncInfoPanel();
+                        break;
+                    case KeyEvent.VK_F7:
+                        toggleExport();
+                        break;
+                    case KeyEvent.VK_F9:
+                        snapshotIo.execute(() -> {
+                            try {
+                                engine.loadSnapshot(Paths.get(Constants.SNAPSHOT_FILE));
+                            } catch (IOException ex) {
+                                System.err.println("Не удалось загрузить сцену: " + ex.getMessage());
+                            }
+                            SwingUtilities.invokeLater(PhysicsSimulation.this::syncInfoPanel);
+                        });
                         break;
                 }
-                infoPanel.repaint();
+                infoPanel.refresh();
             }
             
             @Override
             public void keyReleased(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_Q) {
-                    timeReversal.setReversing(false);
+                    apply(() -> engine.getTimeReversal().setReversing(false));
                 }
             }
         });
@@ -260,6 +268,8 @@ public class PhysicsSimulation extends JFrame {
         
         setFocusable(true);
         canvas.setBackground(Color.WHITE);
+        // Клавиши слушает окно: тяжёлый холст не должен забирать фокус по щелчку
+        canvas.setFocusable(false);
         
         setLayout(new BorderLayout());
         
@@ -269,10 +279,16 @@ public class PhysicsSimulation extends JFrame {
         canvas.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
+                int x = e.getX();
+                int y = e.getY();
                 if (e.getButton() == MouseEvent.BUTTON1) {
-                    balls.add(new Ball(e.getX(), e.getY(), 20));
-                } else if (e.getButton() == MouseEvent.BUTTON3 && explosion.isActive()) {
-                    explosion.createExplosion(e.getX(), e.getY(), balls, particles);
+                    engine.enqueue(() -> engine.addBall(x, y, 20));
+                } else if (e.getButton() == MouseEvent.BUTTON3) {
+                    engine.enqueue(() -> {
+                        if (engine.getExplosion().isActive()) {
+                            engine.createExplosion(x, y);
+                        }
+                    });
                 }
             }
         });
@@ -281,219 +297,129 @@ public class PhysicsSimulation extends JFrame {
             @Override
             public void mouseMoved(MouseEvent e) {
                 if (!infoPanel.getBounds().contains(e.getPoint())) {
-                    mousePosition = e.getPoint();
-                    canvas.repaint();
+                    Point point = e.getPoint();
+                    engine.enqueue(() -> engine.setMousePosition(point));
                 }
             }
             
             @Override
             public void mouseDragged(MouseEvent e) {
-                mousePosition = e.getPoint();
+                Point point = e.getPoint();
+                engine.enqueue(() -> engine.setMousePosition(point));
             }
         });
         
-        Timer timer = new Timer(1000 / FPS, e -> {
-            if (!timeReversal.isReversing()) {
-                updateForward();
-            } else {
-                timeReversal.applyReversal(balls, particles);
+        canvas.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                int width = canvas.getWidth();
+                int height = canvas.getHeight();
+                engine.enqueue(() -> engine.setWorldSize(width, height));
             }
-            canvas.repaint();
-            infoPanel.repaint();
         });
+        
+        // Физика и отрисовка сцены идут в собственных потоках, таймер обновляет изменившиеся плитки панели
+        simulationLoop.start();
+        renderLoop.start();
+        
+        Timer timer = new Timer(1000 / INFO_PANEL_FPS, e -> infoPanel.refresh());
         timer.start();
     }
 
-    private void updateForward() {
-        if (!timeFreeze.shouldUpdatePhysics()) return;
-
-        updateCanvasDimensions();
-
-        timeReversal.saveState(balls, particles);
-
-        if (blackHole.isActive()) {
-            blackHole.applyEffect(balls, canvasWidth, canvasHeight);
-        }
+    // Кадр сцены в потоке отрисовки
+    private void drawFrame(Graphics2D g2d, int width, int height) {
+        long start = System.nanoTime();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, 
+                           RenderingHints.VALUE_ANTIALIAS_ON);
         
-        timeVortex.setSpaceWarp(spaceWarp);
-        timeVortex.update();
-        if (timeVortex.isActive()) {
-            timeVortex.applyEffect(balls, mousePosition);
-        }
-
-        if (matrix.isActive()) {
-            matrix.update();
-        }
+        RenderState state = simulationLoop.acquireRenderState();
+        float alpha = state.interpolation(System.nanoTime());
         
-        if (gravityWave.isActive()) {
-            gravityWave.update();
-            gravityWave.applyEffect(balls, particles);
-        }
-
-        if (rainbow.isActive()) {
-            rainbow.update();
-            rainbow.applyEffect(balls);
-        }
-
-        if (quantumTunnel.isActive()) {
-            quantumTunnel.update();
-            for (Ball ball : balls) {
-                quantumTunnel.checkTunneling(ball, canvasWidth, canvasHeight);
-                quantumTunnel.applyTunneling(ball);
-            }
-        }
-
-        teleport.update();
-        split.update();
-        magnet.update();
-        slowMotion.update();
+        sceneRenderer.draw(g2d, state, alpha, width, height);
         
-        teleport.applyEffect(balls, particles);
-        split.applyEffect(balls, particles);
-        magnet.applyEffect(balls, particles);
-        slowMotion.applyEffect(balls, particles);
-
-        updateParticles();
+        long t = System.nanoTime();
+        drawTooltip(g2d, width);
+        tooltipTime.lap(t);
         
-        updateBalls();
-        
-        ballsToRemove.clear();
-        newParticles.clear();
-    }
+        tooltipPosition = null;
+        tooltipText = null;
+        canvasTime.lap(start);
 
-    private void updateCanvasDimensions() {
-        canvasWidth = canvas.getWidth();
-        canvasHeight = canvas.getHeight();
-        canvasBounds.setSize(canvasWidth, canvasHeight);
-        centerPoint.setLocation(canvasWidth / 2, canvasHeight / 2);
+        // Сама таблица в замеры кадра не входит
+        profilerOverlay.setFrameCounters(renderLoop.getLateFrames(), renderLoop.getDroppedFrames());
+        profilerOverlay.draw(g2d, width);
     }
 
-    private void updateParticles() {
-        for (Particle p : particles) {
-            if (spaceWarp != 1.0) {
-                applySpaceWarp(p);
-            }
-            p.update(canvasWidth, canvasHeight, timeScale, gravity);
-        }
+    // Изменения мира выполняются в потоке симуляции на границе шага
+    private void apply(Runnable action) {
+        engine.enqueue(() -> {
+            action.run();
+            SwingUtilities.invokeLater(this::syncInfoPanel);
+        });
     }
 
-    private void updateBalls() {
-        for (Ball ball : balls) {
-            if (spaceWarp != 1.0) {
-                applySpaceWarp(ball);
-            }
-            if (ball.update(canvasWidth, canvasHeight, timeScale, gravity)) {
-                ballsToRemove.add(ball);
-                newParticles.addAll(ball.createParticles());
-            }
-        }
-        
-        if (!ballsToRemove.isEmpty()) {
-            balls.removeAll(ballsToRemove);
-            particles.addAll(newParticles);
-        }
+    private void syncInfoPanel() {
+        infoPanel.setTimeScale(engine.getTimeScale());
+        infoPanel.setGravity(engine.getGravity());
+        infoPanel.setSpaceWarp(engine.getSpaceWarp());
+        infoPanel.setEnergyField(engine.getEnergyField());
+        infoPanel.setTimeFreeze(engine.getTimeFreeze().isActive());
+        infoPanel.setBlackHoleMode(engine.getBlackHole().isActive());
+        infoPanel.setTimeVortexMode(engine.getTimeVortex().isActive());
+        infoPanel.setRainbowMode(engine.getRainbow().isActive());
+        infoPanel.setQuantumTunneling(engine.getQuantumTunnel().isActive());
+        infoPanel.setExplosionMode(engine.getExplosion().isActive());
+        infoPanel.setMatrixMode(engine.getMatrix().isActive());
+        infoPanel.setGravityWaves(engine.getGravityWave().isActive());
+        infoPanel.setTeleportMode(engine.getTeleport().isActive());
+        infoPanel.setSplitMode(engine.getSplit().isActive());
+        infoPanel.setMagnetMode(engine.getMagnet().isActive());
+        infoPanel.setSlowMode(engine.getSlowMotion().isActive());
+        infoPanel.setMutualGravity(engine.getGravityMode().isMutual());
+        infoPanel.setReplayRewind(engine.getRewindMode() == RewindMode.REPLAY);
+        infoPanel.setRecording(engine.isRecording());
+        infoPanel.setExporting(exporter != null);
+        infoPanel.refresh();
     }
 
-    private void drawSpaceWarp(Graphics2D g2d) {
-        timeFreeze.draw(g2d, getWidth(), getHeight());
-        
-        blackHole.draw(g2d, getWidth(), getHeight());
-        
-        timeVortex.draw(g2d, mousePosition);
-        
-        if (spaceWarp == 1.0 || mousePosition == null) return;
-        
-        Color warpColor = spaceWarp > 1.0 ? 
-            new Color(255, 100, 100, 50) :
-            new Color(100, 100, 255, 50);
-            
-        float alpha = Math.abs((float)(spaceWarp - 1.0)) * 0.5f;
-        alpha = Math.min(alpha, 0.7f);
-        
-        RadialGradientPaint gradient = new RadialGradientPaint(
-            mousePosition,
-            WARP_RADIUS,
-            new float[]{0.0f, 0.7f, 1.0f},
-            new Color[]{
-                new Color(warpColor.getRed(), warpColor.getGreen(), warpColor.getBlue(), (int)(255 * alpha)),
-                new Color(warpColor.getRed(), warpColor.getGreen(), warpColor.getBlue(), (int)(100 * alpha)),
-                new Color(warpColor.getRed(), warpColor.getGreen(), warpColor.getBlue(), 0)
-            }
-        );
-        
-        g2d.setPaint(gradient);
-        g2d.fillOval(
-            mousePosition.x - WARP_RADIUS,
-            mousePosition.y - WARP_RADIUS,
-            WARP_RADIUS * 2,
-            WARP_RADIUS * 2
-        );
-        
-        g2d.setStroke(new BasicStroke(1.0f));
-        g2d.setColor(new Color(warpColor.getRed(), warpColor.getGreen(), warpColor.getBlue(), 100));
-        
-        int lines = 16;
-        double angleStep = Math.PI * 2 / lines;
-        for (int i = 0; i < lines; i++) {
-            double angle = i * angleStep;
-            int x1 = mousePosition.x + (int)(Math.cos(angle) * WARP_RADIUS * 0.3);
-            int y1 = mousePosition.y + (int)(Math.sin(angle) * WARP_RADIUS * 0.3);
-            int x2 = mousePosition.x + (int)(Math.cos(angle) * WARP_RADIUS * (spaceWarp > 1.0 ? 1.2 : 0.8));
-            int y2 = mousePosition.y + (int)(Math.sin(angle) * WARP_RADIUS * (spaceWarp > 1.0 ? 1.2 : 0.8));
-            g2d.drawLine(x1, y1, x2, y2);
-        }
-    }
-    
-    private void applySpaceWarp(Ball ball) {
-        if (mousePosition == null) return;
-        
-        double dx = ball.getX() - mousePosition.x;
-        double dy = ball.getY() - mousePosition.y;
-        double distance = Math.sqrt(dx * dx + dy * dy);
-        
-        if (distance < WARP_RADIUS) {
-            float force = (float)((1.0 - distance / WARP_RADIUS) * (spaceWarp - 1.0) * 0.5);
-            double angle = Math.atan2(dy, dx);
-            ball.addForce((float)(Math.cos(angle) * force), (float)(Math.sin(angle) * force));
-        }
-    }
-    
-    private void applySpaceWarp(Particle particle) {
-        if (mousePosition == null) return;
-        
-        double dx = particle.getX() - mousePosition.x;
-        double dy = particle.getY() - mousePosition.y;
-        double distance = Math.sqrt(dx * dx + dy * dy);
-        
-        if (distance < WARP_RADIUS) {
-            float force = (float)((1.0 - distance / WARP_RADIUS) * (spaceWarp - 1.0) * 0.3);
-            double angle = Math.atan2(dy, dx);
-            particle.addForce((float)(Math.cos(angle) * force), (float)(Math.sin(angle) * force));
+    // Живой экспорт в разрешении экрана; сжатие завершается в фоне после остановки
+    private void toggleExport() {
+        if (exporter != null) {
+            FrameExporter finished = exporter;
+            exporter = null;
+            finished.stopLive();
+            new Thread(finished::finish, "frame-export-finish").start();
+        } else {
+            exporter = new FrameExporter(engine,
+                Paths.get(Constants.EXPORT_DIRECTORY_PREFIX + System.currentTimeMillis()),
+                canvas.getWidth(), canvas.getHeight(), Constants.EXPORT_SUPERSAMPLE);
+            exporter.startLive(Constants.EXPORT_FPS);
         }
+        syncInfoPanel();
     }
 
-    private void drawTooltip(Graphics2D g2d) {
+    private void drawTooltip(Graphics2D g2d, int width) {
         if (tooltipPosition != null && tooltipText != null) {
             FontMetrics fm = g2d.getFontMetrics();
             int padding = 10;
             int tooltipWidth = fm.stringWidth(tooltipText) + padding * 2;
             int tooltipHeight = fm.getHeight() + padding * 2;
 
-            if (tooltipPosition.x + tooltipWidth > getWidth()) {
+            if (tooltipPosition.x + tooltipWidth > width) {
                 tooltipPosition.x = tooltipPosition.x - tooltipWidth - 20;
             }
 
             GradientPaint gradientBg = new GradientPaint(
                 tooltipPosition.x, tooltipPosition.y,
-                new Color(0, 0, 0, 230),
+                Palette.rgba(0, 0, 0, 230),
                 tooltipPosition.x + tooltipWidth, tooltipPosition.y + tooltipHeight,
-                new Color(20, 20, 40, 230)
+                Palette.rgba(20, 20, 40, 230)
             );
             g2d.setPaint(gradientBg);
             g2d.fillRoundRect(tooltipPosition.x, tooltipPosition.y,
                             tooltipWidth, tooltipHeight, 10, 10);
 
-            g2d.setColor(new Color(100, 100, 255, 100));
+            g2d.setColor(Palette.rgba(100, 100, 255, 100));
             g2d.drawRoundRect(tooltipPosition.x, tooltipPosition.y,
                             tooltipWidth, tooltipHeight, 10, 10);
 
@@ -503,39 +429,4 @@ public class PhysicsSimulation extends JFrame {
                           tooltipPosition.y + padding + fm.getAscent());
         }
     }
-
-    private void drawBackground(Graphics2D g2d) {
-        int w = canvasWidth;
-        int h = canvasHeight;
-        
-        if (gravity > 0) {
-            g2d.setPaint(new GradientPaint(
-                0, 0, new Color(0, 0, 50),
-                0, h, new Color(0, 0, (int)(100 + 155 * backgroundDistortion))
-            ));
-        } else {
-            g2d.setPaint(new GradientPaint(
-                0, 0, new Color(50, 0, 0),
-                0, h, new Color((int)(100 + 155 * backgroundDistortion), 0, 0)
-            ));
-        }
-        
-        g2d.fillRect(0, 0, w, h);
-
-        if (matrix.isActive()) {
-            matrix.draw(g2d, w, h);
-        }
-
-        if (gravityWave.isActive()) {
-            gravityWave.draw(g2d, w, h);
-        }
-
-        if (rainbow.isActive()) {
-            rainbow.draw(g2d, w, h);
-        }
-
-        if (quantumTunnel.isActive()) {
-            quantumTunnel.draw(g2d, w, h);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.physics.bench;
+
+import java.util.Random;
+
+import com.physics.engine.CollisionSolver;
+import com.physics.engine.SimulationEngine;
+import com.physics.model.BallStore;
+
+// Замер широкой фазы: число проверенных пар против n^2
+// Запуск: java -cp PhysicsSim.jar com.physics.bench.CollisionBenchmark [шаров] [шагов] [радиус]
+public class CollisionBenchmark {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        float radius = args.length > 2 ? Float.parseFloat(args[2]) : 3.0f;
+
+        // Мир подбирается так, чтобы шары занимали около четверти площади
+        int side = (int)Math.sqrt(count * (2.0 * radius) * (2.0 * radius) * 4);
+        SimulationEngine engine = new SimulationEngine(side, side);
+        engine.setHistorySpillEnabled(false);
+        engine.setGravity(0);
+
+        Random random = new Random(42);
+        BallStore balls = engine.getBalls();
+        balls.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            int index = engine.addBall(radius + random.nextFloat() * (side - 2 * radius),
+                                       radius + random.nextFloat() * (side - 2 * radius),
+                                       radius);
+            balls.setVelocity(index, random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2);
+        }
+
+        // Прогрев JIT
+        engine.step(Math.max(1, ticks / 10));
+
+        CollisionSolver solver = engine.getCollisionSolver();
+        long pairs = 0;
+        long contacts = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            engine.step();
+            pairs += solver.getCandidatePairs();
+            contacts += solver.getContacts();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double naivePairs = (double)count * (count - 1) / 2;
+        System.out.printf("balls:            %d (radius %.1f, world %dx%d)%n", count, radius, side, side);
+        System.out.printf("grid:             %dx%d cells of %.1f px%n",
+            solver.getGrid().getColumns(), solver.getGrid().getRows(), solver.getGrid().getCellSize());
+        System.out.printf("ticks per second: %.1f (%.3f ms per tick)%n", ticks / seconds, seconds * 1000 / ticks);
+        System.out.printf("candidate pairs:  %d per tick%n", pairs / ticks);
+        System.out.printf("naive pairs n^2/2: %.0f per tick%n", naivePairs);
+        System.out.printf("ratio:            %.6f%n", (pairs / (double)ticks) / naivePairs);
+        System.out.printf("contacts:         %d per tick%n", contacts / ticks);
+    }
+}
@@ -0,0 +1,115 @@
+package com.physics.bench;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.physics.data.Constants;
+import com.physics.engine.RenderState;
+import com.physics.engine.SimulationEngine;
+import com.physics.ui.InfoPanel;
+import com.physics.ui.SceneRenderer;
+
+// Проверка выделений памяти в установившейся отрисовке: все эффекты включены,
+// сцена и панель рисуются в буфер, считаются байты, выделенные всеми потоками за кадр.
+// Код возврата 1, если больше порога (байт на кадр); сборка запускает проверку в фазе test.
+// Это проверка на регресс, а не на отсутствие выделений: установившаяся отрисовка
+// не нулевая, остаются внутренности Java2D (контексты градиентов путей туннеля,
+// итераторы мелких овалов, раскладка глифов) - 150-200 КБ на кадр при 1280x720,
+// разброс от запуска к запуску. Порог чуть выше этого и ловит возврат градиентных
+// заливок и лямбд на кадр (до их замены было около 700 КБ).
+// Если JVM не считает выделения потоков, проверка пропускается с кодом 0.
+// Запуск: java -cp PhysicsSim.jar com.physics.bench.DrawAllocationCheck [кадров] [порог]
+public class DrawAllocationCheck {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int WARMUP_FRAMES = 100;
+    private static final long DEFAULT_LIMIT = 224 * 1024;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long limit = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_LIMIT;
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Проверка пропущена: JVM не считает выделенную потоками память");
+            return;
+        }
+
+        SimulationEngine engine = new SimulationEngine(WIDTH, HEIGHT);
+        engine.setHistorySpillEnabled(false);
+        engine.setMousePosition(new Point(WIDTH / 3, HEIGHT / 3));
+        engine.setSpaceWarp(1.5);
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            engine.addBall(20 + random.nextFloat() * (WIDTH - 40), 20 + random.nextFloat() * (HEIGHT - 40),
+                           3 + random.nextFloat() * 12);
+        }
+        engine.getBlackHole().setActive(true);
+        engine.getTimeVortex().setActive(true);
+        engine.getMatrix().setActive(true);
+        engine.getGravityWave().setActive(true, WIDTH / 2, HEIGHT / 2);
+        engine.getRainbow().setActive(true);
+        engine.getQuantumTunnel().setActive(true);
+        engine.getTeleport().setActive(true, WIDTH / 2, HEIGHT / 2);
+        engine.getMagnet().setActive(true, WIDTH / 4, HEIGHT / 2);
+        engine.getSlowMotion().setActive(true, 3 * WIDTH / 4, HEIGHT / 2);
+        for (int i = 0; i < 200; i++) {
+            engine.createExplosion(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            engine.step();
+        }
+        // Пока шаг стоит, частицы не гаснут и набор цветов не меняется
+        engine.getTimeFreeze().setActive(true);
+
+        SceneRenderer renderer = new SceneRenderer();
+        InfoPanel panel = new InfoPanel(engine.getTeleport(), engine.getSplit(), engine.getMagnet(), engine.getSlowMotion());
+        panel.setDoubleBuffered(false);
+        panel.setSize(WIDTH, Constants.INFO_PANEL_HEIGHT);
+        panel.setShowHelp(true);
+
+        BufferedImage scene = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage info = new BufferedImage(WIDTH, Constants.INFO_PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D sceneGraphics = scene.createGraphics();
+        sceneGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Graphics2D infoGraphics = info.createGraphics();
+        RenderState state = new RenderState();
+        engine.capture(state);
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            drawFrame(renderer, panel, state, sceneGraphics, infoGraphics);
+        }
+
+        long before = allocated(threads);
+        for (int i = 0; i < frames; i++) {
+            drawFrame(renderer, panel, state, sceneGraphics, infoGraphics);
+        }
+        long perFrame = (allocated(threads) - before) / frames;
+
+        System.out.printf("frames:            %d (%dx%d, %d balls, %d particles)%n",
+            frames, WIDTH, HEIGHT, state.getBallCount(), state.getParticleCount());
+        System.out.printf("allocated / frame: %d bytes (limit %d)%n", perFrame, limit);
+        if (perFrame > limit) {
+            System.err.println("Отрисовка выделяет больше порога: " + perFrame + " > " + limit);
+            System.exit(1);
+        }
+    }
+
+    private static void drawFrame(SceneRenderer renderer, InfoPanel panel, RenderState state,
+                                  Graphics2D sceneGraphics, Graphics2D infoGraphics) {
+        renderer.draw(sceneGraphics, state, 1.0f, WIDTH, HEIGHT);
+        panel.paint(infoGraphics);
+    }
+
+    private static long allocated(com.sun.management.ThreadMXBean threads) {
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+}
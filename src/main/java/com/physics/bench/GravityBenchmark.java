@@ -0,0 +1,122 @@
+package com.physics.bench;
+
+import java.util.Random;
+
+import com.physics.data.Constants;
+import com.physics.gravity.BarnesHutTree;
+import com.physics.gravity.DirectGravity;
+import com.physics.gravity.GravityKernel;
+import com.physics.gravity.ParticleMeshGravity;
+import com.physics.parallel.PhaseExecutor;
+
+// Сравнение дерева Барнса-Хата и сетки PM с прямым суммированием: время и относительная ошибка.
+// Прямой расчёт для всех тел при больших n слишком долог, поэтому он делается
+// для выборки тел, а полное время экстраполируется
+// Запуск: java -cp PhysicsSim.jar com.physics.bench.GravityBenchmark [тел] [повторов] [выборка]
+public class GravityBenchmark {
+    private static final float[] ANGLES = {0.3f, 0.5f, 0.7f, 1.0f};
+    private static final int[] RESOLUTIONS = {128, 256, 512, 1024};
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int samples = Math.min(count, args.length > 2 ? Integer.parseInt(args[2]) : 1000);
+
+        // Тела в диске со сгущением к центру, массы как у шаров радиусом 3..15
+        Random random = new Random(42);
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] mass = new float[count];
+        float worldRadius = (float)Math.sqrt(count) * 20;
+        for (int i = 0; i < count; i++) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            double distance = worldRadius * random.nextDouble() * random.nextDouble();
+            x[i] = worldRadius + (float)(Math.cos(angle) * distance);
+            y[i] = worldRadius + (float)(Math.sin(angle) * distance);
+            float radius = 3 + random.nextFloat() * 12;
+            mass[i] = radius * radius;
+        }
+
+        PhaseExecutor phases = PhaseExecutor.shared();
+        GravityKernel kernel = new GravityKernel((float)Constants.GRAVITY_CONSTANT, Constants.GRAVITY_SOFTENING);
+        float[] ax = new float[count];
+        float[] ay = new float[count];
+
+        // Эталон для выборки тел
+        int[] sample = new int[samples];
+        float[] exactX = new float[count];
+        float[] exactY = new float[count];
+        long directStart = System.nanoTime();
+        for (int s = 0; s < samples; s++) {
+            sample[s] = (int)((long)s * count / samples);
+            DirectGravity.accelerationAt(sample[s], x, y, mass, count, kernel, exactX, exactY);
+        }
+        double directPerBody = (System.nanoTime() - directStart) / 1e6 / samples;
+
+        System.out.printf("bodies:           %d (threads %d, sample %d)%n",
+            count, phases.getParallelism(), samples);
+        System.out.printf("direct O(n^2):    %.1f ms per step (extrapolated, one thread)%n",
+            directPerBody * count);
+
+        BarnesHutTree tree = new BarnesHutTree(phases);
+        for (float theta : ANGLES) {
+            tree.setOpeningAngle(theta);
+
+            // Прогрев JIT
+            for (int i = 0; i < 3; i++) {
+                tree.computeAccelerations(x, y, mass, count, kernel, ax, ay);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < repeats; i++) {
+                tree.computeAccelerations(x, y, mass, count, kernel, ax, ay);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / repeats;
+
+            System.out.printf("barnes-hut theta=%.1f: %.1f ms per step, %d nodes, relative RMS error %.2e%n",
+                theta, millis, tree.getNodeCount(), relativeError(sample, ax, ay, exactX, exactY));
+        }
+
+        for (int resolution : RESOLUTIONS) {
+            ParticleMeshGravity mesh = new ParticleMeshGravity(phases, resolution);
+            mesh.setDomain(worldRadius * 2, worldRadius * 2);
+
+            for (int i = 0; i < 3; i++) {
+                mesh.computeAccelerations(x, y, mass, count, kernel, ax, ay);
+            }
+
+            long deposit = 0;
+            long fft = 0;
+            long gradient = 0;
+            long interpolate = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < repeats; i++) {
+                mesh.computeAccelerations(x, y, mass, count, kernel, ax, ay);
+                deposit += mesh.getDepositNanos();
+                fft += mesh.getFftNanos();
+                gradient += mesh.getGradientNanos();
+                interpolate += mesh.getInterpolateNanos();
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / repeats;
+
+            System.out.printf("particle-mesh %4d: %.1f ms per step (deposit %.1f, fft %.1f, gradient %.1f, " +
+                              "interpolate %.1f), cell %.1f px, relative RMS error %.2e%n",
+                resolution, millis, deposit / 1e6 / repeats, fft / 1e6 / repeats, gradient / 1e6 / repeats,
+                interpolate / 1e6 / repeats, mesh.getCellSize(), relativeError(sample, ax, ay, exactX, exactY));
+        }
+    }
+
+    private static double relativeError(int[] sample, float[] ax, float[] ay, float[] exactX, float[] exactY) {
+        double errorSq = 0;
+        double normSq = 0;
+        for (int i : sample) {
+            double dx = ax[i] - exactX[i];
+            double dy = ay[i] - exactY[i];
+            errorSq += dx * dx + dy * dy;
+            normSq += (double)exactX[i] * exactX[i] + (double)exactY[i] * exactY[i];
+        }
+        return Math.sqrt(errorSq / normSq);
+    }
+}
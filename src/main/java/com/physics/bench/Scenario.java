@@ -0,0 +1,244 @@
+package com.physics.bench;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import com.physics.engine.SimulationEngine;
+import com.physics.gravity.GravityMode;
+import com.physics.history.RewindMode;
+import com.physics.model.BallStore;
+
+// Описание мира для замера: ключи key=value из файла properties и/или аргументов,
+// аргументы перекрывают файл. Неизвестный ключ - ошибка, чтобы опечатка
+// не превратила замер в сравнение с другим миром
+//   balls=50000 distribution=uniform|disk|clusters|grid radiusMin=3 radiusMax=15 speed=2
+//   effects=blackHole,gravityWave gravity=0.5 timeScale=1 spaceWarp=1 energyField=0
+//   gravityMode=UNIFORM collisions=true rewind=SNAPSHOTS width=1920 height=1080 seed=42
+//   ticks=1000 warmup=200
+public class Scenario {
+    public enum Distribution { UNIFORM, DISK, CLUSTERS, GRID }
+
+    private static final String[] EFFECTS = {
+        "blackHole", "timeVortex", "matrix", "gravityWave", "rainbow", "quantumTunnel",
+        "teleport", "split", "magnet", "slowMotion", "timeFreeze", "explosion"
+    };
+    private static final int CLUSTERS = 8;
+
+    private int balls = 10_000;
+    private Distribution distribution = Distribution.UNIFORM;
+    private float radiusMin = 3;
+    private float radiusMax = 15;
+    private float speed = 2;
+    private List<String> effects = Collections.emptyList();
+    private double gravity = 0.5;
+    private double timeScale = 1.0;
+    private double spaceWarp = 1.0;
+    private double energyField = 0.0;
+    private GravityMode gravityMode = GravityMode.UNIFORM;
+    private boolean collisions = true;
+    private RewindMode rewind = RewindMode.SNAPSHOTS;
+    private int width = 1920;
+    private int height = 1080;
+    private long seed = 42;
+    private int ticks = 1000;
+    private int warmup = 200;
+
+    public static Scenario parse(String[] args) throws IOException {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент key=value: " + arg);
+            }
+            if (arg.startsWith("scenario=")) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(arg.substring(split + 1)), StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            }
+        }
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("scenario=")) {
+                properties.setProperty(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+            }
+        }
+
+        Scenario scenario = new Scenario();
+        for (String key : properties.stringPropertyNames()) {
+            scenario.set(key, properties.getProperty(key).trim());
+        }
+        return scenario;
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "balls": balls = Integer.parseInt(value); break;
+            case "distribution": distribution = Distribution.valueOf(value.toUpperCase(Locale.ROOT)); break;
+            case "radiusMin": radiusMin = Float.parseFloat(value); break;
+            case "radiusMax": radiusMax = Float.parseFloat(value); break;
+            case "speed": speed = Float.parseFloat(value); break;
+            case "effects": effects = parseEffects(value); break;
+            case "gravity": gravity = Double.parseDouble(value); break;
+            case "timeScale": timeScale = Double.parseDouble(value); break;
+            case "spaceWarp": spaceWarp = Double.parseDouble(value); break;
+            case "energyField": energyField = Double.parseDouble(value); break;
+            case "gravityMode": gravityMode = GravityMode.valueOf(value.toUpperCase(Locale.ROOT)); break;
+            case "collisions": collisions = Boolean.parseBoolean(value); break;
+            case "rewind": rewind = RewindMode.valueOf(value.toUpperCase(Locale.ROOT)); break;
+            case "width": width = Integer.parseInt(value); break;
+            case "height": height = Integer.parseInt(value); break;
+            case "seed": seed = Long.parseLong(value); break;
+            case "ticks": ticks = Integer.parseInt(value); break;
+            case "warmup": warmup = Integer.parseInt(value); break;
+            default:
+                throw new IllegalArgumentException("Неизвестный параметр сценария: " + key);
+        }
+    }
+
+    private static List<String> parseEffects(String value) {
+        List<String> names = new ArrayList<>();
+        for (String name : value.split(",")) {
+            name = name.trim();
+            if (name.isEmpty() || name.equals("none")) continue;
+            boolean known = false;
+            for (String effect : EFFECTS) {
+                known |= effect.equals(name);
+            }
+            if (!known) {
+                throw new IllegalArgumentException("Неизвестный эффект: " + name);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    public int getTicks() { return ticks; }
+    public int getWarmup() { return warmup; }
+
+    // Действующие параметры, включая умолчания, для отчёта
+    public Map<String, Object> describe() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("balls", balls);
+        map.put("distribution", distribution.name().toLowerCase(Locale.ROOT));
+        map.put("radiusMin", radiusMin);
+        map.put("radiusMax", radiusMax);
+        map.put("speed", speed);
+        map.put("effects", effects);
+        map.put("gravity", gravity);
+        map.put("timeScale", timeScale);
+        map.put("spaceWarp", spaceWarp);
+        map.put("energyField", energyField);
+        map.put("gravityMode", gravityMode.name());
+        map.put("collisions", collisions);
+        map.put("rewind", rewind.name());
+        map.put("width", width);
+        map.put("height", height);
+        map.put("seed", seed);
+        map.put("ticks", ticks);
+        map.put("warmup", warmup);
+        return map;
+    }
+
+    public SimulationEngine build() {
+        SimulationEngine engine = new SimulationEngine(width, height);
+        engine.setSeed(seed);
+        engine.setHistorySpillEnabled(false);
+        engine.setGravity(gravity);
+        engine.setTimeScale(timeScale);
+        engine.setSpaceWarp(spaceWarp);
+        engine.setEnergyField(energyField);
+        engine.setGravityMode(gravityMode);
+        engine.setCollisionsEnabled(collisions);
+        engine.setRewindMode(rewind);
+        // Курсор в центре: от него считаются искривление и временной вихрь
+        engine.setMousePosition(new Point(width / 2, height / 2));
+
+        addBalls(engine);
+        for (String effect : effects) {
+            activate(engine, effect);
+        }
+        return engine;
+    }
+
+    private void addBalls(SimulationEngine engine) {
+        Random random = new Random(seed);
+        BallStore store = engine.getBalls();
+        store.ensureCapacity(balls);
+
+        float[] clusterX = new float[CLUSTERS];
+        float[] clusterY = new float[CLUSTERS];
+        for (int c = 0; c < CLUSTERS; c++) {
+            clusterX[c] = width * (0.1f + 0.8f * random.nextFloat());
+            clusterY[c] = height * (0.1f + 0.8f * random.nextFloat());
+        }
+        int columns = Math.max(1, (int)Math.ceil(Math.sqrt(balls * (double)width / height)));
+        int rows = Math.max(1, (balls + columns - 1) / columns);
+
+        for (int i = 0; i < balls; i++) {
+            float radius = radiusMin + random.nextFloat() * (radiusMax - radiusMin);
+            float x;
+            float y;
+            switch (distribution) {
+                case DISK: {
+                    // Сгущение к центру, как в GravityBenchmark
+                    double angle = random.nextDouble() * Math.PI * 2;
+                    double distance = Math.min(width, height) * 0.5 * random.nextDouble() * random.nextDouble();
+                    x = width / 2f + (float)(Math.cos(angle) * distance);
+                    y = height / 2f + (float)(Math.sin(angle) * distance);
+                    break;
+                }
+                case CLUSTERS: {
+                    int c = random.nextInt(CLUSTERS);
+                    float spread = Math.min(width, height) * 0.05f;
+                    x = clusterX[c] + (float)random.nextGaussian() * spread;
+                    y = clusterY[c] + (float)random.nextGaussian() * spread;
+                    break;
+                }
+                case GRID:
+                    x = (i % columns + 0.5f) * width / columns;
+                    y = (i / columns + 0.5f) * height / rows;
+                    break;
+                default:
+                    x = random.nextFloat() * width;
+                    y = random.nextFloat() * height;
+                    break;
+            }
+            x = Math.max(radius, Math.min(width - radius, x));
+            y = Math.max(radius, Math.min(height - radius, y));
+            int index = engine.addBall(x, y, radius);
+            store.setVelocity(index, (random.nextFloat() * 2 - 1) * speed, (random.nextFloat() * 2 - 1) * speed);
+        }
+    }
+
+    // Включение так же, как клавишами окна; точечные эффекты - в центре мира
+    private void activate(SimulationEngine engine, String effect) {
+        int centerX = width / 2;
+        int centerY = height / 2;
+        switch (effect) {
+            case "blackHole": engine.getBlackHole().setActive(true); break;
+            case "timeVortex": engine.getTimeVortex().setActive(true); break;
+            case "matrix": engine.getMatrix().setActive(true); break;
+            case "gravityWave": engine.getGravityWave().setActive(true, centerX, centerY); break;
+            case "rainbow": engine.getRainbow().setActive(true); break;
+            case "quantumTunnel": engine.getQuantumTunnel().setActive(true); break;
+            case "teleport": engine.getTeleport().setActive(true, centerX, centerY); break;
+            case "split": engine.getSplit().setActive(true); break;
+            case "magnet": engine.getMagnet().setActive(true, centerX, centerY); break;
+            case "slowMotion": engine.getSlowMotion().setActive(true, centerX, centerY); break;
+            case "timeFreeze": engine.getTimeFreeze().setActive(true); break;
+            case "explosion": engine.getExplosion().setActive(true); break;
+        }
+    }
+}
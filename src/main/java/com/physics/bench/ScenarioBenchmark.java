@@ -0,0 +1,235 @@
+package com.physics.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.physics.engine.SimulationEngine;
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.PhaseTiming;
+import com.physics.profile.Profiler;
+import com.physics.profile.RollingHistogram;
+
+// Прогон сценария без окна: прогрев, затем ticks шагов и отчёт в JSON на stdout -
+// шаги в секунду, время участков шага, скорость выделения памяти и пик кучи.
+// Запуск: java -jar PhysicsSim.jar bench balls=50000 effects=blackHole,gravityWave ticks=1000
+//         java -jar PhysicsSim.jar bench scenario=world.properties ticks=5000
+public class ScenarioBenchmark {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            Scenario scenario = Scenario.parse(args);
+            System.out.println(toJson(run(scenario), 0));
+        } catch (Exception e) {
+            System.err.println("Ошибка замера: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public static Map<String, Object> run(Scenario scenario) {
+        SimulationEngine engine = scenario.build();
+        PhaseExecutor phases = PhaseExecutor.shared();
+
+        System.err.println("Прогрев: " + scenario.getWarmup() + " шагов");
+        engine.step(scenario.getWarmup());
+
+        // Окна профилировщика обнуляются, чтобы перцентили не захватили прогрев;
+        // счётчики PhaseExecutor накопительные, по ним берётся разность
+        Profiler.shared().reset();
+        Map<String, long[]> phasesBefore = snapshotPhases(phases);
+        long allocatedBefore = allocatedBytes();
+        long[] gcBefore = gcTotals();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        System.err.println("Замер: " + scenario.getTicks() + " шагов");
+        long start = System.nanoTime();
+        engine.step(scenario.getTicks());
+        long elapsed = System.nanoTime() - start;
+
+        long allocated = allocatedBytes() - allocatedBefore;
+        long[] gcAfter = gcTotals();
+        double seconds = elapsed / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", scenario.describe());
+        report.put("threads", phases.getParallelism());
+        report.put("ticks", scenario.getTicks());
+        report.put("seconds", seconds);
+        report.put("ticksPerSecond", scenario.getTicks() / seconds);
+        report.put("msPerTick", elapsed / 1e6 / scenario.getTicks());
+        report.put("finalBalls", engine.getBalls().size());
+        report.put("finalParticles", engine.getParticles().size());
+        report.put("phases", profileReport());
+        report.put("parallelPhases", phasesReport(phases, phasesBefore));
+
+        Map<String, Object> memory = new LinkedHashMap<>();
+        memory.put("allocatedBytes", allocated < 0 ? null : allocated);
+        memory.put("allocationRateMBPerSecond", allocated < 0 ? null : allocated / seconds / (1 << 20));
+        memory.put("allocatedBytesPerTick", allocated < 0 ? null : allocated / scenario.getTicks());
+        memory.put("peakHeapBytes", peakHeap());
+        memory.put("gcCount", gcAfter[0] - gcBefore[0]);
+        memory.put("gcMillis", gcAfter[1] - gcBefore[1]);
+        report.put("memory", memory);
+        return report;
+    }
+
+    private static Map<String, long[]> snapshotPhases(PhaseExecutor phases) {
+        Map<String, long[]> snapshot = new HashMap<>();
+        for (PhaseTiming timing : phases.getTimings()) {
+            snapshot.put(timing.getName(), new long[]{timing.getCalls(), timing.getTotalNanos()});
+        }
+        return snapshot;
+    }
+
+    // Участки профилировщика: среднее за прогон, перцентили - по последним WINDOW шагам
+    private static Map<String, Object> profileReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        RollingHistogram.Summary summary = new RollingHistogram.Summary();
+        for (RollingHistogram histogram : Profiler.shared().getHistograms()) {
+            long calls = histogram.getCount();
+            if (calls == 0) continue;
+            histogram.summarize(summary);
+
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("calls", calls);
+            phase.put("meanMs", histogram.getTotalNanos() / 1e6 / calls);
+            phase.put("p50Ms", summary.getP50() / 1e6);
+            phase.put("p99Ms", summary.getP99() / 1e6);
+            phase.put("maxMs", summary.getMax() / 1e6);
+            report.put(histogram.getName(), phase);
+        }
+        return report;
+    }
+
+    private static Map<String, Object> phasesReport(PhaseExecutor phases, Map<String, long[]> before) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        for (PhaseTiming timing : phases.getTimings()) {
+            long[] previous = before.getOrDefault(timing.getName(), new long[2]);
+            long calls = timing.getCalls() - previous[0];
+            if (calls == 0) continue;
+
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("calls", calls);
+            phase.put("meanMs", (timing.getTotalNanos() - previous[1]) / 1e6 / calls);
+            report.put(timing.getName(), phase);
+        }
+        return report;
+    }
+
+    // Выделено всеми живыми потоками; -1, если JVM не ведёт этот счёт
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean)threads;
+        if (!counting.isThreadAllocatedMemorySupported() || !counting.isThreadAllocatedMemoryEnabled()) return -1;
+
+        long total = 0;
+        for (long bytes : counting.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    private static long peakHeap() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    static String toJson(Object value, int indent) {
+        StringBuilder out = new StringBuilder();
+        appendJson(out, value, indent);
+        return out.toString();
+    }
+
+    private static void appendJson(StringBuilder out, Object value, int indent) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>)value;
+            if (map.isEmpty()) {
+                out.append("{}");
+                return;
+            }
+            out.append("{\n");
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                pad(out, indent + 2);
+                appendString(out, String.valueOf(entry.getKey()));
+                out.append(": ");
+                appendJson(out, entry.getValue(), indent + 2);
+                out.append(++i < map.size() ? ",\n" : "\n");
+            }
+            pad(out, indent);
+            out.append('}');
+        } else if (value instanceof List) {
+            List<?> list = (List<?>)value;
+            out.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) out.append(", ");
+                appendJson(out, list.get(i), indent);
+            }
+            out.append(']');
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number)value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                out.append("null");
+            } else {
+                out.append(String.format(Locale.ROOT, "%.6g", number));
+            }
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else {
+            appendString(out, String.valueOf(value));
+        }
+    }
+
+    private static void appendString(StringBuilder out, String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format(Locale.ROOT, "\\u%04x", (int)c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static void pad(StringBuilder out, int spaces) {
+        for (int i = 0; i < spaces; i++) {
+            out.append(' ');
+        }
+    }
+}
@@ -8,14 +8,35 @@ public class Constants {
     public static final int INFO_PANEL_HEIGHT = 160;
     public static final int MATRIX_CHARS = 50;
     public static final int MAX_TRAJECTORY_POINTS = 200;
+    public static final int WARP_RADIUS = 150;
+    public static final int MAX_PARTICLES = 20000; // Ёмкость пула частиц
+    public static final String SNAPSHOT_FILE = "scene.psnap"; // Снимок сцены для F5/F9
+    public static final String SESSION_FILE_PREFIX = "session-"; // Запись сессии по F6: session-<время>.psess
+    public static final String SESSION_FILE_SUFFIX = ".psess";
+    public static final String EXPORT_DIRECTORY_PREFIX = "export-"; // Кадры по F7: export-<время>/frame-NNNNNN.png
+    public static final int EXPORT_FPS = 30; // Частота живого экспорта кадров
+    public static final int EXPORT_SUPERSAMPLE = 2; // Выборок на пиксель по каждой оси
+    public static final int EXPORT_TILE = 256; // Сторона плитки экспорта в пикселях кадра
+    public static final int EXPORT_PNG_LEVEL = 1; // Уровень сжатия PNG: быстрее, чтобы успевать за кадрами
+    public static final long GLOW_SPRITE_BYTES = 4L << 20; // Память под спрайты свечения одного эффекта
     
     // Временные параметры
     public static final long KING_CRIMSON_DURATION = 5000;  // 5 секунд
-    public static final long MAX_HISTORY_TIME = 10000; // 10 секунд для обращения времени
+    public static final long MAX_HISTORY_TIME = 300000; // 5 минут для обращения времени
+    public static final long HISTORY_BUDGET_BYTES = 64L << 20; // Память под историю обращения времени
+    public static final long HISTORY_SPILL_BYTES = 1L << 30; // Файл под вытесненную из памяти историю
+    public static final int TICK_RATE = 120; // Шагов симуляции в секунду
+    public static final int REPLAY_KEYFRAME_TICKS = TICK_RATE * 2; // Интервал ключевых кадров при откате повтором
+    public static final int MAX_CATCH_UP_STEPS = 8; // Предел догоняющих шагов за один кадр
     
     // Физические константы
     public static final double WAVE_SPEED = 0.05;
     public static final double WAVE_AMPLITUDE = 0.5;
+    public static final double COLLISION_RESTITUTION = 0.9; // Упругость столкновений при энергии 1.0
+    public static final double GRAVITY_CONSTANT = 1.0;  // Множитель взаимного притяжения к параметру гравитации
+    public static final float GRAVITY_SOFTENING = 10.0f; // Сглаживание ядра притяжения, px
+    public static final float BARNES_HUT_THETA = 0.5f; // Угол раскрытия дерева Барнса-Хата
+    public static final int PM_RESOLUTION = 256; // Узлов сетки PM по длинной стороне мира
     
     // Пределы параметров
     public static final double MIN_TIME_SCALE = 0.01;
@@ -46,6 +67,10 @@ public class Constants {
         EFFECT_DESCRIPTIONS.put("Дилатация", "Локальное искривление течения времени");
         EFFECT_DESCRIPTIONS.put("Антиматерия", "Создает поле отрицательной материи");
         EFFECT_DESCRIPTIONS.put("Искажение", "Нарушает законы физики в случайных областях");
+        EFFECT_DESCRIPTIONS.put("Взаим. гравит.", "Шары притягивают друг друга: прямое суммирование, дерево Барнса-Хата или сетка с БПФ (N)");
+        EFFECT_DESCRIPTIONS.put("Откат повтором", "Откат хранит ключевые кадры и журнал ввода и пересчитывает шаги заново вместо снимков (J)");
+        EFFECT_DESCRIPTIONS.put("Запись", "Запись сессии на диск в фоновом потоке с индексом ключевых кадров для перемотки (F6)");
+        EFFECT_DESCRIPTIONS.put("Экспорт", "Кадры с суперсэмплингом в последовательность PNG, сжатие в пуле потоков (F7)");
         EFFECT_DESCRIPTIONS.put("King Crimson", "Стирает время для всех, кроме пользователя. " +
             "Оставляет следы движения объектов и позволяет видеть их будущие позиции. " +
             "Активация: K");
@@ -5,22 +5,25 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.MultipleGradientPaint.CycleMethod;
 import java.awt.RadialGradientPaint;
+import java.awt.RenderingHints;
 import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
-import com.physics.model.Ball;
+import com.physics.field.FieldBodies;
+import com.physics.field.ForceField;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
+import com.physics.profile.BufferReallocationEvent;
 
-public class BlackHole {
-    private final ExecutorService executor = EffectUtils.getExecutor();
+public class BlackHole implements ForceField, StatefulEffect {
+    private final PhaseExecutor phases = EffectUtils.getPhaseExecutor();
     private boolean isActive = false;
     private double phase = 0.0;
-    private static final Random random = new Random();
+    private final Random random = new Random();
     private final ArrayList<AccretionParticle> accretionDisk = new ArrayList<>();
     
     private static final int PARTICLE_COUNT = 500;
@@ -31,23 +34,57 @@ public class BlackHole {
     private static final double DISK_ROTATION_SPEED = 0.01;
     private double diskRotation = 0.0;
     
+    // Параметры силового поля, общие для всех тел на шаге
+    private float fieldCenterX;
+    private float fieldCenterY;
+    private float radialScale;
+    private float tangentialScale;
+    private static final int UPDATE_GRAIN = 128;
+    private final RangeTask updateParticles = (start, end) -> {
+        for (int i = start; i < end; i++) {
+            accretionDisk.get(i).update();
+        }
+    };
+    
     // Кэшируем часто используемые значения
-    private final Point2D.Float centerPoint = new Point2D.Float();
     private final float[] sineTable = new float[360];
     private final float[] cosineTable = new float[360];
     private final Color[] lineColors = new Color[360];
     private final Path2D.Float[] distortionPaths = new Path2D.Float[120];  // Уменьшаем количество линий
     private final Color[] particleColors = new Color[256];  // Кэш для цветов частиц
     
-    // Кэшируем градиенты
-    private RadialGradientPaint horizonGradient;
-    private final Color[] glowColors = new Color[8];
-    private final RadialGradientPaint[] glowGradients = new RadialGradientPaint[8];
+    // Горизонт событий со свечением и ядром от центра не зависит: он растеризуется
+    // один раз и рисуется одним drawImage, без градиентных контекстов на кадр
+    private final BufferedImage horizonSprite;
     
-    // Буферы для рендеринга
+    // Буферы для рендеринга; их Graphics живут вместе с буферами, чтобы не создавать
+    // их на каждый кадр, и пересоздаются только при смене размера
     private BufferedImage distortionBuffer;
-    private BufferedImage accretionBuffer;
     private BufferedImage horizonBuffer;
+    private Graphics2D distortionG2d;
+    private Graphics2D horizonG2d;
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+    private static final AlphaComposite DISTORTION_BLEND = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f);
+    private static final AlphaComposite ACCRETION_BLEND = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f);
+    // Свечение диска - три круга на частицу, они закрашиваются прямо в int[] буфера
+    private final ParticleSplatter accretion = new ParticleSplatter("blackHole.accretion", ParticleSplatter.Blend.ALPHA);
+    
+    // Слои рисуются параллельно, каждый в свой буфер; снимок и центр общие на кадр
+    private Frame drawFrame;
+    private int drawCenterX;
+    private int drawCenterY;
+    // Порядок частиц по Z-индексу живёт между кадрами: он почти не меняется
+    private int[] drawOrder = new int[0];
+    private final RangeTask drawLayers = (start, end) -> {
+        for (int i = start; i < end; i++) {
+            drawLayer(i);
+        }
+    };
+    private final RangeTask updateDistortion = (start, end) -> {
+        for (int i = start; i < end; i++) {
+            updateDistortionPath(i, drawFrame, drawCenterX, drawCenterY);
+        }
+    };
     
     private class AccretionParticle {
         double angle;
@@ -121,14 +158,10 @@ public class BlackHole {
             particleColors[i] = Color.getHSBColor(hue, 0.8f, 1.0f);
         }
         
-        // Инициализируем цвета свечения
-        for (int i = 0; i < glowColors.length; i++) {
-            glowColors[i] = new Color(0, 0, 100, 50);
-        }
+        horizonSprite = renderHorizon();
         
         // Инициализируем буферы с нулевым размером
         distortionBuffer = EffectUtils.createCompatibleImage(1, 1, true);
-        accretionBuffer = EffectUtils.createCompatibleImage(1, 1, true);
         horizonBuffer = EffectUtils.createCompatibleImage(1, 1, true);
     }
     
@@ -142,6 +175,18 @@ public class BlackHole {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive).putDouble(phase).putDouble(diskRotation);
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        setActive(in.getBoolean());
+        phase = in.getDouble();
+        diskRotation = in.getDouble();
+    }
     
     private void initializeParticles() {
         accretionDisk.clear();
@@ -157,158 +202,141 @@ public class BlackHole {
         diskRotation += DISK_ROTATION_SPEED;
         
         // Параллельное обновление частиц
-        List<List<AccretionParticle>> batches = new ArrayList<>();
-        int batchSize = PARTICLE_COUNT / Runtime.getRuntime().availableProcessors();
-        for (int i = 0; i < accretionDisk.size(); i += batchSize) {
-            batches.add(accretionDisk.subList(i, 
-                Math.min(i + batchSize, accretionDisk.size())));
-        }
-        
-        EffectUtils.parallelProcess(batches, 1, batch -> {
-            for (AccretionParticle particle : batch) {
-                particle.update();
-            }
-        });
+        phases.forRange("blackHole.update", 0, accretionDisk.size(), UPDATE_GRAIN, updateParticles);
     }
     
-    public void draw(Graphics2D g2d, int width, int height) {
+    // Снимок диска для отрисовки: заполняется под блокировкой шага, рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private double phase;
+        private double diskRotation;
+        private int particleCount;
+        private double[] angle = new double[0];
+        private double[] radius = new double[0];
+        private double[] distortion = new double[0];
+        private double[] verticalOffset = new double[0];
+        private float[] hue = new float[0];
+        private float[] alpha = new float[0];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive;
         if (!isActive) return;
+
+        frame.phase = phase;
+        frame.diskRotation = diskRotation;
+        int count = accretionDisk.size();
+        if (frame.angle.length < count) {
+            frame.angle = new double[count];
+            frame.radius = new double[count];
+            frame.distortion = new double[count];
+            frame.verticalOffset = new double[count];
+            frame.hue = new float[count];
+            frame.alpha = new float[count];
+        }
+        frame.particleCount = count;
+        for (int i = 0; i < count; i++) {
+            AccretionParticle particle = accretionDisk.get(i);
+            frame.angle[i] = particle.angle;
+            frame.radius[i] = particle.radius;
+            frame.distortion[i] = particle.distortion;
+            frame.verticalOffset[i] = particle.verticalOffset;
+            frame.hue[i] = particle.hue;
+            frame.alpha[i] = particle.alpha;
+        }
+    }
+    
+    public void draw(Graphics2D g2d, Frame frame, int width, int height) {
+        if (!frame.active) return;
         
         ensureBufferSize(width, height);
         
-        int centerX = width / 2;
-        int centerY = height / 2;
+        drawFrame = frame;
+        drawCenterX = width / 2;
+        drawCenterY = height / 2;
         
         // Очищаем буферы
-        Graphics2D distortionG2d = distortionBuffer.createGraphics();
-        Graphics2D accretionG2d = accretionBuffer.createGraphics();
-        Graphics2D horizonG2d = horizonBuffer.createGraphics();
+        distortionG2d.clearRect(0, 0, width, height);
+        accretion.begin(width, height);
+        horizonG2d.clearRect(0, 0, width, height);
         
-        try {
-            distortionG2d.setBackground(new Color(0, 0, 0, 0));
-            accretionG2d.setBackground(new Color(0, 0, 0, 0));
-            horizonG2d.setBackground(new Color(0, 0, 0, 0));
-            
-            distortionG2d.clearRect(0, 0, width, height);
-            accretionG2d.clearRect(0, 0, width, height);
-            horizonG2d.clearRect(0, 0, width, height);
-            
-            // Рендерим каждый слой параллельно
-            Future<?> distortionFuture = executor.submit(() -> 
-                drawSpaceDistortion(distortionG2d, centerX, centerY));
-            Future<?> accretionFuture = executor.submit(() -> 
-                drawAccretionDisk(accretionG2d, centerX, centerY));
-            Future<?> horizonFuture = executor.submit(() -> {
-                drawEventHorizon(horizonG2d, centerX, centerY);
-                drawBlackHoleCore(horizonG2d, centerX, centerY);
-            });
-            
-            // Ждем завершения рендеринга
-            try {
-                distortionFuture.get();
-                accretionFuture.get();
-                horizonFuture.get();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            
-            // Композитинг слоев
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-            g2d.drawImage(distortionBuffer, 0, 0, null);
-            
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
-            g2d.drawImage(accretionBuffer, 0, 0, null);
-            
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
-            g2d.drawImage(horizonBuffer, 0, 0, null);
-            
-        } finally {
-            distortionG2d.dispose();
-            accretionG2d.dispose();
-            horizonG2d.dispose();
-        }
+        // Рендерим каждый слой параллельно, каждый в свой буфер
+        phases.forRange("blackHole.draw", 0, 3, 1, drawLayers);
+        drawFrame = null;
+        
+        // Композитинг слоев
+        g2d.setComposite(DISTORTION_BLEND);
+        g2d.drawImage(distortionBuffer, 0, 0, null);
+        
+        g2d.setComposite(ACCRETION_BLEND);
+        accretion.flush(g2d);
+        
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.drawImage(horizonBuffer, 0, 0, null);
     }
     
-    private void ensureBufferSize(int width, int height) {
-        if (distortionBuffer.getWidth() != width || distortionBuffer.getHeight() != height) {
-            distortionBuffer = EffectUtils.createCompatibleImage(width, height, true);
-            accretionBuffer = EffectUtils.createCompatibleImage(width, height, true);
-            horizonBuffer = EffectUtils.createCompatibleImage(width, height, true);
+    private void drawLayer(int layer) {
+        switch (layer) {
+            case 0:
+                drawSpaceDistortion(distortionG2d, drawFrame);
+                break;
+            case 1:
+                drawAccretionDisk(drawFrame, drawCenterX, drawCenterY);
+                break;
+            default:
+                horizonG2d.drawImage(horizonSprite, drawCenterX - EVENT_HORIZON_RADIUS,
+                                     drawCenterY - EVENT_HORIZON_RADIUS, null);
+                break;
         }
     }
     
-    private void updateGradients(int centerX, int centerY) {
-        centerPoint.setLocation(centerX, centerY);
-        
-        // Обновляем градиент горизонта событий только при необходимости
-        if (horizonGradient == null || horizonGradient.getCenterPoint().getX() != centerX || 
-            horizonGradient.getCenterPoint().getY() != centerY) {
-            
-            float[] fractions = {0.0f, 0.5f, 0.7f, 1.0f};
-            Color[] colors = {
-                new Color(0, 0, 0, 0),
-                new Color(0, 0, 50, 100),
-                new Color(0, 0, 0, 200),
-                new Color(0, 0, 0, 255)
-            };
-            
-            horizonGradient = new RadialGradientPaint(
-                centerPoint, EVENT_HORIZON_RADIUS, fractions, colors, CycleMethod.NO_CYCLE
-            );
-            
-            // Обновляем градиенты свечения
-            for (int i = 0; i < glowGradients.length; i++) {
-                double glowAngle = i * Math.PI / 4;
-                float glowX = centerX + (float)(Math.cos(glowAngle) * EVENT_HORIZON_RADIUS * 0.8);
-                float glowY = centerY + (float)(Math.sin(glowAngle) * EVENT_HORIZON_RADIUS * 0.8);
-                
-                glowGradients[i] = new RadialGradientPaint(
-                    glowX, glowY, EVENT_HORIZON_RADIUS / 2,
-                    new float[]{0.0f, 1.0f},
-                    new Color[]{glowColors[i], new Color(0, 0, 0, 0)}
-                );
+    private void ensureBufferSize(int width, int height) {
+        if (distortionG2d == null || distortionBuffer.getWidth() != width || distortionBuffer.getHeight() != height) {
+            BufferReallocationEvent event = new BufferReallocationEvent();
+            event.begin();
+            if (distortionG2d != null) {
+                distortionG2d.dispose();
+                horizonG2d.dispose();
             }
+            distortionBuffer = EffectUtils.createCompatibleImage(width, height, true);
+            horizonBuffer = EffectUtils.createCompatibleImage(width, height, true);
+            distortionG2d = distortionBuffer.createGraphics();
+            horizonG2d = horizonBuffer.createGraphics();
+            distortionG2d.setBackground(TRANSPARENT);
+            // Полупрозрачные линии без сглаживания идут через общий конвейер Java2D,
+            // который на каждый отрезок создаёт растр; со сглаживанием они рисуются
+            // маской без выделений и быстрее
+            distortionG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            horizonG2d.setBackground(TRANSPARENT);
+            event.finish("BlackHole", width, height, 2);
         }
     }
     
-    private void drawSpaceDistortion(Graphics2D g2d, int centerX, int centerY) {
+    private void drawSpaceDistortion(Graphics2D g2d, Frame frame) {
         // Обновляем пути искажения только каждый второй кадр
-        if ((int)(phase * 100) % 2 == 0) {
+        if ((int)(frame.phase * 100) % 2 == 0) {
             // Параллельное обновление путей искажения
-            int pathsPerThread = distortionPaths.length / Runtime.getRuntime().availableProcessors();
-            List<List<Integer>> pathBatches = new ArrayList<>();
-            for (int i = 0; i < distortionPaths.length; i += pathsPerThread) {
-                final int start = i;
-                final int end = Math.min(i + pathsPerThread, distortionPaths.length);
-                pathBatches.add(java.util.stream.IntStream.range(start, end)
-                    .boxed().collect(java.util.stream.Collectors.toList()));
-            }
-            
-            EffectUtils.parallelProcess(pathBatches, 1, batch -> {
-                for (int i : batch) {
-                    updateDistortionPath(i, centerX, centerY);
-                }
-            });
+            phases.forRange("blackHole.distortion", 0, distortionPaths.length, 16, updateDistortion);
         }
         
         // Отрисовка путей
         for (int i = 0; i < distortionPaths.length; i++) {
             float alpha = 0.15f + EffectUtils.sin(i * 3) * 0.1f;
-            alpha *= 1.0f + (float)Math.sin(phase * 0.7) * 0.3f;
+            alpha *= 1.0f + (float)Math.sin(frame.phase * 0.7) * 0.3f;
             
             Color baseColor = EffectUtils.getColorFromCache((float)i / distortionPaths.length);
-            g2d.setColor(new Color(
-                baseColor.getRed(),
-                baseColor.getGreen(),
-                baseColor.getBlue(),
-                (int)(255 * alpha)
-            ));
+            g2d.setColor(Palette.withAlpha(baseColor, (int)(255 * alpha)));
             
             g2d.draw(distortionPaths[i]);
         }
     }
     
-    private void updateDistortionPath(int index, int centerX, int centerY) {
+    private void updateDistortionPath(int index, Frame frame, int centerX, int centerY) {
+        double phase = frame.phase;
         Path2D.Float path = distortionPaths[index];
         if (path == null) {
             path = new Path2D.Float();
@@ -317,7 +345,7 @@ public class BlackHole {
         path.reset();
         
         try {
-            double angle = (index * 3) * Math.PI / 180 + diskRotation;
+            double angle = (index * 3) * Math.PI / 180 + frame.diskRotation;
             float startX = centerX + EffectUtils.cos(index * 3) * EVENT_HORIZON_RADIUS;
             float startY = centerY + EffectUtils.sin(index * 3) * EVENT_HORIZON_RADIUS;
             
@@ -348,167 +376,158 @@ public class BlackHole {
         }
     }
     
-    private void drawAccretionDisk(Graphics2D g2d, int centerX, int centerY) {
-        // Сортировка частиц по Z-индексу
-        accretionDisk.sort((p1, p2) -> Double.compare(p2.verticalOffset, p1.verticalOffset));
-        
-        // Разбиваем частицы на батчи для параллельной отрисовки
-        int particlesPerBatch = accretionDisk.size() / Runtime.getRuntime().availableProcessors();
-        List<List<AccretionParticle>> batches = new ArrayList<>();
-        for (int i = 0; i < accretionDisk.size(); i += particlesPerBatch) {
-            batches.add(accretionDisk.subList(i, 
-                Math.min(i + particlesPerBatch, accretionDisk.size())));
+    private void drawAccretionDisk(Frame frame, int centerX, int centerY) {
+        int count = frame.particleCount;
+        if (drawOrder.length != count) {
+            drawOrder = new int[count];
+            for (int i = 0; i < count; i++) {
+                drawOrder[i] = i;
+            }
         }
         
-        // Параллельная отрисовка частиц
-        EffectUtils.parallelProcess(batches, 1, batch -> {
-            Graphics2D batchG2d = (Graphics2D)g2d.create();
-            try {
-                for (AccretionParticle particle : batch) {
-                    drawParticle(batchG2d, particle, centerX, centerY);
-                }
-            } finally {
-                batchG2d.dispose();
+        // Сортировка частиц по Z-индексу вставками: между кадрами порядок почти
+        // не меняется, так что это почти линейный проход без временных массивов
+        double[] verticalOffset = frame.verticalOffset;
+        for (int i = 1; i < count; i++) {
+            int particle = drawOrder[i];
+            int j = i - 1;
+            while (j >= 0 && verticalOffset[drawOrder[j]] < verticalOffset[particle]) {
+                drawOrder[j + 1] = drawOrder[j];
+                j--;
             }
-        });
+            drawOrder[j + 1] = particle;
+        }
+        
+        // Круги копятся в порядке Z-индекса, ParticleSplatter этот порядок сохраняет
+        for (int i = 0; i < count; i++) {
+            drawParticle(frame, drawOrder[i], centerX, centerY);
+        }
     }
     
-    private void drawParticle(Graphics2D g2d, AccretionParticle particle, int centerX, int centerY) {
-        Color baseColor = EffectUtils.getColorFromCache(particle.hue);
-        
-        float glowSize = 8 + (float)(Math.sin(phase + particle.angle) + 1) * 3;
-        glowSize *= (1.0f - (float)(particle.radius - BLACK_HOLE_RADIUS) / 
+    private void drawParticle(Frame frame, int i, int centerX, int centerY) {
+        double phase = frame.phase;
+        double angle = frame.angle[i];
+        double radius = frame.radius[i];
+        Color baseColor = EffectUtils.getColorFromCache(frame.hue[i]);
+        
+        float glowSize = 8 + (float)(Math.sin(phase + angle) + 1) * 3;
+        glowSize *= (1.0f - (float)(radius - BLACK_HOLE_RADIUS) / 
                     (float)(EVENT_HORIZON_RADIUS - BLACK_HOLE_RADIUS)) * 1.5f;
         
-        double distortedAngle = particle.angle + 
-            Math.sin(particle.angle * 2 + phase) * 0.3 *
-            (1.0 - (particle.radius - BLACK_HOLE_RADIUS) / 
+        double distortedAngle = angle + 
+            Math.sin(angle * 2 + phase) * 0.3 *
+            (1.0 - (radius - BLACK_HOLE_RADIUS) / 
              (double)(EVENT_HORIZON_RADIUS - BLACK_HOLE_RADIUS));
         
         float x = (float)(centerX + Math.cos(distortedAngle) * 
-                (particle.radius + particle.distortion));
+                (radius + frame.distortion[i]));
         float y = (float)(centerY + Math.sin(distortedAngle) * 
-                (particle.radius + particle.distortion) * 
-                (0.7 + Math.cos(particle.angle) * 0.3) +
-                particle.verticalOffset);
+                (radius + frame.distortion[i]) * 
+                (0.7 + Math.cos(angle) * 0.3) +
+                frame.verticalOffset[i]);
         
-        drawParticleGlow(g2d, x, y, glowSize, baseColor, particle.alpha);
+        drawParticleGlow(x, y, glowSize, baseColor.getRGB() & 0xFFFFFF, frame.alpha[i]);
     }
     
-    private void drawParticleGlow(Graphics2D g2d, float x, float y, float size, Color baseColor, float alpha) {
+    private void drawParticleGlow(float x, float y, float size, int rgb, float alpha) {
         // Внешнее свечение
-        g2d.setColor(new Color(
-            baseColor.getRed(),
-            baseColor.getGreen(),
-            baseColor.getBlue(),
-            (int)(50 * alpha)
-        ));
-        
-        float outerSize = size * 3;
-        g2d.fillOval(
-            (int)(x - outerSize/2),
-            (int)(y - outerSize/2),
-            (int)outerSize,
-            (int)outerSize
-        );
+        accretion.add(x, y, size * 1.5f, glowArgb(rgb, 50 * alpha));
         
         // Основное свечение
-        g2d.setColor(new Color(
-            baseColor.getRed(),
-            baseColor.getGreen(),
-            baseColor.getBlue(),
-            (int)(100 * alpha)
-        ));
-        
-        float middleSize = size * 2;
-        g2d.fillOval(
-            (int)(x - middleSize/2),
-            (int)(y - middleSize/2),
-            (int)middleSize,
-            (int)middleSize
-        );
+        accretion.add(x, y, size, glowArgb(rgb, 100 * alpha));
         
         // Ядро частицы
-        g2d.setColor(new Color(
-            baseColor.getRed(),
-            baseColor.getGreen(),
-            baseColor.getBlue(),
-            (int)(255 * alpha)
-        ));
-        
-        float coreSize = size * 0.5f;
-        g2d.fillOval(
-            (int)(x - coreSize/2),
-            (int)(y - coreSize/2),
-            (int)coreSize,
-            (int)coreSize
-        );
+        accretion.add(x, y, size * 0.25f, glowArgb(rgb, 255 * alpha));
     }
     
-    private void drawEventHorizon(Graphics2D g2d, int centerX, int centerY) {
-        updateGradients(centerX, centerY);
-        
-        g2d.setPaint(horizonGradient);
-        g2d.fillOval(
-            centerX - EVENT_HORIZON_RADIUS,
-            centerY - EVENT_HORIZON_RADIUS,
-            EVENT_HORIZON_RADIUS * 2,
-            EVENT_HORIZON_RADIUS * 2
-        );
-        
-        // Рисуем свечение с использованием кэшированных градиентов
-        for (int i = 0; i < glowGradients.length; i++) {
-            g2d.setPaint(glowGradients[i]);
-            g2d.fillOval(
-                centerX - EVENT_HORIZON_RADIUS,
-                centerY - EVENT_HORIZON_RADIUS,
-                EVENT_HORIZON_RADIUS * 2,
-                EVENT_HORIZON_RADIUS * 2
-            );
-        }
+    private static int glowArgb(int rgb, float alpha) {
+        return Math.max(0, Math.min(255, (int)alpha)) << 24 | rgb;
     }
     
-    private void drawBlackHoleCore(Graphics2D g2d, int centerX, int centerY) {
+    private static BufferedImage renderHorizon() {
+        int size = EVENT_HORIZON_RADIUS * 2;
+        int center = EVENT_HORIZON_RADIUS;
+        BufferedImage image = EffectUtils.createCompatibleImage(size, size, true);
+        Graphics2D g2d = image.createGraphics();
+        
+        g2d.setPaint(new RadialGradientPaint(
+            center, center, EVENT_HORIZON_RADIUS,
+            new float[]{0.0f, 0.5f, 0.7f, 1.0f},
+            new Color[]{
+                new Color(0, 0, 0, 0),
+                new Color(0, 0, 50, 100),
+                new Color(0, 0, 0, 200),
+                new Color(0, 0, 0, 255)
+            },
+            CycleMethod.NO_CYCLE
+        ));
+        g2d.fillOval(0, 0, size, size);
+        
+        // Свечение - восемь пятен по кругу внутри горизонта
+        Color glowColor = new Color(0, 0, 100, 50);
+        for (int i = 0; i < 8; i++) {
+            double glowAngle = i * Math.PI / 4;
+            float glowX = center + (float)(Math.cos(glowAngle) * EVENT_HORIZON_RADIUS * 0.8);
+            float glowY = center + (float)(Math.sin(glowAngle) * EVENT_HORIZON_RADIUS * 0.8);
+            g2d.setPaint(new RadialGradientPaint(
+                glowX, glowY, EVENT_HORIZON_RADIUS / 2,
+                new float[]{0.0f, 1.0f},
+                new Color[]{glowColor, new Color(0, 0, 0, 0)}
+            ));
+            g2d.fillOval(0, 0, size, size);
+        }
+        
+        // Ядро
         g2d.setColor(Color.BLACK);
-        g2d.fillOval(
-            centerX - BLACK_HOLE_RADIUS,
-            centerY - BLACK_HOLE_RADIUS,
-            BLACK_HOLE_RADIUS * 2,
-            BLACK_HOLE_RADIUS * 2
-        );
+        g2d.fillOval(center - BLACK_HOLE_RADIUS, center - BLACK_HOLE_RADIUS,
+                     BLACK_HOLE_RADIUS * 2, BLACK_HOLE_RADIUS * 2);
+        g2d.dispose();
+        return image;
     }
     
-    public void applyEffect(ArrayList<Ball> balls, int width, int height) {
-        if (!isActive) return;
-        
-        int centerX = width / 2;
-        int centerY = height / 2;
-        
-        for (Ball ball : balls) {
-            double dx = ball.getX() - centerX;
-            double dy = ball.getY() - centerY;
-            double distance = Math.sqrt(dx * dx + dy * dy);
-            
-            if (distance < INFLUENCE_RADIUS) {
-                double force = (1.0 - distance / INFLUENCE_RADIUS) * 3.0;
-                
-                double angle = Math.atan2(dy, dx);
-                double tangentialForce = force * (0.5 + Math.sin(phase) * 0.2);
-                
-                force *= 1.0 + Math.sin(phase * 0.5) * 0.2;
-                
-                ball.addForce(
-                    (float) (-dx / distance * force - Math.sin(angle) * tangentialForce),
-                    (float) (-dy / distance * force + Math.cos(angle) * tangentialForce)
-                );
-                
-                if (distance < EVENT_HORIZON_RADIUS * 1.2) {
-                    ball.addForce(
-                        (float) (-dx / distance * force * 2),
-                        (float) (-dy / distance * force * 2)
-                    );
-                }
-            }
+    // Силовое поле: притяжение к центру мира с закруткой
+    @Override
+    public boolean isFieldActive() {
+        return isActive;
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+        fieldCenterX = width / 2;
+        fieldCenterY = height / 2;
+        tangentialScale = (float)(0.5 + Math.sin(phase) * 0.2);
+        radialScale = (float)(1.0 + Math.sin(phase * 0.5) * 0.2);
+    }
+
+    @Override
+    public float getFieldCenterX() { return fieldCenterX; }
+
+    @Override
+    public float getFieldCenterY() { return fieldCenterY; }
+
+    @Override
+    public float getFieldRadius() { return INFLUENCE_RADIUS; }
+
+    @Override
+    public boolean affectsParticles() { return false; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        if (distance == 0) return;
+
+        // Направление к центру без atan2: cos и sin угла - это компоненты нормали
+        float nx = dx / distance;
+        float ny = dy / distance;
+        float force = (1.0f - distance / INFLUENCE_RADIUS) * 3.0f;
+        float tangentialForce = force * tangentialScale;
+        force *= radialScale;
+
+        // У горизонта событий радиальная сила утраивается
+        if (distance < EVENT_HORIZON_RADIUS * 1.2f) {
+            force *= 3.0f;
         }
+
+        bodies.vx[i] += -nx * force - ny * tangentialForce;
+        bodies.vy[i] += -ny * force + nx * tangentialForce;
     }
 } 
\ No newline at end of file
@@ -7,18 +7,10 @@ import java.awt.GraphicsEnvironment;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
+
+import com.physics.parallel.PhaseExecutor;
 
 public class EffectUtils {
-    private static final ExecutorService executor = 
-        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        
     private static final int COLOR_CACHE_SIZE = 1024;
     private static final Color[] colorCache = new Color[COLOR_CACHE_SIZE];
     private static final float[] sinTable = new float[360];
@@ -40,6 +32,12 @@ public class EffectUtils {
     }
     
     public static BufferedImage createCompatibleImage(int width, int height, boolean hasAlpha) {
+        // Без дисплея (headless-режим) используем обычный int-буфер
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, 
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        }
+        
         GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
         GraphicsDevice gd = ge.getDefaultScreenDevice();
         GraphicsConfiguration gc = gd.getDefaultConfiguration();
@@ -65,67 +63,24 @@ public class EffectUtils {
         return cosTable[index];
     }
     
-    public static <T> void parallelProcess(List<T> items, int minBatchSize, Consumer<T> processor) {
-        if (items.size() < minBatchSize) {
-            items.forEach(processor);
-            return;
-        }
-        
-        try {
-            for (T item : items) {
-                executor.submit(() -> processor.accept(item));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-    
-    public static ExecutorService getExecutor() {
-        return executor;
-    }
-    
-    public static void shutdown() {
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-        }
+    public static PhaseExecutor getPhaseExecutor() {
+        return PhaseExecutor.shared();
     }
     
     public static void processImageParallel(BufferedImage image, ImageProcessor processor) {
         int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
         int width = image.getWidth();
         int height = image.getHeight();
-        int threadCount = Runtime.getRuntime().availableProcessors();
-        
-        List<Future<?>> futures = new ArrayList<>();
-        int rowsPerThread = height / threadCount;
         
-        for (int i = 0; i < threadCount; i++) {
-            final int startY = i * rowsPerThread;
-            final int endY = (i == threadCount - 1) ? height : (i + 1) * rowsPerThread;
-            
-            futures.add(executor.submit(() -> {
-                for (int y = startY; y < endY; y++) {
-                    for (int x = 0; x < width; x++) {
-                        int index = y * width + x;
-                        pixels[index] = processor.processPixel(x, y, pixels[index]);
-                    }
+        // Строки делятся на порции, вызов возвращается после обработки всего изображения
+        PhaseExecutor.shared().forRange("image", 0, height, 16, (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                for (int x = 0; x < width; x++) {
+                    int index = y * width + x;
+                    pixels[index] = processor.processPixel(x, y, pixels[index]);
                 }
-            }));
-        }
-        
-        // Ждем завершения всех потоков
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                e.printStackTrace();
             }
-        }
+        });
     }
     
     @FunctionalInterface
@@ -172,4 +127,31 @@ public class EffectUtils {
         
         return argb(a, r, g, b);
     }
+
+    // Цвет с предумноженной альфой: каналы уже умножены на alpha / 255
+    public static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 255) return argb;
+        int rb = ((argb & 0xFF00FF) * a + 0x800080) >>> 8 & 0xFF00FF;
+        int g = ((argb & 0x00FF00) * a + 0x008000) >>> 8 & 0x00FF00;
+        return a << 24 | rb | g;
+    }
+
+    // Насыщающее сложение двух предумноженных цветов (аддитивное смешивание)
+    public static int addColors(int dst, int src) {
+        int a = Math.min(255, (dst >>> 24) + (src >>> 24));
+        int r = Math.min(255, getRed(dst) + getRed(src));
+        int g = Math.min(255, getGreen(dst) + getGreen(src));
+        int b = Math.min(255, getBlue(dst) + getBlue(src));
+        return argb(a, r, g, b);
+    }
+
+    // src поверх dst, оба предумноженные: два канала за одно умножение,
+    // переносов между каналами нет, так как (256 - a) / 256 * 255 + a <= 255
+    public static int blendOver(int dst, int src) {
+        int inverse = 256 - (src >>> 24);
+        int rb = ((dst & 0xFF00FF) * inverse >>> 8) & 0xFF00FF;
+        int ag = ((dst >>> 8) & 0xFF00FF) * inverse & 0xFF00FF00;
+        return src + (rb | ag);
+    }
 } 
\ No newline at end of file
@@ -1,16 +1,23 @@
 package com.physics.effects;
 
-import java.awt.Color;
-import java.util.ArrayList;
+import java.util.Random;
 
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
 import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
 
-public class Explosion {
+public class Explosion implements StatefulEffect {
     private boolean isActive = false;
     private static final int EFFECT_RADIUS = 300;
     private static final double FORCE_MULTIPLIER = 10.0;
     private static final int PARTICLE_COUNT = 30;
+    private final Random random;
+
+    public Explosion(Random random) {
+        this.random = random;
+    }
 
     public void setActive(boolean active) {
         isActive = active;
@@ -20,21 +27,33 @@ public class Explosion {
         return isActive;
     }
 
-    public void createExplosion(int x, int y, ArrayList<Ball> balls, ArrayList<Particle> particles) {
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive);
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        isActive = in.getBoolean();
+    }
+
+    public void createExplosion(int x, int y, BallStore balls, ParticlePool particles) {
         if (!isActive) return;
 
         // Создаем частицы взрыва
         for (int i = 0; i < PARTICLE_COUNT; i++) {
-            double angle = Math.random() * Math.PI * 2;
-            double speed = 5 + Math.random() * 10;
+            double angle = random.nextDouble() * Math.PI * 2;
+            double speed = 5 + random.nextDouble() * 10;
             double vx = Math.cos(angle) * speed;
             double vy = Math.sin(angle) * speed;
-            particles.add(new Particle(x, y, (float) vx, (float) vy, 100, 
-                new Color((int)(Math.random() * 255), 100, 50), 5));
+            int red = (int)(random.nextDouble() * 255);
+            particles.spawn(x, y, (float) vx, (float) vy, 100, 0xFF000000 | red << 16 | 100 << 8 | 50, 5);
         }
         
         // Воздействуем на ближайшие шары
-        for (Ball ball : balls) {
+        Ball ball = balls.view(0);
+        for (int index = 0; index < balls.size(); index++) {
+            ball.at(index);
             double dx = ball.getX() - x;
             double dy = ball.getY() - y;
             double distance = Math.sqrt(dx * dx + dy * dy);
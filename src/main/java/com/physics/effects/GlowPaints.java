@@ -0,0 +1,65 @@
+package com.physics.effects;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RadialGradientPaint;
+import java.awt.geom.Ellipse2D;
+
+// Радиальные градиенты одной формы (доли и альфы точек) разных цветов.
+// Градиент строится один раз на цвет вокруг начала координат с единичным радиусом
+// и растягивается преобразованием до нужного круга, а общая прозрачность
+// задаётся композитом. Цвета лучше заранее квантовать (hue), иначе кэш не поможет
+final class GlowPaints {
+    private static final int TABLE_BITS = 9;
+    private static final int MASK = (1 << TABLE_BITS) - 1;
+    private static final Ellipse2D.Float UNIT_CIRCLE = new Ellipse2D.Float(-1, -1, 2, 2);
+
+    private final float[] fractions;
+    private final int[] stopAlphas;
+    private final float gradientRadius;
+    private final RadialGradientPaint[] paints = new RadialGradientPaint[1 << TABLE_BITS];
+    private final int[] keys = new int[1 << TABLE_BITS];
+
+    // gradientRadius - радиус градиента в долях радиуса круга
+    GlowPaints(float[] fractions, int[] stopAlphas, float gradientRadius) {
+        this.fractions = fractions;
+        this.stopAlphas = stopAlphas;
+        this.gradientRadius = gradientRadius;
+    }
+
+    RadialGradientPaint paint(int rgb) {
+        int key = rgb | 0xFF000000;
+        int slot = (key * 0x9E3779B1 >>> (32 - TABLE_BITS)) & MASK;
+        RadialGradientPaint paint = paints[slot];
+        if (paint == null || keys[slot] != key) {
+            Color[] colors = new Color[stopAlphas.length];
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = Palette.argb(stopAlphas[i] << 24 | (key & 0x00FFFFFF));
+            }
+            paint = new RadialGradientPaint(0, 0, gradientRadius, fractions, colors);
+            paints[slot] = paint;
+            keys[slot] = key;
+        }
+        return paint;
+    }
+
+    // Круг радиуса radius с центром (x, y), альфы точек умножаются на alpha
+    void fill(Graphics2D g2d, int rgb, float x, float y, float radius, float alpha) {
+        if (radius <= 0 || alpha <= 0) return;
+
+        Composite previous = g2d.getComposite();
+        if (previous instanceof AlphaComposite && ((AlphaComposite)previous).getRule() == AlphaComposite.SRC_OVER) {
+            alpha *= ((AlphaComposite)previous).getAlpha();
+        }
+        g2d.setPaint(paint(rgb));
+        g2d.setComposite(alpha >= 1 ? AlphaComposite.SrcOver : Palette.srcOver(alpha));
+        g2d.translate(x, y);
+        g2d.scale(radius, radius);
+        g2d.fill(UNIT_CIRCLE);
+        g2d.scale(1 / radius, 1 / radius);
+        g2d.translate(-x, -y);
+        g2d.setComposite(previous);
+    }
+}
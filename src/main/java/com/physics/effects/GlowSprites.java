@@ -0,0 +1,150 @@
+package com.physics.effects;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import com.physics.profile.BufferReallocationEvent;
+
+// Атлас готовых спрайтов свечения: круг из GlowPaints растеризуется один раз на пару
+// (цвет, радиус в целых пикселях) и дальше рисуется одним drawImage, без градиентного
+// контекста на каждую частицу. Цвета - уже квантованные по оттенку (Palette.hueRgb),
+// так что ключей конечное число. Объём ограничен capacityBytes, при переполнении
+// вытесняются давно не рисованные спрайты. Не потокобезопасен: один атлас на слой
+final class GlowSprites {
+    // Крупнее рисуется градиентом напрямую: спрайт был бы дороже самого круга
+    private static final int MAX_RADIUS = 48;
+    private static final int TABLE_BITS = 10;
+    private static final int MASK = (1 << TABLE_BITS) - 1;
+
+    private final String name;
+    private final GlowPaints paints;
+    private final long capacityBytes;
+    private final Sprite[] table = new Sprite[1 << TABLE_BITS];
+    // Кольцевой список по давности использования: head.next - самый свежий,
+    // head.previous - первый кандидат на вытеснение
+    private final Sprite head = new Sprite(-1, 0, null);
+    private long bytes;
+
+    private static final class Sprite {
+        final long key;
+        final int radius;
+        final BufferedImage image;
+        Sprite nextInSlot;
+        Sprite next;
+        Sprite previous;
+
+        Sprite(long key, int radius, BufferedImage image) {
+            this.key = key;
+            this.radius = radius;
+            this.image = image;
+        }
+    }
+
+    GlowSprites(String name, GlowPaints paints, long capacityBytes) {
+        this.name = name;
+        this.paints = paints;
+        this.capacityBytes = capacityBytes;
+        head.next = head;
+        head.previous = head;
+    }
+
+    // То же, что GlowPaints.fill, но радиус округляется до целого пикселя
+    void draw(Graphics2D g2d, int rgb, float x, float y, float radius, float alpha) {
+        if (radius <= 0 || alpha <= 0) return;
+        int bucket = Math.max(1, Math.round(radius));
+        if (bucket > MAX_RADIUS) {
+            paints.fill(g2d, rgb, x, y, radius, alpha);
+            return;
+        }
+
+        Sprite sprite = sprite(rgb & 0xFFFFFF, bucket);
+        Composite previous = g2d.getComposite();
+        if (previous instanceof AlphaComposite && ((AlphaComposite)previous).getRule() == AlphaComposite.SRC_OVER) {
+            alpha *= ((AlphaComposite)previous).getAlpha();
+        }
+        g2d.setComposite(alpha >= 1 ? AlphaComposite.SrcOver : Palette.srcOver(alpha));
+        // Центр спрайта - угол пикселя с индексом radius + 1
+        g2d.drawImage(sprite.image, Math.round(x) - bucket - 1, Math.round(y) - bucket - 1, null);
+        g2d.setComposite(previous);
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    private Sprite sprite(int rgb, int radius) {
+        long key = (long)rgb << 8 | radius;
+        int slot = slot(key);
+        for (Sprite sprite = table[slot]; sprite != null; sprite = sprite.nextInSlot) {
+            if (sprite.key == key) {
+                unlink(sprite);
+                linkFirst(sprite);
+                return sprite;
+            }
+        }
+
+        Sprite sprite = new Sprite(key, radius, render(rgb, radius));
+        sprite.nextInSlot = table[slot];
+        table[slot] = sprite;
+        linkFirst(sprite);
+        bytes += spriteBytes(radius);
+        while (bytes > capacityBytes && head.previous != sprite) {
+            evict(head.previous);
+        }
+        return sprite;
+    }
+
+    private BufferedImage render(int rgb, int radius) {
+        BufferReallocationEvent event = new BufferReallocationEvent();
+        event.begin();
+        int size = 2 * radius + 2;
+        BufferedImage image = EffectUtils.createCompatibleImage(size, size, true);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        paints.fill(g2d, rgb, radius + 1, radius + 1, radius, 1.0f);
+        g2d.dispose();
+        event.finish(name, size, size, 1);
+        return image;
+    }
+
+    private void evict(Sprite sprite) {
+        unlink(sprite);
+        int slot = slot(sprite.key);
+        if (table[slot] == sprite) {
+            table[slot] = sprite.nextInSlot;
+        } else {
+            Sprite previous = table[slot];
+            while (previous.nextInSlot != sprite) {
+                previous = previous.nextInSlot;
+            }
+            previous.nextInSlot = sprite.nextInSlot;
+        }
+        bytes -= spriteBytes(sprite.radius);
+        sprite.image.flush();
+    }
+
+    private void linkFirst(Sprite sprite) {
+        sprite.next = head.next;
+        sprite.previous = head;
+        head.next.previous = sprite;
+        head.next = sprite;
+    }
+
+    private static void unlink(Sprite sprite) {
+        sprite.previous.next = sprite.next;
+        sprite.next.previous = sprite.previous;
+    }
+
+    private static long spriteBytes(int radius) {
+        long size = 2 * radius + 2;
+        return 4 * size * size;
+    }
+
+    private static int slot(long key) {
+        int hash = (int)(key ^ key >>> 32) * 0x9E3779B1;
+        return (hash ^ hash >>> TABLE_BITS) & MASK;
+    }
+}
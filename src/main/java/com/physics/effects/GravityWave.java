@@ -1,24 +1,23 @@
 package com.physics.effects;
 
 import java.awt.AlphaComposite;
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
 import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.field.FieldBodies;
+import com.physics.field.ForceField;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
 
-public class GravityWave {
+public class GravityWave implements ForceField, StatefulEffect {
     private boolean isActive = false;
     private double phase = 0.0;
     private BufferedImage waveBuffer;
+    private Graphics2D waveG2d;  // живёт вместе с буфером
     
     private final List<WaveRing> rings = new ArrayList<>();
     private static final float PHASE_SPEED = 0.05f;
@@ -26,6 +25,23 @@ public class GravityWave {
     private static final float MAX_RADIUS = 800.0f;
     private static final float INITIAL_RADIUS = 50.0f;
     private static final float FORCE_MULTIPLIER = 15.0f;
+    private static final float WAVE_WIDTH = 100.0f;
+    private static final int HUE_STEPS = 64;
+    private static final AlphaComposite BLEND = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.8f);
+    
+    // Градиенты колец по оттенку и общий путь искажений: рисует один поток
+    private final GlowPaints ringPaints = new GlowPaints(new float[]{0.8f, 0.9f, 1.0f}, new int[]{0, 255, 0}, 1.0f);
+    private final Path2D.Float wavePath = new Path2D.Float();
+    
+    // Снимок колец и параметры поля на текущий шаг
+    private float fieldCenterX;
+    private float fieldCenterY;
+    private float fieldRadius;
+    private float turnCos = 1.0f;
+    private float turnSin = 0.0f;
+    private int ringCount = 0;
+    private float[] ringRadius = new float[4];
+    private float[] ringStrength = new float[4];
     
     private class WaveRing {
         float radius;
@@ -47,111 +63,6 @@ public class GravityWave {
             // Добавляем пульсацию
             strength *= 0.5f + 0.5f * Math.sin(phase * 5 + initialPhase);
         }
-        
-        void draw(Graphics2D g2d, int width, int height) {
-            float centerX = width / 2.0f;
-            float centerY = height / 2.0f;
-            
-            // Рисуем кольцо волны
-            float alpha = strength * 0.8f;
-            Color waveColor = Color.getHSBColor(0.6f + (float)Math.sin(phase) * 0.1f, 0.8f, 1.0f);
-            
-            // Градиентная заливка для кольца
-            RadialGradientPaint paint = new RadialGradientPaint(
-                new Point2D.Float(centerX, centerY),
-                radius,
-                new float[]{0.8f, 0.9f, 1.0f},
-                new Color[]{
-                    new Color(waveColor.getRed(), waveColor.getGreen(), waveColor.getBlue(), 0),
-                    new Color(waveColor.getRed(), waveColor.getGreen(), waveColor.getBlue(), (int)(255 * alpha)),
-                    new Color(waveColor.getRed(), waveColor.getGreen(), waveColor.getBlue(), 0)
-                }
-            );
-            
-            g2d.setPaint(paint);
-            g2d.fillOval(
-                (int)(centerX - radius),
-                (int)(centerY - radius),
-                (int)(radius * 2),
-                (int)(radius * 2)
-            );
-            
-            // Рисуем волновые искажения
-            g2d.setStroke(new BasicStroke(2.0f));
-            Path2D.Float path = new Path2D.Float();
-            int points = 60;
-            
-            for (int i = 0; i <= points; i++) {
-                float angle = (float)(i * Math.PI * 2 / points);
-                float wave = (float)(Math.sin(angle * 8 + phase * 5) * 10);
-                float r = radius + wave;
-                
-                float x = centerX + (float)(Math.cos(angle) * r);
-                float y = centerY + (float)(Math.sin(angle) * r);
-                
-                if (i == 0) path.moveTo(x, y);
-                else path.lineTo(x, y);
-            }
-            
-            path.closePath();
-            g2d.setColor(new Color(waveColor.getRed(), waveColor.getGreen(), waveColor.getBlue(), 
-                                 (int)(100 * alpha)));
-            g2d.draw(path);
-        }
-        
-        void applyForce(Ball ball, int width, int height) {
-            float centerX = width / 2.0f;
-            float centerY = height / 2.0f;
-            
-            double dx = ball.getX() - centerX;
-            double dy = ball.getY() - centerY;
-            double dist = Math.sqrt(dx * dx + dy * dy);
-            
-            // Применяем силу только в области кольца
-            float wavePeak = radius;
-            float waveWidth = 100.0f;
-            
-            if (Math.abs(dist - wavePeak) < waveWidth) {
-                // Сила зависит от близости к пику волны
-                float forceFactor = 1.0f - Math.abs((float)dist - wavePeak) / waveWidth;
-                forceFactor *= strength;
-                
-                // Направление силы - от центра
-                double angle = Math.atan2(dy, dx);
-                // Добавляем колебания к углу для создания турбулентности
-                angle += Math.sin(phase * 3) * 0.2;
-                
-                double forceX = Math.cos(angle) * forceFactor * FORCE_MULTIPLIER;
-                double forceY = Math.sin(angle) * forceFactor * FORCE_MULTIPLIER;
-                
-                ball.addForce((float) forceX, (float) forceY);
-            }
-        }
-        
-        void applyForce(Particle particle, int width, int height) {
-            float centerX = width / 2.0f;
-            float centerY = height / 2.0f;
-            
-            double dx = particle.getX() - centerX;
-            double dy = particle.getY() - centerY;
-            double dist = Math.sqrt(dx * dx + dy * dy);
-            
-            float wavePeak = radius;
-            float waveWidth = 100.0f;
-            
-            if (Math.abs(dist - wavePeak) < waveWidth) {
-                float forceFactor = 1.0f - Math.abs((float)dist - wavePeak) / waveWidth;
-                forceFactor *= strength * 0.5f; // Меньшая сила для частиц
-                
-                double angle = Math.atan2(dy, dx);
-                angle += Math.sin(phase * 3) * 0.2;
-                
-                double forceX = Math.cos(angle) * forceFactor * FORCE_MULTIPLIER;
-                double forceY = Math.sin(angle) * forceFactor * FORCE_MULTIPLIER;
-                
-                particle.addForce((float) forceX, (float) forceY);
-            }
-        }
     }
     
     public void setActive(boolean active, int x, int y) {
@@ -169,6 +80,29 @@ public class GravityWave {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive).putDouble(phase).putInt(rings.size());
+        for (WaveRing ring : rings) {
+            out.putFloat(ring.radius).putFloat(ring.strength).putFloat(ring.initialPhase);
+        }
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        isActive = in.getBoolean();
+        phase = in.getDouble();
+        rings.clear();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            WaveRing ring = new WaveRing();
+            ring.radius = in.getFloat();
+            ring.strength = in.getFloat();
+            ring.initialPhase = in.getFloat();
+            rings.add(ring);
+        }
+    }
     
     public void update() {
         if (!isActive) return;
@@ -190,44 +124,152 @@ public class GravityWave {
         }
     }
     
-    public void draw(Graphics2D g2d, int width, int height) {
-        if (!isActive || rings.isEmpty()) return;
+    // Снимок колец для отрисовки: заполняется под блокировкой шага, рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private double phase;
+        private int ringCount;
+        private float[] ringRadius = new float[4];
+        private float[] ringStrength = new float[4];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive;
+        if (!isActive) return;
+
+        frame.phase = phase;
+        frame.ringCount = rings.size();
+        if (frame.ringRadius.length < frame.ringCount) {
+            frame.ringRadius = new float[frame.ringCount];
+            frame.ringStrength = new float[frame.ringCount];
+        }
+        for (int r = 0; r < frame.ringCount; r++) {
+            WaveRing ring = rings.get(r);
+            frame.ringRadius[r] = ring.radius;
+            frame.ringStrength[r] = ring.strength;
+        }
+    }
+    
+    public void draw(Graphics2D g2d, Frame frame, int width, int height) {
+        if (!frame.active || frame.ringCount == 0) return;
         
         if (waveBuffer == null || waveBuffer.getWidth() != width || waveBuffer.getHeight() != height) {
+            if (waveG2d != null) {
+                waveG2d.dispose();
+            }
             waveBuffer = EffectUtils.createCompatibleImage(width, height, true);
+            waveG2d = waveBuffer.createGraphics();
+            waveG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         }
         
-        Graphics2D bufferG2d = waveBuffer.createGraphics();
-        try {
-            bufferG2d.setComposite(AlphaComposite.Clear);
-            bufferG2d.fillRect(0, 0, width, height);
-            bufferG2d.setComposite(AlphaComposite.SrcOver);
-            bufferG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            for (WaveRing ring : rings) {
-                ring.draw(bufferG2d, width, height);
-            }
-        } finally {
-            bufferG2d.dispose();
+        waveG2d.setComposite(AlphaComposite.Clear);
+        waveG2d.fillRect(0, 0, width, height);
+        waveG2d.setComposite(AlphaComposite.SrcOver);
+        for (int i = 0; i < frame.ringCount; i++) {
+            drawRing(waveG2d, frame.ringRadius[i], frame.ringStrength[i], frame.phase, width, height);
         }
         
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.8f));
+        g2d.setComposite(BLEND);
         g2d.drawImage(waveBuffer, 0, 0, null);
     }
     
-    public void applyEffect(ArrayList<Ball> balls, ArrayList<Particle> particles) {
-        if (!isActive || rings.isEmpty()) return;
+    private void drawRing(Graphics2D g2d, float radius, float strength, double phase, int width, int height) {
+        float centerX = width / 2.0f;
+        float centerY = height / 2.0f;
         
-        // Используем фиксированные размеры для эффекта
-        int width = 800;  // значение по умолчанию
-        int height = 600; // значение по умолчанию
+        // Рисуем кольцо волны
+        float alpha = strength * 0.8f;
+        int waveRgb = Palette.hueRgb(0.6f + (float)Math.sin(phase) * 0.1f, HUE_STEPS, 0.8f);
         
-        for (WaveRing ring : rings) {
-            for (Ball ball : balls) {
-                ring.applyForce(ball, width, height);
-            }
-            for (Particle particle : particles) {
-                ring.applyForce(particle, width, height);
+        // Градиентная заливка для кольца
+        ringPaints.fill(g2d, waveRgb, centerX, centerY, radius, alpha);
+        
+        // Рисуем волновые искажения
+        g2d.setStroke(Strokes.of(2.0f));
+        Path2D.Float path = wavePath;
+        path.reset();
+        int points = 60;
+        
+        for (int i = 0; i <= points; i++) {
+            float angle = (float)(i * Math.PI * 2 / points);
+            float wave = (float)(Math.sin(angle * 8 + phase * 5) * 10);
+            float r = radius + wave;
+            
+            float x = centerX + (float)(Math.cos(angle) * r);
+            float y = centerY + (float)(Math.sin(angle) * r);
+            
+            if (i == 0) path.moveTo(x, y);
+            else path.lineTo(x, y);
+        }
+        
+        path.closePath();
+        g2d.setColor(Palette.argb((int)(100 * alpha) << 24 | (waveRgb & 0xFFFFFF)));
+        g2d.draw(path);
+    }
+    
+    // Силовое поле: кольца расходятся из центра мира и толкают тела наружу.
+    // Радиус влияния - самое большое кольцо вместе с шириной волны
+    @Override
+    public boolean isFieldActive() {
+        return isActive && !rings.isEmpty();
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+        fieldCenterX = width / 2.0f;
+        fieldCenterY = height / 2.0f;
+
+        ringCount = rings.size();
+        if (ringRadius.length < ringCount) {
+            ringRadius = new float[ringCount];
+            ringStrength = new float[ringCount];
+        }
+        fieldRadius = 0;
+        for (int r = 0; r < ringCount; r++) {
+            WaveRing ring = rings.get(r);
+            ringRadius[r] = ring.radius;
+            ringStrength[r] = ring.strength;
+            fieldRadius = Math.max(fieldRadius, ring.radius + WAVE_WIDTH);
+        }
+
+        // Колебание угла одинаково для всех тел на шаге
+        double turn = Math.sin(phase * 3) * 0.2;
+        turnCos = (float)Math.cos(turn);
+        turnSin = (float)Math.sin(turn);
+    }
+
+    @Override
+    public float getFieldCenterX() { return fieldCenterX; }
+
+    @Override
+    public float getFieldCenterY() { return fieldCenterY; }
+
+    @Override
+    public float getFieldRadius() { return fieldRadius; }
+
+    @Override
+    public boolean affectsParticles() { return true; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        // atan2(0, 0) = 0: в самом центре направление - вдоль оси x
+        float nx = distance > 0 ? dx / distance : 1.0f;
+        float ny = distance > 0 ? dy / distance : 0.0f;
+        float directionX = nx * turnCos - ny * turnSin;
+        float directionY = ny * turnCos + nx * turnSin;
+        float scale = bodies.isParticles() ? 0.5f : 1.0f; // Меньшая сила для частиц
+
+        for (int r = 0; r < ringCount; r++) {
+            // Сила только в области кольца и зависит от близости к пику волны
+            float offset = Math.abs(distance - ringRadius[r]);
+            if (offset < WAVE_WIDTH) {
+                float forceFactor = (1.0f - offset / WAVE_WIDTH) * ringStrength[r] * scale;
+                bodies.vx[i] += directionX * forceFactor * FORCE_MULTIPLIER;
+                bodies.vy[i] += directionY * forceFactor * FORCE_MULTIPLIER;
             }
         }
     }
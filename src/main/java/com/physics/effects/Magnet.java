@@ -7,10 +7,12 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Random;
 
-import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.field.FieldBodies;
+import com.physics.field.ForceField;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
 
-public class Magnet {
+public class Magnet implements ForceField, StatefulEffect {
     private boolean isActive = false;
     private final Random random = new Random();
     private Point2D.Float fieldCenter;
@@ -19,13 +21,22 @@ public class Magnet {
     private static final int PARTICLE_COUNT = 100;
     private static final float FIELD_RADIUS = 200f;
     private static final float FORCE_MULTIPLIER = 10f;
+    private static final Color COLOR = new Color(100, 100, 255);
+    private static final RadialGradientPaint FIELD_PAINT = new RadialGradientPaint(
+        0, 0, FIELD_RADIUS,
+        new float[]{0.0f, 0.7f, 1.0f},
+        new Color[]{
+            new Color(100, 100, 255, 100),
+            new Color(100, 100, 255, 30),
+            new Color(100, 100, 255, 0)
+        }
+    );
     
     private class MagnetParticle {
         float x, y;
         float angle;
         float radius;
         float alpha = 1.0f;
-        Color color;
         
         MagnetParticle() {
             reset();
@@ -39,7 +50,6 @@ public class Magnet {
                 y = fieldCenter.y + (float)Math.sin(angle) * radius;
             }
             alpha = 0.3f + random.nextFloat() * 0.7f;
-            color = new Color(100, 100, 255);
         }
         
         void update() {
@@ -54,17 +64,6 @@ public class Magnet {
                 reset();
             }
         }
-        
-        void draw(Graphics2D g2d) {
-            Color particleColor = new Color(
-                color.getRed(),
-                color.getGreen(),
-                color.getBlue(),
-                (int)(alpha * 255)
-            );
-            g2d.setColor(particleColor);
-            g2d.fillOval((int)x - 2, (int)y - 2, 4, 4);
-        }
     }
     
     public void setActive(boolean active, float x, float y) {
@@ -85,6 +84,29 @@ public class Magnet {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive);
+        if (isActive) {
+            out.putFloat(fieldCenter.x).putFloat(fieldCenter.y);
+        }
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        boolean active = in.getBoolean();
+        if (active) {
+            float x = in.getFloat();
+            float y = in.getFloat();
+            if (!isActive || fieldCenter.x != x || fieldCenter.y != y) {
+                isActive = false;
+                setActive(true, x, y);
+            }
+        } else {
+            isActive = false;
+        }
+    }
     
     public void update() {
         if (!isActive) return;
@@ -94,72 +116,86 @@ public class Magnet {
         }
     }
     
-    public void draw(Graphics2D g2d) {
-        if (!isActive || fieldCenter == null) return;
+    // Снимок для отрисовки: центр и частицы. Заполняется под блокировкой шага,
+    // рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private float centerX;
+        private float centerY;
+        private int particleCount;
+        private float[] particleX = new float[PARTICLE_COUNT];
+        private float[] particleY = new float[PARTICLE_COUNT];
+        private float[] particleAlpha = new float[PARTICLE_COUNT];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive && fieldCenter != null;
+        if (!frame.active) return;
+
+        frame.centerX = fieldCenter.x;
+        frame.centerY = fieldCenter.y;
+        frame.particleCount = particles.size();
+        for (int i = 0; i < frame.particleCount; i++) {
+            MagnetParticle particle = particles.get(i);
+            frame.particleX[i] = particle.x;
+            frame.particleY[i] = particle.y;
+            frame.particleAlpha[i] = particle.alpha;
+        }
+    }
+    
+    public void draw(Graphics2D g2d, Frame frame) {
+        if (!frame.active) return;
         
-        // Рисуем магнитное поле
-        Point2D center = new Point2D.Float(fieldCenter.x, fieldCenter.y);
-        float[] dist = {0.0f, 0.7f, 1.0f};
-        Color[] colors = {
-            new Color(100, 100, 255, 100),
-            new Color(100, 100, 255, 30),
-            new Color(100, 100, 255, 0)
-        };
-        RadialGradientPaint paint = new RadialGradientPaint(
-            center, FIELD_RADIUS, dist, colors
-        );
-        g2d.setPaint(paint);
-        g2d.fillOval(
-            (int)(fieldCenter.x - FIELD_RADIUS),
-            (int)(fieldCenter.y - FIELD_RADIUS),
-            (int)(FIELD_RADIUS * 2),
-            (int)(FIELD_RADIUS * 2)
-        );
+        // Рисуем магнитное поле: градиент построен вокруг начала координат и сдвигается к центру
+        g2d.setPaint(FIELD_PAINT);
+        g2d.translate(frame.centerX, frame.centerY);
+        g2d.fillOval((int)-FIELD_RADIUS, (int)-FIELD_RADIUS, (int)(FIELD_RADIUS * 2), (int)(FIELD_RADIUS * 2));
+        g2d.translate(-frame.centerX, -frame.centerY);
         
         // Рисуем частицы
-        for (MagnetParticle particle : particles) {
-            particle.draw(g2d);
+        for (int i = 0; i < frame.particleCount; i++) {
+            g2d.setColor(Palette.withAlpha(COLOR, frame.particleAlpha[i]));
+            g2d.fillOval((int)frame.particleX[i] - 2, (int)frame.particleY[i] - 2, 4, 4);
         }
     }
     
-    public void applyEffect(ArrayList<Ball> balls, ArrayList<Particle> particles) {
-        if (!isActive || fieldCenter == null) return;
-        
-        // Применяем магнитные силы к шарам
-        for (Ball ball : balls) {
-            float dx = ball.getX() - fieldCenter.x;
-            float dy = ball.getY() - fieldCenter.y;
-            float dist = (float)Math.sqrt(dx * dx + dy * dy);
-            
-            if (dist < FIELD_RADIUS) {
-                float force = (1.0f - dist / FIELD_RADIUS) * FORCE_MULTIPLIER;
-                float angle = (float)Math.atan2(dy, dx);
-                // Добавляем вращательное движение
-                angle += (float)Math.PI / 2;
-                
-                ball.addForce(
-                    (float)Math.cos(angle) * force,
-                    (float)Math.sin(angle) * force
-                );
-            }
-        }
-        
-        // Применяем магнитные силы к частицам
-        for (Particle particle : particles) {
-            float dx = particle.getX() - fieldCenter.x;
-            float dy = particle.getY() - fieldCenter.y;
-            float dist = (float)Math.sqrt(dx * dx + dy * dy);
-            
-            if (dist < FIELD_RADIUS) {
-                float force = (1.0f - dist / FIELD_RADIUS) * FORCE_MULTIPLIER * 0.5f;
-                float angle = (float)Math.atan2(dy, dx);
-                angle += (float)Math.PI / 2;
-                
-                particle.addForce(
-                    (float)Math.cos(angle) * force,
-                    (float)Math.sin(angle) * force
-                );
-            }
+    // Силовое поле: вращение вокруг центра магнита
+    @Override
+    public boolean isFieldActive() {
+        return isActive && fieldCenter != null;
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+    }
+
+    @Override
+    public float getFieldCenterX() { return fieldCenter.x; }
+
+    @Override
+    public float getFieldCenterY() { return fieldCenter.y; }
+
+    @Override
+    public float getFieldRadius() { return FIELD_RADIUS; }
+
+    @Override
+    public boolean affectsParticles() { return true; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        if (distance == 0) return;
+
+        float force = (1.0f - distance / FIELD_RADIUS) * FORCE_MULTIPLIER;
+        if (bodies.isParticles()) {
+            force *= 0.5f;
         }
+
+        // Поворот нормали на 90 градусов: (cos(a + pi/2), sin(a + pi/2)) = (-ny, nx)
+        bodies.vx[i] += -dy / distance * force;
+        bodies.vy[i] += dx / distance * force;
     }
 } 
\ No newline at end of file
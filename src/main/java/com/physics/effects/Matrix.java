@@ -8,11 +8,19 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
-public class Matrix {
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+
+public class Matrix implements StatefulEffect {
     private boolean isActive = false;
     private final Random random = new Random();
     private final List<MatrixColumn> columns = new ArrayList<>();
     private static final int CHAR_SIZE = 20;
+    private static final int CHAIN_LENGTH = 20;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.BOLD, CHAR_SIZE);
+    // Цвета по позиции в цепочке держатся здесь: в общей таблице Palette их
+    // вытесняют цвета других эффектов, и каждый кадр создавал бы их заново
+    private static final Color[] CHAIN_COLORS = chainColors();
     
     private class MatrixColumn {
         int x;
@@ -23,7 +31,7 @@ public class Matrix {
             this.x = x;
             this.speed = 2 + random.nextFloat() * 3;
             // Создаем начальную цепочку символов
-            for (int i = 0; i < 20; i++) {
+            for (int i = 0; i < CHAIN_LENGTH; i++) {
                 chars.add(new MatrixChar(-i * CHAR_SIZE));
             }
         }
@@ -57,10 +65,6 @@ public class Matrix {
         }
     }
     
-    public Matrix() {
-        initializeColumns(800); // Начальная инициализация
-    }
-    
     private void initializeColumns(int width) {
         columns.clear();
         int numColumns = width / CHAR_SIZE;
@@ -71,7 +75,8 @@ public class Matrix {
     
     public void setActive(boolean active) {
         if (active && !isActive) {
-            initializeColumns(800);
+            // Колонки создаются при первом шаге под текущую ширину мира
+            columns.clear();
         }
         isActive = active;
     }
@@ -79,46 +84,94 @@ public class Matrix {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive);
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        setActive(in.getBoolean());
+    }
     
-    public void update() {
+    public void update(int width, int height) {
         if (!isActive) return;
         
+        // Если размер мира изменился, переинициализируем колонки
+        if (columns.isEmpty() || columns.size() != width / CHAR_SIZE) {
+            initializeColumns(width);
+        }
         for (MatrixColumn column : columns) {
-            column.update(600);
+            column.update(height);
         }
     }
     
-    public void draw(Graphics2D g2d, int width, int height) {
+    // Снимок для отрисовки: позиции и символы всех цепочек подряд, по CHAIN_LENGTH
+    // на колонку. Заполняется под блокировкой шага, рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private int columnCount;
+        private int[] columnX = new int[0];
+        private int[] charY = new int[0];
+        // Символы рисуются через drawChars прямо из массива, без строки на каждый знак
+        private char[] symbols = new char[0];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive;
         if (!isActive) return;
-        
-        // Если размер окна изменился, переинициализируем колонки
-        if (columns.isEmpty() || columns.size() != width / CHAR_SIZE) {
-            initializeColumns(width);
+
+        int count = columns.size();
+        if (frame.columnX.length < count) {
+            frame.columnX = new int[count];
+            frame.charY = new int[count * CHAIN_LENGTH];
+            frame.symbols = new char[count * CHAIN_LENGTH];
         }
+        frame.columnCount = count;
+        for (int c = 0; c < count; c++) {
+            MatrixColumn column = columns.get(c);
+            frame.columnX[c] = column.x;
+            for (int i = 0; i < CHAIN_LENGTH; i++) {
+                MatrixChar ch = column.chars.get(i);
+                frame.charY[c * CHAIN_LENGTH + i] = (int)ch.y;
+                frame.symbols[c * CHAIN_LENGTH + i] = ch.symbol;
+            }
+        }
+    }
+    
+    public void draw(Graphics2D g2d, Frame frame, int width, int height) {
+        if (!frame.active) return;
         
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, 
             RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         
-        Font font = new Font(Font.MONOSPACED, Font.BOLD, CHAR_SIZE);
-        g2d.setFont(font);
+        g2d.setFont(FONT);
         
         // Рисуем каждую колонку
-        for (MatrixColumn column : columns) {
-            for (int i = 0; i < column.chars.size(); i++) {
-                MatrixChar ch = column.chars.get(i);
-                // Первый символ в колонке ярче
-                if (i == 0) {
-                    g2d.setColor(Color.WHITE);
-                } else {
-                    // Остальные символы зеленые с уменьшающейся яркостью
-                    int alpha = Math.max(0, 255 - i * 12);
-                    g2d.setColor(new Color(0, 255, 0, alpha));
-                }
-                g2d.drawString(String.valueOf(ch.symbol), column.x, (int)ch.y);
+        for (int c = 0; c < frame.columnCount; c++) {
+            for (int i = 0; i < CHAIN_LENGTH; i++) {
+                int k = c * CHAIN_LENGTH + i;
+                g2d.setColor(CHAIN_COLORS[i]);
+                g2d.drawChars(frame.symbols, k, 1, frame.columnX[c], frame.charY[k]);
             }
         }
     }
     
+    private static Color[] chainColors() {
+        Color[] colors = new Color[CHAIN_LENGTH];
+        // Первый символ в колонке белый, остальные зеленые с уменьшающейся яркостью
+        colors[0] = Color.WHITE;
+        for (int i = 1; i < CHAIN_LENGTH; i++) {
+            colors[i] = Palette.rgba(0, 255, 0, Math.max(0, 255 - i * 12));
+        }
+        return colors;
+    }
+    
     private char getRandomSymbol() {
         if (random.nextFloat() < 0.5f) {
             // Катакана
@@ -131,4 +184,4 @@ public class Matrix {
             return (char)(0x4E00 + random.nextInt(0x9FFF - 0x4E00));
         }
     }
-} 
\ No newline at end of file
+}
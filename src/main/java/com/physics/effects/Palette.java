@@ -0,0 +1,87 @@
+package com.physics.effects;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+
+// Общие экземпляры Color по упакованному ARGB. Альфа округляется до ALPHA_LEVELS
+// ступеней: на глаз разницы нет, а число разных цветов у затухающих эффектов
+// становится конечным. Таблица без блокировок: при переполнении ячейки
+// цвет просто пересоздаётся, гонка потоков даёт лишь лишний экземпляр.
+// Для постоянного набора цветов поиск цвета ничего не выделяет
+public final class Palette {
+    private static final int ALPHA_LEVELS = 16;
+    private static final int TABLE_BITS = 13;
+    private static final int MASK = (1 << TABLE_BITS) - 1;
+    private static final Color[] table = new Color[1 << TABLE_BITS];
+    // AlphaComposite.getInstance создаёт новый экземпляр на каждую альфу, кроме 1
+    private static final AlphaComposite[] composites = new AlphaComposite[256];
+
+    private Palette() {
+    }
+
+    public static Color argb(int argb) {
+        int key = (argb & 0x00FFFFFF) | quantizeAlpha(argb >>> 24) << 24;
+        // Двухвходовые ячейки: свежий цвет в первом входе, вытесненный - во втором,
+        // чтобы два частых цвета с одной ячейкой не пересоздавали друг друга
+        int slot = mix(key) & MASK & ~1;
+        Color color = table[slot];
+        if (color != null && color.getRGB() == key) return color;
+        Color other = table[slot + 1];
+        if (other != null && other.getRGB() == key) return other;
+
+        table[slot + 1] = color;
+        color = new Color(key, true);
+        table[slot] = color;
+        return color;
+    }
+
+    public static Color rgb(int red, int green, int blue) {
+        return argb(0xFF000000 | clamp(red) << 16 | clamp(green) << 8 | clamp(blue));
+    }
+
+    public static Color rgba(int red, int green, int blue, int alpha) {
+        return argb(clamp(alpha) << 24 | clamp(red) << 16 | clamp(green) << 8 | clamp(blue));
+    }
+
+    // Тот же цвет с альфой 0..255
+    public static Color withAlpha(Color color, int alpha) {
+        return argb(clamp(alpha) << 24 | (color.getRGB() & 0x00FFFFFF));
+    }
+
+    // Тот же цвет с альфой 0..1
+    public static Color withAlpha(Color color, float alpha) {
+        return withAlpha(color, (int)(alpha * 255));
+    }
+
+    // Оттенок hue, округлённый до steps ступеней круга, как непрозрачный ARGB:
+    // так плавно меняющийся цвет даёт конечный набор экземпляров и градиентов
+    public static int hueRgb(float hue, int steps, float saturation) {
+        int step = Math.floorMod(Math.round(hue * steps), steps);
+        return Color.HSBtoRGB(step / (float)steps, saturation, 1.0f);
+    }
+
+    // SRC_OVER с дополнительной альфой 0..1, по 256 ступеням
+    public static AlphaComposite srcOver(float alpha) {
+        int level = clamp(Math.round(alpha * 255));
+        AlphaComposite composite = composites[level];
+        if (composite == null) {
+            composite = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, level / 255f);
+            composites[level] = composite;
+        }
+        return composite;
+    }
+
+    static int quantizeAlpha(int alpha) {
+        int step = 255 / (ALPHA_LEVELS - 1);
+        return (alpha + step / 2) / step * step;
+    }
+
+    private static int clamp(int channel) {
+        return channel < 0 ? 0 : (channel > 255 ? 255 : channel);
+    }
+
+    private static int mix(int key) {
+        key *= 0x9E3779B1;
+        return key ^ (key >>> TABLE_BITS);
+    }
+}
@@ -0,0 +1,243 @@
+package com.physics.effects;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
+import com.physics.profile.BufferReallocationEvent;
+
+// Программная отрисовка множества мелких кругов прямо в int[] изображения вместо
+// setColor + fillOval на каждую частицу. Круги копятся за кадр (add), затем flush
+// раскладывает их по горизонтальным полосам, полосы закрашиваются параллельно,
+// и буфер один раз накладывается на g2d с текущим композитом.
+// Каждый пиксель принадлежит одной полосе, а полоса обходит круги в порядке add,
+// поэтому наложение ALPHA сохраняет порядок, как при последовательном рисовании.
+// Края кругов без сглаживания, как у fillOval без подсказки antialiasing
+public class ParticleSplatter {
+    public enum Blend { ADDITIVE, ALPHA }
+
+    private static final int BAND_SHIFT = 5;
+    // Меньше кругов закрашивается в вызывающем потоке: пул дороже самой работы
+    private static final int PARALLEL_MIN = 4096;
+
+    private final String phase;
+    private final Blend blend;
+    private final PhaseExecutor phases = PhaseExecutor.shared();
+    private final RangeTask splatBands = this::splatBands;
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int width;
+    private int height;
+
+    // Круги кадра: центр, радиус и предумноженный цвет
+    private float[] xs = new float[256];
+    private float[] ys = new float[256];
+    private float[] radii = new float[256];
+    private int[] colors = new int[256];
+    private int count;
+
+    // Рамка закрашенного в этом и прошлом кадре: очищается и накладывается только она
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+    private int dirtyMinX;
+    private int dirtyMinY;
+    private int dirtyMaxX = -1;
+    private int dirtyMaxY = -1;
+
+    // Круги по полосам: индексы полосы b лежат в order[bandStart[b]..bandStart[b + 1])
+    private int[] bandStart = new int[1];
+    private int[] bandFill = new int[1];
+    private int[] order = new int[256];
+
+    public ParticleSplatter(String phase, Blend blend) {
+        this.phase = phase;
+        this.blend = blend;
+    }
+
+    public void begin(int width, int height) {
+        if (image == null || this.width != width || this.height != height) {
+            BufferReallocationEvent event = new BufferReallocationEvent();
+            event.begin();
+            image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB_PRE);
+            pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+            this.width = width;
+            this.height = height;
+            int bands = (height >> BAND_SHIFT) + 1;
+            bandStart = new int[bands + 1];
+            bandFill = new int[bands];
+            dirtyMaxX = -1;
+            dirtyMaxY = -1;
+            event.finish(phase, width, height, 1);
+        }
+        count = 0;
+        minX = width;
+        minY = height;
+        maxX = -1;
+        maxY = -1;
+    }
+
+    // Круг радиуса radius с центром (x, y); argb без предумножения
+    public void add(float x, float y, float radius, int argb) {
+        if ((argb >>> 24) == 0 || radius <= 0) return;
+        int left = (int)Math.floor(x - radius);
+        int top = (int)Math.floor(y - radius);
+        int right = (int)Math.floor(x + radius);
+        int bottom = (int)Math.floor(y + radius);
+        if (right < 0 || bottom < 0 || left >= width || top >= height) return;
+
+        if (count == xs.length) {
+            grow();
+        }
+        xs[count] = x;
+        ys[count] = y;
+        radii[count] = radius;
+        colors[count] = EffectUtils.premultiply(argb);
+        count++;
+
+        minX = Math.min(minX, Math.max(0, left));
+        minY = Math.min(minY, Math.max(0, top));
+        maxX = Math.max(maxX, Math.min(width - 1, right));
+        maxY = Math.max(maxY, Math.min(height - 1, bottom));
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // Закрашивает накопленные круги и накладывает результат на g2d
+    public void flush(Graphics2D g2d) {
+        if (count == 0 && dirtyMaxY < 0) return;
+
+        binBands();
+        int fromBand = Math.min(minY, dirtyMaxY < 0 ? height : dirtyMinY) >> BAND_SHIFT;
+        int toBand = (Math.max(maxY, dirtyMaxY) >> BAND_SHIFT) + 1;
+        int grain = count < PARALLEL_MIN ? toBand - fromBand : 1;
+        phases.forRange(phase, fromBand, toBand, grain, splatBands);
+
+        if (maxY >= 0) {
+            g2d.drawImage(image, minX, minY, maxX + 1, maxY + 1, minX, minY, maxX + 1, maxY + 1, null);
+        }
+        dirtyMinX = minX;
+        dirtyMinY = minY;
+        dirtyMaxX = maxX;
+        dirtyMaxY = maxY;
+        count = 0;
+    }
+
+    // Сортировка подсчётом: круг попадает во все полосы, которые задевает
+    private void binBands() {
+        int bands = bandFill.length;
+        Arrays.fill(bandStart, 0);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            int first = firstRow(i) >> BAND_SHIFT;
+            int last = lastRow(i) >> BAND_SHIFT;
+            for (int b = first; b <= last; b++) {
+                bandStart[b + 1]++;
+            }
+            total += last - first + 1;
+        }
+        for (int b = 0; b < bands; b++) {
+            bandStart[b + 1] += bandStart[b];
+            bandFill[b] = bandStart[b];
+        }
+        if (order.length < total) {
+            order = new int[Math.max(total, order.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            int first = firstRow(i) >> BAND_SHIFT;
+            int last = lastRow(i) >> BAND_SHIFT;
+            for (int b = first; b <= last; b++) {
+                order[bandFill[b]++] = i;
+            }
+        }
+    }
+
+    private int firstRow(int i) {
+        return Math.max(0, Math.min(height - 1, (int)Math.floor(ys[i] - radii[i])));
+    }
+
+    private int lastRow(int i) {
+        return Math.max(0, Math.min(height - 1, (int)Math.floor(ys[i] + radii[i])));
+    }
+
+    private void splatBands(int fromBand, int toBand) {
+        for (int band = fromBand; band < toBand; band++) {
+            int top = band << BAND_SHIFT;
+            int bottom = Math.min(height, top + (1 << BAND_SHIFT));
+            clearBand(top, bottom);
+            for (int k = bandStart[band]; k < bandStart[band + 1]; k++) {
+                splat(order[k], top, bottom);
+            }
+        }
+    }
+
+    private void clearBand(int top, int bottom) {
+        if (dirtyMaxY < 0) return;
+        int from = Math.max(top, dirtyMinY);
+        int to = Math.min(bottom - 1, dirtyMaxY);
+        for (int y = from; y <= to; y++) {
+            int row = y * width;
+            Arrays.fill(pixels, row + dirtyMinX, row + dirtyMaxX + 1, 0);
+        }
+    }
+
+    // Пиксель закрашивается, если его центр внутри круга; круг меньше пикселя
+    // даёт один пиксель с цветом, ослабленным пропорционально площади
+    private void splat(int i, int top, int bottom) {
+        float cx = xs[i];
+        float cy = ys[i];
+        float r = radii[i];
+        int color = colors[i];
+
+        if (r < 0.6f) {
+            int px = (int)Math.floor(cx);
+            int py = (int)Math.floor(cy);
+            if (px < 0 || px >= width || py < top || py >= bottom) return;
+            int coverage = Math.min(256, (int)(Math.PI * r * r * 256));
+            blend(py * width + px, scale(color, coverage));
+            return;
+        }
+
+        float r2 = r * r;
+        int y0 = Math.max(top, (int)Math.ceil(cy - r - 0.5f));
+        int y1 = Math.min(bottom - 1, (int)Math.floor(cy + r - 0.5f));
+        for (int y = y0; y <= y1; y++) {
+            float dy = y + 0.5f - cy;
+            float halfWidth = (float)Math.sqrt(Math.max(0, r2 - dy * dy));
+            int x0 = Math.max(0, (int)Math.ceil(cx - halfWidth - 0.5f));
+            int x1 = Math.min(width - 1, (int)Math.floor(cx + halfWidth - 0.5f));
+            int row = y * width;
+            for (int x = x0; x <= x1; x++) {
+                blend(row + x, color);
+            }
+        }
+    }
+
+    private void blend(int index, int color) {
+        pixels[index] = blend == Blend.ADDITIVE
+            ? EffectUtils.addColors(pixels[index], color)
+            : EffectUtils.blendOver(pixels[index], color);
+    }
+
+    // Предумноженный цвет, умноженный на coverage / 256
+    private static int scale(int color, int coverage) {
+        int rb = ((color & 0xFF00FF) * coverage >>> 8) & 0xFF00FF;
+        int ag = ((color >>> 8) & 0xFF00FF) * coverage & 0xFF00FF00;
+        return rb | ag;
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        radii = Arrays.copyOf(radii, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+    }
+}
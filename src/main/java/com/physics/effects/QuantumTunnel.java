@@ -1,33 +1,84 @@
 package com.physics.effects;
 
 import java.awt.AlphaComposite;
-import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.awt.LinearGradientPaint;
 import java.awt.MultipleGradientPaint.CycleMethod;
 import java.awt.RadialGradientPaint;
+import java.awt.RenderingHints;
 import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.Consumer;
 
-import com.physics.model.Ball;
+import com.physics.data.Constants;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+import com.physics.model.BallStore;
 
-public class QuantumTunnel {
+public class QuantumTunnel implements StatefulEffect {
     private boolean isActive = false;
     private double phase = 0.0;
-    private static final Random random = new Random();
+    // Туннелирование берёт случайность из посеянного генератора шага, частицы - из своего
+    private final Random random;
+    private final Random particleRandom = new Random();
     private final ArrayList<QuantumParticle> particles = new ArrayList<>();
-    private final Map<Ball, TunnelState> tunnelStates = new HashMap<>();
+    // Ключ - постоянный идентификатор шара: индексы меняются при удалении
+    private final Map<Integer, TunnelState> tunnelStates = new HashMap<>();
     
     private static final int PARTICLE_COUNT = 100;
     private static final double PHASE_SPEED = 0.03;
     private static final int TUNNEL_WIDTH = 100;
+    private static final int PARTICLES_PER_TUNNEL = 20;
     private static final double TUNNEL_PROBABILITY = 0.1;
+    private static final int HUE_STEPS = 64;
+    private static final float PORTAL_RADIUS = TUNNEL_WIDTH * 0.5f;
+    private static final float[] PATH_FRACTIONS = {0.0f, 0.5f, 1.0f};
+    private static final Color[] PATH_COLORS = {
+        new Color(100, 200, 255, 50),
+        new Color(150, 100, 255, 100),
+        new Color(100, 200, 255, 50)
+    };
+    private static final Color WAVE_COLOR = new Color(150, 200, 255, 50);
+    private static final AlphaComposite PARTICLE_BLEND = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f);
+    // Портал - один градиент, растеризованный в спрайт; яркость задаёт композит
+    private static final int PORTAL_SPRITE_CENTER = (int)PORTAL_RADIUS + 1;
+    private static final RadialGradientPaint PORTAL_PAINT = new RadialGradientPaint(
+        0, 0, PORTAL_RADIUS,
+        new float[]{0.0f, 0.5f, 1.0f},
+        new Color[]{
+            new Color(255, 255, 255, 200),
+            new Color(100, 200, 255, 100),
+            new Color(0, 100, 255, 0)
+        }
+    );
+    
+    // Частица - свечение втрое шире ядра (альфа 100) и ядро (альфа 255): резкие края
+    // заданы двумя близкими точками градиента, спрайт растеризуется один раз
+    private final GlowSprites particleSprites = new GlowSprites("QuantumTunnel.sprites",
+        new GlowPaints(new float[]{0.0f, 0.33f, 0.34f, 1.0f}, new int[]{255, 255, 100, 100}, 1.0f),
+        Constants.GLOW_SPRITE_BYTES);
+    private final BufferedImage portalSprite = renderPortal();
+    
+    // Рисует один поток: общий путь волн
+    private final Path2D.Double wavePath = new Path2D.Double();
+    // Снимок заполняется обходом туннелей без итератора
+    private Frame captureTarget;
+    private final Consumer<TunnelState> captureTunnel = state -> {
+        if (!state.isTunneling) return;
+        
+        if (state.pathPaint == null) {
+            state.pathPaint = pathPaint(state);
+        }
+        captureTarget.add(state);
+    };
     
     private class QuantumParticle {
         double x, y;
@@ -39,13 +90,13 @@ public class QuantumTunnel {
         QuantumParticle(double x, double y) {
             this.x = x;
             this.y = y;
-            double angle = random.nextDouble() * Math.PI * 2;
-            double speed = 1 + random.nextDouble() * 2;
+            double angle = particleRandom.nextDouble() * Math.PI * 2;
+            double speed = 1 + particleRandom.nextDouble() * 2;
             vx = Math.cos(angle) * speed;
             vy = Math.sin(angle) * speed;
-            hue = random.nextFloat();
-            alpha = 0.3f + random.nextFloat() * 0.4f;
-            size = 2 + random.nextFloat() * 3;
+            hue = particleRandom.nextFloat();
+            alpha = 0.3f + particleRandom.nextFloat() * 0.4f;
+            size = 2 + particleRandom.nextFloat() * 3;
         }
         
         void update() {
@@ -67,6 +118,9 @@ public class QuantumTunnel {
         double progress;
         boolean isTunneling;
         List<QuantumParticle> tunnelParticles;
+        // Градиент пути создаётся при первом снимке: концы туннеля не меняются,
+        // и все снимки делят один экземпляр
+        LinearGradientPaint pathPaint;
         
         TunnelState(double sx, double sy, double ex, double ey) {
             startX = sx;
@@ -78,9 +132,8 @@ public class QuantumTunnel {
             tunnelParticles = new ArrayList<>();
             
             // Создаем частицы вдоль пути туннелирования
-            int particleCount = 20;
-            for (int i = 0; i < particleCount; i++) {
-                double t = i / (double)(particleCount - 1);
+            for (int i = 0; i < PARTICLES_PER_TUNNEL; i++) {
+                double t = i / (double)(PARTICLES_PER_TUNNEL - 1);
                 double x = startX + (endX - startX) * t;
                 double y = startY + (endY - startY) * t;
                 tunnelParticles.add(new QuantumParticle(x, y));
@@ -103,6 +156,10 @@ public class QuantumTunnel {
         }
     }
     
+    public QuantumTunnel(Random random) {
+        this.random = random;
+    }
+
     public void setActive(boolean active) {
         isActive = active;
         if (!active) {
@@ -113,6 +170,37 @@ public class QuantumTunnel {
     public boolean isActive() {
         return isActive;
     }
+
+    public int getTunnelCount() {
+        return tunnelStates.size();
+    }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive).putDouble(phase).putInt(tunnelStates.size());
+        for (Map.Entry<Integer, TunnelState> entry : tunnelStates.entrySet()) {
+            TunnelState state = entry.getValue();
+            out.putInt(entry.getKey())
+               .putDouble(state.startX).putDouble(state.startY)
+               .putDouble(state.endX).putDouble(state.endY)
+               .putDouble(state.progress).putBoolean(state.isTunneling);
+        }
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        isActive = in.getBoolean();
+        phase = in.getDouble();
+        tunnelStates.clear();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            int ballId = in.getInt();
+            TunnelState state = new TunnelState(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+            state.progress = in.getDouble();
+            state.isTunneling = in.getBoolean();
+            tunnelStates.put(ballId, state);
+        }
+    }
     
     public void update() {
         if (!isActive) return;
@@ -126,75 +214,142 @@ public class QuantumTunnel {
         tunnelStates.entrySet().removeIf(entry -> !entry.getValue().isTunneling);
     }
     
-    public void draw(Graphics2D g2d, int width, int height) {
+    // Снимок туннелей для отрисовки: концы, прогресс и по PARTICLES_PER_TUNNEL
+    // частиц на туннель подряд. Заполняется под блокировкой шага, рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private double phase;
+        private int tunnelCount;
+        private double[] startX = new double[0];
+        private double[] startY = new double[0];
+        private double[] endX = new double[0];
+        private double[] endY = new double[0];
+        private double[] progress = new double[0];
+        private LinearGradientPaint[] pathPaint = new LinearGradientPaint[0];
+        private float[] particleX = new float[0];
+        private float[] particleY = new float[0];
+        private float[] particleHue = new float[0];
+        private float[] particleAlpha = new float[0];
+        private float[] particleSize = new float[0];
+
+        public boolean isActive() {
+            return active;
+        }
+
+        private void add(TunnelState state) {
+            int t = tunnelCount++;
+            if (startX.length < tunnelCount) {
+                grow(Math.max(tunnelCount, startX.length * 2));
+            }
+            startX[t] = state.startX;
+            startY[t] = state.startY;
+            endX[t] = state.endX;
+            endY[t] = state.endY;
+            progress[t] = state.progress;
+            pathPaint[t] = state.pathPaint;
+            for (int i = 0; i < PARTICLES_PER_TUNNEL; i++) {
+                QuantumParticle particle = state.tunnelParticles.get(i);
+                int k = t * PARTICLES_PER_TUNNEL + i;
+                particleX[k] = (float)particle.x;
+                particleY[k] = (float)particle.y;
+                particleHue[k] = particle.hue;
+                particleAlpha[k] = particle.alpha;
+                particleSize[k] = particle.size;
+            }
+        }
+
+        private void grow(int capacity) {
+            startX = Arrays.copyOf(startX, capacity);
+            startY = Arrays.copyOf(startY, capacity);
+            endX = Arrays.copyOf(endX, capacity);
+            endY = Arrays.copyOf(endY, capacity);
+            progress = Arrays.copyOf(progress, capacity);
+            pathPaint = Arrays.copyOf(pathPaint, capacity);
+            particleX = Arrays.copyOf(particleX, capacity * PARTICLES_PER_TUNNEL);
+            particleY = Arrays.copyOf(particleY, capacity * PARTICLES_PER_TUNNEL);
+            particleHue = Arrays.copyOf(particleHue, capacity * PARTICLES_PER_TUNNEL);
+            particleAlpha = Arrays.copyOf(particleAlpha, capacity * PARTICLES_PER_TUNNEL);
+            particleSize = Arrays.copyOf(particleSize, capacity * PARTICLES_PER_TUNNEL);
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive;
         if (!isActive) return;
+
+        frame.phase = phase;
+        frame.tunnelCount = 0;
+        captureTarget = frame;
+        tunnelStates.values().forEach(captureTunnel);
+        captureTarget = null;
+    }
+    
+    public void draw(Graphics2D g2d, Frame frame, int width, int height) {
+        if (!frame.active) return;
         
         // Рисуем все активные туннели
-        for (TunnelState state : tunnelStates.values()) {
-            if (!state.isTunneling) continue;
-            
+        for (int t = 0; t < frame.tunnelCount; t++) {
             // Рисуем путь туннелирования
-            drawTunnelPath(g2d, state);
+            drawTunnelPath(g2d, frame, t);
             
             // Рисуем квантовые частицы
-            drawTunnelParticles(g2d, state);
+            drawTunnelParticles(g2d, frame, t);
             
             // Рисуем порталы на концах туннеля
-            drawTunnelPortals(g2d, state);
+            drawTunnelPortals(g2d, frame, t);
         }
     }
     
-    private void drawTunnelPath(Graphics2D g2d, TunnelState state) {
-        // Создаем градиент для пути туннелирования
-        Point2D start = new Point2D.Float((float)state.startX, (float)state.startY);
-        Point2D end = new Point2D.Float((float)state.endX, (float)state.endY);
-        
-        float[] fractions = {0.0f, 0.5f, 1.0f};
-        Color[] colors = {
-            new Color(100, 200, 255, 50),
-            new Color(150, 100, 255, 100),
-            new Color(100, 200, 255, 50)
-        };
-        
-        LinearGradientPaint gradient = new LinearGradientPaint(
-            start, end, fractions, colors, CycleMethod.NO_CYCLE
+    private static LinearGradientPaint pathPaint(TunnelState state) {
+        // Совпавшие концы: у LinearGradientPaint они должны различаться
+        float endX = (float)state.endX;
+        float endY = (float)state.endY;
+        if (endX == (float)state.startX && endY == (float)state.startY) {
+            endX += 1;
+        }
+        return new LinearGradientPaint(
+            (float)state.startX, (float)state.startY, endX, endY,
+            PATH_FRACTIONS, PATH_COLORS, CycleMethod.NO_CYCLE
         );
-        
+    }
+    
+    private void drawTunnelPath(Graphics2D g2d, Frame frame, int t) {
         // Рисуем основной путь
-        g2d.setStroke(new BasicStroke(
-            TUNNEL_WIDTH * 0.5f,
-            BasicStroke.CAP_ROUND,
-            BasicStroke.JOIN_ROUND
-        ));
-        g2d.setPaint(gradient);
+        g2d.setStroke(Strokes.round(TUNNEL_WIDTH * 0.5f));
+        g2d.setPaint(frame.pathPaint[t]);
         g2d.drawLine(
-            (int)state.startX,
-            (int)state.startY,
-            (int)state.endX,
-            (int)state.endY
+            (int)frame.startX[t],
+            (int)frame.startY[t],
+            (int)frame.endX[t],
+            (int)frame.endY[t]
         );
         
         // Рисуем волновые линии вдоль пути
-        drawWaveLines(g2d, state);
+        drawWaveLines(g2d, frame, t);
     }
     
-    private void drawWaveLines(Graphics2D g2d, TunnelState state) {
-        double dx = state.endX - state.startX;
-        double dy = state.endY - state.startY;
+    private void drawWaveLines(Graphics2D g2d, Frame frame, int tunnel) {
+        double startX = frame.startX[tunnel];
+        double startY = frame.startY[tunnel];
+        double dx = frame.endX[tunnel] - startX;
+        double dy = frame.endY[tunnel] - startY;
         double length = Math.sqrt(dx * dx + dy * dy);
         double angle = Math.atan2(dy, dx);
         
         // Рисуем несколько волновых линий
+        g2d.setStroke(Strokes.of(2.0f));
+        g2d.setColor(WAVE_COLOR);
         for (int i = 0; i < 3; i++) {
-            Path2D path = new Path2D.Double();
+            Path2D.Double path = wavePath;
+            path.reset();
             double offset = (i - 1) * TUNNEL_WIDTH * 0.2;
             
             for (double t = 0; t <= 1; t += 0.01) {
-                double x = state.startX + dx * t;
-                double y = state.startY + dy * t;
+                double x = startX + dx * t;
+                double y = startY + dy * t;
                 
                 // Добавляем волновое смещение
-                double wave = Math.sin(t * 10 + phase * 2) * 
+                double wave = Math.sin(t * 10 + frame.phase * 2) * 
                             Math.sin(t * Math.PI) * TUNNEL_WIDTH * 0.15;
                 x += Math.sin(angle) * (wave + offset);
                 y -= Math.cos(angle) * (wave + offset);
@@ -206,88 +361,57 @@ public class QuantumTunnel {
                 }
             }
             
-            g2d.setStroke(new BasicStroke(2.0f));
-            g2d.setColor(new Color(150, 200, 255, 50));
             g2d.draw(path);
         }
     }
     
-    private void drawTunnelParticles(Graphics2D g2d, TunnelState state) {
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
+    private void drawTunnelParticles(Graphics2D g2d, Frame frame, int tunnel) {
+        g2d.setComposite(PARTICLE_BLEND);
         
-        for (QuantumParticle particle : state.tunnelParticles) {
-            // Создаем цвет частицы
-            Color particleColor = Color.getHSBColor(particle.hue, 0.8f, 1.0f);
-            
-            // Рисуем свечение
-            g2d.setColor(new Color(
-                particleColor.getRed(),
-                particleColor.getGreen(),
-                particleColor.getBlue(),
-                (int)(100 * particle.alpha)
-            ));
-            
-            float glowSize = particle.size * 3;
-            g2d.fillOval(
-                (int)(particle.x - glowSize/2),
-                (int)(particle.y - glowSize/2),
-                (int)glowSize,
-                (int)glowSize
-            );
-            
-            // Рисуем ядро частицы
-            g2d.setColor(new Color(
-                particleColor.getRed(),
-                particleColor.getGreen(),
-                particleColor.getBlue(),
-                (int)(255 * particle.alpha)
-            ));
-            
-            g2d.fillOval(
-                (int)(particle.x - particle.size/2),
-                (int)(particle.y - particle.size/2),
-                (int)particle.size,
-                (int)particle.size
-            );
+        for (int i = 0; i < PARTICLES_PER_TUNNEL; i++) {
+            int k = tunnel * PARTICLES_PER_TUNNEL + i;
+            // Цвет частицы; оттенок квантуется, чтобы спрайты брались из атласа
+            int rgb = Palette.hueRgb(frame.particleHue[k], HUE_STEPS, 0.8f);
+            particleSprites.draw(g2d, rgb, frame.particleX[k], frame.particleY[k],
+                                 frame.particleSize[k] * 1.5f, Math.min(1.0f, frame.particleAlpha[k]));
         }
     }
     
-    private void drawTunnelPortals(Graphics2D g2d, TunnelState state) {
+    private static BufferedImage renderPortal() {
+        int size = PORTAL_SPRITE_CENTER * 2;
+        int radius = (int)PORTAL_RADIUS;
+        BufferedImage image = EffectUtils.createCompatibleImage(size, size, true);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.translate(PORTAL_SPRITE_CENTER, PORTAL_SPRITE_CENTER);
+        g2d.setPaint(PORTAL_PAINT);
+        g2d.fillOval(-radius, -radius, radius * 2, radius * 2);
+        g2d.dispose();
+        return image;
+    }
+    
+    private void drawTunnelPortals(Graphics2D g2d, Frame frame, int t) {
         // Рисуем порталы на обоих концах туннеля
-        drawPortal(g2d, state.startX, state.startY, state.progress);
-        drawPortal(g2d, state.endX, state.endY, 1.0 - state.progress);
+        drawPortal(g2d, frame.startX[t], frame.startY[t], frame.progress[t]);
+        drawPortal(g2d, frame.endX[t], frame.endY[t], 1.0 - frame.progress[t]);
     }
     
     private void drawPortal(Graphics2D g2d, double x, double y, double intensity) {
-        // Создаем градиент для портала
-        Point2D center = new Point2D.Float((float)x, (float)y);
-        float radius = TUNNEL_WIDTH * 0.5f;
-        
-        float[] fractions = {0.0f, 0.5f, 1.0f};
-        Color[] colors = {
-            new Color(255, 255, 255, (int)(200 * intensity)),
-            new Color(100, 200, 255, (int)(100 * intensity)),
-            new Color(0, 100, 255, 0)
-        };
-        
-        RadialGradientPaint gradient = new RadialGradientPaint(
-            center, radius, fractions, colors, CycleMethod.NO_CYCLE
-        );
-        
-        g2d.setPaint(gradient);
-        g2d.fillOval(
-            (int)(x - radius),
-            (int)(y - radius),
-            (int)(radius * 2),
-            (int)(radius * 2)
-        );
+        // Градиент портала, ослабленный на intensity
+        float radius = PORTAL_RADIUS;
+        Composite previous = g2d.getComposite();
+        float base = previous instanceof AlphaComposite ? ((AlphaComposite)previous).getAlpha() : 1.0f;
+        g2d.setComposite(Palette.srcOver(base * (float)intensity));
+        g2d.drawImage(portalSprite, (int)Math.round(x) - PORTAL_SPRITE_CENTER,
+                      (int)Math.round(y) - PORTAL_SPRITE_CENTER, null);
+        g2d.setComposite(previous);
         
         // Добавляем кольца вокруг портала
-        g2d.setStroke(new BasicStroke(2.0f));
+        g2d.setStroke(Strokes.of(2.0f));
         for (int i = 0; i < 3; i++) {
             float ringRadius = radius * (1.0f + i * 0.2f);
             float alpha = (float)(0.5f * intensity * (1.0f - i * 0.2f));
-            g2d.setColor(new Color(100, 200, 255, (int)(255 * alpha)));
+            g2d.setColor(Palette.rgba(100, 200, 255, (int)(255 * alpha)));
             g2d.drawOval(
                 (int)(x - ringRadius),
                 (int)(y - ringRadius),
@@ -297,8 +421,10 @@ public class QuantumTunnel {
         }
     }
     
-    public void checkTunneling(Ball ball, int width, int height) {
-        if (!isActive || tunnelStates.containsKey(ball)) return;
+    public void checkTunneling(BallStore balls, int index, int width, int height) {
+        if (!isActive) return;
+        Integer ballId = balls.id()[index];
+        if (tunnelStates.containsKey(ballId)) return;
         
         // Проверяем возможность туннелирования
         if (random.nextDouble() < TUNNEL_PROBABILITY) {
@@ -307,29 +433,25 @@ public class QuantumTunnel {
             double endY = random.nextDouble() * height;
             
             // Создаем новое состояние туннелирования
-            tunnelStates.put(ball, new TunnelState(
-                ball.getX(),
-                ball.getY(),
+            tunnelStates.put(ballId, new TunnelState(
+                balls.x()[index],
+                balls.y()[index],
                 endX,
                 endY
             ));
         }
     }
     
-    public void applyTunneling(Ball ball) {
+    public void applyTunneling(BallStore balls, int index) {
         if (!isActive) return;
         
-        TunnelState state = tunnelStates.get(ball);
+        TunnelState state = tunnelStates.get(balls.id()[index]);
         if (state == null || !state.isTunneling) return;
         
         // Перемещаем шар вдоль пути туннелирования
         double x = state.startX + (state.endX - state.startX) * state.progress;
         double y = state.startY + (state.endY - state.startY) * state.progress;
         
-        // Здесь нужно добавить метод teleport в класс Ball
-        // ball.teleport(x, y);
-        
-        // Временное решение - напрямую изменяем координаты
-        ball.setPosition((float) x, (float) y);
+        balls.setPosition(index, (float) x, (float) y);
     }
 } 
\ No newline at end of file
@@ -1,35 +1,50 @@
 package com.physics.effects;
 
 import java.awt.AlphaComposite;
-import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
-import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
 
-import com.physics.model.Ball;
+import com.physics.data.Constants;
+import com.physics.field.FieldBodies;
+import com.physics.field.FieldRandom;
+import com.physics.field.ForceField;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+import com.physics.profile.BufferReallocationEvent;
 
-public class Rainbow {
-    private final ExecutorService executor = EffectUtils.getExecutor();
+public class Rainbow implements ForceField, StatefulEffect {
     private boolean isActive = false;
     private final Random random = new Random();
     private double phase = 0.0;
+    private float globalHue;
+    private long fieldTick;
     private List<RainbowParticle> particles = new ArrayList<>();
     private List<AmorphousCircle> circles = new ArrayList<>();
     
     private BufferedImage particleBuffer;
     private BufferedImage circleBuffer;
+    // Graphics буферов живут вместе с буферами
+    private Graphics2D particleG2d;
+    private Graphics2D circleG2d;
     
     private static final float PHASE_SPEED = 0.01f;
     private static final int PARTICLE_COUNT = 150;
     private static final int CIRCLE_COUNT = 5;
     private static final float MIN_CIRCLE_SIZE = 50f;
     private static final float MAX_CIRCLE_SIZE = 300f;
+    private static final int HUE_STEPS = 128;
+    private static final int BALL_HUE_STEPS = 256;
+    private static final AlphaComposite BLEND = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.8f);
+    
+    // Градиенты частиц и кругов по оттенку
+    private final GlowPaints particlePaints = new GlowPaints(new float[]{0.0f, 0.5f, 1.0f}, new int[]{255, 127, 0}, 2.0f);
+    private final GlowPaints circlePaints = new GlowPaints(new float[]{0.0f, 0.7f, 1.0f}, new int[]{255, 127, 0}, 1.0f);
+    // Частицы мелкие и многочисленные - рисуются готовыми спрайтами
+    private final GlowSprites particleSprites = new GlowSprites("Rainbow.sprites", particlePaints, Constants.GLOW_SPRITE_BYTES);
     
     private int width, height;
     
@@ -82,29 +97,6 @@ public class Rainbow {
                 vy = vy / speed * 3;
             }
         }
-        
-        void draw(Graphics2D g2d) {
-            Color color = Color.getHSBColor(hue, 0.8f, 1.0f);
-            Point2D center = new Point2D.Float(x, y);
-            float[] dist = {0.0f, 0.5f, 1.0f};
-            Color[] colors = {
-                new Color(color.getRed(), color.getGreen(), color.getBlue(), (int)(255 * alpha)),
-                new Color(color.getRed(), color.getGreen(), color.getBlue(), (int)(127 * alpha)),
-                new Color(color.getRed(), color.getGreen(), color.getBlue(), 0)
-            };
-            
-            RadialGradientPaint paint = new RadialGradientPaint(
-                center, size * 2, dist, colors
-            );
-            
-            g2d.setPaint(paint);
-            g2d.fillOval(
-                (int)(x - size), 
-                (int)(y - size),
-                (int)(size * 2),
-                (int)(size * 2)
-            );
-        }
     }
     
     private class AmorphousCircle {
@@ -155,29 +147,6 @@ public class Rainbow {
             // Изменение цвета
             hue = (hue + 0.002f) % 1.0f;
         }
-        
-        void draw(Graphics2D g2d) {
-            Color baseColor = Color.getHSBColor(hue, 0.8f, 1.0f);
-            Point2D center = new Point2D.Float(centerX, centerY);
-            float[] dist = {0.0f, 0.7f, 1.0f};
-            Color[] colors = {
-                new Color(baseColor.getRed(), baseColor.getGreen(), baseColor.getBlue(), (int)(255 * alpha)),
-                new Color(baseColor.getRed(), baseColor.getGreen(), baseColor.getBlue(), (int)(127 * alpha)),
-                new Color(baseColor.getRed(), baseColor.getGreen(), baseColor.getBlue(), 0)
-            };
-            
-            RadialGradientPaint paint = new RadialGradientPaint(
-                center, currentRadius, dist, colors
-            );
-            
-            g2d.setPaint(paint);
-            g2d.fillOval(
-                (int)(centerX - currentRadius),
-                (int)(centerY - currentRadius),
-                (int)(currentRadius * 2),
-                (int)(currentRadius * 2)
-            );
-        }
     }
     
     public Rainbow() {
@@ -201,8 +170,19 @@ public class Rainbow {
     
     private void ensureBufferSize(int width, int height) {
         if (particleBuffer == null || particleBuffer.getWidth() != width || particleBuffer.getHeight() != height) {
+            BufferReallocationEvent event = new BufferReallocationEvent();
+            event.begin();
+            if (particleG2d != null) {
+                particleG2d.dispose();
+                circleG2d.dispose();
+            }
             particleBuffer = EffectUtils.createCompatibleImage(width, height, true);
             circleBuffer = EffectUtils.createCompatibleImage(width, height, true);
+            particleG2d = particleBuffer.createGraphics();
+            circleG2d = circleBuffer.createGraphics();
+            particleG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            circleG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            event.finish("Rainbow", width, height, 2);
         }
     }
     
@@ -217,10 +197,24 @@ public class Rainbow {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive).putDouble(phase);
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        setActive(in.getBoolean());
+        phase = in.getDouble();
+    }
     
-    public void update() {
+    public void update(int width, int height) {
         if (!isActive) return;
         
+        // Размер мира нужен частицам и кругам для отражения и новых целей
+        this.width = width;
+        this.height = height;
         phase += PHASE_SPEED;
         
         for (RainbowParticle particle : particles) {
@@ -232,64 +226,112 @@ public class Rainbow {
         }
     }
     
-    public void draw(Graphics2D g2d, int width, int height) {
+    // Снимок частиц и кругов для отрисовки: заполняется под блокировкой шага,
+    // рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private final float[] particleX = new float[PARTICLE_COUNT];
+        private final float[] particleY = new float[PARTICLE_COUNT];
+        private final float[] particleSize = new float[PARTICLE_COUNT];
+        private final float[] particleHue = new float[PARTICLE_COUNT];
+        private final float[] particleAlpha = new float[PARTICLE_COUNT];
+        private final float[] circleX = new float[CIRCLE_COUNT];
+        private final float[] circleY = new float[CIRCLE_COUNT];
+        private final float[] circleRadius = new float[CIRCLE_COUNT];
+        private final float[] circleHue = new float[CIRCLE_COUNT];
+        private final float[] circleAlpha = new float[CIRCLE_COUNT];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive;
         if (!isActive) return;
-        
-        this.width = width;
-        this.height = height;
+
+        for (int i = 0; i < PARTICLE_COUNT; i++) {
+            RainbowParticle particle = particles.get(i);
+            frame.particleX[i] = particle.x;
+            frame.particleY[i] = particle.y;
+            frame.particleSize[i] = particle.size;
+            frame.particleHue[i] = particle.hue;
+            frame.particleAlpha[i] = particle.alpha;
+        }
+        for (int i = 0; i < CIRCLE_COUNT; i++) {
+            AmorphousCircle circle = circles.get(i);
+            frame.circleX[i] = circle.centerX;
+            frame.circleY[i] = circle.centerY;
+            frame.circleRadius[i] = circle.currentRadius;
+            frame.circleHue[i] = circle.hue;
+            frame.circleAlpha[i] = circle.alpha;
+        }
+    }
+    
+    public void draw(Graphics2D g2d, Frame frame, int width, int height) {
+        if (!frame.active) return;
         
         ensureBufferSize(width, height);
         
         // Рисуем круги
-        Graphics2D circleG2d = circleBuffer.createGraphics();
-        try {
-            circleG2d.setComposite(AlphaComposite.Clear);
-            circleG2d.fillRect(0, 0, width, height);
-            circleG2d.setComposite(AlphaComposite.SrcOver);
-            circleG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            for (AmorphousCircle circle : circles) {
-                circle.draw(circleG2d);
-            }
-        } finally {
-            circleG2d.dispose();
+        circleG2d.setComposite(AlphaComposite.Clear);
+        circleG2d.fillRect(0, 0, width, height);
+        circleG2d.setComposite(AlphaComposite.SrcOver);
+        for (int i = 0; i < CIRCLE_COUNT; i++) {
+            circlePaints.fill(circleG2d, Palette.hueRgb(frame.circleHue[i], HUE_STEPS, 0.8f),
+                              frame.circleX[i], frame.circleY[i], frame.circleRadius[i], frame.circleAlpha[i]);
         }
         
-        // Рисуем частицы
-        Graphics2D particleG2d = particleBuffer.createGraphics();
-        try {
-            particleG2d.setComposite(AlphaComposite.Clear);
-            particleG2d.fillRect(0, 0, width, height);
-            particleG2d.setComposite(AlphaComposite.SrcOver);
-            particleG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            for (RainbowParticle particle : particles) {
-                particle.draw(particleG2d);
-            }
-        } finally {
-            particleG2d.dispose();
+        // Рисуем частицы: градиент вдвое больше круга, видна только его внутренняя половина
+        particleG2d.setComposite(AlphaComposite.Clear);
+        particleG2d.fillRect(0, 0, width, height);
+        particleG2d.setComposite(AlphaComposite.SrcOver);
+        for (int i = 0; i < PARTICLE_COUNT; i++) {
+            particleSprites.draw(particleG2d, Palette.hueRgb(frame.particleHue[i], HUE_STEPS, 0.8f),
+                                 frame.particleX[i], frame.particleY[i], frame.particleSize[i], frame.particleAlpha[i]);
         }
         
         // Отрисовка с наложением
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.8f));
+        g2d.setComposite(BLEND);
         g2d.drawImage(circleBuffer, 0, 0, null);
         g2d.drawImage(particleBuffer, 0, 0, null);
     }
     
-    public void applyEffect(List<Ball> balls) {
-        if (!isActive) return;
-        
-        float globalHue = (float)(phase % 1.0);
-        for (Ball ball : balls) {
-            float hue = (globalHue + (float)(ball.getX() + ball.getY()) / 1000.0f) % 1.0f;
-            Color color = Color.getHSBColor(hue, 0.8f, 1.0f);
-            ball.setColor(color);
-            
-            if (random.nextFloat() < 0.05f) {
-                double angle = random.nextDouble() * Math.PI * 2;
-                double force = 0.5;
-                ball.addForce((float) (Math.cos(angle) * force), (float) (Math.sin(angle) * force));
-            }
+    // Силовое поле на весь мир: перекрашивает шары и изредка подталкивает их
+    @Override
+    public boolean isFieldActive() {
+        return isActive;
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+        globalHue = (float)(phase % 1.0);
+        fieldTick = tick;
+    }
+
+    @Override
+    public float getFieldCenterX() { return 0; }
+
+    @Override
+    public float getFieldCenterY() { return 0; }
+
+    @Override
+    public float getFieldRadius() { return UNBOUNDED; }
+
+    @Override
+    public boolean affectsParticles() { return false; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        // Оттенок квантуется, чтобы отрисовка шаров обходилась общими цветами палитры
+        float hue = (globalHue + (bodies.x[i] + bodies.y[i]) / 1000.0f) % 1.0f;
+        bodies.argb[i] = Palette.hueRgb(hue, BALL_HUE_STEPS, 0.8f);
+
+        if (FieldRandom.unit(fieldTick, i, 0) < 0.05f) {
+            double angle = FieldRandom.unit(fieldTick, i, 1) * Math.PI * 2;
+            double force = 0.5;
+            bodies.vx[i] += (float) (Math.cos(angle) * force);
+            bodies.vy[i] += (float) (Math.sin(angle) * force);
         }
     }
 } 
\ No newline at end of file
@@ -7,10 +7,12 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Random;
 
-import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.field.FieldBodies;
+import com.physics.field.ForceField;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
 
-public class SlowMotion {
+public class SlowMotion implements ForceField, StatefulEffect {
     private boolean isActive = false;
     private final Random random = new Random();
     private Point2D.Float slowField;
@@ -19,12 +21,21 @@ public class SlowMotion {
     private static final int PARTICLE_COUNT = 100;
     private static final float FIELD_RADIUS = 150f;
     private static final float SLOW_FACTOR = 0.2f;
+    private static final Color COLOR = new Color(200, 200, 255);
+    private static final RadialGradientPaint FIELD_PAINT = new RadialGradientPaint(
+        0, 0, FIELD_RADIUS,
+        new float[]{0.0f, 0.7f, 1.0f},
+        new Color[]{
+            new Color(200, 200, 255, 100),
+            new Color(200, 200, 255, 30),
+            new Color(200, 200, 255, 0)
+        }
+    );
     
     private class SlowParticle {
         float x, y;
         float vx, vy;
         float alpha = 1.0f;
-        Color color;
         
         SlowParticle() {
             reset();
@@ -43,7 +54,6 @@ public class SlowMotion {
             vy = (float)Math.sin(angle) * speed;
             
             alpha = 0.3f + random.nextFloat() * 0.7f;
-            color = new Color(200, 200, 255);
         }
         
         void update() {
@@ -62,17 +72,6 @@ public class SlowMotion {
                 alpha *= 0.99f;
             }
         }
-        
-        void draw(Graphics2D g2d) {
-            Color particleColor = new Color(
-                color.getRed(),
-                color.getGreen(),
-                color.getBlue(),
-                (int)(alpha * 255)
-            );
-            g2d.setColor(particleColor);
-            g2d.fillOval((int)x - 2, (int)y - 2, 4, 4);
-        }
     }
     
     public void setActive(boolean active, float x, float y) {
@@ -93,6 +92,29 @@ public class SlowMotion {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive);
+        if (isActive) {
+            out.putFloat(slowField.x).putFloat(slowField.y);
+        }
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        boolean active = in.getBoolean();
+        if (active) {
+            float x = in.getFloat();
+            float y = in.getFloat();
+            if (!isActive || slowField.x != x || slowField.y != y) {
+                isActive = false;
+                setActive(true, x, y);
+            }
+        } else {
+            isActive = false;
+        }
+    }
     
     public void update() {
         if (!isActive) return;
@@ -102,61 +124,79 @@ public class SlowMotion {
         }
     }
     
-    public void draw(Graphics2D g2d) {
-        if (!isActive || slowField == null) return;
-        
-        // Рисуем поле замедления
-        Point2D center = new Point2D.Float(slowField.x, slowField.y);
-        float[] dist = {0.0f, 0.7f, 1.0f};
-        Color[] colors = {
-            new Color(200, 200, 255, 100),
-            new Color(200, 200, 255, 30),
-            new Color(200, 200, 255, 0)
-        };
-        RadialGradientPaint paint = new RadialGradientPaint(
-            center, FIELD_RADIUS, dist, colors
-        );
-        g2d.setPaint(paint);
-        g2d.fillOval(
-            (int)(slowField.x - FIELD_RADIUS),
-            (int)(slowField.y - FIELD_RADIUS),
-            (int)(FIELD_RADIUS * 2),
-            (int)(FIELD_RADIUS * 2)
-        );
-        
-        // Рисуем частицы
-        for (SlowParticle particle : particles) {
-            particle.draw(g2d);
+    // Снимок для отрисовки: центр и частицы. Заполняется под блокировкой шага,
+    // рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private float centerX;
+        private float centerY;
+        private int particleCount;
+        private float[] particleX = new float[PARTICLE_COUNT];
+        private float[] particleY = new float[PARTICLE_COUNT];
+        private float[] particleAlpha = new float[PARTICLE_COUNT];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive && slowField != null;
+        if (!frame.active) return;
+
+        frame.centerX = slowField.x;
+        frame.centerY = slowField.y;
+        frame.particleCount = particles.size();
+        for (int i = 0; i < frame.particleCount; i++) {
+            SlowParticle particle = particles.get(i);
+            frame.particleX[i] = particle.x;
+            frame.particleY[i] = particle.y;
+            frame.particleAlpha[i] = particle.alpha;
         }
     }
     
-    public void applyEffect(ArrayList<Ball> balls, ArrayList<Particle> particles) {
-        if (!isActive || slowField == null) return;
+    public void draw(Graphics2D g2d, Frame frame) {
+        if (!frame.active) return;
         
-        // Замедляем шары
-        for (Ball ball : balls) {
-            float dx = ball.getX() - slowField.x;
-            float dy = ball.getY() - slowField.y;
-            float dist = (float)Math.sqrt(dx * dx + dy * dy);
-            
-            if (dist < FIELD_RADIUS) {
-                float factor = 1.0f - (1.0f - dist / FIELD_RADIUS) * (1.0f - SLOW_FACTOR);
-                ball.setVelocityX(ball.getVelocityX() * factor);
-                ball.setVelocityY(ball.getVelocityY() * factor);
-            }
-        }
+        // Рисуем поле замедления: градиент построен вокруг начала координат и сдвигается к центру
+        g2d.setPaint(FIELD_PAINT);
+        g2d.translate(frame.centerX, frame.centerY);
+        g2d.fillOval((int)-FIELD_RADIUS, (int)-FIELD_RADIUS, (int)(FIELD_RADIUS * 2), (int)(FIELD_RADIUS * 2));
+        g2d.translate(-frame.centerX, -frame.centerY);
         
-        // Замедляем частицы
-        for (Particle particle : particles) {
-            float dx = particle.getX() - slowField.x;
-            float dy = particle.getY() - slowField.y;
-            float dist = (float)Math.sqrt(dx * dx + dy * dy);
-            
-            if (dist < FIELD_RADIUS) {
-                float factor = 1.0f - (1.0f - dist / FIELD_RADIUS) * (1.0f - SLOW_FACTOR);
-                particle.setVelocityX(particle.getVelocityX() * factor);
-                particle.setVelocityY(particle.getVelocityY() * factor);
-            }
+        // Рисуем частицы
+        for (int i = 0; i < frame.particleCount; i++) {
+            g2d.setColor(Palette.withAlpha(COLOR, frame.particleAlpha[i]));
+            g2d.fillOval((int)frame.particleX[i] - 2, (int)frame.particleY[i] - 2, 4, 4);
         }
     }
+    
+    // Силовое поле: гасит скорость тел тем сильнее, чем ближе они к центру
+    @Override
+    public boolean isFieldActive() {
+        return isActive && slowField != null;
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+    }
+
+    @Override
+    public float getFieldCenterX() { return slowField.x; }
+
+    @Override
+    public float getFieldCenterY() { return slowField.y; }
+
+    @Override
+    public float getFieldRadius() { return FIELD_RADIUS; }
+
+    @Override
+    public boolean affectsParticles() { return true; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        float factor = 1.0f - (1.0f - distance / FIELD_RADIUS) * (1.0f - SLOW_FACTOR);
+        bodies.vx[i] *= factor;
+        bodies.vy[i] *= factor;
+    }
 } 
\ No newline at end of file
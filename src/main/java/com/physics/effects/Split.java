@@ -1,20 +1,25 @@
 package com.physics.effects;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 import java.util.Random;
 
-import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
 
-public class Split {
+public class Split implements StatefulEffect {
     private boolean isActive = false;
-    private final Random random = new Random();
+    private final Random random;
     private static final float MIN_RADIUS = 10f;
+    private static final int SPARK_ARGB = 0xFFFFC864; // new Color(255, 200, 100)
     private BufferedImage effectBuffer;
     
+    public Split(Random random) {
+        this.random = random;
+    }
+
     public void setActive(boolean active) {
         isActive = active;
     }
@@ -22,6 +27,16 @@ public class Split {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive);
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        isActive = in.getBoolean();
+    }
     
     public void update() {
         // Обновление не требуется
@@ -31,66 +46,53 @@ public class Split {
         // Визуальный эффект не требуется
     }
     
-    public void applyEffect(ArrayList<Ball> balls, ArrayList<Particle> particles) {
+    public void applyEffect(BallStore balls, ParticlePool particles) {
         if (!isActive) return;
         
-        ArrayList<Ball> newBalls = new ArrayList<>();
-        
-        for (Ball ball : balls) {
-            if (ball.getRadius() > MIN_RADIUS) {
-                // Создаем два новых шара меньшего размера
-                float newRadius = ball.getRadius() / 1.4f;
+        // Каждый крупный шар уменьшается на месте, второй половиной дописывается в конец
+        int count = balls.size();
+        balls.ensureCapacity(count * 2);
+        float[] x = balls.x();
+        float[] y = balls.y();
+        float[] vx = balls.vx();
+        float[] vy = balls.vy();
+        float[] radius = balls.radius();
+        int[] argb = balls.argb();
+
+        for (int index = 0; index < count; index++) {
+            if (radius[index] > MIN_RADIUS) {
+                float newRadius = radius[index] / 1.4f;
                 float offset = newRadius * 1.2f;
-                
-                // Первый шар
-                Ball ball1 = new Ball(
-                    ball.getX() - offset,
-                    ball.getY(),
-                    newRadius
-                );
-                ball1.setVelocityX(ball.getVelocityX() - 2f);
-                ball1.setVelocityY(ball.getVelocityY());
-                ball1.setColor(ball.getColor());
+                float centerX = x[index];
+                float centerY = y[index];
+                float velocityX = vx[index];
                 
                 // Второй шар
-                Ball ball2 = new Ball(
-                    ball.getX() + offset,
-                    ball.getY(),
-                    newRadius
-                );
-                ball2.setVelocityX(ball.getVelocityX() + 2f);
-                ball2.setVelocityY(ball.getVelocityY());
-                ball2.setColor(ball.getColor());
+                balls.add(centerX + offset, centerY, velocityX + 2f, vy[index], newRadius, argb[index]);
                 
-                newBalls.add(ball1);
-                newBalls.add(ball2);
+                // Первый шар занимает место исходного
+                x[index] = centerX - offset;
+                vx[index] = velocityX - 2f;
+                radius[index] = newRadius;
                 
                 // Создаем частицы для эффекта
                 for (int i = 0; i < 10; i++) {
                     float particleAngle = random.nextFloat() * (float)(Math.PI * 2);
                     float speed = 2f + random.nextFloat() * 3f;
                     
-                    Particle particle = new Particle(
-                        ball.getX(),
-                        ball.getY(),
+                    particles.spawn(
+                        centerX,
+                        centerY,
                         (float)(Math.cos(particleAngle) * speed),
                         (float)(Math.sin(particleAngle) * speed),
                         100,
-                        new Color(255, 200, 100),
+                        SPARK_ARGB,
                         3
                     );
-                    particles.add(particle);
                 }
-            } else {
-                // Если шар слишком маленький, сохраняем его
-                newBalls.add(ball);
             }
         }
         
-        // Заменяем старые шары новыми
-        balls.clear();
-        balls.addAll(newBalls);
-        
         // Деактивируем эффект после применения
         isActive = false;
     }
@@ -0,0 +1,40 @@
+package com.physics.effects;
+
+import java.awt.BasicStroke;
+
+// Общие экземпляры BasicStroke: ширина округляется до четверти пикселя,
+// концы и соединения - по умолчанию (CAP_SQUARE, JOIN_MITER) или скруглённые
+public final class Strokes {
+    private static final int STEPS_PER_PIXEL = 4;
+    private static final int MAX_STEPS = 64 * STEPS_PER_PIXEL;
+    private static final BasicStroke[] plain = new BasicStroke[MAX_STEPS + 1];
+    private static final BasicStroke[] round = new BasicStroke[MAX_STEPS + 1];
+
+    private Strokes() {
+    }
+
+    public static BasicStroke of(float width) {
+        int step = step(width);
+        BasicStroke stroke = plain[step];
+        if (stroke == null) {
+            stroke = new BasicStroke(step / (float)STEPS_PER_PIXEL);
+            plain[step] = stroke;
+        }
+        return stroke;
+    }
+
+    public static BasicStroke round(float width) {
+        int step = step(width);
+        BasicStroke stroke = round[step];
+        if (stroke == null) {
+            stroke = new BasicStroke(step / (float)STEPS_PER_PIXEL, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+            round[step] = stroke;
+        }
+        return stroke;
+    }
+
+    private static int step(float width) {
+        int step = Math.round(width * STEPS_PER_PIXEL);
+        return step < 0 ? 0 : (step > MAX_STEPS ? MAX_STEPS : step);
+    }
+}
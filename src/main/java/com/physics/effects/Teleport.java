@@ -7,23 +7,36 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Random;
 
-import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.field.FieldBodies;
+import com.physics.field.FieldRandom;
+import com.physics.field.ForceField;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
 
-public class Teleport {
+public class Teleport implements ForceField, StatefulEffect {
     private boolean isActive = false;
     private final Random random = new Random();
     private Point2D.Float teleportPoint;
+    private long fieldTick;
     private ArrayList<TeleportParticle> particles = new ArrayList<>();
     
     private static final int PARTICLE_COUNT = 50;
     private static final float TELEPORT_RADIUS = 100f;
+    private static final Color COLOR = new Color(100, 200, 255);
+    private static final RadialGradientPaint FIELD_PAINT = new RadialGradientPaint(
+        0, 0, TELEPORT_RADIUS,
+        new float[]{0.0f, 0.7f, 1.0f},
+        new Color[]{
+            new Color(100, 200, 255, 150),
+            new Color(100, 200, 255, 50),
+            new Color(100, 200, 255, 0)
+        }
+    );
     
     private class TeleportParticle {
         float x, y;
         float vx, vy;
         float alpha = 1.0f;
-        Color color;
         
         TeleportParticle(float x, float y) {
             this.x = x;
@@ -32,7 +45,6 @@ public class Teleport {
             float speed = 1f + random.nextFloat() * 2f;
             vx = (float)Math.cos(angle) * speed;
             vy = (float)Math.sin(angle) * speed;
-            color = new Color(100, 200, 255);
         }
         
         void update() {
@@ -40,19 +52,6 @@ public class Teleport {
             y += vy;
             alpha *= 0.95f;
         }
-        
-        void draw(Graphics2D g2d) {
-            if (alpha < 0.05f) return;
-            
-            Color particleColor = new Color(
-                color.getRed(),
-                color.getGreen(),
-                color.getBlue(),
-                (int)(alpha * 255)
-            );
-            g2d.setColor(particleColor);
-            g2d.fillOval((int)x - 2, (int)y - 2, 4, 4);
-        }
     }
     
     public void setActive(boolean active, float x, float y) {
@@ -76,6 +75,33 @@ public class Teleport {
     public boolean isActive() {
         return isActive;
     }
+
+    // Частицы телепорта затухают одинаково, и по ним эффект выключается сам,
+    // поэтому вместе с точкой сохраняются их число и прозрачность
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive);
+        if (isActive) {
+            out.putFloat(teleportPoint.x).putFloat(teleportPoint.y)
+               .putInt(particles.size()).putFloat(particles.isEmpty() ? 0 : particles.get(0).alpha);
+        }
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        isActive = false;
+        if (!in.getBoolean()) return;
+
+        setActive(true, in.getFloat(), in.getFloat());
+        int count = in.getInt();
+        float alpha = in.getFloat();
+        while (particles.size() > count) {
+            particles.remove(particles.size() - 1);
+        }
+        for (TeleportParticle particle : particles) {
+            particle.alpha = alpha;
+        }
+    }
     
     public void update() {
         if (!isActive) return;
@@ -90,83 +116,93 @@ public class Teleport {
         }
     }
     
-    public void draw(Graphics2D g2d) {
-        if (!isActive || teleportPoint == null) return;
-        
-        // Рисуем портал
-        Point2D center = new Point2D.Float(teleportPoint.x, teleportPoint.y);
-        float[] dist = {0.0f, 0.7f, 1.0f};
-        Color[] colors = {
-            new Color(100, 200, 255, 150),
-            new Color(100, 200, 255, 50),
-            new Color(100, 200, 255, 0)
-        };
-        RadialGradientPaint paint = new RadialGradientPaint(
-            center, TELEPORT_RADIUS, dist, colors
-        );
-        g2d.setPaint(paint);
-        g2d.fillOval(
-            (int)(teleportPoint.x - TELEPORT_RADIUS),
-            (int)(teleportPoint.y - TELEPORT_RADIUS),
-            (int)(TELEPORT_RADIUS * 2),
-            (int)(TELEPORT_RADIUS * 2)
-        );
-        
-        // Рисуем частицы
-        for (TeleportParticle particle : particles) {
-            particle.draw(g2d);
+    // Снимок для отрисовки: центр и частицы. Заполняется под блокировкой шага,
+    // рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private float centerX;
+        private float centerY;
+        private int particleCount;
+        private float[] particleX = new float[PARTICLE_COUNT];
+        private float[] particleY = new float[PARTICLE_COUNT];
+        private float[] particleAlpha = new float[PARTICLE_COUNT];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive && teleportPoint != null;
+        if (!frame.active) return;
+
+        frame.centerX = teleportPoint.x;
+        frame.centerY = teleportPoint.y;
+        frame.particleCount = particles.size();
+        for (int i = 0; i < frame.particleCount; i++) {
+            TeleportParticle particle = particles.get(i);
+            frame.particleX[i] = particle.x;
+            frame.particleY[i] = particle.y;
+            frame.particleAlpha[i] = particle.alpha;
         }
     }
     
-    public void applyEffect(ArrayList<Ball> balls, ArrayList<Particle> particles) {
-        if (!isActive || teleportPoint == null) return;
+    public void draw(Graphics2D g2d, Frame frame) {
+        if (!frame.active) return;
         
-        // Телепортируем шары
-        for (Ball ball : balls) {
-            float dx = ball.getX() - teleportPoint.x;
-            float dy = ball.getY() - teleportPoint.y;
-            float dist = (float)Math.sqrt(dx * dx + dy * dy);
-            
-            if (dist < TELEPORT_RADIUS) {
-                // Телепортируем в случайную точку в радиусе
-                float angle = random.nextFloat() * (float)(Math.PI * 2);
-                float radius = random.nextFloat() * TELEPORT_RADIUS * 2;
-                ball.setPosition(
-                    teleportPoint.x + (float)Math.cos(angle) * radius,
-                    teleportPoint.y + (float)Math.sin(angle) * radius
-                );
-                
-                // Добавляем случайный импульс
-                angle = random.nextFloat() * (float)(Math.PI * 2);
-                float force = 5f + random.nextFloat() * 5f;
-                ball.addForce(
-                    (float)Math.cos(angle) * force,
-                    (float)Math.sin(angle) * force
-                );
-            }
-        }
+        // Рисуем портал: градиент построен вокруг начала координат и сдвигается к центру
+        g2d.setPaint(FIELD_PAINT);
+        g2d.translate(frame.centerX, frame.centerY);
+        g2d.fillOval((int)-TELEPORT_RADIUS, (int)-TELEPORT_RADIUS, (int)(TELEPORT_RADIUS * 2), (int)(TELEPORT_RADIUS * 2));
+        g2d.translate(-frame.centerX, -frame.centerY);
         
-        // Телепортируем частицы
-        for (Particle particle : particles) {
-            float dx = particle.getX() - teleportPoint.x;
-            float dy = particle.getY() - teleportPoint.y;
-            float dist = (float)Math.sqrt(dx * dx + dy * dy);
+        // Рисуем частицы
+        for (int i = 0; i < frame.particleCount; i++) {
+            if (frame.particleAlpha[i] < 0.05f) continue;
             
-            if (dist < TELEPORT_RADIUS) {
-                float angle = random.nextFloat() * (float)(Math.PI * 2);
-                float radius = random.nextFloat() * TELEPORT_RADIUS * 2;
-                particle.setPosition(
-                    teleportPoint.x + (float)Math.cos(angle) * radius,
-                    teleportPoint.y + (float)Math.sin(angle) * radius
-                );
-                
-                angle = random.nextFloat() * (float)(Math.PI * 2);
-                float force = 5f + random.nextFloat() * 5f;
-                particle.addForce(
-                    (float)Math.cos(angle) * force,
-                    (float)Math.sin(angle) * force
-                );
-            }
+            g2d.setColor(Palette.withAlpha(COLOR, frame.particleAlpha[i]));
+            g2d.fillOval((int)frame.particleX[i] - 2, (int)frame.particleY[i] - 2, 4, 4);
         }
     }
+    
+    // Силовое поле: переносит тела в случайную точку рядом с порталом.
+    // Случайные числа - хэш от шага и индекса, общий генератор не нужен
+    @Override
+    public boolean isFieldActive() {
+        return isActive && teleportPoint != null;
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+        fieldTick = tick;
+    }
+
+    @Override
+    public float getFieldCenterX() { return teleportPoint.x; }
+
+    @Override
+    public float getFieldCenterY() { return teleportPoint.y; }
+
+    @Override
+    public float getFieldRadius() { return TELEPORT_RADIUS; }
+
+    @Override
+    public boolean affectsParticles() { return true; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        int salt = bodies.isParticles() ? 4 : 0;
+
+        // Телепортируем в случайную точку в радиусе
+        float angle = FieldRandom.unit(fieldTick, i, salt) * (float)(Math.PI * 2);
+        float radius = FieldRandom.unit(fieldTick, i, salt + 1) * TELEPORT_RADIUS * 2;
+        bodies.x[i] = teleportPoint.x + (float)Math.cos(angle) * radius;
+        bodies.y[i] = teleportPoint.y + (float)Math.sin(angle) * radius;
+
+        // Добавляем случайный импульс
+        angle = FieldRandom.unit(fieldTick, i, salt + 2) * (float)(Math.PI * 2);
+        float force = 5f + FieldRandom.unit(fieldTick, i, salt + 3) * 5f;
+        bodies.vx[i] += (float)Math.cos(angle) * force;
+        bodies.vy[i] += (float)Math.sin(angle) * force;
+    }
 } 
\ No newline at end of file
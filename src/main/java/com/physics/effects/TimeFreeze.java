@@ -2,9 +2,16 @@ package com.physics.effects;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.util.Random;
 
-public class TimeFreeze {
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+
+public class TimeFreeze implements StatefulEffect {
+    private static final Color FROST = new Color(200, 200, 255, 30);
     private boolean isActive = false;
+    // Рисуется в потоке отрисовки и не должен трогать генератор физики
+    private final Random random = new Random();
 
     public void setActive(boolean active) {
         isActive = active;
@@ -14,15 +21,38 @@ public class TimeFreeze {
         return isActive;
     }
 
-    public void draw(Graphics2D g2d, int width, int height) {
-        if (!isActive) return;
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive);
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        isActive = in.getBoolean();
+    }
+
+    // Снимок для отрисовки: заполняется под блокировкой шага, рисуется без неё
+    public static final class Frame {
+        private boolean active;
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive;
+    }
+
+    public void draw(Graphics2D g2d, Frame frame, int width, int height) {
+        if (!frame.active) return;
 
         // Создаем эффект замороженного времени
-        g2d.setColor(new Color(200, 200, 255, 30));
+        g2d.setColor(FROST);
         for (int i = 0; i < 20; i++) {
-            int x = (int)(Math.random() * width);
-            int y = (int)(Math.random() * height);
-            int size = 2 + (int)(Math.random() * 4);
+            int x = random.nextInt(Math.max(1, width));
+            int y = random.nextInt(Math.max(1, height));
+            int size = 2 + random.nextInt(4);
             g2d.fillRect(x, y, size, size);
         }
     }
@@ -1,43 +1,71 @@
 package com.physics.effects;
 
 import java.awt.AlphaComposite;
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.RadialGradientPaint;
 import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
-import com.physics.GameState;
+import com.physics.data.Constants;
+import com.physics.history.DeltaHistory;
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
 import com.physics.model.Ball;
-import com.physics.model.Particle;
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+import com.physics.profile.BufferReallocationEvent;
+import com.physics.profile.ReversalEvent;
 
 public class TimeReversal {
-    private final ExecutorService executor = EffectUtils.getExecutor();
+    private final PhaseExecutor phases = EffectUtils.getPhaseExecutor();
     private boolean isActive = false;
     private final Random random = new Random();
     private final List<ReversalParticle> particles = new ArrayList<>(200);
     private double phase = 0.0;
     
-    // Буферы для рендеринга
+    // Буферы для рендеринга; их Graphics живут вместе с буферами
     private BufferedImage particleBuffer;
     private BufferedImage trailBuffer;
     private BufferedImage glowBuffer;
+    private Graphics2D particleG2d;
+    private Graphics2D trailG2d;
+    private Graphics2D glowG2d;
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+    private static final AlphaComposite GLOW_BLEND = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f);
+    private static final AlphaComposite TRAIL_BLEND = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f);
+    private final GlowPaints glow = new GlowPaints(new float[]{0.0f, 0.7f, 1.0f}, new int[]{255, 102, 0}, 1.0f);
+    private static final int GLOW_RGB = 0xCC66FF;  // Фиолетовый
+    
+    // Слои рисуются параллельно, каждый в свой буфер; центр общий на кадр
+    private int drawCenterX;
+    private int drawCenterY;
+    private final Path2D.Float trailPath = new Path2D.Float();
+    private final RangeTask drawLayers = (start, end) -> {
+        for (int i = start; i < end; i++) {
+            drawLayer(i);
+        }
+    };
     
     private static final float PARTICLE_SPEED = 2.0f;
     private static final float PHASE_SPEED = 0.02f;
     private static final int INFLUENCE_RADIUS = 300;
     private static final int TRAIL_COUNT = 10;
     private static final int POINTS_PER_TRAIL = 100;
+    private static final int UPDATE_GRAIN = 64;
+    private final RangeTask updateParticles = (start, end) -> {
+        for (int i = start; i < end; i++) {
+            particles.get(i).update();
+        }
+    };
     
     private boolean isReversing = false;
-    private List<GameState> stateHistory = new ArrayList<>();
-    private static final int MAX_HISTORY_SIZE = 300; // 5 секунд при 60 FPS
+    // Свежие кадры лежат в памяти (бюджет и MAX_HISTORY_TIME), старые уходят в файл
+    private final DeltaHistory history = new DeltaHistory(Constants.HISTORY_BUDGET_BYTES,
+        (int)(Constants.MAX_HISTORY_TIME * Constants.TICK_RATE / 1000),
+        Constants.HISTORY_SPILL_BYTES);
     
     private class ReversalParticle {
         float x, y;
@@ -97,9 +125,23 @@ public class TimeReversal {
     
     private void ensureBufferSize(int width, int height) {
         if (particleBuffer == null || particleBuffer.getWidth() != width || particleBuffer.getHeight() != height) {
+            BufferReallocationEvent event = new BufferReallocationEvent();
+            event.begin();
+            if (particleG2d != null) {
+                particleG2d.dispose();
+                trailG2d.dispose();
+                glowG2d.dispose();
+            }
             particleBuffer = EffectUtils.createCompatibleImage(width, height, true);
             trailBuffer = EffectUtils.createCompatibleImage(width, height, true);
             glowBuffer = EffectUtils.createCompatibleImage(width, height, true);
+            particleG2d = particleBuffer.createGraphics();
+            trailG2d = trailBuffer.createGraphics();
+            glowG2d = glowBuffer.createGraphics();
+            particleG2d.setBackground(TRANSPARENT);
+            trailG2d.setBackground(TRANSPARENT);
+            glowG2d.setBackground(TRANSPARENT);
+            event.finish("TimeReversal", width, height, 3);
         }
     }
     
@@ -120,18 +162,7 @@ public class TimeReversal {
         phase += PHASE_SPEED;
         
         // Параллельное обновление частиц
-        List<List<ReversalParticle>> batches = new ArrayList<>();
-        int batchSize = particles.size() / Runtime.getRuntime().availableProcessors();
-        for (int i = 0; i < particles.size(); i += batchSize) {
-            batches.add(particles.subList(i, 
-                Math.min(i + batchSize, particles.size())));
-        }
-        
-        EffectUtils.parallelProcess(batches, 1, batch -> {
-            for (ReversalParticle particle : batch) {
-                particle.update();
-            }
-        });
+        phases.forRange("timeReversal.update", 0, particles.size(), UPDATE_GRAIN, updateParticles);
     }
     
     public void draw(Graphics2D g2d, int mouseX, int mouseY, int width, int height) {
@@ -139,95 +170,66 @@ public class TimeReversal {
         
         ensureBufferSize(width, height);
         
+        drawCenterX = mouseX;
+        drawCenterY = mouseY;
+        
         // Очищаем буферы
-        Graphics2D particleG2d = particleBuffer.createGraphics();
-        Graphics2D trailG2d = trailBuffer.createGraphics();
-        Graphics2D glowG2d = glowBuffer.createGraphics();
+        particleG2d.clearRect(0, 0, width, height);
+        trailG2d.clearRect(0, 0, width, height);
+        glowG2d.clearRect(0, 0, width, height);
         
-        try {
-            particleG2d.setBackground(new Color(0, 0, 0, 0));
-            trailG2d.setBackground(new Color(0, 0, 0, 0));
-            glowG2d.setBackground(new Color(0, 0, 0, 0));
-            
-            particleG2d.clearRect(0, 0, width, height);
-            trailG2d.clearRect(0, 0, width, height);
-            glowG2d.clearRect(0, 0, width, height);
-            
-            // Рендерим каждый слой параллельно
-            Future<?> particleFuture = executor.submit(() -> 
-                drawParticles(particleG2d, mouseX, mouseY));
-            Future<?> trailFuture = executor.submit(() -> 
-                drawTrails(trailG2d, mouseX, mouseY));
-            Future<?> glowFuture = executor.submit(() -> 
-                drawGlow(glowG2d, mouseX, mouseY));
-            
-            // Ждем завершения рендеринга
-            try {
-                particleFuture.get();
-                trailFuture.get();
-                glowFuture.get();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            
-            // Композитинг слоев
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-            g2d.drawImage(glowBuffer, 0, 0, null);
-            
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
-            g2d.drawImage(trailBuffer, 0, 0, null);
-            
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
-            g2d.drawImage(particleBuffer, 0, 0, null);
-            
-        } finally {
-            particleG2d.dispose();
-            trailG2d.dispose();
-            glowG2d.dispose();
+        // Рендерим каждый слой параллельно, каждый в свой буфер
+        phases.forRange("timeReversal.draw", 0, 3, 1, drawLayers);
+        
+        // Композитинг слоев
+        g2d.setComposite(GLOW_BLEND);
+        g2d.drawImage(glowBuffer, 0, 0, null);
+        
+        g2d.setComposite(TRAIL_BLEND);
+        g2d.drawImage(trailBuffer, 0, 0, null);
+        
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.drawImage(particleBuffer, 0, 0, null);
+    }
+    
+    private void drawLayer(int layer) {
+        switch (layer) {
+            case 0:
+                drawParticles(particleG2d, drawCenterX, drawCenterY);
+                break;
+            case 1:
+                drawTrails(trailG2d, drawCenterX, drawCenterY);
+                break;
+            default:
+                drawGlow(glowG2d, drawCenterX, drawCenterY);
+                break;
         }
     }
     
     private void drawParticles(Graphics2D g2d, int centerX, int centerY) {
-        // Параллельная отрисовка частиц
-        List<List<ReversalParticle>> batches = new ArrayList<>();
-        int batchSize = particles.size() / Runtime.getRuntime().availableProcessors();
-        for (int i = 0; i < particles.size(); i += batchSize) {
-            batches.add(particles.subList(i, 
-                Math.min(i + batchSize, particles.size())));
+        // Один буфер рисуется одним потоком; параллельны только слои
+        for (int i = 0; i < particles.size(); i++) {
+            ReversalParticle particle = particles.get(i);
+            float size = 4 + (float)(Math.sin(phase + particle.angle * 0.1) + 1) * 2;
+            float distanceRatio = particle.radius / INFLUENCE_RADIUS;
+            float alpha = particle.alpha * (1.0f - distanceRatio);
+            
+            g2d.setColor(Palette.withAlpha(particle.color, (int)(255 * alpha)));
+            
+            g2d.fillOval(
+                (int)(centerX + particle.x - size/2),
+                (int)(centerY + particle.y - size/2),
+                (int)size, (int)size
+            );
         }
-        
-        EffectUtils.parallelProcess(batches, 1, batch -> {
-            Graphics2D batchG2d = (Graphics2D)g2d.create();
-            try {
-                for (ReversalParticle particle : batch) {
-                    float size = 4 + (float)(Math.sin(phase + particle.angle * 0.1) + 1) * 2;
-                    float distanceRatio = particle.radius / INFLUENCE_RADIUS;
-                    float alpha = particle.alpha * (1.0f - distanceRatio);
-                    
-                    batchG2d.setColor(new Color(
-                        particle.color.getRed(),
-                        particle.color.getGreen(),
-                        particle.color.getBlue(),
-                        (int)(255 * alpha)
-                    ));
-                    
-                    batchG2d.fillOval(
-                        (int)(centerX + particle.x - size/2),
-                        (int)(centerY + particle.y - size/2),
-                        (int)size, (int)size
-                    );
-                }
-            } finally {
-                batchG2d.dispose();
-            }
-        });
     }
     
     private void drawTrails(Graphics2D g2d, int centerX, int centerY) {
-        g2d.setStroke(new BasicStroke(2.0f));
+        g2d.setStroke(Strokes.of(2.0f));
         
         for (int t = 0; t < TRAIL_COUNT; t++) {
-            Path2D.Float path = new Path2D.Float();
+            Path2D.Float path = trailPath;
+            path.reset();
             float trailPhase = (float)phase + (float)t / TRAIL_COUNT;
             float baseAngle = trailPhase * 360;
             
@@ -249,7 +251,7 @@ public class TimeReversal {
             float alpha = 0.7f - (t / (float)TRAIL_COUNT) * 0.5f;
             alpha *= 0.7f + (float)(Math.sin(phase * 5 + t) + 1) * 0.15f;
             
-            g2d.setColor(new Color(0.8f, 0.4f, 1.0f, alpha));  // Фиолетовый цвет
+            g2d.setColor(Palette.argb((int)(alpha * 255 + 0.5f) << 24 | GLOW_RGB));  // Фиолетовый цвет
             g2d.draw(path);
         }
     }
@@ -257,25 +259,15 @@ public class TimeReversal {
     private void drawGlow(Graphics2D g2d, int centerX, int centerY) {
         float intensity = 0.3f + (float)(Math.sin(phase * 3) + 1) * 0.1f;
         
-        RadialGradientPaint gradient = new RadialGradientPaint(
-            centerX, centerY, INFLUENCE_RADIUS,
-            new float[] { 0.0f, 0.7f, 1.0f },
-            new Color[] {
-                new Color(0.8f, 0.4f, 1.0f, intensity),  // Фиолетовый
-                new Color(0.8f, 0.4f, 1.0f, intensity * 0.4f),
-                new Color(0.8f, 0.4f, 1.0f, 0)
-            }
-        );
-        
-        g2d.setPaint(gradient);
-        g2d.fillOval(centerX - INFLUENCE_RADIUS, centerY - INFLUENCE_RADIUS,
-            INFLUENCE_RADIUS * 2, INFLUENCE_RADIUS * 2);
+        glow.fill(g2d, GLOW_RGB, centerX, centerY, INFLUENCE_RADIUS, intensity);
     }
     
-    public void applyEffect(List<Ball> balls, int mouseX, int mouseY) {
+    public void applyEffect(BallStore balls, int mouseX, int mouseY) {
         if (!isActive) return;
         
-        for (Ball ball : balls) {
+        Ball ball = balls.view(0);
+        for (int index = 0; index < balls.size(); index++) {
+            ball.at(index);
             double dx = ball.getX() - mouseX;
             double dy = ball.getY() - mouseY;
             double distance = Math.sqrt(dx * dx + dy * dy);
@@ -306,35 +298,27 @@ public class TimeReversal {
         isReversing = reversing;
     }
 
-    public void saveState(ArrayList<Ball> balls, ArrayList<Particle> particles) {
+    public void saveState(BallStore balls, ParticlePool particles) {
         if (!isReversing) {
-            GameState currentState = new GameState();
-            for (Ball ball : balls) {
-                currentState.addBall(ball.getX(), ball.getY(), ball.getVelocityX(), ball.getVelocityY(), 
-                                   ball.getRadius(), new Color(ball.getColor().getRGB()));
-            }
-            for (Particle particle : particles) {
-                currentState.addParticle(particle.getX(), particle.getY(), particle.getVelocityX(), particle.getVelocityY(),
-                                       (int)particle.getLifetime(), new Color(particle.getColor().getRGB()), 
-                                       (int)particle.getSize());
-            }
-            
-            stateHistory.add(currentState);
-            if (stateHistory.size() > MAX_HISTORY_SIZE) {
-                stateHistory.remove(0);
-            }
+            ReversalEvent event = new ReversalEvent();
+            event.begin();
+            history.record(balls, particles);
+            event.finish(ReversalEvent.SAVE, balls.size(), particles.size(),
+                history.getFrameCount(), history.getUsedBytes());
         }
     }
 
-    public void applyReversal(ArrayList<Ball> balls, ArrayList<Particle> particles) {
-        if (isReversing && !stateHistory.isEmpty()) {
-            GameState previousState = stateHistory.get(stateHistory.size() - 1);
-            stateHistory.remove(stateHistory.size() - 1);
-            
-            balls.clear();
-            particles.clear();
-            balls.addAll(previousState.getBalls());
-            particles.addAll(previousState.getParticles());
+    public void applyReversal(BallStore balls, ParticlePool particles) {
+        if (isReversing) {
+            ReversalEvent event = new ReversalEvent();
+            event.begin();
+            history.rewind(balls, particles);
+            event.finish(ReversalEvent.RESTORE, balls.size(), particles.size(),
+                history.getFrameCount(), history.getUsedBytes());
         }
     }
-} 
\ No newline at end of file
+
+    public DeltaHistory getHistory() {
+        return history;
+    }
+}
@@ -1,28 +1,32 @@
 package com.physics.effects;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
 import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
 
-import com.physics.model.Ball;
+import com.physics.data.Constants;
+import com.physics.field.FieldBodies;
+import com.physics.field.ForceField;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
+import com.physics.profile.BufferReallocationEvent;
 
-public class TimeVortex {
-    private final ExecutorService executor = EffectUtils.getExecutor();
+public class TimeVortex implements ForceField, StatefulEffect {
+    private final PhaseExecutor phases = EffectUtils.getPhaseExecutor();
     private boolean isActive = false;
     private final Random random = new Random();
     private final List<VortexParticle> particles = new ArrayList<>(200);
     private double phase = 0.0;
     private double spaceWarp = 1.0;
+    private Point center;
     
     // Буферы для рендеринга
     private BufferedImage particleBuffer;
@@ -34,6 +38,17 @@ public class TimeVortex {
     private static final int INFLUENCE_RADIUS = 200;
     private static final int SPIRAL_COUNT = 8;
     private static final int POINTS_PER_SPIRAL = 100;
+    private static final int UPDATE_GRAIN = 64;
+    
+    // Спрайты свечения частиц по цвету и общий путь для спиралей и колец: рисует один поток
+    private final GlowSprites particleGlows = new GlowSprites("TimeVortex.sprites",
+        new GlowPaints(new float[]{0.0f, 0.5f, 1.0f}, new int[]{255, 127, 0}, 2.0f), Constants.GLOW_SPRITE_BYTES);
+    private final Path2D.Float path = new Path2D.Float();
+    private final RangeTask updateParticles = (start, end) -> {
+        for (int i = start; i < end; i++) {
+            particles.get(i).update();
+        }
+    };
     
     private class VortexParticle {
         float x, y;
@@ -78,23 +93,6 @@ public class TimeVortex {
             float hue = (spaceWarp > 0) ? 0.6f : 0.0f;  // Синий или красный
             color = EffectUtils.getColorFromCache(hue + random.nextFloat() * 0.2f);
         }
-        
-        void draw(Graphics2D g2d, float sx, float sy) {
-            float x = sx +(float)(Math.cos(Math.toRadians(angle)) * radius);
-            float y = sy +(float)(Math.sin(Math.toRadians(angle)) * radius);
-            
-            float size = 4 + (float)(Math.sin(phase + angle * 0.1) + 1) * 2;
-            
-            g2d.setColor(new Color(
-                color.getRed(),
-                color.getGreen(),
-                color.getBlue(),
-                (int)(255 * alpha)
-            ));
-            
-            g2d.fillOval((int)(x - size/2), (int)(y - size/2), 
-                (int)size, (int)size);
-        }
     }
     
     public TimeVortex() {
@@ -110,9 +108,12 @@ public class TimeVortex {
     
     private void ensureBufferSize(int width, int height) {
         if (particleBuffer == null || particleBuffer.getWidth() != width || particleBuffer.getHeight() != height) {
+            BufferReallocationEvent event = new BufferReallocationEvent();
+            event.begin();
             particleBuffer = EffectUtils.createCompatibleImage(width, height, true);
             spiralBuffer = EffectUtils.createCompatibleImage(width, height, true);
             glowBuffer = EffectUtils.createCompatibleImage(width, height, true);
+            event.finish("TimeVortex", width, height, 3);
         }
     }
     
@@ -126,6 +127,18 @@ public class TimeVortex {
     public boolean isActive() {
         return isActive;
     }
+
+    @Override
+    public void writeState(StateBuffer out) {
+        out.putBoolean(isActive).putDouble(phase).putDouble(spaceWarp);
+    }
+
+    @Override
+    public void readState(StateBuffer in) {
+        setActive(in.getBoolean());
+        phase = in.getDouble();
+        spaceWarp = in.getDouble();
+    }
     
     public void setSpaceWarp(double warp) {
         this.spaceWarp = warp;
@@ -137,58 +150,100 @@ public class TimeVortex {
         phase += PHASE_SPEED;
         
         // Параллельное обновление частиц
-        List<List<VortexParticle>> batches = new ArrayList<>();
-        int batchSize = particles.size() / Runtime.getRuntime().availableProcessors();
-        for (int i = 0; i < particles.size(); i += batchSize) {
-            batches.add(particles.subList(i, 
-                Math.min(i + batchSize, particles.size())));
-        }
-        
-        EffectUtils.parallelProcess(batches, 1, batch -> {
-            for (VortexParticle particle : batch) {
-                particle.update();
-            }
-        });
+        phases.forRange("timeVortex.update", 0, particles.size(), UPDATE_GRAIN, updateParticles);
     }
     
-    public void draw(Graphics2D g2d, Point center) {
+    // Снимок вихря для отрисовки: заполняется под блокировкой шага, рисуется без неё
+    public static final class Frame {
+        private boolean active;
+        private double phase;
+        private double spaceWarp;
+        private int particleCount;
+        private float[] x = new float[0];
+        private float[] y = new float[0];
+        private float[] angle = new float[0];
+        private float[] radius = new float[0];
+        private float[] alpha = new float[0];
+        private int[] rgb = new int[0];
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public void capture(Frame frame) {
+        frame.active = isActive;
         if (!isActive) return;
+
+        frame.phase = phase;
+        frame.spaceWarp = spaceWarp;
+        int count = particles.size();
+        if (frame.x.length < count) {
+            frame.x = new float[count];
+            frame.y = new float[count];
+            frame.angle = new float[count];
+            frame.radius = new float[count];
+            frame.alpha = new float[count];
+            frame.rgb = new int[count];
+        }
+        frame.particleCount = count;
+        for (int i = 0; i < count; i++) {
+            VortexParticle particle = particles.get(i);
+            frame.x[i] = particle.x;
+            frame.y[i] = particle.y;
+            frame.angle[i] = particle.angle;
+            frame.radius[i] = particle.radius;
+            frame.alpha[i] = particle.alpha;
+            frame.rgb[i] = particle.color.getRGB() & 0xFFFFFF;
+        }
+    }
+    
+    public void draw(Graphics2D g2d, Frame frame, Point center) {
+        if (!frame.active) return;
         
         // Отрисовка эффекта временного вихря
         int x = center.x;
         int y = center.y;
         
         // Рисуем основной вихрь
-        drawVortex(g2d, x, y);
+        drawVortex(g2d, frame, x, y);
         
         // Рисуем частицы
-        for (VortexParticle particle : particles) {
-            particle.draw(g2d, x, y);
+        for (int i = 0; i < frame.particleCount; i++) {
+            float px = x + (float)(Math.cos(Math.toRadians(frame.angle[i])) * frame.radius[i]);
+            float py = y + (float)(Math.sin(Math.toRadians(frame.angle[i])) * frame.radius[i]);
+            
+            float size = 4 + (float)(Math.sin(frame.phase + frame.angle[i] * 0.1) + 1) * 2;
+            
+            g2d.setColor(Palette.argb(Math.min(255, (int)(255 * frame.alpha[i])) << 24 | frame.rgb[i]));
+            
+            g2d.fillOval((int)(px - size/2), (int)(py - size/2), 
+                (int)size, (int)size);
         }
     }
     
-    private void drawVortex(Graphics2D g2d, int centerX, int centerY) {
+    private void drawVortex(Graphics2D g2d, Frame frame, int centerX, int centerY) {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
         // Рисуем основные спирали
-        drawSpirals(g2d, centerX, centerY);
+        drawSpirals(g2d, frame, centerX, centerY);
         
         // Рисуем искажающие линии
-        drawDistortionLines(g2d, centerX, centerY);
+        drawDistortionLines(g2d, frame, centerX, centerY);
         
         // Рисуем энергетические кольца
-        drawEnergyRings(g2d, centerX, centerY);
+        drawEnergyRings(g2d, frame, centerX, centerY);
         
         // Рисуем вихревые частицы
-        drawVortexParticles(g2d, centerX, centerY);
+        drawVortexParticles(g2d, frame, centerX, centerY);
     }
     
-    private void drawSpirals(Graphics2D g2d, int centerX, int centerY) {
-        g2d.setStroke(new BasicStroke(2.0f));
+    private void drawSpirals(Graphics2D g2d, Frame frame, int centerX, int centerY) {
+        g2d.setStroke(Strokes.of(2.0f));
         
         for (int s = 0; s < SPIRAL_COUNT; s++) {
-            Path2D.Float path = new Path2D.Float();
-            float baseAngle = (360.0f / SPIRAL_COUNT) * s + (float)(phase * 50);
+            path.reset();
+            float baseAngle = (360.0f / SPIRAL_COUNT) * s + (float)(frame.phase * 50);
             
             float startX = centerX + (float)(Math.cos(Math.toRadians(baseAngle)) * 10);
             float startY = centerY + (float)(Math.sin(Math.toRadians(baseAngle)) * 10);
@@ -197,10 +252,10 @@ public class TimeVortex {
             for (int i = 1; i <= POINTS_PER_SPIRAL; i++) {
                 float t = i / (float)POINTS_PER_SPIRAL;
                 float radius = 10 + t * INFLUENCE_RADIUS;
-                float angle = baseAngle + (spaceWarp > 0 ? t : -t) * 720 * (float)Math.abs(spaceWarp);
+                float angle = baseAngle + (frame.spaceWarp > 0 ? t : -t) * 720 * (float)Math.abs(frame.spaceWarp);
                 
                 // Добавляем волнистость
-                float wave = (float)(Math.sin(t * 10 + phase * 5) * 10);
+                float wave = (float)(Math.sin(t * 10 + frame.phase * 5) * 10);
                 radius += wave;
                 
                 float x = centerX + (float)(Math.cos(Math.toRadians(angle)) * radius);
@@ -209,58 +264,60 @@ public class TimeVortex {
                 path.lineTo(x, y);
             }
             
-            float alpha = 0.3f + (float)(Math.sin(phase * 2 + s) + 1) * 0.2f;
-            Color spiralColor = spaceWarp > 0 ? 
-                new Color(0.0f, 0.5f, 1.0f, alpha) :  // Голубой
-                new Color(1.0f, 0.3f, 0.0f, alpha);   // Оранжевый
+            float alpha = 0.3f + (float)(Math.sin(frame.phase * 2 + s) + 1) * 0.2f;
+            int alphaBits = (int)(alpha * 255 + 0.5f);
+            Color spiralColor = frame.spaceWarp > 0 ? 
+                Palette.rgba(0, 128, 255, alphaBits) :  // Голубой
+                Palette.rgba(255, 77, 0, alphaBits);    // Оранжевый
                 
             g2d.setColor(spiralColor);
             g2d.draw(path);
         }
     }
     
-    private void drawDistortionLines(Graphics2D g2d, int centerX, int centerY) {
-        g2d.setStroke(new BasicStroke(1.0f));
+    private void drawDistortionLines(Graphics2D g2d, Frame frame, int centerX, int centerY) {
+        g2d.setStroke(Strokes.of(1.0f));
         int lines = 36;
         double angleStep = Math.PI * 2 / lines;
         
         for (int i = 0; i < lines; i++) {
-            double angle = i * angleStep + phase;
-            float distortion = (float)(Math.sin(angle * 3 + phase * 2) * 20);
+            double angle = i * angleStep + frame.phase;
+            float distortion = (float)(Math.sin(angle * 3 + frame.phase * 2) * 20);
             
             float x1 = centerX + (float)(Math.cos(angle) * (INFLUENCE_RADIUS * 0.3));
             float y1 = centerY + (float)(Math.sin(angle) * (INFLUENCE_RADIUS * 0.3));
             float x2 = centerX + (float)(Math.cos(angle + distortion * 0.02) * INFLUENCE_RADIUS);
             float y2 = centerY + (float)(Math.sin(angle + distortion * 0.02) * INFLUENCE_RADIUS);
             
-            float alpha = 0.2f + (float)(Math.sin(phase * 3 + i) + 1) * 0.1f;
-            g2d.setColor(new Color(1.0f, 1.0f, 1.0f, alpha));
+            float alpha = 0.2f + (float)(Math.sin(frame.phase * 3 + i) + 1) * 0.1f;
+            g2d.setColor(Palette.rgba(255, 255, 255, (int)(alpha * 255 + 0.5f)));
             g2d.drawLine((int)x1, (int)y1, (int)x2, (int)y2);
         }
     }
     
-    private void drawEnergyRings(Graphics2D g2d, int centerX, int centerY) {
+    private void drawEnergyRings(Graphics2D g2d, Frame frame, int centerX, int centerY) {
         int rings = 3;
         float baseRadius = INFLUENCE_RADIUS * 0.5f;
         
         for (int i = 0; i < rings; i++) {
-            float t = (float)((phase * 0.5 + i / (float)rings) % 1.0);
+            float t = (float)((frame.phase * 0.5 + i / (float)rings) % 1.0);
             float radius = baseRadius + t * INFLUENCE_RADIUS * 0.5f;
             float alpha = (1.0f - t) * 0.5f;
             
-            Color ringColor = spaceWarp > 0 ?
-                new Color(0.0f, 0.7f, 1.0f, alpha) :
-                new Color(1.0f, 0.5f, 0.0f, alpha);
+            int alphaBits = (int)(alpha * 255 + 0.5f);
+            Color ringColor = frame.spaceWarp > 0 ?
+                Palette.rgba(0, 179, 255, alphaBits) :
+                Palette.rgba(255, 128, 0, alphaBits);
                 
             g2d.setColor(ringColor);
-            g2d.setStroke(new BasicStroke(3.0f));
+            g2d.setStroke(Strokes.of(3.0f));
             
             // Рисуем искаженное кольцо
-            Path2D.Float path = new Path2D.Float();
+            path.reset();
             int points = 60;
             for (int j = 0; j <= points; j++) {
                 float angle = (float)(j * Math.PI * 2 / points);
-                float distortion = (float)(Math.sin(angle * 6 + phase * 5) * 10);
+                float distortion = (float)(Math.sin(angle * 6 + frame.phase * 5) * 10);
                 float r = radius + distortion;
                 
                 float x = centerX + (float)(Math.cos(angle) * r);
@@ -274,51 +331,57 @@ public class TimeVortex {
         }
     }
     
-    private void drawVortexParticles(Graphics2D g2d, int centerX, int centerY) {
-        for (VortexParticle particle : particles) {
-            float size = 4 + (float)(Math.sin(phase + particle.angle * 0.1) + 1) * 2;
-            float distanceRatio = particle.radius / INFLUENCE_RADIUS;
-            float alpha = particle.alpha * (1.0f - distanceRatio);
+    private void drawVortexParticles(Graphics2D g2d, Frame frame, int centerX, int centerY) {
+        for (int i = 0; i < frame.particleCount; i++) {
+            float size = 4 + (float)(Math.sin(frame.phase + frame.angle[i] * 0.1) + 1) * 2;
+            float distanceRatio = frame.radius[i] / INFLUENCE_RADIUS;
+            float alpha = frame.alpha[i] * (1.0f - distanceRatio);
             
             // Создаем свечение вокруг частицы
-            RadialGradientPaint gradient = new RadialGradientPaint(
-                new Point2D.Float(centerX + particle.x, centerY + particle.y),
-                size * 2,
-                new float[]{0.0f, 0.5f, 1.0f},
-                new Color[]{
-                    new Color(particle.color.getRed(), particle.color.getGreen(), particle.color.getBlue(), (int)(255 * alpha)),
-                    new Color(particle.color.getRed(), particle.color.getGreen(), particle.color.getBlue(), (int)(127 * alpha)),
-                    new Color(particle.color.getRed(), particle.color.getGreen(), particle.color.getBlue(), 0)
-                }
-            );
-            
-            g2d.setPaint(gradient);
-            g2d.fillOval(
-                (int)(centerX + particle.x - size),
-                (int)(centerY + particle.y - size),
-                (int)(size * 2), (int)(size * 2)
-            );
+            particleGlows.draw(g2d, frame.rgb[i], centerX + frame.x[i], centerY + frame.y[i], size, alpha);
         }
     }
     
-    public void applyEffect(ArrayList<Ball> balls, Point center) {
-        if (!isActive) return;
-        
-        for (Ball ball : balls) {
-            double dx = ball.getX() - center.x;
-            double dy = ball.getY() - center.y;
-            double distance = Math.sqrt(dx * dx + dy * dy);
-            
-            if (distance < INFLUENCE_RADIUS) {
-                double factor = 1.0 - distance / INFLUENCE_RADIUS;
-                double angle = Math.atan2(dy, dx);
-                double speed = Math.sqrt(ball.getVelocityX() * ball.getVelocityX() + ball.getVelocityY() * ball.getVelocityY());
-                
-                angle += factor * spaceWarp * 0.1;
-                
-                ball.setVelocityX((float) (speed * Math.cos(angle)));
-                ball.setVelocityY((float) (speed * Math.sin(angle)));
-            }
-        }
+    public void setCenter(Point center) {
+        this.center = center;
+    }
+    
+    // Силовое поле: закручивает скорость шаров вокруг курсора
+    @Override
+    public boolean isFieldActive() {
+        return isActive && center != null;
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+    }
+
+    @Override
+    public float getFieldCenterX() { return center.x; }
+
+    @Override
+    public float getFieldCenterY() { return center.y; }
+
+    @Override
+    public float getFieldRadius() { return INFLUENCE_RADIUS; }
+
+    @Override
+    public boolean affectsParticles() { return false; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        // atan2(0, 0) = 0: в самом центре направление - вдоль оси x
+        float nx = distance > 0 ? dx / distance : 1.0f;
+        float ny = distance > 0 ? dy / distance : 0.0f;
+        float vx = bodies.vx[i];
+        float vy = bodies.vy[i];
+        float speed = (float)Math.sqrt(vx * vx + vy * vy);
+
+        // Скорость направляется по радиусу, повёрнутому на небольшой угол
+        double turn = (1.0 - distance / INFLUENCE_RADIUS) * spaceWarp * 0.1;
+        float cos = (float)Math.cos(turn);
+        float sin = (float)Math.sin(turn);
+        bodies.vx[i] = speed * (nx * cos - ny * sin);
+        bodies.vy[i] = speed * (ny * cos + nx * sin);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.physics.engine;
+
+// Столкновения шаров: кандидаты берутся из равномерной сетки,
+// отклик - импульс вдоль нормали и разведение перекрытия
+public class CollisionSolver {
+    private final SpatialGrid grid = new SpatialGrid();
+
+    private long candidatePairs = 0;
+    private int contacts = 0;
+    private int width;
+    private int height;
+
+    public void solve(float[] x, float[] y, float[] vx, float[] vy, float[] radius,
+                      int count, float restitution, int width, int height) {
+        candidatePairs = 0;
+        contacts = 0;
+        this.width = width;
+        this.height = height;
+        if (count < 2) return;
+
+        float maxRadius = 0;
+        for (int i = 0; i < count; i++) {
+            if (radius[i] > maxRadius) maxRadius = radius[i];
+        }
+        grid.rebuild(x, y, count, maxRadius * 2, width, height);
+
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                int start = grid.cellStart(cell);
+                int end = grid.cellEnd(cell);
+                if (start == end) continue;
+
+                // Пары внутри ячейки
+                for (int a = start; a < end; a++) {
+                    int i = grid.bodyAt(a);
+                    for (int b = a + 1; b < end; b++) {
+                        resolve(i, grid.bodyAt(b), x, y, vx, vy, radius, restitution);
+                    }
+                }
+
+                // Соседи "вперёд": каждая пара ячеек проверяется один раз
+                if (column + 1 < columns) {
+                    checkCells(start, end, cell + 1, x, y, vx, vy, radius, restitution);
+                }
+                if (row + 1 < rows) {
+                    if (column > 0) {
+                        checkCells(start, end, cell + columns - 1, x, y, vx, vy, radius, restitution);
+                    }
+                    checkCells(start, end, cell + columns, x, y, vx, vy, radius, restitution);
+                    if (column + 1 < columns) {
+                        checkCells(start, end, cell + columns + 1, x, y, vx, vy, radius, restitution);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkCells(int start, int end, int other,
+                            float[] x, float[] y, float[] vx, float[] vy, float[] radius, float restitution) {
+        int otherStart = grid.cellStart(other);
+        int otherEnd = grid.cellEnd(other);
+        if (otherStart == otherEnd) return;
+
+        for (int a = start; a < end; a++) {
+            int i = grid.bodyAt(a);
+            for (int b = otherStart; b < otherEnd; b++) {
+                resolve(i, grid.bodyAt(b), x, y, vx, vy, radius, restitution);
+            }
+        }
+    }
+
+    private void resolve(int i, int j, float[] x, float[] y, float[] vx, float[] vy,
+                         float[] radius, float restitution) {
+        candidatePairs++;
+
+        float dx = x[j] - x[i];
+        float dy = y[j] - y[i];
+        float minDistance = radius[i] + radius[j];
+        float distanceSq = dx * dx + dy * dy;
+        if (distanceSq >= minDistance * minDistance) return;
+
+        contacts++;
+
+        float distance = (float)Math.sqrt(distanceSq);
+        float nx, ny;
+        if (distance > 1e-6f) {
+            nx = dx / distance;
+            ny = dy / distance;
+        } else {
+            // Совпадающие центры - разводим по горизонтали
+            nx = 1.0f;
+            ny = 0.0f;
+        }
+
+        // Масса пропорциональна площади шара
+        float inverseMassI = 1.0f / (radius[i] * radius[i]);
+        float inverseMassJ = 1.0f / (radius[j] * radius[j]);
+        float inverseMassSum = inverseMassI + inverseMassJ;
+
+        // Разводим перекрытие пропорционально обратным массам
+        float correction = (minDistance - distance) / inverseMassSum;
+        x[i] -= nx * correction * inverseMassI;
+        y[i] -= ny * correction * inverseMassI;
+        x[j] += nx * correction * inverseMassJ;
+        y[j] += ny * correction * inverseMassJ;
+        // Стены уже отработали в этом шаге: разведение не должно выталкивать шар за них,
+        // иначе на следующем шаге он получит лишний отскок
+        clamp(i, x, y, radius);
+        clamp(j, x, y, radius);
+
+        // Импульс только для сближающихся шаров
+        float relativeNormal = (vx[j] - vx[i]) * nx + (vy[j] - vy[i]) * ny;
+        if (relativeNormal >= 0) return;
+
+        float impulse = -(1.0f + restitution) * relativeNormal / inverseMassSum;
+        vx[i] -= impulse * inverseMassI * nx;
+        vy[i] -= impulse * inverseMassI * ny;
+        vx[j] += impulse * inverseMassJ * nx;
+        vy[j] += impulse * inverseMassJ * ny;
+    }
+
+    private void clamp(int i, float[] x, float[] y, float[] radius) {
+        float r = radius[i];
+        x[i] = Math.max(r, Math.min(width - r, x[i]));
+        y[i] = Math.max(r, Math.min(height - r, y[i]));
+    }
+
+    public long getCandidatePairs() { return candidatePairs; }
+    public int getContacts() { return contacts; }
+    public SpatialGrid getGrid() { return grid; }
+}
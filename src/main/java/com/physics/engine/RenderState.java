@@ -0,0 +1,170 @@
+package com.physics.engine;
+
+import java.awt.Point;
+
+import com.physics.effects.BlackHole;
+import com.physics.effects.GravityWave;
+import com.physics.effects.Magnet;
+import com.physics.effects.Matrix;
+import com.physics.effects.QuantumTunnel;
+import com.physics.effects.Rainbow;
+import com.physics.effects.SlowMotion;
+import com.physics.effects.Teleport;
+import com.physics.effects.TimeFreeze;
+import com.physics.effects.TimeVortex;
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+
+// Снимок для отрисовки: предыдущая и текущая позиции тел последнего шага,
+// параметры сцены и состояние эффектов, чтобы кадр рисовался без блокировки шага
+public class RenderState {
+    long sequence = -1;
+    private long tick;
+    private long publishNanos;
+    private long remainderNanos;
+    private long stepNanos = 1;
+
+    private int ballCount;
+    private float[] ballPrevX = new float[0];
+    private float[] ballPrevY = new float[0];
+    private float[] ballX = new float[0];
+    private float[] ballY = new float[0];
+    private float[] ballRadius = new float[0];
+    private int[] ballArgb = new int[0];
+
+    private int particleCount;
+    private float[] particlePrevX = new float[0];
+    private float[] particlePrevY = new float[0];
+    private float[] particleX = new float[0];
+    private float[] particleY = new float[0];
+    private float[] particleSize = new float[0];
+    private int[] particleLifetime = new int[0];
+    private int[] particleArgb = new int[0];
+
+    private int worldWidth;
+    private int worldHeight;
+    private boolean gravityPositive;
+    private double spaceWarp = 1.0;
+    private final Point mousePosition = new Point();
+    private boolean mouseKnown;
+
+    private final TimeFreeze.Frame timeFreeze = new TimeFreeze.Frame();
+    private final BlackHole.Frame blackHole = new BlackHole.Frame();
+    private final TimeVortex.Frame timeVortex = new TimeVortex.Frame();
+    private final Matrix.Frame matrix = new Matrix.Frame();
+    private final GravityWave.Frame gravityWave = new GravityWave.Frame();
+    private final Rainbow.Frame rainbow = new Rainbow.Frame();
+    private final QuantumTunnel.Frame quantumTunnel = new QuantumTunnel.Frame();
+    private final Teleport.Frame teleport = new Teleport.Frame();
+    private final Magnet.Frame magnet = new Magnet.Frame();
+    private final SlowMotion.Frame slowMotion = new SlowMotion.Frame();
+
+    void capture(BallStore balls, ParticlePool particles, long tick) {
+        this.tick = tick;
+
+        ballCount = balls.size();
+        if (ballX.length < ballCount) {
+            int capacity = Math.max(ballCount, ballX.length * 2);
+            ballPrevX = new float[capacity];
+            ballPrevY = new float[capacity];
+            ballX = new float[capacity];
+            ballY = new float[capacity];
+            ballRadius = new float[capacity];
+            ballArgb = new int[capacity];
+        }
+        System.arraycopy(balls.prevX(), 0, ballPrevX, 0, ballCount);
+        System.arraycopy(balls.prevY(), 0, ballPrevY, 0, ballCount);
+        System.arraycopy(balls.x(), 0, ballX, 0, ballCount);
+        System.arraycopy(balls.y(), 0, ballY, 0, ballCount);
+        System.arraycopy(balls.radius(), 0, ballRadius, 0, ballCount);
+        System.arraycopy(balls.argb(), 0, ballArgb, 0, ballCount);
+
+        particleCount = particles.size();
+        if (particleX.length < particleCount) {
+            int capacity = Math.max(particleCount, particleX.length * 2);
+            particlePrevX = new float[capacity];
+            particlePrevY = new float[capacity];
+            particleX = new float[capacity];
+            particleY = new float[capacity];
+            particleSize = new float[capacity];
+            particleLifetime = new int[capacity];
+            particleArgb = new int[capacity];
+        }
+        System.arraycopy(particles.prevX(), 0, particlePrevX, 0, particleCount);
+        System.arraycopy(particles.prevY(), 0, particlePrevY, 0, particleCount);
+        System.arraycopy(particles.x(), 0, particleX, 0, particleCount);
+        System.arraycopy(particles.y(), 0, particleY, 0, particleCount);
+        System.arraycopy(particles.particleSize(), 0, particleSize, 0, particleCount);
+        System.arraycopy(particles.lifetime(), 0, particleLifetime, 0, particleCount);
+        System.arraycopy(particles.argb(), 0, particleArgb, 0, particleCount);
+    }
+
+    // Вызывается под блокировкой шага вместе с capture тел
+    void captureScene(SimulationEngine engine) {
+        worldWidth = engine.getWidth();
+        worldHeight = engine.getHeight();
+        gravityPositive = engine.getGravity() > 0;
+        spaceWarp = engine.getSpaceWarp();
+        Point mouse = engine.getMousePosition();
+        mouseKnown = mouse != null;
+        if (mouseKnown) {
+            mousePosition.setLocation(mouse);
+        }
+
+        engine.getTimeFreeze().capture(timeFreeze);
+        engine.getBlackHole().capture(blackHole);
+        engine.getTimeVortex().capture(timeVortex);
+        engine.getMatrix().capture(matrix);
+        engine.getGravityWave().capture(gravityWave);
+        engine.getRainbow().capture(rainbow);
+        engine.getQuantumTunnel().capture(quantumTunnel);
+        engine.getTeleport().capture(teleport);
+        engine.getMagnet().capture(magnet);
+        engine.getSlowMotion().capture(slowMotion);
+    }
+
+    void setTiming(long publishNanos, long remainderNanos, long stepNanos) {
+        this.publishNanos = publishNanos;
+        this.remainderNanos = remainderNanos;
+        this.stepNanos = stepNanos;
+    }
+
+    // Доля шага, прошедшая с момента публикации снимка, в диапазоне [0, 1]
+    public float interpolation(long nowNanos) {
+        if (publishNanos == 0) return 1.0f;
+        double alpha = (remainderNanos + (nowNanos - publishNanos)) / (double)stepNanos;
+        return (float)Math.max(0.0, Math.min(1.0, alpha));
+    }
+
+    public long getTick() { return tick; }
+
+    public int getBallCount() { return ballCount; }
+    public float getBallX(int i, float alpha) { return ballPrevX[i] + (ballX[i] - ballPrevX[i]) * alpha; }
+    public float getBallY(int i, float alpha) { return ballPrevY[i] + (ballY[i] - ballPrevY[i]) * alpha; }
+    public float getBallRadius(int i) { return ballRadius[i]; }
+    public int getBallArgb(int i) { return ballArgb[i]; }
+
+    public int getParticleCount() { return particleCount; }
+    public float getParticleX(int i, float alpha) { return particlePrevX[i] + (particleX[i] - particlePrevX[i]) * alpha; }
+    public float getParticleY(int i, float alpha) { return particlePrevY[i] + (particleY[i] - particlePrevY[i]) * alpha; }
+    public float getParticleSize(int i) { return particleSize[i]; }
+    public int getParticleLifetime(int i) { return particleLifetime[i]; }
+    public int getParticleArgb(int i) { return particleArgb[i]; }
+
+    public int getWorldWidth() { return worldWidth; }
+    public int getWorldHeight() { return worldHeight; }
+    public boolean isGravityPositive() { return gravityPositive; }
+    public double getSpaceWarp() { return spaceWarp; }
+    public Point getMousePosition() { return mouseKnown ? mousePosition : null; }
+
+    public TimeFreeze.Frame getTimeFreeze() { return timeFreeze; }
+    public BlackHole.Frame getBlackHole() { return blackHole; }
+    public TimeVortex.Frame getTimeVortex() { return timeVortex; }
+    public Matrix.Frame getMatrix() { return matrix; }
+    public GravityWave.Frame getGravityWave() { return gravityWave; }
+    public Rainbow.Frame getRainbow() { return rainbow; }
+    public QuantumTunnel.Frame getQuantumTunnel() { return quantumTunnel; }
+    public Teleport.Frame getTeleport() { return teleport; }
+    public Magnet.Frame getMagnet() { return magnet; }
+    public SlowMotion.Frame getSlowMotion() { return slowMotion; }
+}
@@ -0,0 +1,28 @@
+package com.physics.engine;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Тройная буферизация снимков: симуляция пишет в задний буфер,
+// отрисовка забирает самый свежий опубликованный без блокировок
+public class RenderStateBuffer {
+    private final AtomicReference<RenderState> ready = new AtomicReference<>(new RenderState());
+    private RenderState back = new RenderState();   // принадлежит потоку симуляции
+    private RenderState front = new RenderState();  // принадлежит потоку отрисовки
+    private long sequence = 0;
+
+    RenderState getBackBuffer() {
+        return back;
+    }
+
+    void publish() {
+        back.sequence = ++sequence;
+        back = ready.getAndSet(back);
+    }
+
+    public RenderState acquire() {
+        if (ready.get().sequence > front.sequence) {
+            front = ready.getAndSet(front);
+        }
+        return front;
+    }
+}
@@ -0,0 +1,183 @@
+package com.physics.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.physics.data.Constants;
+import com.physics.history.DeltaHistory;
+import com.physics.history.StateBuffer;
+
+// Откат повтором ввода: вместо снимка на каждый шаг хранятся редкие ключевые
+// кадры и журнал команд. Шаг назад восстанавливает ближайший ключевой кадр и
+// заново проигрывает записанные команды; пересчитанный отрезок кэшируется,
+// так что следующие шаги назад внутри него - просто снятие кадра
+class ReplayHistory {
+    private static final long MAX_TICKS = Constants.MAX_HISTORY_TIME * Constants.TICK_RATE / 1000;
+
+    private static final class Keyframe {
+        final long tick;
+        final StateBuffer state;
+
+        Keyframe(long tick, StateBuffer state) {
+            this.tick = tick;
+            this.state = state;
+        }
+    }
+
+    private static final class LoggedCommand {
+        final long tick;
+        final Runnable command;
+
+        LoggedCommand(long tick, Runnable command) {
+            this.tick = tick;
+            this.command = command;
+        }
+    }
+
+    private final SimulationEngine engine;
+    private final ArrayDeque<Keyframe> keyframes = new ArrayDeque<>();
+    private final ArrayDeque<LoggedCommand> log = new ArrayDeque<>();
+    private final ArrayDeque<StateBuffer> spareBuffers = new ArrayDeque<>();
+    private long keyframeBytes = 0;
+
+    // Пересчитанный отрезок [segmentStart, segmentEnd): тела в истории разностей,
+    // остальное состояние - в буферах по одному на шаг
+    private final DeltaHistory segmentBodies = new DeltaHistory(Constants.HISTORY_BUDGET_BYTES / 4,
+                                                                Constants.REPLAY_KEYFRAME_TICKS);
+    private final List<StateBuffer> segmentGlobals = new ArrayList<>();
+    private long segmentStart = 0;
+    private long segmentEnd = 0;
+
+    // После отката мир мог измениться незаписанным вводом - нужен свежий ключевой кадр
+    private boolean resumed = false;
+
+    ReplayHistory(SimulationEngine engine) {
+        this.engine = engine;
+    }
+
+    // Вызывается перед каждым шагом вперёд: будущее после отката отбрасывается,
+    // при необходимости снимается ключевой кадр
+    void beginTick() {
+        long tick = engine.getTickCount();
+        truncate(tick, resumed);
+
+        Keyframe last = keyframes.peekLast();
+        if (last == null || resumed || tick - last.tick >= Constants.REPLAY_KEYFRAME_TICKS) {
+            resumed = false;
+            StateBuffer state = obtainBuffer();
+            engine.writeGlobalState(state);
+            engine.writeBodies(state);
+            keyframes.addLast(new Keyframe(tick, state));
+            keyframeBytes += state.capacity();
+        }
+
+        // Старейшие ключевые кадры вытесняются по памяти и по глубине, последний остаётся всегда
+        while (keyframes.size() > 1
+               && (keyframeBytes > Constants.HISTORY_BUDGET_BYTES || tick - keyframes.peekFirst().tick > MAX_TICKS)) {
+            Keyframe evicted = keyframes.removeFirst();
+            keyframeBytes -= evicted.state.capacity();
+            spareBuffers.addLast(evicted.state);
+        }
+        long first = keyframes.peekFirst().tick;
+        while (!log.isEmpty() && log.peekFirst().tick < first) {
+            log.removeFirst();
+        }
+    }
+
+    void log(Runnable command) {
+        log.addLast(new LoggedCommand(engine.getTickCount(), command));
+    }
+
+    // Возвращает мир на шаг назад; false, если история исчерпана
+    boolean rewind() {
+        resumed = true;
+        long target = engine.getTickCount() - 1;
+        if (keyframes.isEmpty() || target < keyframes.peekFirst().tick) {
+            return false;
+        }
+
+        if (target == segmentEnd - 1 && !segmentBodies.isEmpty()) {
+            StateBuffer globals = segmentGlobals.get((int)(target - segmentStart));
+            globals.startReading();
+            engine.readGlobalState(globals);
+            segmentBodies.rewind(engine.getBalls(), engine.getParticles());
+            segmentEnd = target;
+            return true;
+        }
+
+        resimulate(target);
+        return true;
+    }
+
+    // Восстанавливает ключевой кадр не позже target и проигрывает журнал до target,
+    // запоминая промежуточные шаги для следующих откатов
+    private void resimulate(long target) {
+        Keyframe keyframe = null;
+        Iterator<Keyframe> descending = keyframes.descendingIterator();
+        while (descending.hasNext()) {
+            Keyframe candidate = descending.next();
+            if (candidate.tick <= target) {
+                keyframe = candidate;
+                break;
+            }
+        }
+
+        keyframe.state.startReading();
+        engine.readGlobalState(keyframe.state);
+        engine.readBodies(keyframe.state);
+
+        segmentBodies.clear();
+        segmentStart = keyframe.tick;
+        segmentEnd = keyframe.tick;
+
+        Iterator<LoggedCommand> commands = log.iterator();
+        LoggedCommand pending = commands.hasNext() ? commands.next() : null;
+        List<Runnable> tickCommands = new ArrayList<>();
+        for (long tick = keyframe.tick; tick < target; tick++) {
+            int slot = (int)(tick - segmentStart);
+            if (slot == segmentGlobals.size()) {
+                segmentGlobals.add(new StateBuffer());
+            }
+            StateBuffer globals = segmentGlobals.get(slot);
+            globals.clear();
+            engine.writeGlobalState(globals);
+            segmentBodies.record(engine.getBalls(), engine.getParticles());
+            segmentEnd = tick + 1;
+
+            tickCommands.clear();
+            while (pending != null && pending.tick <= tick) {
+                if (pending.tick == tick) {
+                    tickCommands.add(pending.command);
+                }
+                pending = commands.hasNext() ? commands.next() : null;
+            }
+            engine.replayTick(tickCommands.isEmpty() ? Collections.<Runnable>emptyList() : tickCommands);
+        }
+    }
+
+    private void truncate(long tick, boolean includingKeyframe) {
+        while (!log.isEmpty() && log.peekLast().tick >= tick) {
+            log.removeLast();
+        }
+        long keep = includingKeyframe ? tick - 1 : tick;
+        while (!keyframes.isEmpty() && keyframes.peekLast().tick > keep) {
+            Keyframe dropped = keyframes.removeLast();
+            keyframeBytes -= dropped.state.capacity();
+            spareBuffers.addLast(dropped.state);
+        }
+        segmentBodies.clear();
+        segmentEnd = segmentStart;
+    }
+
+    private StateBuffer obtainBuffer() {
+        StateBuffer buffer = spareBuffers.pollLast();
+        if (buffer == null) {
+            return new StateBuffer();
+        }
+        buffer.clear();
+        return buffer;
+    }
+}
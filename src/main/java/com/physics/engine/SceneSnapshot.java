@@ -0,0 +1,231 @@
+package com.physics.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.physics.history.StateBuffer;
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+
+// Двоичный снимок сцены. Заголовок и состояние мира с эффектами идут первыми,
+// затем тела столбцами, как они лежат в хранилищах. Столбцы пишутся и читаются
+// через отображение файла целыми массивами, без объектов на тело, поэтому
+// загрузка упирается в копирование памяти, а не в разбор.
+//
+// Формат (little-endian):
+//   int MAGIC, int VERSION, int длина состояния мира, int шаров, int частиц, int 0
+//   состояние мира (StateBuffer), дополненное до 8 байт
+//   шары: x, y, vx, vy, radius (float[]), argb, id (int[])
+//   частицы: x, y, vx, vy, size (float[]), lifetime, argb (int[])
+final class SceneSnapshot {
+    static final int MAGIC = 0x50534E50; // "PSNP"
+    // Меняется при любом изменении формата, в том числе состава writeGlobalState
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    // Копия сцены вне хранилищ движка: файловый ввод-вывод идёт без блокировки мира,
+    // под ней только копирование столбцов в одну и другую сторону
+    private final StateBuffer globals;
+    private final int ballCount;
+    private final float[] ballX, ballY, ballVx, ballVy, ballRadius;
+    private final int[] ballArgb, ballId;
+    private final int particleCount;
+    private final float[] particleX, particleY, particleVx, particleVy, particleSize;
+    private final int[] particleLifetime, particleArgb;
+
+    private SceneSnapshot(StateBuffer globals, int ballCount, int particleCount) {
+        this.globals = globals;
+        this.ballCount = ballCount;
+        this.particleCount = particleCount;
+        ballX = new float[ballCount];
+        ballY = new float[ballCount];
+        ballVx = new float[ballCount];
+        ballVy = new float[ballCount];
+        ballRadius = new float[ballCount];
+        ballArgb = new int[ballCount];
+        ballId = new int[ballCount];
+        particleX = new float[particleCount];
+        particleY = new float[particleCount];
+        particleVx = new float[particleCount];
+        particleVy = new float[particleCount];
+        particleSize = new float[particleCount];
+        particleLifetime = new int[particleCount];
+        particleArgb = new int[particleCount];
+    }
+
+    // Вызывается под блокировкой движка
+    static SceneSnapshot capture(SimulationEngine engine) {
+        StateBuffer globals = new StateBuffer();
+        engine.writeGlobalState(globals);
+        BallStore balls = engine.getBalls();
+        ParticlePool particles = engine.getParticles();
+        SceneSnapshot snapshot = new SceneSnapshot(globals, balls.size(), particles.size());
+
+        int count = snapshot.ballCount;
+        System.arraycopy(balls.x(), 0, snapshot.ballX, 0, count);
+        System.arraycopy(balls.y(), 0, snapshot.ballY, 0, count);
+        System.arraycopy(balls.vx(), 0, snapshot.ballVx, 0, count);
+        System.arraycopy(balls.vy(), 0, snapshot.ballVy, 0, count);
+        System.arraycopy(balls.radius(), 0, snapshot.ballRadius, 0, count);
+        System.arraycopy(balls.argb(), 0, snapshot.ballArgb, 0, count);
+        System.arraycopy(balls.id(), 0, snapshot.ballId, 0, count);
+
+        count = snapshot.particleCount;
+        System.arraycopy(particles.x(), 0, snapshot.particleX, 0, count);
+        System.arraycopy(particles.y(), 0, snapshot.particleY, 0, count);
+        System.arraycopy(particles.vx(), 0, snapshot.particleVx, 0, count);
+        System.arraycopy(particles.vy(), 0, snapshot.particleVy, 0, count);
+        System.arraycopy(particles.particleSize(), 0, snapshot.particleSize, 0, count);
+        System.arraycopy(particles.lifetime(), 0, snapshot.particleLifetime, 0, count);
+        System.arraycopy(particles.argb(), 0, snapshot.particleArgb, 0, count);
+        return snapshot;
+    }
+
+    // Переносит снимок в движок целиком или не меняет его вовсе; вызывается под блокировкой.
+    // Размер мира остаётся тем, что был у движка
+    void apply(SimulationEngine engine) throws IOException {
+        globals.startReading();
+        engine.restoreGlobalState(globals);
+
+        BallStore balls = engine.getBalls();
+        balls.setSize(ballCount);
+        System.arraycopy(ballX, 0, balls.x(), 0, ballCount);
+        System.arraycopy(ballY, 0, balls.y(), 0, ballCount);
+        System.arraycopy(ballVx, 0, balls.vx(), 0, ballCount);
+        System.arraycopy(ballVy, 0, balls.vy(), 0, ballCount);
+        System.arraycopy(ballRadius, 0, balls.radius(), 0, ballCount);
+        System.arraycopy(ballArgb, 0, balls.argb(), 0, ballCount);
+        System.arraycopy(ballId, 0, balls.id(), 0, ballCount);
+        balls.storePrevious();
+
+        // Пул частиц фиксированной ёмкости: лишние частицы снимка пропускаются
+        ParticlePool particles = engine.getParticles();
+        int kept = particles.setSize(particleCount);
+        System.arraycopy(particleX, 0, particles.x(), 0, kept);
+        System.arraycopy(particleY, 0, particles.y(), 0, kept);
+        System.arraycopy(particleVx, 0, particles.vx(), 0, kept);
+        System.arraycopy(particleVy, 0, particles.vy(), 0, kept);
+        System.arraycopy(particleSize, 0, particles.particleSize(), 0, kept);
+        System.arraycopy(particleLifetime, 0, particles.lifetime(), 0, kept);
+        System.arraycopy(particleArgb, 0, particles.argb(), 0, kept);
+        particles.storePrevious();
+    }
+
+    void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = HEADER_BYTES + align(globals.size());
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, position);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(globals.size())
+                  .putInt(ballCount).putInt(particleCount).putInt(0);
+            globals.copyTo(header);
+
+            position = writeFloats(channel, position, ballX, ballCount);
+            position = writeFloats(channel, position, ballY, ballCount);
+            position = writeFloats(channel, position, ballVx, ballCount);
+            position = writeFloats(channel, position, ballVy, ballCount);
+            position = writeFloats(channel, position, ballRadius, ballCount);
+            position = writeInts(channel, position, ballArgb, ballCount);
+            position = writeInts(channel, position, ballId, ballCount);
+
+            position = writeFloats(channel, position, particleX, particleCount);
+            position = writeFloats(channel, position, particleY, particleCount);
+            position = writeFloats(channel, position, particleVx, particleCount);
+            position = writeFloats(channel, position, particleVy, particleCount);
+            position = writeFloats(channel, position, particleSize, particleCount);
+            position = writeInts(channel, position, particleLifetime, particleCount);
+            writeInts(channel, position, particleArgb, particleCount);
+        }
+    }
+
+    static SceneSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Файл слишком короткий для снимка: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Файл не является снимком сцены: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Неподдерживаемая версия снимка: " + version);
+            }
+            int globalsLength = header.getInt();
+            int ballCount = header.getInt();
+            int particleCount = header.getInt();
+
+            long position = HEADER_BYTES + align(globalsLength);
+            long expected = position + 28L * ballCount + 28L * particleCount;
+            if (globalsLength < 0 || ballCount < 0 || particleCount < 0 || channel.size() < expected) {
+                throw new IOException("Снимок повреждён или обрезан: " + path);
+            }
+
+            StateBuffer globals = new StateBuffer(globalsLength);
+            globals.copyFrom(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, globalsLength), globalsLength);
+            SceneSnapshot snapshot = new SceneSnapshot(globals, ballCount, particleCount);
+
+            position = readFloats(channel, position, snapshot.ballX, ballCount);
+            position = readFloats(channel, position, snapshot.ballY, ballCount);
+            position = readFloats(channel, position, snapshot.ballVx, ballCount);
+            position = readFloats(channel, position, snapshot.ballVy, ballCount);
+            position = readFloats(channel, position, snapshot.ballRadius, ballCount);
+            position = readInts(channel, position, snapshot.ballArgb, ballCount);
+            position = readInts(channel, position, snapshot.ballId, ballCount);
+
+            position = readFloats(channel, position, snapshot.particleX, particleCount);
+            position = readFloats(channel, position, snapshot.particleY, particleCount);
+            position = readFloats(channel, position, snapshot.particleVx, particleCount);
+            position = readFloats(channel, position, snapshot.particleVy, particleCount);
+            position = readFloats(channel, position, snapshot.particleSize, particleCount);
+            position = readInts(channel, position, snapshot.particleLifetime, particleCount);
+            readInts(channel, position, snapshot.particleArgb, particleCount);
+            return snapshot;
+        }
+    }
+
+    private static long align(int bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static long writeFloats(FileChannel channel, long position, float[] values, int count) throws IOException {
+        if (count > 0) {
+            map(channel, FileChannel.MapMode.READ_WRITE, position, count).asFloatBuffer().put(values, 0, count);
+        }
+        return position + 4L * count;
+    }
+
+    private static long writeInts(FileChannel channel, long position, int[] values, int count) throws IOException {
+        if (count > 0) {
+            map(channel, FileChannel.MapMode.READ_WRITE, position, count).asIntBuffer().put(values, 0, count);
+        }
+        return position + 4L * count;
+    }
+
+    private static long readFloats(FileChannel channel, long position, float[] values, int count) throws IOException {
+        if (count > 0) {
+            map(channel, FileChannel.MapMode.READ_ONLY, position, count).asFloatBuffer().get(values, 0, count);
+        }
+        return position + 4L * count;
+    }
+
+    private static long readInts(FileChannel channel, long position, int[] values, int count) throws IOException {
+        if (count > 0) {
+            map(channel, FileChannel.MapMode.READ_ONLY, position, count).asIntBuffer().get(values, 0, count);
+        }
+        return position + 4L * count;
+    }
+
+    // Столбец отображается целиком: до 2^29 тел на одно отображение
+    private static ByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, int count)
+            throws IOException {
+        return channel.map(mode, position, 4L * count).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
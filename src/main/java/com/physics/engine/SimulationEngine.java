@@ -0,0 +1,737 @@
+package com.physics.engine;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.physics.data.Constants;
+import com.physics.effects.BlackHole;
+import com.physics.effects.Explosion;
+import com.physics.effects.GravityWave;
+import com.physics.effects.Magnet;
+import com.physics.effects.Matrix;
+import com.physics.effects.QuantumTunnel;
+import com.physics.effects.Rainbow;
+import com.physics.effects.SlowMotion;
+import com.physics.effects.Split;
+import com.physics.effects.Teleport;
+import com.physics.effects.TimeFreeze;
+import com.physics.effects.TimeReversal;
+import com.physics.effects.TimeVortex;
+import com.physics.field.ForceFieldPass;
+import com.physics.gravity.BarnesHutTree;
+import com.physics.gravity.DirectGravity;
+import com.physics.gravity.GravityKernel;
+import com.physics.gravity.GravityMode;
+import com.physics.gravity.GravitySolver;
+import com.physics.gravity.ParticleMeshGravity;
+import com.physics.history.RewindMode;
+import com.physics.history.SessionRecorder;
+import com.physics.history.StateBuffer;
+import com.physics.history.StatefulEffect;
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+import com.physics.parallel.PhaseExecutor;
+import com.physics.profile.EffectEvent;
+import com.physics.profile.Profiler;
+import com.physics.profile.RollingHistogram;
+import com.physics.profile.TickEvent;
+
+public class SimulationEngine {
+    // Шаг симуляции и чтение состояния эффектов при отрисовке идут под этой блокировкой
+    private final Object lock = new Object();
+    // Команды ввода из других потоков применяются на границе шага
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    private final BallStore balls = new BallStore(100);
+    private final ParticlePool particles = new ParticlePool(Constants.MAX_PARTICLES);
+
+    // Размеры мира
+    private int width;
+    private int height;
+
+    // Глобальные параметры
+    private double timeScale = 1.0;
+    private double gravity = 0.3;
+    private double spaceWarp = 1.0;
+    private double energyField = 1.0;
+    private Point mousePosition = new Point(0, 0);
+    private long tickCount = 0;
+
+    // Случайность физики пересевается номером шага, поэтому повтор шага даёт тот же результат
+    private long seed = new Random().nextLong();
+    private final Random random = new Random();
+
+    // Эффекты
+    private final TimeFreeze timeFreeze = new TimeFreeze();
+    private final BlackHole blackHole = new BlackHole();
+    private final Explosion explosion = new Explosion(random);
+    private final TimeReversal timeReversal = new TimeReversal();
+    private final Matrix matrix = new Matrix();
+    private final TimeVortex timeVortex = new TimeVortex();
+    private final GravityWave gravityWave = new GravityWave();
+    private final Rainbow rainbow = new Rainbow();
+    private final QuantumTunnel quantumTunnel = new QuantumTunnel(random);
+    private final Teleport teleport = new Teleport();
+    private final Split split = new Split(random);
+    private final Magnet magnet = new Magnet();
+    private final SlowMotion slowMotion = new SlowMotion();
+
+    // Силовые поля эффектов в порядке применения
+    private final SpaceWarpField spaceWarpField = new SpaceWarpField();
+    private final ForceFieldPass forceFields = new ForceFieldPass(PhaseExecutor.shared());
+
+    // Эффекты, влияющие на физику, в порядке сохранения
+    private final StatefulEffect[] statefulEffects = {
+        timeFreeze, blackHole, explosion, matrix, timeVortex, gravityWave, rainbow,
+        quantumTunnel, teleport, split, magnet, slowMotion
+    };
+
+    // Откат повтором ввода; создаётся при включении режима
+    private RewindMode rewindMode = RewindMode.SNAPSHOTS;
+    private ReplayHistory replay;
+    private boolean replayTickBegun = false;
+
+    // Участки шага для профилировщика; эффекты - обновление вместе с применением
+    private final Profiler profiler = Profiler.shared();
+    private final RollingHistogram tickTime = profiler.histogram("tick");
+    private final RollingHistogram saveStateTime = profiler.histogram("tick.saveState");
+    private final RollingHistogram recordTime = profiler.histogram("tick.record");
+    private final RollingHistogram blackHoleTime = profiler.histogram("effect.blackHole");
+    private final RollingHistogram timeVortexTime = profiler.histogram("effect.timeVortex");
+    private final RollingHistogram matrixTime = profiler.histogram("effect.matrix");
+    private final RollingHistogram gravityWaveTime = profiler.histogram("effect.gravityWave");
+    private final RollingHistogram rainbowTime = profiler.histogram("effect.rainbow");
+    private final RollingHistogram quantumTunnelTime = profiler.histogram("effect.quantumTunnel");
+    private final RollingHistogram teleportTime = profiler.histogram("effect.teleport");
+    private final RollingHistogram splitTime = profiler.histogram("effect.split");
+    private final RollingHistogram magnetTime = profiler.histogram("effect.magnet");
+    private final RollingHistogram slowMotionTime = profiler.histogram("effect.slowMotion");
+    private final RollingHistogram splitApplyTime = profiler.histogram("effect.split.apply");
+    private final RollingHistogram forceFieldsTime = profiler.histogram("tick.forceFields");
+    private final RollingHistogram mutualGravityTime = profiler.histogram("tick.mutualGravity");
+    private final RollingHistogram particlesTime = profiler.histogram("tick.updateParticles");
+    private final RollingHistogram ballsTime = profiler.histogram("tick.updateBalls");
+    private final RollingHistogram collisionsTime = profiler.histogram("tick.collisions");
+
+    // Запись сессии на диск
+    private SessionRecorder recorder;
+    private final StateBuffer recorderGlobals = new StateBuffer();
+
+    private int[] shatteredBalls = new int[16];
+    private int shatteredCount = 0;
+
+    // Взаимное притяжение тел
+    private GravityMode gravityMode = GravityMode.UNIFORM;
+    private final DirectGravity directGravity = new DirectGravity(PhaseExecutor.shared());
+    private final BarnesHutTree barnesHut = new BarnesHutTree(PhaseExecutor.shared());
+    private final ParticleMeshGravity particleMesh =
+        new ParticleMeshGravity(PhaseExecutor.shared(), Constants.PM_RESOLUTION);
+    private float[] bodyMass = new float[0];
+    private float[] accelerationX = new float[0];
+    private float[] accelerationY = new float[0];
+    private float[] particleMass = new float[0];
+
+    // Столкновения шаров
+    private final CollisionSolver collisionSolver = new CollisionSolver();
+    private boolean collisionsEnabled = true;
+
+    public SimulationEngine(int width, int height) {
+        setWorldSize(width, height);
+
+        forceFields.addField(blackHole);
+        forceFields.addField(timeVortex);
+        forceFields.addField(gravityWave);
+        forceFields.addField(rainbow);
+        forceFields.addField(teleport);
+        forceFields.addField(magnet);
+        forceFields.addField(slowMotion);
+        forceFields.addField(spaceWarpField);
+
+        barnesHut.setOpeningAngle(Constants.BARNES_HUT_THETA);
+    }
+
+    public void setWorldSize(int width, int height) {
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public long getTickCount() { return tickCount; }
+
+    public void step() {
+        step(1);
+    }
+
+    public void step(int ticks) {
+        synchronized (lock) {
+            for (int i = 0; i < ticks; i++) {
+                TickEvent event = new TickEvent();
+                event.begin();
+                replayTickBegun = false;
+                seedTick();
+                runCommands();
+                storePreviousPositions();
+                if (!timeReversal.isReversing()) {
+                    beginReplayTick();
+                    updateForward();
+                    tickCount++;
+                } else if (replay != null) {
+                    // Номер шага возвращается вместе с восстановленным миром
+                    replay.rewind();
+                } else {
+                    timeReversal.applyReversal(balls, particles);
+                    tickCount++;
+                }
+                // Анимация эффекта идёт и во время отката
+                timeReversal.update();
+                event.finish(tickCount, balls.size(), particles.size(), timeReversal.isReversing());
+            }
+        }
+    }
+
+    // Повтор записанного шага: те же посев, команды и физика, но без записи в журнал
+    void replayTick(List<Runnable> tickCommands) {
+        seedTick();
+        // Откатом управляют вживую: записанное нажатие Q не должно его прервать
+        boolean reversing = timeReversal.isReversing();
+        for (Runnable command : tickCommands) {
+            command.run();
+        }
+        timeReversal.setReversing(reversing);
+        storePreviousPositions();
+        updateForward();
+        tickCount++;
+    }
+
+    // Шаг журнала начинается с первой записываемой команды или с физики; если до него
+    // отработал незаписанный ввод (конец отката), генератор пересевается заново
+    private void beginReplayTick() {
+        if (replay == null || replayTickBegun) return;
+        replayTickBegun = true;
+        replay.beginTick();
+        seedTick();
+    }
+
+    private void seedTick() {
+        random.setSeed(seed ^ tickCount * 0x9E3779B97F4A7C15L);
+    }
+
+    public void enqueue(Runnable command) {
+        commands.add(command);
+    }
+
+    private void runCommands() {
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            // Ввод во время отката не записывается: восстановленный мир его перекроет
+            if (replay != null && !timeReversal.isReversing()) {
+                beginReplayTick();
+                command.run();
+                replay.log(command);
+            } else {
+                command.run();
+            }
+        }
+    }
+
+    private void storePreviousPositions() {
+        balls.storePrevious();
+        particles.storePrevious();
+    }
+
+    public void capture(RenderState state) {
+        synchronized (lock) {
+            state.capture(balls, particles, tickCount);
+            state.captureScene(this);
+        }
+    }
+
+    public Object getLock() {
+        return lock;
+    }
+
+    private void updateForward() {
+        if (!timeFreeze.shouldUpdatePhysics()) return;
+
+        long tickStart = System.nanoTime();
+        long t = tickStart;
+        if (rewindMode == RewindMode.SNAPSHOTS) {
+            timeReversal.saveState(balls, particles);
+        }
+        t = saveStateTime.lap(t);
+        // Пересчёт шагов при откате повтором в запись не попадает
+        if (recorder != null && !timeReversal.isReversing()) {
+            recorderGlobals.clear();
+            writeGlobalState(recorderGlobals);
+            recorder.capture(tickCount, recorderGlobals, balls, particles);
+        }
+        t = recordTime.lap(t);
+
+        if (blackHole.isActive()) {
+            blackHole.update();
+        }
+        t = blackHoleTime.lap(t);
+
+        timeVortex.setSpaceWarp(spaceWarp);
+        timeVortex.setCenter(mousePosition);
+        timeVortex.update();
+        t = timeVortexTime.lap(t);
+
+        if (matrix.isActive()) {
+            matrix.update(width, height);
+        }
+        t = matrixTime.lap(t);
+
+        if (gravityWave.isActive()) {
+            gravityWave.update();
+        }
+        t = gravityWaveTime.lap(t);
+
+        if (rainbow.isActive()) {
+            rainbow.update(width, height);
+        }
+        t = rainbowTime.lap(t);
+
+        if (quantumTunnel.isActive()) {
+            quantumTunnel.update();
+            EffectEvent event = new EffectEvent();
+            event.begin();
+            for (int i = 0; i < balls.size(); i++) {
+                quantumTunnel.checkTunneling(balls, i, width, height);
+                quantumTunnel.applyTunneling(balls, i);
+            }
+            event.finish("QuantumTunnel", EffectEvent.APPLY, quantumTunnel.getTunnelCount());
+        }
+        t = quantumTunnelTime.lap(t);
+
+        teleport.update();
+        t = teleportTime.lap(t);
+        split.update();
+        t = splitTime.lap(t);
+        magnet.update();
+        t = magnetTime.lap(t);
+        slowMotion.update();
+        t = slowMotionTime.lap(t);
+
+        if (split.isActive()) {
+            EffectEvent event = new EffectEvent();
+            event.begin();
+            int before = balls.size();
+            split.applyEffect(balls, particles);
+            event.finish("Split", EffectEvent.APPLY, balls.size() - before);
+        }
+        t = splitApplyTime.lap(t);
+
+        // Все силовые поля применяются за один проход по телам
+        spaceWarpField.set(spaceWarp, mousePosition);
+        forceFields.apply(balls, particles, width, height, tickCount);
+        t = forceFieldsTime.lap(t);
+
+        if (gravityMode.isMutual()) {
+            applyMutualGravity();
+        }
+        t = mutualGravityTime.lap(t);
+
+        // На сетке частицы участвуют в притяжении наравне с шарами
+        boolean meshGravity = gravityMode == GravityMode.PARTICLE_MESH;
+        particles.update(width, height, meshGravity ? 0.0f : (float)gravity);
+        t = particlesTime.lap(t);
+
+        updateBalls();
+        t = ballsTime.lap(t);
+
+        if (collisionsEnabled) {
+            resolveCollisions();
+        }
+        collisionsTime.lap(t);
+        tickTime.lap(tickStart);
+    }
+
+    // Открыт пакету для микробенчмарков JMH
+    void updateBalls() {
+        int count = balls.size();
+        float[] x = balls.x();
+        float[] y = balls.y();
+        float[] vx = balls.vx();
+        float[] vy = balls.vy();
+        float[] radius = balls.radius();
+        float bounce = (float)timeScale;
+        // При взаимном притяжении однородное поле отключено
+        float uniformGravity = gravityMode.isMutual() ? 0.0f : (float)gravity;
+
+        shatteredCount = 0;
+        for (int i = 0; i < count; i++) {
+            vy[i] += uniformGravity;
+            x[i] += vx[i];
+            y[i] += vy[i];
+
+            float r = radius[i];
+            if (x[i] - r < 0) {
+                x[i] = r;
+                vx[i] = -vx[i] * bounce;
+            } else if (x[i] + r > width) {
+                x[i] = width - r;
+                vx[i] = -vx[i] * bounce;
+            }
+
+            if (y[i] - r < 0) {
+                y[i] = r;
+                vy[i] = -vy[i] * bounce;
+            } else if (y[i] + r > height) {
+                y[i] = height - r;
+                vy[i] = -vy[i] * bounce;
+                // Слишком сильный удар о пол разбивает шар
+                if (Math.abs(vy[i]) > 15.0) {
+                    markShattered(i);
+                }
+            }
+        }
+
+        // Удаляем с конца, чтобы перестановка с последним не задела необработанные индексы
+        for (int k = shatteredCount - 1; k >= 0; k--) {
+            int i = shatteredBalls[k];
+            createShatterParticles(i);
+            balls.remove(i);
+        }
+    }
+
+    private void applyMutualGravity() {
+        int count = balls.size();
+        if (bodyMass.length < count) {
+            bodyMass = new float[Math.max(count, bodyMass.length * 2)];
+        }
+        ensureAccelerationCapacity(count);
+
+        // Масса пропорциональна площади шара, как и в отклике столкновений
+        float[] radius = balls.radius();
+        for (int i = 0; i < count; i++) {
+            bodyMass[i] = radius[i] * radius[i];
+        }
+
+        // Параметр гравитации задаёт силу притяжения, отрицательный - отталкивание
+        GravityKernel kernel = new GravityKernel((float)(Constants.GRAVITY_CONSTANT * gravity),
+                                                 Constants.GRAVITY_SOFTENING);
+        if (gravityMode == GravityMode.PARTICLE_MESH) {
+            applyMeshGravity(kernel, count);
+            return;
+        }
+
+        GravitySolver solver = gravityMode == GravityMode.DIRECT ? directGravity : barnesHut;
+        solver.computeAccelerations(balls.x(), balls.y(), bodyMass, count, kernel,
+                                    accelerationX, accelerationY);
+        addAccelerations(balls.vx(), balls.vy(), count);
+    }
+
+    private void applyMeshGravity(GravityKernel kernel, int ballCount) {
+        int particleCount = particles.size();
+        if (particleMass.length < particleCount) {
+            particleMass = new float[particles.capacity()];
+        }
+        float[] size = particles.particleSize();
+        for (int i = 0; i < particleCount; i++) {
+            particleMass[i] = size[i] * size[i];
+        }
+
+        particleMesh.setDomain(width, height);
+        particleMesh.beginDeposit();
+        particleMesh.deposit(balls.x(), balls.y(), bodyMass, ballCount);
+        particleMesh.deposit(particles.x(), particles.y(), particleMass, particleCount);
+        particleMesh.solve(kernel);
+
+        particleMesh.interpolate(balls.x(), balls.y(), ballCount, accelerationX, accelerationY);
+        addAccelerations(balls.vx(), balls.vy(), ballCount);
+
+        ensureAccelerationCapacity(particleCount);
+        particleMesh.interpolate(particles.x(), particles.y(), particleCount, accelerationX, accelerationY);
+        addAccelerations(particles.vx(), particles.vy(), particleCount);
+    }
+
+    private void ensureAccelerationCapacity(int count) {
+        if (accelerationX.length < count) {
+            int capacity = Math.max(count, accelerationX.length * 2);
+            accelerationX = new float[capacity];
+            accelerationY = new float[capacity];
+        }
+    }
+
+    private void addAccelerations(float[] vx, float[] vy, int count) {
+        for (int i = 0; i < count; i++) {
+            vx[i] += accelerationX[i];
+            vy[i] += accelerationY[i];
+        }
+    }
+
+    private void markShattered(int i) {
+        if (shatteredCount == shatteredBalls.length) {
+            shatteredBalls = Arrays.copyOf(shatteredBalls, shatteredCount * 2);
+        }
+        shatteredBalls[shatteredCount++] = i;
+    }
+
+    private void createShatterParticles(int i) {
+        float x = balls.x()[i];
+        float y = balls.y()[i];
+        int color = balls.argb()[i];
+        int particleCount = 20;
+
+        for (int k = 0; k < particleCount; k++) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            double speed = 2 + random.nextDouble() * 5;
+            double px = Math.cos(angle) * speed;
+            double py = Math.sin(angle) * speed;
+
+            particles.spawn(x, y, (float)px, (float)py, 50, color, 4);
+        }
+    }
+
+    private void resolveCollisions() {
+        // Упругость растёт с энергией поля, но не превышает абсолютно упругий удар
+        float restitution = (float)Math.min(1.0, energyField * Constants.COLLISION_RESTITUTION);
+        collisionSolver.solve(balls.x(), balls.y(), balls.vx(), balls.vy(), balls.radius(),
+                              balls.size(), restitution, width, height);
+    }
+
+    public int addBall(float x, float y, float radius) {
+        return balls.add(x, y, radius);
+    }
+
+    public void createExplosion(int x, int y) {
+        explosion.createExplosion(x, y, balls, particles);
+    }
+
+    // Состояние мира
+    public BallStore getBalls() { return balls; }
+    public ParticlePool getParticles() { return particles; }
+
+    // Глобальные параметры
+    public double getTimeScale() { return timeScale; }
+    public double getGravity() { return gravity; }
+    public double getSpaceWarp() { return spaceWarp; }
+    public double getEnergyField() { return energyField; }
+    public Point getMousePosition() { return mousePosition; }
+
+    public void setTimeScale(double value) { timeScale = value; }
+    public void setGravity(double value) { gravity = value; }
+    public void setSpaceWarp(double value) { spaceWarp = value; }
+    public void setEnergyField(double value) { energyField = value; }
+    public void setMousePosition(Point p) { mousePosition = p; }
+
+    public boolean isCollisionsEnabled() { return collisionsEnabled; }
+    public void setCollisionsEnabled(boolean enabled) { collisionsEnabled = enabled; }
+    public CollisionSolver getCollisionSolver() { return collisionSolver; }
+
+    public RewindMode getRewindMode() { return rewindMode; }
+
+    // Переключение сбрасывает историю отката; вызывается из любого потока
+    public void setRewindMode(RewindMode mode) {
+        synchronized (lock) {
+            if (mode == rewindMode) return;
+            rewindMode = mode;
+            timeReversal.getHistory().clear();
+            replay = mode == RewindMode.REPLAY ? new ReplayHistory(this) : null;
+        }
+    }
+
+    // Файл под старую историю отката создаётся лишь при первом вытеснении;
+    // безголовые инструменты выключают его, чтобы не трогать диск вовсе
+    public void setHistorySpillEnabled(boolean enabled) {
+        synchronized (lock) {
+            timeReversal.getHistory().setSpillEnabled(enabled);
+        }
+    }
+
+    // Освобождает ресурсы вне кучи: файл истории отката и его отображения
+    public void close() {
+        synchronized (lock) {
+            timeReversal.getHistory().close();
+        }
+    }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public void startRecording(Path path) throws IOException {
+        synchronized (lock) {
+            stopRecording();
+            recorder = SessionRecorder.start(path);
+        }
+    }
+
+    // Возвращает остановленную запись, чтобы при выходе можно было дождаться её сброса на диск
+    public SessionRecorder stopRecording() {
+        synchronized (lock) {
+            SessionRecorder stopped = recorder;
+            if (stopped != null) {
+                stopped.stop();
+                recorder = null;
+            }
+            return stopped;
+        }
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    // Сохраняет сцену целиком в двоичный снимок. Под блокировкой сцена только
+    // копируется, запись на диск идёт в вызывающем потоке без неё
+    public void saveSnapshot(Path path) throws IOException {
+        SceneSnapshot snapshot;
+        synchronized (lock) {
+            snapshot = SceneSnapshot.capture(this);
+        }
+        snapshot.write(path);
+    }
+
+    // Загружает снимок; размер мира остаётся за окном, история отката сбрасывается.
+    // Файл читается и проверяется без блокировки; повреждённый снимок не меняет мир
+    public void loadSnapshot(Path path) throws IOException {
+        SceneSnapshot snapshot = SceneSnapshot.read(path);
+        synchronized (lock) {
+            int currentWidth = width;
+            int currentHeight = height;
+            snapshot.apply(this);
+            setWorldSize(currentWidth, currentHeight);
+            timeReversal.getHistory().clear();
+            if (replay != null) {
+                replay = new ReplayHistory(this);
+            }
+        }
+    }
+
+    // Состояние мира без тел: параметры, номер шага и эффекты.
+    // Порядок полей входит в формат снимка - при изменении поднимайте SceneSnapshot.VERSION
+    void writeGlobalState(StateBuffer out) {
+        out.putLong(tickCount).putLong(seed)
+           .putInt(width).putInt(height)
+           .putDouble(timeScale).putDouble(gravity).putDouble(spaceWarp).putDouble(energyField)
+           .putInt(mousePosition.x).putInt(mousePosition.y)
+           .putInt(gravityMode.ordinal()).putBoolean(collisionsEnabled)
+           .putInt(balls.getNextId());
+        for (StatefulEffect effect : statefulEffects) {
+            effect.writeState(out);
+        }
+    }
+
+    void readGlobalState(StateBuffer in) {
+        // Поля сначала разбираются во временные, чтобы неверный режим не оставил мир наполовину прочитанным
+        long tick = in.getLong();
+        long newSeed = in.getLong();
+        int newWidth = in.getInt();
+        int newHeight = in.getInt();
+        double newTimeScale = in.getDouble();
+        double newGravity = in.getDouble();
+        double newSpaceWarp = in.getDouble();
+        double newEnergyField = in.getDouble();
+        Point newMouse = new Point(in.getInt(), in.getInt());
+        int mode = in.getInt();
+        if (mode < 0 || mode >= GravityMode.values().length) {
+            throw new IllegalArgumentException("Неизвестный режим притяжения: " + mode);
+        }
+        boolean collisions = in.getBoolean();
+        int nextId = in.getInt();
+
+        tickCount = tick;
+        seed = newSeed;
+        setWorldSize(newWidth, newHeight);
+        timeScale = newTimeScale;
+        gravity = newGravity;
+        spaceWarp = newSpaceWarp;
+        energyField = newEnergyField;
+        mousePosition = newMouse;
+        gravityMode = GravityMode.values()[mode];
+        collisionsEnabled = collisions;
+        for (StatefulEffect effect : statefulEffects) {
+            effect.readState(in);
+        }
+        balls.setNextId(nextId);
+    }
+
+    // Состояние из внешнего источника (файла): эффекты разбирают его сами, поэтому
+    // перед чтением текущее состояние откладывается и возвращается при любой ошибке разбора
+    void restoreGlobalState(StateBuffer in) throws IOException {
+        StateBuffer backup = new StateBuffer();
+        writeGlobalState(backup);
+        try {
+            readGlobalState(in);
+        } catch (RuntimeException e) {
+            backup.startReading();
+            readGlobalState(backup);
+            throw new IOException("Состояние мира в снимке повреждено (" + e + ")", e);
+        }
+    }
+
+    void writeBodies(StateBuffer out) {
+        int count = balls.size();
+        out.ensureRemaining(4 + count * 28);
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putFloat(balls.x()[i]).putFloat(balls.y()[i])
+               .putFloat(balls.vx()[i]).putFloat(balls.vy()[i])
+               .putFloat(balls.radius()[i]).putInt(balls.argb()[i]).putInt(balls.id()[i]);
+        }
+
+        count = particles.size();
+        out.ensureRemaining(4 + count * 28);
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putFloat(particles.x()[i]).putFloat(particles.y()[i])
+               .putFloat(particles.vx()[i]).putFloat(particles.vy()[i])
+               .putFloat(particles.particleSize()[i]).putInt(particles.lifetime()[i]).putInt(particles.argb()[i]);
+        }
+    }
+
+    void readBodies(StateBuffer in) {
+        int nextId = balls.getNextId();
+        balls.clear();
+        int count = in.getInt();
+        balls.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            balls.add(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(),
+                      in.getFloat(), in.getInt(), in.getInt());
+        }
+        balls.setNextId(nextId);
+
+        particles.clear();
+        count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            float x = in.getFloat();
+            float y = in.getFloat();
+            float vx = in.getFloat();
+            float vy = in.getFloat();
+            float size = in.getFloat();
+            particles.spawn(x, y, vx, vy, in.getInt(), in.getInt(), size);
+        }
+    }
+
+    public GravityMode getGravityMode() { return gravityMode; }
+    public void setGravityMode(GravityMode mode) { gravityMode = mode; }
+    public float getOpeningAngle() { return barnesHut.getOpeningAngle(); }
+    public void setOpeningAngle(float theta) { barnesHut.setOpeningAngle(theta); }
+    public int getMeshResolution() { return particleMesh.getResolution(); }
+    public void setMeshResolution(int resolution) { particleMesh.setResolution(resolution); }
+    public ParticleMeshGravity getParticleMesh() { return particleMesh; }
+    public ForceFieldPass getForceFields() { return forceFields; }
+
+    // Эффекты
+    public TimeFreeze getTimeFreeze() { return timeFreeze; }
+    public BlackHole getBlackHole() { return blackHole; }
+    public Explosion getExplosion() { return explosion; }
+    public TimeReversal getTimeReversal() { return timeReversal; }
+    public Matrix getMatrix() { return matrix; }
+    public TimeVortex getTimeVortex() { return timeVortex; }
+    public GravityWave getGravityWave() { return gravityWave; }
+    public Rainbow getRainbow() { return rainbow; }
+    public QuantumTunnel getQuantumTunnel() { return quantumTunnel; }
+    public Teleport getTeleport() { return teleport; }
+    public Split getSplit() { return split; }
+    public Magnet getMagnet() { return magnet; }
+    public SlowMotion getSlowMotion() { return slowMotion; }
+}
@@ -0,0 +1,103 @@
+package com.physics.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.physics.data.Constants;
+
+// Отдельный поток симуляции с фиксированным шагом и аккумулятором времени
+public class SimulationLoop implements Runnable {
+    private final SimulationEngine engine;
+    private final RenderStateBuffer renderBuffer = new RenderStateBuffer();
+    private final long stepNanos;
+
+    private volatile boolean running = false;
+    private volatile long droppedSteps = 0;
+    private Thread thread;
+
+    public SimulationLoop(SimulationEngine engine) {
+        this(engine, Constants.TICK_RATE);
+    }
+
+    public SimulationLoop(SimulationEngine engine, int tickRate) {
+        this.engine = engine;
+        this.stepNanos = 1_000_000_000L / tickRate;
+        publish(System.nanoTime(), 0);
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            // Догоняем отставание, но не больше заданного числа шагов за кадр
+            int steps = 0;
+            while (accumulator >= stepNanos && steps < Constants.MAX_CATCH_UP_STEPS) {
+                engine.step();
+                accumulator -= stepNanos;
+                steps++;
+            }
+            if (accumulator >= stepNanos) {
+                droppedSteps += accumulator / stepNanos;
+                accumulator %= stepNanos;
+            }
+
+            if (steps > 0) {
+                publish(System.nanoTime(), accumulator);
+            }
+
+            long wait = stepNanos - accumulator - (System.nanoTime() - now);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private void publish(long nowNanos, long remainderNanos) {
+        RenderState state = renderBuffer.getBackBuffer();
+        engine.capture(state);
+        state.setTiming(nowNanos, remainderNanos, stepNanos);
+        renderBuffer.publish();
+    }
+
+    public RenderState acquireRenderState() {
+        return renderBuffer.acquire();
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
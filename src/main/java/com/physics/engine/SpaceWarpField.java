@@ -0,0 +1,50 @@
+package com.physics.engine;
+
+import java.awt.Point;
+
+import com.physics.data.Constants;
+import com.physics.field.FieldBodies;
+import com.physics.field.ForceField;
+
+// Искривление пространства вокруг курсора: при warp > 1 тела расталкиваются, при warp < 1 стягиваются
+class SpaceWarpField implements ForceField {
+    private double spaceWarp = 1.0;
+    private Point center;
+
+    void set(double spaceWarp, Point center) {
+        this.spaceWarp = spaceWarp;
+        this.center = center;
+    }
+
+    @Override
+    public boolean isFieldActive() {
+        return spaceWarp != 1.0 && center != null;
+    }
+
+    @Override
+    public void prepareField(int width, int height, long tick) {
+    }
+
+    @Override
+    public float getFieldCenterX() { return center.x; }
+
+    @Override
+    public float getFieldCenterY() { return center.y; }
+
+    @Override
+    public float getFieldRadius() { return Constants.WARP_RADIUS; }
+
+    @Override
+    public boolean affectsParticles() { return true; }
+
+    @Override
+    public void applyField(FieldBodies bodies, int i, float dx, float dy, float distance) {
+        // atan2(0, 0) = 0: в самом центре направление - вдоль оси x
+        float nx = distance > 0 ? dx / distance : 1.0f;
+        float ny = distance > 0 ? dy / distance : 0.0f;
+        double strength = bodies.isParticles() ? 0.3 : 0.5;
+        float force = (float)((1.0 - distance / Constants.WARP_RADIUS) * (spaceWarp - 1.0) * strength);
+        bodies.vx[i] += nx * force;
+        bodies.vy[i] += ny * force;
+    }
+}
@@ -0,0 +1,92 @@
+package com.physics.engine;
+
+import java.util.Arrays;
+
+// Равномерная сетка для широкой фазы: перестраивается за линейное время
+// сортировкой подсчётом индексов тел по ячейкам
+public class SpatialGrid {
+    private static final int MIN_CELLS = 1024;
+    private static final int CELLS_PER_BODY = 2;
+
+    private float cellSize = 1.0f;
+    private float inverseCellSize = 1.0f;
+    private int columns = 1;
+    private int rows = 1;
+
+    private int[] cellStart = new int[2];
+    private int[] bodyCell = new int[0];
+    private int[] sortedBodies = new int[0];
+
+    public void rebuild(float[] x, float[] y, int count, float minCellSize, int width, int height) {
+        // Ограничиваем число ячеек, чтобы мелкие тела в большом мире не раздували сетку
+        int maxCells = Math.max(MIN_CELLS, count * CELLS_PER_BODY);
+        float size = Math.max(minCellSize, 1.0f);
+        while ((long)cellsFor(width, size) * cellsFor(height, size) > maxCells) {
+            size *= 1.5f;
+        }
+
+        cellSize = size;
+        inverseCellSize = 1.0f / size;
+        columns = cellsFor(width, size);
+        rows = cellsFor(height, size);
+        int cellCount = columns * rows;
+
+        if (cellStart.length < cellCount + 1) {
+            cellStart = new int[cellCount + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cellCount + 1, 0);
+        }
+        if (bodyCell.length < count) {
+            int capacity = Math.max(count, bodyCell.length * 2);
+            bodyCell = new int[capacity];
+            sortedBodies = new int[capacity];
+        }
+
+        // Подсчитываем тела в ячейках
+        for (int i = 0; i < count; i++) {
+            int cell = cellOf(x[i], y[i]);
+            bodyCell[i] = cell;
+            cellStart[cell + 1]++;
+        }
+
+        // Префиксные суммы дают начало каждой ячейки
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        // Раскладываем индексы, используя cellStart как курсор, затем восстанавливаем его
+        for (int i = 0; i < count; i++) {
+            sortedBodies[cellStart[bodyCell[i]]++] = i;
+        }
+        for (int c = cellCount; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    private static int cellsFor(int extent, float size) {
+        return Math.max(1, (int)Math.ceil(Math.max(extent, 1) / size));
+    }
+
+    public int cellOf(float px, float py) {
+        return row(py) * columns + column(px);
+    }
+
+    public int column(float px) {
+        int c = (int)(px * inverseCellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    public int row(float py) {
+        int r = (int)(py * inverseCellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    public float getCellSize() { return cellSize; }
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+
+    public int cellStart(int cell) { return cellStart[cell]; }
+    public int cellEnd(int cell) { return cellStart[cell + 1]; }
+    public int bodyAt(int position) { return sortedBodies[position]; }
+}
@@ -0,0 +1,245 @@
+package com.physics.export;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.physics.data.Constants;
+import com.physics.engine.RenderState;
+import com.physics.engine.SimulationEngine;
+import com.physics.ui.SceneRenderer;
+
+// Экспорт кадров в последовательность PNG вне окна. Кадр рисуется полосами
+// по EXPORT_TILE строк, полоса - плитками EXPORT_TILE x EXPORT_TILE с суперсэмплингом,
+// так что память ограничена несколькими полосами при любом разрешении.
+// Под блокировкой движка только снимается RenderState, плитки рисуются из него,
+// и шаг не ждёт ни отрисовки, ни свободной полосы. Сжатие полос идёт в пуле:
+// полосы одного кадра кодируются по порядку, разные кадры - параллельно
+public class FrameExporter {
+    private final SimulationEngine engine;
+    private final SceneRenderer renderer;
+    private final Path directory;
+    private final int width;
+    private final int height;
+    private final int supersample;
+    private final int tile;
+
+    private final RenderState state = new RenderState();
+    private final BufferedImage tileImage;
+    private final int[] tilePixels;
+
+    // Свободные полосы; пустая очередь - сжатие отстаёт, и рисование ждёт
+    private final BlockingQueue<int[]> freeStrips;
+    private final ExecutorService encoders;
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger framesWritten = new AtomicInteger();
+    private volatile IOException failure;
+
+    private Thread liveThread;
+    private volatile boolean live = false;
+    private volatile long droppedFrames = 0;
+    private int nextFrame = 0;
+
+    public FrameExporter(SimulationEngine engine, Path directory, int width, int height, int supersample) {
+        this.engine = engine;
+        this.renderer = new SceneRenderer("export");
+        this.directory = directory;
+        this.width = width;
+        this.height = height;
+        this.supersample = Math.max(1, supersample);
+        this.tile = Constants.EXPORT_TILE;
+
+        int tileSize = tile * this.supersample;
+        this.tileImage = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+        this.tilePixels = ((DataBufferInt)tileImage.getRaster().getDataBuffer()).getData();
+
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.encoders = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "png-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int strips = workers * 2 + 1;
+        this.freeStrips = new ArrayBlockingQueue<>(strips);
+        for (int i = 0; i < strips; i++) {
+            freeStrips.add(new int[width * tile]);
+        }
+    }
+
+    public int getFramesWritten() { return framesWritten.get(); }
+    public long getDroppedFrames() { return droppedFrames; }
+    public IOException getFailure() { return failure; }
+    public boolean isLive() { return live; }
+
+    // Рисует текущее состояние движка в следующий файл последовательности.
+    // Ждёт только свободной полосы, не окончания сжатия
+    public void exportFrame() throws IOException {
+        if (failure != null) throw failure;
+        Files.createDirectories(directory);
+        Path path = directory.resolve(String.format("frame-%06d.png", nextFrame++));
+
+        PngStripWriter writer = new PngStripWriter(path, width, height, Constants.EXPORT_PNG_LEVEL);
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        // Тела, фон и эффекты кадра берутся из одного снимка: шаг может идти,
+        // пока рисуются плитки, и ждёт только само копирование
+        engine.capture(state);
+        int worldWidth = Math.max(1, state.getWorldWidth());
+        int worldHeight = Math.max(1, state.getWorldHeight());
+        // Мир вписывается в кадр с сохранением пропорций и центрируется
+        double scale = Math.min(width / (double)worldWidth, height / (double)worldHeight);
+        double offsetX = (width - worldWidth * scale) / 2;
+        double offsetY = (height - worldHeight * scale) / 2;
+
+        for (int top = 0; top < height; top += tile) {
+            int rows = Math.min(tile, height - top);
+            int[] strip = takeStrip();
+            for (int left = 0; left < width; left += tile) {
+                renderTile(left, top, Math.min(tile, width - left), rows, scale, offsetX, offsetY);
+                downsample(strip, left, Math.min(tile, width - left), rows);
+            }
+            chain = chain.thenRunAsync(() -> {
+                try {
+                    writer.writeRows(strip, rows);
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    freeStrips.offer(strip);
+                }
+            }, encoders);
+        }
+        chain = chain.thenRunAsync(() -> {
+            try {
+                writer.close();
+                framesWritten.incrementAndGet();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }, encoders);
+        pending.add(chain);
+        pruneFinished();
+    }
+
+    // Живой экспорт с частотой fps в своём потоке, независимо от шага симуляции.
+    // Если кадр не успевает, следующий берётся с текущего момента, а пропуск считается
+    public synchronized void startLive(int fps) {
+        if (live) return;
+        live = true;
+        long frameNanos = 1_000_000_000L / Math.max(1, fps);
+        liveThread = new Thread(() -> {
+            long next = System.nanoTime();
+            while (live) {
+                try {
+                    exportFrame();
+                } catch (IOException e) {
+                    System.err.println("Экспорт кадров остановлен: " + e.getMessage());
+                    live = false;
+                    break;
+                }
+                next += frameNanos;
+                long now = System.nanoTime();
+                if (now > next) {
+                    droppedFrames += (now - next) / frameNanos;
+                    next = now;
+                } else {
+                    LockSupport.parkNanos(next - now);
+                }
+            }
+        }, "frame-export");
+        liveThread.setDaemon(true);
+        liveThread.start();
+    }
+
+    public synchronized void stopLive() {
+        live = false;
+        if (liveThread != null) {
+            try {
+                liveThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            liveThread = null;
+        }
+    }
+
+    // Дожидается сжатия всех отданных кадров и останавливает пул
+    public void finish() {
+        stopLive();
+        for (CompletableFuture<Void> frame : pending) {
+            frame.join();
+        }
+        pending.clear();
+        encoders.shutdown();
+    }
+
+    private void renderTile(int left, int top, int tileWidth, int tileHeight,
+                            double scale, double offsetX, double offsetY) {
+        Graphics2D g2d = tileImage.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(0, 0, tileWidth * supersample, tileHeight * supersample);
+        g2d.clipRect(0, 0, tileWidth * supersample, tileHeight * supersample);
+        g2d.scale(supersample, supersample);
+        g2d.translate(offsetX - left, offsetY - top);
+        g2d.scale(scale, scale);
+        renderer.draw(g2d, state, 1.0f, state.getWorldWidth(), state.getWorldHeight());
+        g2d.dispose();
+    }
+
+    // Усредняет блоки supersample x supersample плитки в строки полосы
+    private void downsample(int[] strip, int left, int tileWidth, int tileHeight) {
+        int s = supersample;
+        int stride = tile * s;
+        int samples = s * s;
+        for (int y = 0; y < tileHeight; y++) {
+            int out = y * width + left;
+            for (int x = 0; x < tileWidth; x++) {
+                int red = 0;
+                int green = 0;
+                int blue = 0;
+                int base = y * s * stride + x * s;
+                for (int sy = 0; sy < s; sy++) {
+                    int p = base + sy * stride;
+                    for (int sx = 0; sx < s; sx++) {
+                        int rgb = tilePixels[p + sx];
+                        red += (rgb >> 16) & 0xFF;
+                        green += (rgb >> 8) & 0xFF;
+                        blue += rgb & 0xFF;
+                    }
+                }
+                strip[out + x] = (red / samples) << 16 | (green / samples) << 8 | blue / samples;
+            }
+        }
+    }
+
+    private int[] takeStrip() {
+        try {
+            return freeStrips.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Экспорт прерван", e);
+        }
+    }
+
+    private void pruneFinished() {
+        Iterator<CompletableFuture<Void>> frames = pending.iterator();
+        while (frames.hasNext()) {
+            if (frames.next().isDone()) {
+                frames.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.physics.export;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import com.physics.data.Constants;
+import com.physics.engine.SimulationEngine;
+
+// Экспорт без окна: движок шагает ровно на заданное число шагов между кадрами,
+// поэтому видео не зависит от скорости рисования и сжатия
+// Запуск: java -cp PhysicsSim.jar com.physics.export.OfflineExport [кадров] [ширина] [высота]
+//         [суперсэмплинг] [шагов на кадр] [шаров] [каталог]
+public class OfflineExport {
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 120;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 7680;
+        int height = args.length > 2 ? Integer.parseInt(args[2]) : 4320;
+        int supersample = args.length > 3 ? Integer.parseInt(args[3]) : Constants.EXPORT_SUPERSAMPLE;
+        int ticksPerFrame = args.length > 4 ? Integer.parseInt(args[4]) : Constants.TICK_RATE / Constants.EXPORT_FPS;
+        int count = args.length > 5 ? Integer.parseInt(args[5]) : 2000;
+        String directory = args.length > 6 ? args[6] : Constants.EXPORT_DIRECTORY_PREFIX + System.currentTimeMillis();
+
+        SimulationEngine engine = new SimulationEngine(1920, 1080);
+        engine.setHistorySpillEnabled(false);
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            int index = engine.addBall(20 + random.nextFloat() * 1880, 20 + random.nextFloat() * 1040,
+                                       4 + random.nextFloat() * 12);
+            engine.getBalls().setVelocity(index, random.nextFloat() * 6 - 3, random.nextFloat() * 6 - 3);
+        }
+
+        FrameExporter exporter = new FrameExporter(engine, Paths.get(directory), width, height, supersample);
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            engine.step(ticksPerFrame);
+            exporter.exportFrame();
+        }
+        exporter.finish();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("frames:     %d (%dx%d, supersample %d) -> %s%n", frames, width, height, supersample, directory);
+        System.out.printf("throughput: %.2f frames per second (%.1f ms per frame)%n", frames / seconds, seconds * 1000 / frames);
+    }
+}
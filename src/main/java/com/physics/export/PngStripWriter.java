@@ -0,0 +1,129 @@
+package com.physics.export;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+// Потоковая запись PNG полосами строк: кадр целиком в памяти не нужен,
+// поэтому ширина и высота ограничены только форматом.
+// 8 бит на канал RGB, фильтр Sub на каждой строке
+class PngStripWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_BYTES = 1 << 16;
+    private static final byte FILTER_SUB = 1;
+
+    private final int width;
+    private final int height;
+    private final DataOutputStream file;
+    private final Deflater deflater;
+    private final DeflaterOutputStream image;
+    private final byte[] row;
+    private int rowsWritten = 0;
+
+    PngStripWriter(Path path, int width, int height, int compressionLevel) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.file = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), IDAT_BYTES));
+        this.deflater = new Deflater(compressionLevel);
+        this.image = new DeflaterOutputStream(new ChunkStream(), deflater, IDAT_BYTES);
+        this.row = new byte[1 + width * 3];
+
+        file.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;  // бит на канал
+        header[9] = 2;  // RGB
+        writeChunk("IHDR", header, header.length);
+    }
+
+    // Дописывает rows строк из pixels (0xRRGGBB, построчно по width)
+    void writeRows(int[] pixels, int rows) throws IOException {
+        for (int r = 0; r < rows; r++) {
+            int base = r * width;
+            row[0] = FILTER_SUB;
+            int previous = 0;
+            for (int x = 0, out = 1; x < width; x++, out += 3) {
+                int rgb = pixels[base + x];
+                row[out] = (byte)((rgb >> 16) - (previous >> 16));
+                row[out + 1] = (byte)((rgb >> 8) - (previous >> 8));
+                row[out + 2] = (byte)(rgb - previous);
+                previous = rgb;
+            }
+            image.write(row);
+        }
+        rowsWritten += rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rowsWritten != height) {
+            throw new IOException("Записано " + rowsWritten + " строк из " + height);
+        }
+        image.close();
+        deflater.end();
+        writeChunk("IEND", new byte[0], 0);
+        file.close();
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        file.writeInt(length);
+        file.write(typeBytes);
+        file.write(data, 0, length);
+        file.writeInt((int)crc.getValue());
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte)(value >>> 24);
+        target[offset + 1] = (byte)(value >>> 16);
+        target[offset + 2] = (byte)(value >>> 8);
+        target[offset + 3] = (byte)value;
+    }
+
+    // Режет сжатый поток на блоки IDAT; close не закрывает сам файл
+    private final class ChunkStream extends OutputStream {
+        private final byte[] buffer = new byte[IDAT_BYTES];
+        private int length = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (length == buffer.length) flushChunk();
+            buffer[length++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int count) throws IOException {
+            while (count > 0) {
+                if (length == buffer.length) flushChunk();
+                int run = Math.min(count, buffer.length - length);
+                System.arraycopy(data, offset, buffer, length, run);
+                length += run;
+                offset += run;
+                count -= run;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (length == 0) return;
+            writeChunk("IDAT", buffer, length);
+            length = 0;
+        }
+    }
+}
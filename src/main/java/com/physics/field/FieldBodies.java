@@ -0,0 +1,26 @@
+package com.physics.field;
+
+// Массивы тел, к которым применяются поля; шары и частицы передаются по очереди
+public class FieldBodies {
+    public float[] x;
+    public float[] y;
+    public float[] vx;
+    public float[] vy;
+    public int[] argb;
+    public int count;
+    private boolean particles;
+
+    void bind(float[] x, float[] y, float[] vx, float[] vy, int[] argb, int count, boolean particles) {
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        this.argb = argb;
+        this.count = count;
+        this.particles = particles;
+    }
+
+    public boolean isParticles() {
+        return particles;
+    }
+}
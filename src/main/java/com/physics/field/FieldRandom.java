@@ -0,0 +1,20 @@
+package com.physics.field;
+
+// Случайные числа без состояния: значение зависит только от шага, тела и соли,
+// поэтому поля можно применять параллельно без общего генератора
+public final class FieldRandom {
+    private FieldRandom() {
+    }
+
+    public static int hash(long tick, int index, int salt) {
+        long h = tick * 0x9E3779B97F4A7C15L + index * 0xC2B2AE3D27D4EB4FL + salt * 0x165667B19E3779F9L;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int)(h ^ (h >>> 33));
+    }
+
+    // Равномерно в [0, 1)
+    public static float unit(long tick, int index, int salt) {
+        return (hash(tick, index, salt) >>> 8) * 0x1.0p-24f;
+    }
+}
@@ -0,0 +1,25 @@
+package com.physics.field;
+
+// Силовое поле эффекта: объявляет центр и радиус влияния, а общий проход
+// вызывает applyField только для тел внутри этого радиуса
+public interface ForceField {
+    float UNBOUNDED = Float.POSITIVE_INFINITY;
+
+    boolean isFieldActive();
+
+    // Вызывается один раз за шаг до обхода тел: здесь считаются величины,
+    // общие для всех тел (синусы фаз и т.п.). Поле может изменить свой центр и радиус
+    void prepareField(int width, int height, long tick);
+
+    float getFieldCenterX();
+    float getFieldCenterY();
+
+    // UNBOUNDED - поле действует на весь мир
+    float getFieldRadius();
+
+    boolean affectsParticles();
+
+    // Воздействие на тело i; dx, dy - смещение от центра, distance - расстояние до него.
+    // Вызывается параллельно для разных тел, поэтому может менять только тело i
+    void applyField(FieldBodies bodies, int i, float dx, float dy, float distance);
+}
@@ -0,0 +1,199 @@
+package com.physics.field;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
+import com.physics.profile.EffectEvent;
+
+// Один проход по телам вместо отдельного цикла на каждый эффект.
+// Мир делится на ячейки, для каждой ячейки строится битовая маска полей,
+// пересекающих её, и тело обходит только поля из маски своей ячейки
+public class ForceFieldPass {
+    public static final int MAX_FIELDS = 32;
+    private static final float TILE_SIZE = 64.0f;
+    private static final int BALL_GRAIN = 512;
+    private static final int PARTICLE_GRAIN = 1024;
+
+    private final List<ForceField> fields = new ArrayList<>();
+    private final PhaseExecutor phases;
+
+    // Активные поля текущего шага и их параметры
+    private final ForceField[] active = new ForceField[MAX_FIELDS];
+    private final float[] centerX = new float[MAX_FIELDS];
+    private final float[] centerY = new float[MAX_FIELDS];
+    private final float[] radiusSq = new float[MAX_FIELDS];
+    private int activeCount = 0;
+
+    // Тела под каждым полем считаются, только пока JFR записывает EffectEvent
+    private final AtomicIntegerArray fieldHits = new AtomicIntegerArray(MAX_FIELDS);
+    private final EffectEvent[] fieldEvents = new EffectEvent[MAX_FIELDS];
+    private boolean countHits = false;
+
+    private int columns = 1;
+    private int rows = 1;
+    private int[] tileMask = new int[1];
+
+    private final FieldBodies ballBodies = new FieldBodies();
+    private final FieldBodies particleBodies = new FieldBodies();
+    private final RangeTask applyBalls = (start, end) -> applyRange(ballBodies, start, end);
+    private final RangeTask applyParticles = (start, end) -> applyRange(particleBodies, start, end);
+
+    public ForceFieldPass(PhaseExecutor phases) {
+        this.phases = phases;
+    }
+
+    public void addField(ForceField field) {
+        if (fields.size() == MAX_FIELDS) {
+            throw new IllegalStateException("Too many force fields: " + MAX_FIELDS);
+        }
+        fields.add(field);
+    }
+
+    public void apply(BallStore balls, ParticlePool particles, int width, int height, long tick) {
+        if (!prepare(width, height, tick)) return;
+        beginEvents();
+
+        ballBodies.bind(balls.x(), balls.y(), balls.vx(), balls.vy(), balls.argb(), balls.size(), false);
+        phases.forRange("forces.balls", 0, balls.size(), BALL_GRAIN, applyBalls);
+
+        particleBodies.bind(particles.x(), particles.y(), particles.vx(), particles.vy(),
+                            particles.argb(), particles.size(), true);
+        phases.forRange("forces.particles", 0, particles.size(), PARTICLE_GRAIN, applyParticles);
+
+        finishEvents();
+    }
+
+    // Поля применяются одним проходом, поэтому у событий всех полей общая длительность
+    private void beginEvents() {
+        EffectEvent probe = new EffectEvent();
+        countHits = probe.isEnabled();
+        if (!countHits) return;
+        for (int f = 0; f < activeCount; f++) {
+            fieldHits.set(f, 0);
+            fieldEvents[f] = new EffectEvent();
+            fieldEvents[f].begin();
+        }
+    }
+
+    private void finishEvents() {
+        if (!countHits) return;
+        for (int f = 0; f < activeCount; f++) {
+            fieldEvents[f].finish(active[f].getClass().getSimpleName(), EffectEvent.APPLY, fieldHits.get(f));
+            fieldEvents[f] = null;
+        }
+        countHits = false;
+    }
+
+    // Собирает активные поля и строит маски ячеек; false - полей нет
+    private boolean prepare(int width, int height, long tick) {
+        activeCount = 0;
+        for (ForceField field : fields) {
+            if (!field.isFieldActive()) continue;
+            field.prepareField(width, height, tick);
+            int f = activeCount++;
+            active[f] = field;
+            centerX[f] = field.getFieldCenterX();
+            centerY[f] = field.getFieldCenterY();
+            float radius = field.getFieldRadius();
+            radiusSq[f] = radius == ForceField.UNBOUNDED ? ForceField.UNBOUNDED : radius * radius;
+        }
+        if (activeCount == 0) return false;
+
+        columns = Math.max(1, (int)Math.ceil(width / TILE_SIZE));
+        rows = Math.max(1, (int)Math.ceil(height / TILE_SIZE));
+        if (tileMask.length < columns * rows) {
+            tileMask = new int[columns * rows];
+        } else {
+            Arrays.fill(tileMask, 0, columns * rows, 0);
+        }
+
+        for (int f = 0; f < activeCount; f++) {
+            markTiles(f, active[f].getFieldRadius());
+        }
+        return true;
+    }
+
+    // Отмечает ячейки, которые пересекает круг поля f
+    private void markTiles(int f, float radius) {
+        int bit = 1 << f;
+        if (radius == ForceField.UNBOUNDED) {
+            for (int t = 0; t < columns * rows; t++) {
+                tileMask[t] |= bit;
+            }
+            return;
+        }
+
+        float cx = centerX[f];
+        float cy = centerY[f];
+        int minColumn = clamp((int)Math.floor((cx - radius) / TILE_SIZE), columns);
+        int maxColumn = clamp((int)Math.floor((cx + radius) / TILE_SIZE), columns);
+        int minRow = clamp((int)Math.floor((cy - radius) / TILE_SIZE), rows);
+        int maxRow = clamp((int)Math.floor((cy + radius) / TILE_SIZE), rows);
+
+        for (int row = minRow; row <= maxRow; row++) {
+            // Крайние ячейки растягиваются до бесконечности: туда попадают тела за краем мира
+            float top = row == 0 ? Float.NEGATIVE_INFINITY : row * TILE_SIZE;
+            float bottom = row == rows - 1 ? Float.POSITIVE_INFINITY : (row + 1) * TILE_SIZE;
+            float nearY = Math.max(top, Math.min(cy, bottom)) - cy;
+            for (int column = minColumn; column <= maxColumn; column++) {
+                float left = column == 0 ? Float.NEGATIVE_INFINITY : column * TILE_SIZE;
+                float right = column == columns - 1 ? Float.POSITIVE_INFINITY : (column + 1) * TILE_SIZE;
+                float nearX = Math.max(left, Math.min(cx, right)) - cx;
+                if (nearX * nearX + nearY * nearY <= radiusSq[f]) {
+                    tileMask[row * columns + column] |= bit;
+                }
+            }
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return value < 0 ? 0 : (value >= size ? size - 1 : value);
+    }
+
+    private void applyRange(FieldBodies bodies, int start, int end) {
+        float[] x = bodies.x;
+        float[] y = bodies.y;
+        boolean particles = bodies.isParticles();
+        float inverseTile = 1.0f / TILE_SIZE;
+        int[] hits = countHits ? new int[activeCount] : null;
+
+        for (int i = start; i < end; i++) {
+            int column = clamp((int)(x[i] * inverseTile), columns);
+            int row = clamp((int)(y[i] * inverseTile), rows);
+            int mask = tileMask[row * columns + column];
+
+            while (mask != 0) {
+                int f = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+
+                ForceField field = active[f];
+                if (particles && !field.affectsParticles()) continue;
+
+                // Позицию читаем заново: предыдущее поле могло переместить тело
+                float dx = x[i] - centerX[f];
+                float dy = y[i] - centerY[f];
+                float distanceSq = dx * dx + dy * dy;
+                if (distanceSq < radiusSq[f]) {
+                    field.applyField(bodies, i, dx, dy, (float)Math.sqrt(distanceSq));
+                    if (hits != null) hits[f]++;
+                }
+            }
+        }
+
+        if (hits != null) {
+            for (int f = 0; f < hits.length; f++) {
+                fieldHits.addAndGet(f, hits[f]);
+            }
+        }
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+}
@@ -0,0 +1,441 @@
+package com.physics.gravity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
+
+// Дерево Барнса-Хата для взаимного притяжения за O(n log n).
+// Тела упорядочиваются по коду Мортона, поэтому у каждой ячейки квадродерева
+// тела лежат непрерывным отрезком. Верхние уровни размечаются последовательно,
+// поддеревья строятся параллельно и затем склеиваются в один массив узлов
+public class BarnesHutTree implements GravitySolver {
+    private static final int BITS = 15; // Бит на ось: код Мортона укладывается в 30 бит
+    private static final int MAX_DEPTH = BITS;
+    private static final int LEAF_SIZE = 8;
+    private static final int SPLIT_DEPTH = 3; // До 4^3 поддеревьев на параллельную сборку
+    private static final int BODY_GRAIN = 2048;
+    private static final int FORCE_GRAIN = 256;
+
+    private final PhaseExecutor phases;
+    private float theta = 0.5f;
+
+    // Тела в порядке кода Мортона
+    private int count;
+    private long[] keys = new long[0];
+    private int[] order = new int[0];
+    private int[] codes = new int[0];
+    private float[] sortedX = new float[0];
+    private float[] sortedY = new float[0];
+    private float[] sortedMass = new float[0];
+    private float originX;
+    private float originY;
+    private float side;
+
+    // Узлы в прямом порядке обхода: первый потомок идёт сразу за узлом,
+    // next - первый узел после поддерева; у листа next == node + 1
+    private int nodeCount;
+    private float[] nodeX = new float[0];
+    private float[] nodeY = new float[0];
+    private float[] nodeMass = new float[0];
+    private float[] nodeSizeSq = new float[0];
+    private int[] nodeNext = new int[0];
+    private int[] nodeStart = new int[0];
+    private int[] nodeEnd = new int[0];
+
+    // Поддеревья, которые строятся параллельно
+    private final List<NodeBlock> blocks = new ArrayList<>();
+    private int blockCount;
+    private int emitCursor;
+
+    // Входные данные текущего вызова для задач пула
+    private float[] inputX;
+    private float[] inputY;
+    private float[] inputMass;
+    private GravityKernel kernel;
+    private float[] outputX;
+    private float[] outputY;
+
+    private final RangeTask encodeBodies = this::encodeRange;
+    private final RangeTask gatherBodies = this::gatherRange;
+    private final RangeTask buildBlocks = (start, end) -> {
+        for (int b = start; b < end; b++) {
+            blocks.get(b).build();
+        }
+    };
+    private final RangeTask computeForces = this::forceRange;
+
+    public BarnesHutTree(PhaseExecutor phases) {
+        this.phases = phases;
+    }
+
+    // Угол раскрытия: ячейка размера s на расстоянии d заменяется центром масс при s / d < theta
+    public void setOpeningAngle(float theta) {
+        this.theta = Math.max(0.0f, theta);
+    }
+
+    public float getOpeningAngle() {
+        return theta;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public void computeAccelerations(float[] x, float[] y, float[] mass, int count,
+                                     GravityKernel kernel, float[] ax, float[] ay) {
+        build(x, y, mass, count);
+        if (count == 0) return;
+
+        this.kernel = kernel;
+        outputX = ax;
+        outputY = ay;
+        phases.forRange("gravity.forces", 0, count, FORCE_GRAIN, computeForces);
+        this.kernel = null;
+        outputX = null;
+        outputY = null;
+    }
+
+    // Перестраивает дерево по текущим позициям тел
+    public void build(float[] x, float[] y, float[] mass, int count) {
+        this.count = count;
+        nodeCount = 0;
+        if (count == 0) return;
+
+        ensureBodyCapacity(count);
+        inputX = x;
+        inputY = y;
+        inputMass = mass;
+
+        computeBounds(x, y, count);
+        phases.forRange("gravity.morton", 0, count, BODY_GRAIN, encodeBodies);
+        phases.measure("gravity.sort", () -> Arrays.parallelSort(keys, 0, count));
+        phases.forRange("gravity.gather", 0, count, BODY_GRAIN, gatherBodies);
+
+        // Верхние уровни: только разметка поддеревьев
+        blockCount = 0;
+        collectBlocks(0, count, 0);
+        phases.forRange("gravity.build", 0, blockCount, 1, buildBlocks);
+
+        // Склейка поддеревьев в прямом порядке обхода
+        int total = 0;
+        for (int b = 0; b < blockCount; b++) {
+            total += blocks.get(b).count;
+        }
+        ensureNodeCapacity(total + blockCount * 2 + 32);
+        emitCursor = 0;
+        emit(0, count, 0);
+
+        inputX = null;
+        inputY = null;
+        inputMass = null;
+    }
+
+    private void computeBounds(float[] x, float[] y, int count) {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        originX = minX;
+        originY = minY;
+        // Квадратная корневая ячейка с небольшим запасом, чтобы крайние тела не выходили за сетку
+        side = Math.max(Math.max(maxX - minX, maxY - minY), 1.0f) * 1.0001f;
+    }
+
+    private void encodeRange(int start, int end) {
+        float scale = (1 << BITS) / side;
+        int maxCell = (1 << BITS) - 1;
+        for (int i = start; i < end; i++) {
+            int cellX = Math.min(maxCell, Math.max(0, (int)((inputX[i] - originX) * scale)));
+            int cellY = Math.min(maxCell, Math.max(0, (int)((inputY[i] - originY) * scale)));
+            long code = spread(cellX) | spread(cellY) << 1;
+            keys[i] = code << 32 | i;
+        }
+    }
+
+    // Раздвигает 15 бит через один: x занимает чётные разряды кода, y - нечётные
+    private static int spread(int value) {
+        value &= 0x7FFF;
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+
+    private void gatherRange(int start, int end) {
+        for (int p = start; p < end; p++) {
+            long key = keys[p];
+            int body = (int)key;
+            order[p] = body;
+            codes[p] = (int)(key >>> 32);
+            sortedX[p] = inputX[body];
+            sortedY[p] = inputY[body];
+            sortedMass[p] = inputMass[body];
+        }
+    }
+
+    private static int shiftFor(int level) {
+        return 2 * (MAX_DEPTH - 1 - level);
+    }
+
+    // Первый индекс в [start, end), у которого цифра кода на уровне больше quadrant
+    private int upperBound(int start, int end, int shift, int quadrant) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (((codes[middle] >>> shift) & 3) <= quadrant) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private boolean isBlockRoot(int start, int end, int level) {
+        return level == SPLIT_DEPTH || end - start <= LEAF_SIZE;
+    }
+
+    private void collectBlocks(int start, int end, int level) {
+        if (isBlockRoot(start, end, level)) {
+            if (blocks.size() == blockCount) {
+                blocks.add(new NodeBlock());
+            }
+            blocks.get(blockCount++).assign(start, end, level);
+            return;
+        }
+        int shift = shiftFor(level);
+        int childStart = start;
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            int childEnd = upperBound(childStart, end, shift, quadrant);
+            if (childEnd > childStart) {
+                collectBlocks(childStart, childEnd, level + 1);
+            }
+            childStart = childEnd;
+        }
+    }
+
+    // Повторяет обход collectBlocks и выкладывает узлы верхних уровней вперемешку с поддеревьями
+    private int emit(int start, int end, int level) {
+        if (isBlockRoot(start, end, level)) {
+            NodeBlock block = blocks.get(emitCursor++);
+            int offset = nodeCount;
+            int n = block.count;
+            System.arraycopy(block.x, 0, nodeX, offset, n);
+            System.arraycopy(block.y, 0, nodeY, offset, n);
+            System.arraycopy(block.mass, 0, nodeMass, offset, n);
+            System.arraycopy(block.sizeSq, 0, nodeSizeSq, offset, n);
+            System.arraycopy(block.start, 0, nodeStart, offset, n);
+            System.arraycopy(block.end, 0, nodeEnd, offset, n);
+            for (int i = 0; i < n; i++) {
+                nodeNext[offset + i] = block.next[i] + offset;
+            }
+            nodeCount += n;
+            return offset;
+        }
+
+        int node = nodeCount++;
+        float mass = 0;
+        float weightedX = 0;
+        float weightedY = 0;
+        int shift = shiftFor(level);
+        int childStart = start;
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            int childEnd = upperBound(childStart, end, shift, quadrant);
+            if (childEnd > childStart) {
+                int child = emit(childStart, childEnd, level + 1);
+                mass += nodeMass[child];
+                weightedX += nodeMass[child] * nodeX[child];
+                weightedY += nodeMass[child] * nodeY[child];
+            }
+            childStart = childEnd;
+        }
+        setNode(nodeX, nodeY, nodeMass, nodeSizeSq, node, mass, weightedX, weightedY, level,
+                sortedX[start], sortedY[start]);
+        nodeStart[node] = start;
+        nodeEnd[node] = end;
+        nodeNext[node] = nodeCount;
+        return node;
+    }
+
+    private void setNode(float[] x, float[] y, float[] mass, float[] sizeSq, int node,
+                         float totalMass, float weightedX, float weightedY, int level,
+                         float fallbackX, float fallbackY) {
+        mass[node] = totalMass;
+        if (totalMass != 0) {
+            x[node] = weightedX / totalMass;
+            y[node] = weightedY / totalMass;
+        } else {
+            x[node] = fallbackX;
+            y[node] = fallbackY;
+        }
+        float size = side / (1 << level);
+        sizeSq[node] = size * size;
+    }
+
+    private void forceRange(int start, int end) {
+        float thetaSq = theta * theta;
+        float softeningSq = kernel.getSofteningSq();
+        float strength = kernel.getStrength();
+
+        for (int p = start; p < end; p++) {
+            float px = sortedX[p];
+            float py = sortedY[p];
+            float sumX = 0;
+            float sumY = 0;
+
+            int node = 0;
+            while (node < nodeCount) {
+                int next = nodeNext[node];
+                if (next == node + 1) {
+                    // Лист: точная сумма по его телам
+                    for (int j = nodeStart[node]; j < nodeEnd[node]; j++) {
+                        if (j == p) continue;
+                        float dx = sortedX[j] - px;
+                        float dy = sortedY[j] - py;
+                        float inverse = 1.0f / (float)Math.sqrt(dx * dx + dy * dy + softeningSq);
+                        float factor = sortedMass[j] * inverse * inverse * inverse;
+                        sumX += dx * factor;
+                        sumY += dy * factor;
+                    }
+                    node = next;
+                    continue;
+                }
+
+                float dx = nodeX[node] - px;
+                float dy = nodeY[node] - py;
+                float distanceSq = dx * dx + dy * dy;
+                // Ячейку с самим телом всегда раскрываем: при большом theta её центр масс
+                // иначе включил бы массу тела и дал бы ложную силу на самого себя
+                boolean own = nodeStart[node] <= p && p < nodeEnd[node];
+                if (!own && nodeSizeSq[node] < thetaSq * distanceSq) {
+                    // Ячейка достаточно далеко: притяжение к её центру масс
+                    float inverse = 1.0f / (float)Math.sqrt(distanceSq + softeningSq);
+                    float factor = nodeMass[node] * inverse * inverse * inverse;
+                    sumX += dx * factor;
+                    sumY += dy * factor;
+                    node = next;
+                } else {
+                    node++;
+                }
+            }
+
+            int body = order[p];
+            outputX[body] = sumX * strength;
+            outputY[body] = sumY * strength;
+        }
+    }
+
+    private void ensureBodyCapacity(int capacity) {
+        if (keys.length >= capacity) return;
+        int size = Math.max(capacity, keys.length * 2);
+        keys = new long[size];
+        order = new int[size];
+        codes = new int[size];
+        sortedX = new float[size];
+        sortedY = new float[size];
+        sortedMass = new float[size];
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (nodeNext.length >= capacity) return;
+        int size = Math.max(capacity, nodeNext.length * 2);
+        nodeX = new float[size];
+        nodeY = new float[size];
+        nodeMass = new float[size];
+        nodeSizeSq = new float[size];
+        nodeNext = new int[size];
+        nodeStart = new int[size];
+        nodeEnd = new int[size];
+    }
+
+    // Поддерево, которое строит один поток; индексы next отсчитываются от начала блока
+    private final class NodeBlock {
+        private int rootStart;
+        private int rootEnd;
+        private int rootLevel;
+
+        private int count;
+        private float[] x = new float[64];
+        private float[] y = new float[64];
+        private float[] mass = new float[64];
+        private float[] sizeSq = new float[64];
+        private int[] next = new int[64];
+        private int[] start = new int[64];
+        private int[] end = new int[64];
+
+        void assign(int start, int end, int level) {
+            rootStart = start;
+            rootEnd = end;
+            rootLevel = level;
+        }
+
+        void build() {
+            count = 0;
+            buildNode(rootStart, rootEnd, rootLevel);
+        }
+
+        private int buildNode(int from, int to, int level) {
+            int node = count++;
+            ensureCapacity(count);
+            start[node] = from;
+            end[node] = to;
+
+            float totalMass = 0;
+            float weightedX = 0;
+            float weightedY = 0;
+
+            if (to - from <= LEAF_SIZE || level == MAX_DEPTH) {
+                for (int p = from; p < to; p++) {
+                    totalMass += sortedMass[p];
+                    weightedX += sortedMass[p] * sortedX[p];
+                    weightedY += sortedMass[p] * sortedY[p];
+                }
+                setNode(x, y, mass, sizeSq, node, totalMass, weightedX, weightedY, level,
+                        sortedX[from], sortedY[from]);
+                next[node] = node + 1;
+                return node;
+            }
+
+            int shift = shiftFor(level);
+            int childStart = from;
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                int childEnd = upperBound(childStart, to, shift, quadrant);
+                if (childEnd > childStart) {
+                    int child = buildNode(childStart, childEnd, level + 1);
+                    totalMass += mass[child];
+                    weightedX += mass[child] * x[child];
+                    weightedY += mass[child] * y[child];
+                }
+                childStart = childEnd;
+            }
+            setNode(x, y, mass, sizeSq, node, totalMass, weightedX, weightedY, level,
+                    sortedX[from], sortedY[from]);
+            next[node] = count;
+            return node;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (next.length >= capacity) return;
+            int size = Math.max(capacity, next.length * 2);
+            x = Arrays.copyOf(x, size);
+            y = Arrays.copyOf(y, size);
+            mass = Arrays.copyOf(mass, size);
+            sizeSq = Arrays.copyOf(sizeSq, size);
+            next = Arrays.copyOf(next, size);
+            start = Arrays.copyOf(start, size);
+            end = Arrays.copyOf(end, size);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.physics.gravity;
+
+import com.physics.parallel.PhaseExecutor;
+
+// Точное суммирование по всем парам за O(n^2); эталон для приближённых решателей
+public class DirectGravity implements GravitySolver {
+    private static final int GRAIN = 64;
+
+    private final PhaseExecutor phases;
+
+    public DirectGravity(PhaseExecutor phases) {
+        this.phases = phases;
+    }
+
+    @Override
+    public void computeAccelerations(float[] x, float[] y, float[] mass, int count,
+                                     GravityKernel kernel, float[] ax, float[] ay) {
+        phases.forRange("gravity.direct", 0, count, GRAIN, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                accelerationAt(i, x, y, mass, count, kernel, ax, ay);
+            }
+        });
+    }
+
+    // Ускорение одного тела; позволяет сверять выборку тел при больших n
+    public static void accelerationAt(int i, float[] x, float[] y, float[] mass, int count,
+                                      GravityKernel kernel, float[] ax, float[] ay) {
+        float px = x[i];
+        float py = y[i];
+        float softeningSq = kernel.getSofteningSq();
+        float sumX = 0;
+        float sumY = 0;
+        for (int j = 0; j < count; j++) {
+            if (j == i) continue;
+            float dx = x[j] - px;
+            float dy = y[j] - py;
+            float inverse = 1.0f / (float)Math.sqrt(dx * dx + dy * dy + softeningSq);
+            float factor = mass[j] * inverse * inverse * inverse;
+            sumX += dx * factor;
+            sumY += dy * factor;
+        }
+        ax[i] = sumX * kernel.getStrength();
+        ay[i] = sumY * kernel.getStrength();
+    }
+}
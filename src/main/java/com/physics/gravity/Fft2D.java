@@ -0,0 +1,150 @@
+package com.physics.gravity;
+
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
+
+// Комплексное двумерное БПФ по основанию 2 на квадратной сетке size x size.
+// Строки преобразуются независимо; столбцы - теми же бабочками, но сразу
+// над отрезками строк, поэтому транспонирование и временные массивы не нужны
+public class Fft2D {
+    private static final int ROW_GRAIN = 8;
+
+    private final PhaseExecutor phases;
+    private final int size;
+    private final int log2;
+    private final float[] cos;
+    private final float[] sin;
+    private final int[] reverse;
+
+    private float[] re;
+    private float[] im;
+    private boolean inverse;
+
+    private final RangeTask transformRows = this::transformRows;
+    private final RangeTask transformColumns = this::transformColumns;
+
+    public Fft2D(PhaseExecutor phases, int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Размер БПФ должен быть степенью двойки: " + size);
+        }
+        this.phases = phases;
+        this.size = size;
+        this.log2 = Integer.numberOfTrailingZeros(size);
+
+        cos = new float[size / 2];
+        sin = new float[size / 2];
+        for (int k = 0; k < size / 2; k++) {
+            double angle = -2 * Math.PI * k / size;
+            cos[k] = (float)Math.cos(angle);
+            sin[k] = (float)Math.sin(angle);
+        }
+
+        reverse = new int[size];
+        for (int i = 0; i < size; i++) {
+            reverse[i] = Integer.reverse(i) >>> (32 - log2);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Прямое преобразование на месте; строки начиная с nonZeroRows должны быть нулевыми
+    // и пропускаются при построчном проходе
+    public void forward(String phase, float[] re, float[] im, int nonZeroRows) {
+        bind(re, im, false);
+        phases.forRange(phase, 0, Math.min(size, nonZeroRows), ROW_GRAIN, transformRows);
+        phases.forRange(phase, 0, size, ROW_GRAIN, transformColumns);
+        bind(null, null, false);
+    }
+
+    // Обратное преобразование на месте без нормировки 1 / size^2; досчитываются
+    // только первые usedColumns столбцов, остальные остаются промежуточными
+    public void inverse(String phase, float[] re, float[] im, int usedColumns) {
+        bind(re, im, true);
+        phases.forRange(phase, 0, size, ROW_GRAIN, transformRows);
+        phases.forRange(phase, 0, Math.min(size, usedColumns), ROW_GRAIN, transformColumns);
+        bind(null, null, false);
+    }
+
+    private void bind(float[] re, float[] im, boolean inverse) {
+        this.re = re;
+        this.im = im;
+        this.inverse = inverse;
+    }
+
+    private void transformRows(int from, int to) {
+        for (int row = from; row < to; row++) {
+            transformRow(row * size);
+        }
+    }
+
+    private void transformRow(int offset) {
+        float[] re = this.re;
+        float[] im = this.im;
+        float direction = inverse ? -1.0f : 1.0f;
+
+        for (int i = 0; i < size; i++) {
+            int j = reverse[i];
+            if (j > i) {
+                float t = re[offset + i]; re[offset + i] = re[offset + j]; re[offset + j] = t;
+                t = im[offset + i]; im[offset + i] = im[offset + j]; im[offset + j] = t;
+            }
+        }
+
+        for (int half = 1, step = size / 2; half < size; half <<= 1, step >>= 1) {
+            for (int block = 0; block < size; block += half << 1) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step] * direction;
+                    int a = offset + block + k;
+                    int b = a + half;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    // БПФ вдоль столбцов [from, to): бабочки соединяют строки, внутренний цикл идёт по памяти подряд
+    private void transformColumns(int from, int to) {
+        float[] re = this.re;
+        float[] im = this.im;
+        float direction = inverse ? -1.0f : 1.0f;
+
+        for (int i = 0; i < size; i++) {
+            int j = reverse[i];
+            if (j > i) {
+                int a = i * size;
+                int b = j * size;
+                for (int c = from; c < to; c++) {
+                    float t = re[a + c]; re[a + c] = re[b + c]; re[b + c] = t;
+                    t = im[a + c]; im[a + c] = im[b + c]; im[b + c] = t;
+                }
+            }
+        }
+
+        for (int half = 1, step = size / 2; half < size; half <<= 1, step >>= 1) {
+            for (int block = 0; block < size; block += half << 1) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step] * direction;
+                    int a = (block + k) * size;
+                    int b = a + half * size;
+                    for (int c = from; c < to; c++) {
+                        float tr = re[b + c] * wr - im[b + c] * wi;
+                        float ti = re[b + c] * wi + im[b + c] * wr;
+                        re[b + c] = re[a + c] - tr;
+                        im[b + c] = im[a + c] - ti;
+                        re[a + c] += tr;
+                        im[a + c] += ti;
+                    }
+                }
+            }
+        }
+    }
+}
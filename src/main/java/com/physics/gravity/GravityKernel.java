@@ -0,0 +1,25 @@
+package com.physics.gravity;
+
+// Сглаженное ядро притяжения: a = G * m * r / (|r|^2 + eps^2)^(3/2).
+// Сглаживание убирает сингулярность при сближении тел; все решатели используют одно ядро
+public class GravityKernel {
+    private final float strength;
+    private final float softening;
+    private final float softeningSq;
+
+    public GravityKernel(float strength, float softening) {
+        this.strength = strength;
+        this.softening = softening;
+        this.softeningSq = softening * softening;
+    }
+
+    public float getStrength() { return strength; }
+    public float getSoftening() { return softening; }
+    public float getSofteningSq() { return softeningSq; }
+
+    // Множитель при смещении (dx, dy) для квадрата расстояния distanceSq
+    public float factor(float mass, float distanceSq) {
+        float inverse = 1.0f / (float)Math.sqrt(distanceSq + softeningSq);
+        return strength * mass * inverse * inverse * inverse;
+    }
+}
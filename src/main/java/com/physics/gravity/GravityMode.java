@@ -0,0 +1,28 @@
+package com.physics.gravity;
+
+// Режим гравитации: однородное поле вниз или взаимное притяжение тел
+public enum GravityMode {
+    UNIFORM("Однородная"),
+    DIRECT("Прямая O(n²)"),
+    BARNES_HUT("Барнс-Хат"),
+    PARTICLE_MESH("Сетка PM");
+
+    private final String title;
+
+    GravityMode(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isMutual() {
+        return this != UNIFORM;
+    }
+
+    public GravityMode next() {
+        GravityMode[] modes = values();
+        return modes[(ordinal() + 1) % modes.length];
+    }
+}
@@ -0,0 +1,8 @@
+package com.physics.gravity;
+
+// Вычисление ускорений от взаимного притяжения тел
+public interface GravitySolver {
+    // Записывает в ax, ay ускорения тел [0, count); массивы не меньше count
+    void computeAccelerations(float[] x, float[] y, float[] mass, int count,
+                              GravityKernel kernel, float[] ax, float[] ay);
+}
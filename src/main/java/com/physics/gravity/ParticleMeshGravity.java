@@ -0,0 +1,317 @@
+package com.physics.gravity;
+
+import java.util.Arrays;
+
+import com.physics.parallel.PhaseExecutor;
+import com.physics.parallel.RangeTask;
+
+// Гравитация на сетке (particle-mesh): масса раскладывается по узлам весами
+// cloud-in-cell, потенциал находится свёрткой со сглаженным ядром через БПФ,
+// ускорения - разностями потенциала и интерполяцией обратно к телам.
+// Сетка дополнена нулями до удвоенного размера (метод Хокни), поэтому
+// притяжение не заворачивается через края мира, как в периодической задаче
+public class ParticleMeshGravity implements GravitySolver {
+    private static final int BODY_GRAIN = 4096;
+    private static final int ROW_GRAIN = 8;
+    private static final int MAX_DEPOSIT_CHUNKS = 8; // Частные сетки на поток ограничивают память
+
+    private final PhaseExecutor phases;
+    private int resolution;
+
+    // Узел (i, j) лежит в точке (i * cellSize, j * cellSize)
+    private float worldWidth = 1;
+    private float worldHeight = 1;
+    private float cellSize = 1;
+
+    private Fft2D fft;
+    private float[][] partialDensity = new float[0][];
+    private int depositChunks;
+    private int usedChunks;
+    private float[] re;
+    private float[] im;
+    private float[] greenSpectrum;
+    private float greenCellSize;
+    private float greenSoftening = -1;
+    private float[] fieldX;
+    private float[] fieldY;
+
+    // Время этапов последнего шага, нс
+    private long depositNanos;
+    private long fftNanos;
+    private long gradientNanos;
+    private long interpolateNanos;
+
+    // Входные данные текущего вызова для задач пула
+    private float[] inputX;
+    private float[] inputY;
+    private float[] inputMass;
+    private int inputCount;
+    private float[] outputX;
+    private float[] outputY;
+    private float strength;
+
+    private final RangeTask depositChunk = (start, end) -> {
+        for (int chunk = start; chunk < end; chunk++) {
+            depositRange(partialDensity[chunk], chunkStart(chunk), chunkStart(chunk + 1));
+        }
+    };
+    private final RangeTask reduceRows = this::reduceRows;
+    private final RangeTask applyGreen = this::applyGreen;
+    private final RangeTask gradientRows = this::gradientRows;
+    private final RangeTask interpolateBodies = this::interpolateRange;
+
+    public ParticleMeshGravity(PhaseExecutor phases, int resolution) {
+        this.phases = phases;
+        setResolution(resolution);
+    }
+
+    // Число узлов по длинной стороне мира; степень двойки
+    public void setResolution(int resolution) {
+        if (resolution < 4 || Integer.bitCount(resolution) != 1) {
+            throw new IllegalArgumentException("Разрешение сетки должно быть степенью двойки: " + resolution);
+        }
+        if (resolution == this.resolution) return;
+        this.resolution = resolution;
+        fft = null;
+        partialDensity = new float[0][];
+        greenSoftening = -1;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public void setDomain(float width, float height) {
+        worldWidth = Math.max(1, width);
+        worldHeight = Math.max(1, height);
+        cellSize = Math.max(worldWidth, worldHeight) / (resolution - 1);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public long getDepositNanos() { return depositNanos; }
+    public long getFftNanos() { return fftNanos; }
+    public long getGradientNanos() { return gradientNanos; }
+    public long getInterpolateNanos() { return interpolateNanos; }
+
+    @Override
+    public void computeAccelerations(float[] x, float[] y, float[] mass, int count,
+                                     GravityKernel kernel, float[] ax, float[] ay) {
+        beginDeposit();
+        deposit(x, y, mass, count);
+        solve(kernel);
+        interpolate(x, y, count, ax, ay);
+    }
+
+    // Начинает новый шаг: обнуляет частные сетки, заполненные на прошлом шаге
+    public void beginDeposit() {
+        ensureGrids();
+        long start = System.nanoTime();
+        for (int chunk = 0; chunk < usedChunks; chunk++) {
+            Arrays.fill(partialDensity[chunk], 0);
+        }
+        usedChunks = 0;
+        depositNanos = System.nanoTime() - start;
+        interpolateNanos = 0;
+    }
+
+    // Добавляет массу тел; можно вызывать несколько раз (шары, частицы) до solve
+    public void deposit(float[] x, float[] y, float[] mass, int count) {
+        if (count == 0) return;
+        long start = System.nanoTime();
+        inputX = x;
+        inputY = y;
+        inputMass = mass;
+        inputCount = count;
+        // Каждая порция тел пишет в свою сетку, поэтому гонок при раскладке нет
+        depositChunks = Math.max(1, Math.min(partialDensity.length, (count + BODY_GRAIN - 1) / BODY_GRAIN));
+        usedChunks = Math.max(usedChunks, depositChunks);
+        phases.forRange("gravity.pm.deposit", 0, depositChunks, 1, depositChunk);
+        inputX = null;
+        inputY = null;
+        inputMass = null;
+        depositNanos += System.nanoTime() - start;
+    }
+
+    // Находит поле ускорений по накопленной плотности
+    public void solve(GravityKernel kernel) {
+        strength = kernel.getStrength();
+        if (greenSoftening != kernel.getSoftening() || greenCellSize != cellSize) {
+            buildGreenSpectrum(kernel.getSoftening());
+        }
+
+        long start = System.nanoTime();
+        phases.forRange("gravity.pm.deposit", 0, fft.getSize(), ROW_GRAIN, reduceRows);
+        depositNanos += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        // Плотность занимает только первые resolution строк, а потенциал нужен только в первых resolution столбцах
+        fft.forward("gravity.pm.fft", re, im, resolution);
+        phases.forRange("gravity.pm.fft", 0, fft.getSize(), ROW_GRAIN, applyGreen);
+        fft.inverse("gravity.pm.fft", re, im, resolution);
+        fftNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        phases.forRange("gravity.pm.gradient", 0, resolution, ROW_GRAIN, gradientRows);
+        gradientNanos = System.nanoTime() - start;
+    }
+
+    // Интерполирует ускорения к телам теми же весами cloud-in-cell
+    public void interpolate(float[] x, float[] y, int count, float[] ax, float[] ay) {
+        if (count == 0) return;
+        long start = System.nanoTime();
+        inputX = x;
+        inputY = y;
+        outputX = ax;
+        outputY = ay;
+        phases.forRange("gravity.pm.interpolate", 0, count, BODY_GRAIN, interpolateBodies);
+        inputX = null;
+        inputY = null;
+        outputX = null;
+        outputY = null;
+        interpolateNanos += System.nanoTime() - start;
+    }
+
+    private void ensureGrids() {
+        int chunks = Math.max(1, Math.min(phases.getParallelism(), MAX_DEPOSIT_CHUNKS));
+        if (partialDensity.length != chunks) {
+            partialDensity = new float[chunks][resolution * resolution];
+            usedChunks = 0;
+        }
+        if (fft == null) {
+            int padded = resolution * 2;
+            fft = new Fft2D(phases, padded);
+            re = new float[padded * padded];
+            im = new float[padded * padded];
+            greenSpectrum = new float[padded * padded];
+            fieldX = new float[resolution * resolution];
+            fieldY = new float[resolution * resolution];
+        }
+    }
+
+    private int chunkStart(int chunk) {
+        return (int)((long)inputCount * chunk / depositChunks);
+    }
+
+    private void depositRange(float[] grid, int from, int to) {
+        float inverseCell = 1.0f / cellSize;
+        int last = resolution - 2;
+        for (int i = from; i < to; i++) {
+            float gx = inputX[i] * inverseCell;
+            float gy = inputY[i] * inverseCell;
+            int cx = Math.min(last, Math.max(0, (int)Math.floor(gx)));
+            int cy = Math.min(last, Math.max(0, (int)Math.floor(gy)));
+            float fx = Math.min(1, Math.max(0, gx - cx));
+            float fy = Math.min(1, Math.max(0, gy - cy));
+            float m = inputMass[i];
+
+            int node = cy * resolution + cx;
+            grid[node] += m * (1 - fx) * (1 - fy);
+            grid[node + 1] += m * fx * (1 - fy);
+            grid[node + resolution] += m * (1 - fx) * fy;
+            grid[node + resolution + 1] += m * fx * fy;
+        }
+    }
+
+    // Сводит частные сетки в левую верхнюю четверть дополненной сетки
+    private void reduceRows(int start, int end) {
+        int padded = resolution * 2;
+        for (int row = start; row < end; row++) {
+            int offset = row * padded;
+            Arrays.fill(im, offset, offset + padded, 0);
+            if (row >= resolution) {
+                Arrays.fill(re, offset, offset + padded, 0);
+                continue;
+            }
+            int source = row * resolution;
+            if (usedChunks == 0) {
+                Arrays.fill(re, offset, offset + padded, 0);
+                continue;
+            }
+            System.arraycopy(partialDensity[0], source, re, offset, resolution);
+            for (int chunk = 1; chunk < usedChunks; chunk++) {
+                float[] grid = partialDensity[chunk];
+                for (int c = 0; c < resolution; c++) {
+                    re[offset + c] += grid[source + c];
+                }
+            }
+            Arrays.fill(re, offset + resolution, offset + padded, 0);
+        }
+    }
+
+    // Спектр ядра -1 / sqrt(r^2 + eps^2) с отражёнными расстояниями; ядро чётное, поэтому спектр вещественный
+    private void buildGreenSpectrum(float softening) {
+        int padded = resolution * 2;
+        float softeningSq = softening * softening;
+        for (int row = 0; row < padded; row++) {
+            float dy = Math.min(row, padded - row) * cellSize;
+            for (int column = 0; column < padded; column++) {
+                float dx = Math.min(column, padded - column) * cellSize;
+                re[row * padded + column] = -1.0f / (float)Math.sqrt(dx * dx + dy * dy + softeningSq);
+                im[row * padded + column] = 0;
+            }
+        }
+        fft.forward("gravity.pm.fft", re, im, padded);
+        // Нормировка обратного БПФ заранее внесена в спектр ядра
+        float scale = 1.0f / ((float)padded * padded);
+        for (int i = 0; i < padded * padded; i++) {
+            greenSpectrum[i] = re[i] * scale;
+        }
+        greenSoftening = softening;
+        greenCellSize = cellSize;
+    }
+
+    private void applyGreen(int start, int end) {
+        int padded = resolution * 2;
+        for (int i = start * padded; i < end * padded; i++) {
+            re[i] *= greenSpectrum[i];
+            im[i] *= greenSpectrum[i];
+        }
+    }
+
+    // a = -grad(phi): центральные разности внутри, односторонние на краях сетки
+    private void gradientRows(int start, int end) {
+        int padded = resolution * 2;
+        float scale = -strength / cellSize;
+        int last = resolution - 1;
+        for (int row = start; row < end; row++) {
+            int offset = row * padded;
+            int up = Math.max(0, row - 1) * padded;
+            int down = Math.min(last, row + 1) * padded;
+            float rowSpan = row == 0 || row == last ? 1.0f : 0.5f;
+            for (int column = 0; column < resolution; column++) {
+                int left = Math.max(0, column - 1);
+                int right = Math.min(last, column + 1);
+                float columnSpan = column == 0 || column == last ? 1.0f : 0.5f;
+                int node = row * resolution + column;
+                fieldX[node] = (re[offset + right] - re[offset + left]) * columnSpan * scale;
+                fieldY[node] = (re[down + column] - re[up + column]) * rowSpan * scale;
+            }
+        }
+    }
+
+    private void interpolateRange(int from, int to) {
+        float inverseCell = 1.0f / cellSize;
+        int last = resolution - 2;
+        for (int i = from; i < to; i++) {
+            float gx = inputX[i] * inverseCell;
+            float gy = inputY[i] * inverseCell;
+            int cx = Math.min(last, Math.max(0, (int)Math.floor(gx)));
+            int cy = Math.min(last, Math.max(0, (int)Math.floor(gy)));
+            float fx = Math.min(1, Math.max(0, gx - cx));
+            float fy = Math.min(1, Math.max(0, gy - cy));
+
+            int node = cy * resolution + cx;
+            float w00 = (1 - fx) * (1 - fy);
+            float w10 = fx * (1 - fy);
+            float w01 = (1 - fx) * fy;
+            float w11 = fx * fy;
+            outputX[i] = fieldX[node] * w00 + fieldX[node + 1] * w10
+                       + fieldX[node + resolution] * w01 + fieldX[node + resolution + 1] * w11;
+            outputY[i] = fieldY[node] * w00 + fieldY[node + 1] * w10
+                       + fieldY[node + resolution] * w01 + fieldY[node + resolution + 1] * w11;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.physics.history;
+
+import java.util.Arrays;
+
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+
+// Снимок тел одного вида в виде целочисленных каналов (биты float или int как есть)
+final class BodyFrame {
+    // Каналы шаров: x, y, vx, vy, radius, argb, id
+    static final int BALL_CHANNELS = 7;
+    // Каналы частиц: x, y, vx, vy, size, lifetime, argb
+    static final int PARTICLE_CHANNELS = 7;
+
+    final int channels;
+    int count;
+    int[][] data;
+
+    BodyFrame(int channels) {
+        this.channels = channels;
+        this.data = new int[channels][16];
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= data[0].length) return;
+        int size = Math.max(capacity, data[0].length * 2);
+        for (int c = 0; c < channels; c++) {
+            data[c] = Arrays.copyOf(data[c], size);
+        }
+    }
+
+    void copyFrom(BodyFrame other) {
+        ensureCapacity(other.count);
+        for (int c = 0; c < channels; c++) {
+            System.arraycopy(other.data[c], 0, data[c], 0, other.count);
+        }
+        count = other.count;
+    }
+
+    void captureBalls(BallStore store) {
+        int total = store.size();
+        ensureCapacity(total);
+        float[] x = store.x();
+        float[] y = store.y();
+        float[] vx = store.vx();
+        float[] vy = store.vy();
+        float[] radius = store.radius();
+        for (int i = 0; i < total; i++) {
+            data[0][i] = Float.floatToRawIntBits(x[i]);
+            data[1][i] = Float.floatToRawIntBits(y[i]);
+            data[2][i] = Float.floatToRawIntBits(vx[i]);
+            data[3][i] = Float.floatToRawIntBits(vy[i]);
+            data[4][i] = Float.floatToRawIntBits(radius[i]);
+        }
+        System.arraycopy(store.argb(), 0, data[5], 0, total);
+        System.arraycopy(store.id(), 0, data[6], 0, total);
+        count = total;
+    }
+
+    void captureParticles(ParticlePool pool) {
+        int total = pool.size();
+        ensureCapacity(total);
+        float[] x = pool.x();
+        float[] y = pool.y();
+        float[] vx = pool.vx();
+        float[] vy = pool.vy();
+        float[] size = pool.particleSize();
+        for (int i = 0; i < total; i++) {
+            data[0][i] = Float.floatToRawIntBits(x[i]);
+            data[1][i] = Float.floatToRawIntBits(y[i]);
+            data[2][i] = Float.floatToRawIntBits(vx[i]);
+            data[3][i] = Float.floatToRawIntBits(vy[i]);
+            data[4][i] = Float.floatToRawIntBits(size[i]);
+        }
+        System.arraycopy(pool.lifetime(), 0, data[5], 0, total);
+        System.arraycopy(pool.argb(), 0, data[6], 0, total);
+        count = total;
+    }
+
+    // Шары возвращаются со своими идентификаторами, чтобы эффекты узнавали их после отката
+    void restoreBalls(BallStore store) {
+        store.clear();
+        store.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            store.add(Float.intBitsToFloat(data[0][i]), Float.intBitsToFloat(data[1][i]),
+                      Float.intBitsToFloat(data[2][i]), Float.intBitsToFloat(data[3][i]),
+                      Float.intBitsToFloat(data[4][i]), data[5][i], data[6][i]);
+        }
+    }
+
+    void restoreParticles(ParticlePool pool) {
+        pool.clear();
+        for (int i = 0; i < count; i++) {
+            pool.spawn(Float.intBitsToFloat(data[0][i]), Float.intBitsToFloat(data[1][i]),
+                       Float.intBitsToFloat(data[2][i]), Float.intBitsToFloat(data[3][i]),
+                       data[5][i], data[6][i], Float.intBitsToFloat(data[4][i]));
+        }
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
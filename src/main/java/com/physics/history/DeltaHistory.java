@@ -0,0 +1,306 @@
+package com.physics.history;
+
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+
+// История состояний в заранее выделенном кольцевом буфере байтов.
+// Кадр хранит разности каналов с предыдущим кадром (zigzag varint), каждый
+// KEYFRAME_INTERVAL-й кадр - ключевой, то есть разность с пустым миром.
+// Разность обратима: откат на кадр назад вычитает её из текущего снимка,
+// и только при переходе через ключевой кадр отрезок декодируется заново.
+// Старейшие отрезки вытесняются целиком, когда кончается бюджет памяти
+// или превышено число кадров; если задан объём файла, они уходят в HistorySpill
+// и возвращаются в кольцо по мере отката. Файл создаётся при первом вытеснении
+public class DeltaHistory {
+    private static final int KEYFRAME_INTERVAL = 64;
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int HEADER_BYTES = 4 * MAX_VARINT_BYTES;
+
+    private static final int BALL_CHANNELS = BodyFrame.BALL_CHANNELS;
+    private static final int PARTICLE_CHANNELS = BodyFrame.PARTICLE_CHANNELS;
+
+    private final byte[] ring;
+    private final int mask;
+    private long head; // Позиции в байтах растут монотонно, индекс в буфере - по маске
+    private long tail;
+
+    private final int maxFrames;
+    private final long[] frameOffset;
+    private final boolean[] frameKey;
+    private long firstFrame;
+    private long endFrame;
+    private int framesSinceKey;
+
+    // Последний записанный кадр и снимок текущего мира для кодирования
+    private final BodyFrame balls = new BodyFrame(BALL_CHANNELS);
+    private final BodyFrame particles = new BodyFrame(PARTICLE_CHANNELS);
+    private final BodyFrame currentBalls = new BodyFrame(BALL_CHANNELS);
+    private final BodyFrame currentParticles = new BodyFrame(PARTICLE_CHANNELS);
+
+    private long cursor;
+
+    private final long spillBytes;
+    private boolean spillEnabled = true;
+    private HistorySpill spill;
+
+    public DeltaHistory(long budgetBytes, int maxFrames) {
+        this(budgetBytes, maxFrames, 0);
+    }
+
+    // budgetBytes округляется вниз до степени двойки; spillBytes 0 - без файла
+    public DeltaHistory(long budgetBytes, int maxFrames, long spillBytes) {
+        int capacity = Integer.highestOneBit((int)Math.max(1024, Math.min(budgetBytes, 1 << 30)));
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+        this.maxFrames = Math.max(1, maxFrames);
+        this.frameOffset = new long[this.maxFrames];
+        this.frameKey = new boolean[this.maxFrames];
+        this.spillBytes = spillBytes;
+    }
+
+    public int getFrameCount() {
+        return (int)(endFrame - firstFrame);
+    }
+
+    public boolean isEmpty() {
+        return endFrame == firstFrame;
+    }
+
+    public long getUsedBytes() {
+        return head - tail;
+    }
+
+    public int getCapacityBytes() {
+        return ring.length;
+    }
+
+    // null, пока ничего не вытеснялось
+    public HistorySpill getSpill() {
+        return spill;
+    }
+
+    public boolean isSpillEnabled() {
+        return spillEnabled;
+    }
+
+    // Выключение закрывает файл; отрезки, лежавшие в нём, забываются
+    public void setSpillEnabled(boolean enabled) {
+        spillEnabled = enabled;
+        if (!enabled) {
+            close();
+        }
+    }
+
+    public void close() {
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    public void clear() {
+        if (spill != null) {
+            spill.clear();
+        }
+        head = 0;
+        tail = 0;
+        firstFrame = 0;
+        endFrame = 0;
+        balls.count = 0;
+        particles.count = 0;
+    }
+
+    // Дописывает текущее состояние мира в конец истории
+    public void record(BallStore ballStore, ParticlePool particlePool) {
+        currentBalls.captureBalls(ballStore);
+        currentParticles.captureParticles(particlePool);
+
+        long bound = HEADER_BYTES + 1
+            + (long)Math.max(balls.count, currentBalls.count) * BALL_CHANNELS * MAX_VARINT_BYTES
+            + (long)Math.max(particles.count, currentParticles.count) * PARTICLE_CHANNELS * MAX_VARINT_BYTES;
+        if (bound > ring.length) {
+            // Даже один кадр не помещается в бюджет: история недоступна
+            clear();
+            return;
+        }
+        while (!isEmpty() && (head + bound - tail > ring.length || getFrameCount() == maxFrames)) {
+            evictOldestSegment();
+        }
+
+        boolean key = isEmpty() || framesSinceKey >= KEYFRAME_INTERVAL;
+        if (key) {
+            balls.count = 0;
+            particles.count = 0;
+            framesSinceKey = 0;
+        }
+        framesSinceKey++;
+
+        int slot = (int)(endFrame % maxFrames);
+        frameOffset[slot] = head;
+        frameKey[slot] = key;
+        endFrame++;
+
+        cursor = head;
+        writeVarint(balls.count);
+        writeVarint(currentBalls.count);
+        writeVarint(particles.count);
+        writeVarint(currentParticles.count);
+        writeDelta(currentBalls, balls);
+        writeDelta(currentParticles, particles);
+        head = cursor;
+
+        balls.copyFrom(currentBalls);
+        particles.copyFrom(currentParticles);
+    }
+
+    // Восстанавливает последний кадр и убирает его из истории; false, если история пуста
+    public boolean rewind(BallStore ballStore, ParticlePool particlePool) {
+        if (isEmpty()) return false;
+
+        balls.restoreBalls(ballStore);
+        particles.restoreParticles(particlePool);
+
+        long frame = endFrame - 1;
+        int slot = (int)(frame % maxFrames);
+        endFrame--;
+        head = frameOffset[slot];
+
+        if (frameKey[slot]) {
+            // Ключевой кадр не хранит предыдущего состояния: декодируем прошлый отрезок с начала
+            rebuildLatest();
+        } else {
+            cursor = frameOffset[slot];
+            int previousBalls = readVarint();
+            int ballCount = readVarint();
+            int previousParticles = readVarint();
+            int particleCount = readVarint();
+            readDelta(balls, ballCount, previousBalls, false);
+            readDelta(particles, particleCount, previousParticles, false);
+            framesSinceKey--;
+        }
+
+        // Освободившееся место занимает следующий отрезок из файла, не больше одного за шаг
+        boolean drained = isEmpty();
+        if (pageIn() && drained) {
+            rebuildLatest();
+        }
+        return true;
+    }
+
+    private void evictOldestSegment() {
+        long start = firstFrame;
+        long segmentTail = tail;
+        do {
+            firstFrame++;
+        } while (firstFrame < endFrame && !frameKey[(int)(firstFrame % maxFrames)]);
+        tail = firstFrame < endFrame ? frameOffset[(int)(firstFrame % maxFrames)] : head;
+
+        if (spill == null && spillEnabled && spillBytes > 0) {
+            spill = HistorySpill.create(spillBytes);
+            if (spill == null) {
+                // Диск недоступен: дальше история живёт только в памяти
+                spillEnabled = false;
+            }
+        }
+        if (spill != null) {
+            int[] frameStarts = new int[(int)(firstFrame - start)];
+            for (int i = 0; i < frameStarts.length; i++) {
+                frameStarts[i] = (int)(frameOffset[(int)((start + i) % maxFrames)] - segmentTail);
+            }
+            spill.push(ring, mask, segmentTail, (int)(tail - segmentTail), frameStarts);
+        }
+    }
+
+    // Возвращает верхний отрезок файла перед началом кольца, если хватает места
+    private boolean pageIn() {
+        if (spill == null || spill.isEmpty()) return false;
+        int length = spill.peekLength();
+        int[] frameStarts = spill.peekFrameStarts();
+        if (head - tail + length > ring.length || getFrameCount() + frameStarts.length > maxFrames) {
+            return false;
+        }
+
+        long start = tail - length;
+        spill.pop(ring, mask, start);
+        tail = start;
+        for (int i = frameStarts.length - 1; i >= 0; i--) {
+            firstFrame--;
+            int slot = (int)(firstFrame % maxFrames);
+            frameOffset[slot] = start + frameStarts[i];
+            frameKey[slot] = i == 0;
+        }
+        return true;
+    }
+
+    private void rebuildLatest() {
+        balls.count = 0;
+        particles.count = 0;
+        framesSinceKey = 0;
+        if (isEmpty()) return;
+
+        long key = endFrame - 1;
+        while (!frameKey[(int)(key % maxFrames)]) {
+            key--;
+        }
+        for (long frame = key; frame < endFrame; frame++) {
+            cursor = frameOffset[(int)(frame % maxFrames)];
+            int previousBalls = readVarint();
+            int ballCount = readVarint();
+            int previousParticles = readVarint();
+            int particleCount = readVarint();
+            readDelta(balls, previousBalls, ballCount, true);
+            readDelta(particles, previousParticles, particleCount, true);
+            framesSinceKey++;
+        }
+    }
+
+    private void writeDelta(BodyFrame current, BodyFrame previous) {
+        int span = Math.max(current.count, previous.count);
+        int[][] now = current.data;
+        int[][] before = previous.data;
+        for (int i = 0; i < span; i++) {
+            for (int c = 0; c < current.channels; c++) {
+                int a = i < current.count ? now[c][i] : 0;
+                int b = i < previous.count ? before[c][i] : 0;
+                writeVarint(BodyFrame.zigzag(a - b));
+            }
+        }
+    }
+
+    // Переводит снимок из состояния со счётчиком from в состояние с to; forward - направление записи
+    private void readDelta(BodyFrame frame, int from, int to, boolean forward) {
+        int span = Math.max(from, to);
+        frame.ensureCapacity(span);
+        int[][] data = frame.data;
+        for (int i = 0; i < span; i++) {
+            for (int c = 0; c < frame.channels; c++) {
+                int delta = BodyFrame.unzigzag(readVarint());
+                int base = i < from ? data[c][i] : 0;
+                if (i < to) {
+                    data[c][i] = forward ? base + delta : base - delta;
+                }
+            }
+        }
+        frame.count = to;
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            ring[(int)(cursor++ & mask)] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        ring[(int)(cursor++ & mask)] = (byte)value;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = ring[(int)(cursor++ & mask)];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,254 @@
+package com.physics.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Старые отрезки истории, вытесненные из кольца в памяти, в файле, отображённом
+// в память. Файл используется как стек: вытесненный отрезок дописывается сверху,
+// откат забирает верхний обратно. Страницы держит кэш ОС, куча не растёт.
+// Файл тоже кольцевой: при нехватке места забываются самые старые отрезки.
+// Владелец обязан вызвать close(): иначе отображение держит файл до выхода,
+// а на Windows deleteOnExit не может удалить отображённый файл
+public class HistorySpill {
+    private static final int CHUNK_BITS = 26; // Отображение кусками по 64 МБ
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int PAGE_SIZE = 4096;
+
+    private static final class Segment {
+        final long position;
+        final int length;
+        final int[] frameStarts;
+
+        Segment(long position, int length, int[] frameStarts) {
+            this.position = position;
+            this.length = length;
+            this.frameStarts = frameStarts;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long capacity;
+
+    // Позиции растут монотонно, смещение в файле - остаток от деления на ёмкость
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long head;
+    private long tail;
+
+    // Подкачка страниц следующего отрезка идёт в фоне, чтобы откат не ждал диска
+    private volatile int prefetchSink;
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private HistorySpill(File file, RandomAccessFile access, long capacity) {
+        this.file = file;
+        this.channel = access.getChannel();
+        this.capacity = capacity;
+        this.chunks = new MappedByteBuffer[(int)(capacity >> CHUNK_BITS)];
+    }
+
+    // Создаёт временный файл заданного размера; null, если диск недоступен
+    public static HistorySpill create(long capacityBytes) {
+        long capacity = Math.max(1, (capacityBytes + CHUNK_SIZE - 1) >> CHUNK_BITS) << CHUNK_BITS;
+        try {
+            File file = File.createTempFile("physics-history", ".bin");
+            file.deleteOnExit();
+            RandomAccessFile access = new RandomAccessFile(file, "rw");
+            access.setLength(capacity);
+            return new HistorySpill(file, access, capacity);
+        } catch (IOException e) {
+            System.err.println("История отката останется в памяти: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getUsedBytes() {
+        return head - tail;
+    }
+
+    public long getCapacityBytes() {
+        return capacity;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void clear() {
+        segments.clear();
+        head = 0;
+        tail = 0;
+    }
+
+    // Останавливает подкачку, снимает отображения и удаляет файл
+    public void close() {
+        prefetcher.shutdownNow();
+        try {
+            prefetcher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        clear();
+        synchronized (this) {
+            for (int i = 0; i < chunks.length; i++) {
+                if (chunks[i] != null) {
+                    unmap(chunks[i]);
+                    chunks[i] = null;
+                }
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Не удалось закрыть файл истории: " + e.getMessage());
+        }
+        if (!file.delete()) {
+            System.err.println("Файл истории не удалён: " + file);
+        }
+    }
+
+    // Отображение иначе живёт до сборки мусора. Java 9+ освобождает его через
+    // Unsafe.invokeCleaner, Java 8 - через cleaner() самого буфера
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Освободит сборщик мусора; файл тогда удалится не сразу
+        }
+    }
+
+    // Кладёт отрезок из кольца source (позиции по маске) на вершину стека
+    void push(byte[] source, int mask, long from, int length, int[] frameStarts) {
+        if (length > capacity) return;
+        while (!segments.isEmpty() && head + length - tail > capacity) {
+            segments.removeFirst();
+            tail = segments.isEmpty() ? head : segments.peekFirst().position;
+        }
+        if (segments.isEmpty()) {
+            head = 0;
+            tail = 0;
+        }
+
+        long position = head;
+        int done = 0;
+        while (done < length) {
+            int sourceIndex = (int)((from + done) & mask);
+            int run = Math.min(length - done, source.length - sourceIndex);
+            run = write(position + done, source, sourceIndex, run);
+            done += run;
+        }
+        segments.addLast(new Segment(position, length, frameStarts));
+        head = position + length;
+    }
+
+    int peekLength() {
+        return segments.peekLast().length;
+    }
+
+    int[] peekFrameStarts() {
+        return segments.peekLast().frameStarts;
+    }
+
+    // Снимает верхний отрезок в кольцо target начиная с позиции to
+    void pop(byte[] target, int mask, long to) {
+        Segment segment = segments.removeLast();
+        int done = 0;
+        while (done < segment.length) {
+            int targetIndex = (int)((to + done) & mask);
+            int run = Math.min(segment.length - done, target.length - targetIndex);
+            run = read(segment.position + done, target, targetIndex, run);
+            done += run;
+        }
+        head = segment.position;
+        if (segments.isEmpty()) {
+            tail = head;
+        }
+        prefetchTop();
+    }
+
+    // Касается каждой страницы верхнего отрезка в фоновом потоке
+    void prefetchTop() {
+        Segment segment = segments.peekLast();
+        if (segment == null) return;
+        prefetcher.execute(() -> {
+            int sum = 0;
+            for (long offset = 0; offset < segment.length; offset += PAGE_SIZE) {
+                long position = (segment.position + offset) % capacity;
+                sum += chunk(position).get((int)(position & (CHUNK_SIZE - 1)));
+            }
+            prefetchSink = sum;
+        });
+    }
+
+    // Копирует не дальше конца куска отображения; возвращает число байт
+    private int write(long position, byte[] source, int index, int length) {
+        long offset = position % capacity;
+        MappedByteBuffer buffer = chunk(offset);
+        int inChunk = (int)(offset & (CHUNK_SIZE - 1));
+        int run = Math.min(length, CHUNK_SIZE - inChunk);
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer)view).position(inChunk); // Приведение сохраняет совместимость байткода с Java 8
+        view.put(source, index, run);
+        return run;
+    }
+
+    private int read(long position, byte[] target, int index, int length) {
+        long offset = position % capacity;
+        MappedByteBuffer buffer = chunk(offset);
+        int inChunk = (int)(offset & (CHUNK_SIZE - 1));
+        int run = Math.min(length, CHUNK_SIZE - inChunk);
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer)view).position(inChunk);
+        view.get(target, index, run);
+        return run;
+    }
+
+    // Куски отображаются лениво, чтобы неиспользованная часть файла не занимала адреса
+    private synchronized MappedByteBuffer chunk(long offset) {
+        int index = (int)(offset >> CHUNK_BITS);
+        MappedByteBuffer buffer = chunks[index];
+        if (buffer == null) {
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, (long)index << CHUNK_BITS, CHUNK_SIZE);
+            } catch (IOException e) {
+                throw new IllegalStateException("Не удалось отобразить файл истории", e);
+            }
+            chunks[index] = buffer;
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,17 @@
+package com.physics.history;
+
+// Способ отката времени: хранить каждый шаг или пересчитывать от ключевых кадров
+public enum RewindMode {
+    SNAPSHOTS("Снимки"),
+    REPLAY("Повтор ввода");
+
+    private final String title;
+
+    RewindMode(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,264 @@
+package com.physics.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+
+// Чтение записи SessionRecorder: последовательно или с переходом к любому кадру
+// или шагу движка через индекс ключевых кадров в конце файла. Шаги внутри отрезка
+// между ключевыми кадрами идут подряд, так что отрезок с нужным шагом находится
+// двоичным поиском. Если шаги записи шли назад (откат повтором, загрузка снимка),
+// отрезки ищутся просмотром индекса с конца - побеждает последний прожитый шаг
+public class SessionReader implements Closeable {
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final long[] keyframeOffsets;
+    private final int[] keyframeFrames;
+    private final long[] keyframeTicks;
+    private final int frameCount;
+    private final boolean ticksAscending;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+    private long bufferStart = 0;
+    private int nextFrame = -1;
+
+    private final BodyFrame balls = new BodyFrame(BodyFrame.BALL_CHANNELS);
+    private final BodyFrame particles = new BodyFrame(BodyFrame.PARTICLE_CHANNELS);
+    private final StateBuffer skippedGlobals = new StateBuffer();
+
+    private SessionReader(FileChannel channel, long[] keyframeOffsets, int[] keyframeFrames,
+                          long[] keyframeTicks, int frameCount) {
+        this.channel = channel;
+        this.keyframeOffsets = keyframeOffsets;
+        this.keyframeFrames = keyframeFrames;
+        this.keyframeTicks = keyframeTicks;
+        this.frameCount = frameCount;
+
+        boolean ascending = true;
+        for (int i = 1; i < keyframeTicks.length && ascending; i++) {
+            ascending = keyframeTicks[i - 1] + (keyframeFrames[i] - keyframeFrames[i - 1]) <= keyframeTicks[i];
+        }
+        this.ticksAscending = ascending;
+    }
+
+    public static SessionReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = readFully(channel, 0, SessionRecorder.HEADER_BYTES);
+            if (size < SessionRecorder.HEADER_BYTES + SessionRecorder.FOOTER_BYTES
+                || header.getInt() != SessionRecorder.MAGIC) {
+                throw new IOException("Файл не является записью сессии: " + path);
+            }
+            int version = header.getInt();
+            if (version != SessionRecorder.VERSION || header.getInt() != SessionRecorder.KEYFRAME_INTERVAL) {
+                throw new IOException("Неподдерживаемая версия записи: " + version);
+            }
+
+            ByteBuffer footer = readFully(channel, size - SessionRecorder.FOOTER_BYTES, SessionRecorder.FOOTER_BYTES);
+            long indexOffset = footer.getLong();
+            int frames = footer.getInt();
+            if (footer.getInt() != SessionRecorder.FOOTER_MAGIC) {
+                throw new IOException("Запись не завершена, индекс отсутствует: " + path);
+            }
+
+            long indexBytes = size - SessionRecorder.FOOTER_BYTES - indexOffset;
+            if (indexOffset < SessionRecorder.HEADER_BYTES || indexBytes < 0
+                || indexBytes % SessionRecorder.INDEX_ENTRY_BYTES != 0 || (frames > 0) != (indexBytes > 0)) {
+                throw new IOException("Индекс записи повреждён: " + path);
+            }
+            int keyframes = (int)(indexBytes / SessionRecorder.INDEX_ENTRY_BYTES);
+            ByteBuffer index = readFully(channel, indexOffset, (int)indexBytes);
+            long[] offsets = new long[keyframes];
+            int[] keyFrames = new int[keyframes];
+            long[] keyTicks = new long[keyframes];
+            for (int i = 0; i < keyframes; i++) {
+                offsets[i] = index.getLong();
+                keyFrames[i] = index.getInt();
+                keyTicks[i] = index.getLong();
+            }
+            return new SessionReader(channel, offsets, keyFrames, keyTicks, frames);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    // Номер кадра, записанного на шаге tick, или -1, если такого кадра нет
+    // (шаг вне записи или кадр пропущен при отставании писателя)
+    public int findFrame(long tick) {
+        if (ticksAscending) {
+            int low = 0;
+            int high = keyframeTicks.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (keyframeTicks[middle] <= tick) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high < 0 ? -1 : frameInRun(high, tick);
+        }
+        for (int key = keyframeTicks.length - 1; key >= 0; key--) {
+            int frame = frameInRun(key, tick);
+            if (frame >= 0) return frame;
+        }
+        return -1;
+    }
+
+    // Восстанавливает кадр шага tick, как readFrame; возвращает номер кадра или -1,
+    // и тогда хранилища не меняются
+    public int seekTick(long tick, BallStore ballStore, ParticlePool particlePool, StateBuffer globals)
+            throws IOException {
+        int frame = findFrame(tick);
+        if (frame >= 0) {
+            readFrame(frame, ballStore, particlePool, globals);
+        }
+        return frame;
+    }
+
+    private int frameInRun(int key, long tick) {
+        int runEnd = key + 1 < keyframeFrames.length ? keyframeFrames[key + 1] : frameCount;
+        long offset = tick - keyframeTicks[key];
+        return offset >= 0 && offset < runEnd - keyframeFrames[key] ? keyframeFrames[key] + (int)offset : -1;
+    }
+
+    // Последний ключевой кадр не позже frame
+    private int keyframeFor(int frame) {
+        int index = Arrays.binarySearch(keyframeFrames, frame);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // Восстанавливает кадр frame в хранилища; globals (может быть null) получает
+    // состояние мира, готовое к чтению. Возвращает номер шага движка
+    public long readFrame(int frame, BallStore ballStore, ParticlePool particlePool, StateBuffer globals)
+            throws IOException {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("Кадр " + frame + " из " + frameCount);
+        }
+        if (frame != nextFrame) {
+            // Последовательное чтение продолжается с места, иначе - от ключевого кадра
+            int key = keyframeFor(frame);
+            seek(keyframeOffsets[key]);
+            nextFrame = keyframeFrames[key];
+        }
+
+        long tick = 0;
+        while (nextFrame <= frame) {
+            tick = decodeFrame(nextFrame == frame && globals != null ? globals : skippedGlobals);
+            nextFrame++;
+        }
+        balls.restoreBalls(ballStore);
+        particles.restoreParticles(particlePool);
+        return tick;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long decodeFrame(StateBuffer globals) throws IOException {
+        boolean key = readByte() != 0;
+        long tick = 0;
+        for (int i = 0; i < 8; i++) {
+            tick = (tick << 8) | (readByte() & 0xFF);
+        }
+        int globalsLength = readVarint();
+        fill(globalsLength);
+        globals.copyFrom(buffer, globalsLength);
+
+        if (key) {
+            balls.count = 0;
+            particles.count = 0;
+        }
+        int previousBalls = readVarint();
+        int ballCount = readVarint();
+        int previousParticles = readVarint();
+        int particleCount = readVarint();
+        readDelta(balls, previousBalls, ballCount);
+        readDelta(particles, previousParticles, particleCount);
+        return tick;
+    }
+
+    private void readDelta(BodyFrame frame, int from, int to) throws IOException {
+        int span = Math.max(from, to);
+        frame.ensureCapacity(span);
+        int[][] data = frame.data;
+        for (int i = 0; i < span; i++) {
+            for (int c = 0; c < frame.channels; c++) {
+                int delta = BodyFrame.unzigzag(readVarint());
+                int base = i < from ? data[c][i] : 0;
+                if (i < to) {
+                    data[c][i] = base + delta;
+                }
+            }
+        }
+        frame.count = to;
+    }
+
+    private void seek(long position) {
+        bufferStart = position;
+        ((Buffer)buffer).clear();
+        ((Buffer)buffer).limit(0);
+    }
+
+    // Гарантирует bytes непрочитанных байт в буфере, подчитывая файл
+    private void fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        if (bytes > buffer.capacity()) {
+            throw new IOException("Кадр больше буфера чтения: " + bytes);
+        }
+        bufferStart += buffer.position();
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            int read = channel.read(buffer, bufferStart + buffer.position());
+            if (read < 0) {
+                throw new IOException("Неожиданный конец записи");
+            }
+        }
+        ((Buffer)buffer).flip();
+    }
+
+    private byte readByte() throws IOException {
+        fill(1);
+        return buffer.get();
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.allocate(length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IOException("Неожиданный конец записи");
+            }
+        }
+        ((Buffer)target).flip();
+        return target;
+    }
+}
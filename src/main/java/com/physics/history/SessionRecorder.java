@@ -0,0 +1,273 @@
+package com.physics.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.physics.model.BallStore;
+import com.physics.model.ParticlePool;
+
+// Запись сессии на диск. Шаг кодирует кадр (состояние мира и разности тел
+// с прошлым кадром) в блок памяти и отдаёт заполненные блоки фоновому писателю
+// через неблокирующую очередь, так что на ввод-вывод шаг не ждёт никогда.
+// Если писатель отстал больше чем на MAX_PENDING_BYTES, кадр пропускается,
+// а следующий пишется ключевым. Ключевым пишется и любой кадр, чей шаг не следует
+// за шагом прошлого кадра (пропуск, откат повтором, загрузка снимка), поэтому
+// между соседними ключевыми кадрами шаги идут подряд.
+//
+// Формат: int MAGIC, int VERSION, int KEYFRAME_INTERVAL, затем кадры:
+//   byte ключевой, long шаг движка, varint длина + байты состояния мира,
+//   varint прежнее/новое число шаров и частиц, разности каналов (zigzag varint);
+// в конце - индекс ключевых кадров (long смещение, int номер кадра, long шаг)
+// и подвал: long смещение индекса, int число кадров, int FOOTER_MAGIC.
+// Переход к кадру или шагу - двоичный поиск по индексу и не больше
+// KEYFRAME_INTERVAL кадров декодирования
+public class SessionRecorder {
+    static final int MAGIC = 0x50534553; // "PSES"
+    static final int FOOTER_MAGIC = 0x50534958; // "PSIX"
+    static final int VERSION = 2;
+    static final int KEYFRAME_INTERVAL = 120;
+    static final int HEADER_BYTES = 12;
+    static final int FOOTER_BYTES = 16;
+    static final int INDEX_ENTRY_BYTES = 20;
+
+    private static final int BLOCK_BYTES = 1 << 20;
+    private static final long MAX_PENDING_BYTES = 64L << 20;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private static final class Block {
+        byte[] data = new byte[BLOCK_BYTES];
+        int length;
+    }
+
+    private final FileChannel channel;
+    private final Thread writer;
+    private final ConcurrentLinkedQueue<Block> filled = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Block> free = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private volatile boolean closing = false;
+    private volatile IOException failure;
+
+    // Всё ниже принадлежит потоку симуляции
+    private Block block = new Block();
+    private long streamPosition = 0;
+    private int frameCount = 0;
+    private long droppedFrames = 0;
+    private boolean forceKey = true;
+    private int framesSinceKey = 0;
+    private long lastTick = 0;
+    private int keyframeCount = 0;
+    private long[] keyframeOffsets = new long[64];
+    private int[] keyframeFrames = new int[64];
+    private long[] keyframeTicks = new long[64];
+
+    private final BodyFrame balls = new BodyFrame(BodyFrame.BALL_CHANNELS);
+    private final BodyFrame particles = new BodyFrame(BodyFrame.PARTICLE_CHANNELS);
+    private final BodyFrame currentBalls = new BodyFrame(BodyFrame.BALL_CHANNELS);
+    private final BodyFrame currentParticles = new BodyFrame(BodyFrame.PARTICLE_CHANNELS);
+
+    private SessionRecorder(FileChannel channel) {
+        this.channel = channel;
+        this.writer = new Thread(this::drain, "session-writer");
+        this.writer.setDaemon(true);
+        putInt(MAGIC);
+        putInt(VERSION);
+        putInt(KEYFRAME_INTERVAL);
+        writer.start();
+    }
+
+    public static SessionRecorder start(Path path) throws IOException {
+        return new SessionRecorder(FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    public int getFrameCount() { return frameCount; }
+    public long getDroppedFrames() { return droppedFrames; }
+    public long getBytesWritten() { return streamPosition - pendingBytes.get(); }
+    public IOException getFailure() { return failure; }
+
+    // Кодирует кадр на границе шага; globals - уже записанное состояние мира
+    public void capture(long tick, StateBuffer globals, BallStore ballStore, ParticlePool particlePool) {
+        if (closing) return;
+        if (pendingBytes.get() + block.length > MAX_PENDING_BYTES || failure != null) {
+            droppedFrames++;
+            forceKey = true;
+            return;
+        }
+
+        currentBalls.captureBalls(ballStore);
+        currentParticles.captureParticles(particlePool);
+
+        boolean key = forceKey || framesSinceKey >= KEYFRAME_INTERVAL || tick != lastTick + 1;
+        if (key) {
+            balls.count = 0;
+            particles.count = 0;
+            forceKey = false;
+            framesSinceKey = 0;
+            if (keyframeCount == keyframeOffsets.length) {
+                keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+                keyframeFrames = Arrays.copyOf(keyframeFrames, keyframeCount * 2);
+                keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+            }
+            keyframeOffsets[keyframeCount] = streamPosition + block.length;
+            keyframeFrames[keyframeCount] = frameCount;
+            keyframeTicks[keyframeCount] = tick;
+            keyframeCount++;
+        }
+        framesSinceKey++;
+        lastTick = tick;
+
+        // Кадр может лечь в несколько блоков: место проверяется для заголовка,
+        // а потом для каждого тела, и полный блок уходит писателю посреди кадра
+        ensureRoom(1 + 8 + MAX_VARINT_BYTES + globals.size() + 4 * MAX_VARINT_BYTES);
+
+        block.data[block.length++] = (byte)(key ? 1 : 0);
+        putLong(tick);
+        writeVarint(globals.size());
+        ByteBuffer target = ByteBuffer.wrap(block.data, block.length, globals.size());
+        globals.copyTo(target);
+        block.length += globals.size();
+        writeVarint(balls.count);
+        writeVarint(currentBalls.count);
+        writeVarint(particles.count);
+        writeVarint(currentParticles.count);
+        writeDelta(currentBalls, balls);
+        writeDelta(currentParticles, particles);
+
+        balls.copyFrom(currentBalls);
+        particles.copyFrom(currentParticles);
+        frameCount++;
+
+        if (block.length >= BLOCK_BYTES) {
+            handOff();
+        }
+    }
+
+    // Дописывает индекс и подвал; файл закрывает писатель, когда очередь опустеет
+    public void stop() {
+        if (closing) return;
+        long indexOffset = streamPosition + block.length;
+        ensureRoom(keyframeCount * INDEX_ENTRY_BYTES + FOOTER_BYTES);
+        for (int i = 0; i < keyframeCount; i++) {
+            putLong(keyframeOffsets[i]);
+            putInt(keyframeFrames[i]);
+            putLong(keyframeTicks[i]);
+        }
+        putLong(indexOffset);
+        putInt(frameCount);
+        putInt(FOOTER_MAGIC);
+        handOff();
+        closing = true;
+        LockSupport.unpark(writer);
+    }
+
+    // Ждёт, пока писатель сбросит всё на диск (для выхода из программы)
+    public void awaitTermination() {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOff() {
+        if (block.length == 0) return;
+        streamPosition += block.length;
+        pendingBytes.addAndGet(block.length);
+        filled.offer(block);
+        LockSupport.unpark(writer);
+
+        Block next = free.poll();
+        if (next == null) {
+            next = new Block();
+        }
+        next.length = 0;
+        block = next;
+    }
+
+    private void ensureRoom(int bytes) {
+        if (block.length + bytes <= block.data.length) return;
+        if (block.length > 0) {
+            handOff();
+        }
+        if (bytes > block.data.length) {
+            block.data = new byte[bytes];
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Block next = filled.poll();
+            if (next == null) {
+                if (closing && filled.isEmpty()) break;
+                LockSupport.park(this);
+                continue;
+            }
+            if (failure == null) {
+                try {
+                    ByteBuffer source = ByteBuffer.wrap(next.data, 0, next.length);
+                    while (source.hasRemaining()) {
+                        channel.write(source);
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                    System.err.println("Запись сессии прервана: " + e.getMessage());
+                }
+            }
+            pendingBytes.addAndGet(-next.length);
+            // Блоки, разросшиеся под крупное состояние мира, не возвращаются в оборот
+            if (next.data.length == BLOCK_BYTES) {
+                free.offer(next);
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Не удалось закрыть файл сессии: " + e.getMessage());
+        }
+    }
+
+    private void writeDelta(BodyFrame current, BodyFrame previous) {
+        int span = Math.max(current.count, previous.count);
+        int[][] now = current.data;
+        int[][] before = previous.data;
+        int bodyBytes = current.channels * MAX_VARINT_BYTES;
+        for (int i = 0; i < span; i++) {
+            ensureRoom(bodyBytes);
+            for (int c = 0; c < current.channels; c++) {
+                int a = i < current.count ? now[c][i] : 0;
+                int b = i < previous.count ? before[c][i] : 0;
+                writeVarint(BodyFrame.zigzag(a - b));
+            }
+        }
+    }
+
+    private void writeVarint(int value) {
+        byte[] data = block.data;
+        int position = block.length;
+        while ((value & ~0x7F) != 0) {
+            data[position++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte)value;
+        block.length = position;
+    }
+
+    private void putInt(int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            block.data[block.length++] = (byte)(value >>> shift);
+        }
+    }
+
+    private void putLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            block.data[block.length++] = (byte)(value >>> shift);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.physics.history;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// Растущий буфер для сохранения состояния мира и эффектов.
+// Запись дописывает в конец, чтение идёт с начала после startReading
+public class StateBuffer {
+    private ByteBuffer buffer;
+    private boolean reading = false;
+
+    public StateBuffer() {
+        this(256);
+    }
+
+    public StateBuffer(int capacity) {
+        buffer = ByteBuffer.allocate(Math.max(16, capacity));
+    }
+
+    public void clear() {
+        ((Buffer)buffer).clear();
+        reading = false;
+    }
+
+    // Переключает буфер с записи на чтение с начала; повторный вызов перечитывает заново
+    public void startReading() {
+        if (reading) {
+            ((Buffer)buffer).rewind();
+        } else {
+            ((Buffer)buffer).flip();
+            reading = true;
+        }
+    }
+
+    // Число записанных байт
+    public int size() {
+        return reading ? buffer.limit() : buffer.position();
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    public void ensureRemaining(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        ((Buffer)buffer).flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    // Копирует записанные байты в target, не сдвигая собственную позицию
+    public void copyTo(ByteBuffer target) {
+        ByteBuffer view = buffer.duplicate();
+        if (reading) {
+            ((Buffer)view).rewind();
+        } else {
+            ((Buffer)view).flip();
+        }
+        target.put(view);
+    }
+
+    // Заменяет содержимое length байтами из source и готовит буфер к чтению
+    public void copyFrom(ByteBuffer source, int length) {
+        clear();
+        ensureRemaining(length);
+        ByteBuffer view = source.duplicate();
+        ((Buffer)view).limit(view.position() + length);
+        buffer.put(view);
+        ((Buffer)source).position(source.position() + length);
+        startReading();
+    }
+
+    public StateBuffer putBoolean(boolean value) { ensureRemaining(1); buffer.put((byte)(value ? 1 : 0)); return this; }
+    public StateBuffer putInt(int value) { ensureRemaining(4); buffer.putInt(value); return this; }
+    public StateBuffer putLong(long value) { ensureRemaining(8); buffer.putLong(value); return this; }
+    public StateBuffer putFloat(float value) { ensureRemaining(4); buffer.putFloat(value); return this; }
+    public StateBuffer putDouble(double value) { ensureRemaining(8); buffer.putDouble(value); return this; }
+
+    public boolean getBoolean() { return buffer.get() != 0; }
+    public int getInt() { return buffer.getInt(); }
+    public long getLong() { return buffer.getLong(); }
+    public float getFloat() { return buffer.getFloat(); }
+    public double getDouble() { return buffer.getDouble(); }
+}
@@ -0,0 +1,9 @@
+package com.physics.history;
+
+// Эффект, чьё состояние влияет на физику и сохраняется вместе с миром.
+// Чисто визуальные частицы эффектов не сохраняются
+public interface StatefulEffect {
+    void writeState(StateBuffer out);
+
+    void readState(StateBuffer in);
+}
@@ -1,97 +1,46 @@
 package com.physics.model;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
-import java.util.ArrayList;
 
+// Лёгкое представление шара поверх BallStore; сами данные лежат в массивах хранилища
 public class Ball {
-    private float x, y;
-    private float velocityX, velocityY;
-    private float radius;
-    private Color color;
-    private double width;
-    private double height;
+    private final BallStore store;
+    private int index;
 
-    public Ball(float x, float y, float radius) {
-        this.x = x;
-        this.y = y;
-        this.radius = radius;
-        this.velocityX = 0;
-        this.velocityY = 0;
-        this.color = new Color(200, 100, 100);
-        this.width = radius * 2;
-        this.height = radius * 2;
+    Ball(BallStore store, int index) {
+        this.store = store;
+        this.index = index;
     }
 
-    public float getX() { return x; }
-    public float getY() { return y; }
-    public float getVelocityX() { return velocityX; }
-    public float getVelocityY() { return velocityY; }
-    public float getRadius() { return radius; }
-    public Color getColor() { return color; }
-    public double getWidth() { return width; }
-    public double getHeight() { return height; }
-
-    public void setX(float x) { this.x = x; }
-    public void setY(float y) { this.y = y; }
-    public void setVelocityX(float vx) { this.velocityX = vx; }
-    public void setVelocityY(float vy) { this.velocityY = vy; }
-    public void setColor(Color color) { this.color = color; }
-    public void setPosition(float x, float y) {
-        this.x = x;
-        this.y = y;
-    }
-
-    public void addForce(float fx, float fy) {
-        velocityX += fx;
-        velocityY += fy;
-    }
-
-    public boolean update(int width, int height, double energyField, double gravity) {
-        velocityY += gravity;
-        x += velocityX;
-        y += velocityY;
-
-        if (x - radius < 0) {
-            x = radius;
-            velocityX = -velocityX * (float)energyField;
-        } else if (x + radius > width) {
-            x = width - radius;
-            velocityX = -velocityX * (float)energyField;
-        }
-
-        if (y - radius < 0) {
-            y = radius;
-            velocityY = -velocityY * (float)energyField;
-        } else if (y + radius > height) {
-            y = height - radius;
-            velocityY = -velocityY * (float)energyField;
-            return Math.abs(velocityY) > 15.0;
-        }
-        
-        return false;
+    // Переводит представление на другой шар без создания нового объекта
+    public Ball at(int index) {
+        this.index = index;
+        return this;
     }
 
-    public void draw(Graphics2D g2d) {
-        g2d.setColor(color);
-        int drawX = (int)(x - radius);
-        int drawY = (int)(y - radius);
-        int size = (int)(radius * 2);
-        g2d.fillOval(drawX, drawY, size, size);
-    }
+    public int getIndex() { return index; }
+    public int getId() { return store.id()[index]; }
+
+    public float getX() { return store.x()[index]; }
+    public float getY() { return store.y()[index]; }
+    public float getPrevX() { return store.prevX()[index]; }
+    public float getPrevY() { return store.prevY()[index]; }
+    public float getVelocityX() { return store.vx()[index]; }
+    public float getVelocityY() { return store.vy()[index]; }
+    public float getRadius() { return store.radius()[index]; }
+    public int getArgb() { return store.argb()[index]; }
+    public Color getColor() { return new Color(store.argb()[index], true); }
+
+    public void setX(float x) { store.x()[index] = x; }
+    public void setY(float y) { store.y()[index] = y; }
+    public void setVelocityX(float vx) { store.vx()[index] = vx; }
+    public void setVelocityY(float vy) { store.vy()[index] = vy; }
+    public void setRadius(float radius) { store.radius()[index] = radius; }
+    public void setArgb(int argb) { store.argb()[index] = argb; }
+    public void setColor(Color color) { store.argb()[index] = color.getRGB(); }
+    public void setPosition(float x, float y) { store.setPosition(index, x, y); }
 
-    public ArrayList<Particle> createParticles() {
-        ArrayList<Particle> particles = new ArrayList<>();
-        int particleCount = 20;
-        
-        for (int i = 0; i < particleCount; i++) {
-            double angle = Math.random() * Math.PI * 2;
-            double speed = 2 + Math.random() * 5;
-            double px = Math.cos(angle) * speed;
-            double py = Math.sin(angle) * speed;
-            
-            particles.add(new Particle(x, y, (float)px, (float)py, 50, color, 4));
-        }
-        return particles;
+    public void addForce(float fx, float fy) {
+        store.addForce(index, fx, fy);
     }
-} 
\ No newline at end of file
+}
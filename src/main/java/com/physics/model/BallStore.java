@@ -0,0 +1,170 @@
+package com.physics.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Хранилище шаров в виде структуры массивов: горячие циклы идут
+// по плотным примитивным массивам, удаление - перестановкой с последним
+public class BallStore {
+    public static final int DEFAULT_ARGB = 0xFFC86464; // new Color(200, 100, 100)
+    private static final int INITIAL_CAPACITY = 128;
+
+    private int count = 0;
+    private int nextId = 0;
+
+    private float[] x;
+    private float[] y;
+    private float[] prevX;
+    private float[] prevY;
+    private float[] vx;
+    private float[] vy;
+    private float[] radius;
+    private int[] argb;
+    private int[] id;
+
+    public BallStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public BallStore(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        prevX = new float[capacity];
+        prevY = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        radius = new float[capacity];
+        argb = new int[capacity];
+        id = new int[capacity];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length) return;
+        int newCapacity = Math.max(capacity, x.length * 2);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        prevX = Arrays.copyOf(prevX, newCapacity);
+        prevY = Arrays.copyOf(prevY, newCapacity);
+        vx = Arrays.copyOf(vx, newCapacity);
+        vy = Arrays.copyOf(vy, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        argb = Arrays.copyOf(argb, newCapacity);
+        id = Arrays.copyOf(id, newCapacity);
+    }
+
+    public int add(float px, float py, float r) {
+        return add(px, py, 0, 0, r, DEFAULT_ARGB);
+    }
+
+    public int add(float px, float py, float velocityX, float velocityY, float r, int color) {
+        return add(px, py, velocityX, velocityY, r, color, nextId++);
+    }
+
+    // Добавление с заданным идентификатором (восстановление сохранённого состояния)
+    public int add(float px, float py, float velocityX, float velocityY, float r, int color, int ballId) {
+        ensureCapacity(count + 1);
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        prevX[i] = px;
+        prevY[i] = py;
+        vx[i] = velocityX;
+        vy[i] = velocityY;
+        radius[i] = r;
+        argb[i] = color;
+        id[i] = ballId;
+        if (ballId >= nextId) {
+            nextId = ballId + 1;
+        }
+        return i;
+    }
+
+    // Удаление за O(1): на место удалённого встаёт последний шар
+    public void remove(int index) {
+        int last = --count;
+        if (index != last) {
+            x[index] = x[last];
+            y[index] = y[last];
+            prevX[index] = prevX[last];
+            prevY[index] = prevY[last];
+            vx[index] = vx[last];
+            vy[index] = vy[last];
+            radius[index] = radius[last];
+            argb[index] = argb[last];
+            id[index] = id[last];
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Задаёт число шаров после массовой загрузки столбцов; содержимое заполняет вызывающий
+    public void setSize(int newCount) {
+        ensureCapacity(newCount);
+        count = newCount;
+    }
+
+    // Следующий выдаваемый идентификатор; сохраняется вместе с миром для точного повтора
+    public int getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(int nextId) {
+        this.nextId = nextId;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public void storePrevious() {
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            action.accept(i);
+        }
+    }
+
+    public void addForce(int i, float fx, float fy) {
+        vx[i] += fx;
+        vy[i] += fy;
+    }
+
+    public void setPosition(int i, float px, float py) {
+        x[i] = px;
+        y[i] = py;
+    }
+
+    public void setVelocity(int i, float velocityX, float velocityY) {
+        vx[i] = velocityX;
+        vy[i] = velocityY;
+    }
+
+    // Прямой доступ к массивам для горячих циклов; действительны до следующего добавления
+    public float[] x() { return x; }
+    public float[] y() { return y; }
+    public float[] prevX() { return prevX; }
+    public float[] prevY() { return prevY; }
+    public float[] vx() { return vx; }
+    public float[] vy() { return vy; }
+    public float[] radius() { return radius; }
+    public int[] argb() { return argb; }
+    public int[] id() { return id; }
+
+    // Представление шара для старого объектного API
+    public Ball view(int index) {
+        return new Ball(this, index);
+    }
+}
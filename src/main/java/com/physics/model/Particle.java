@@ -1,76 +1,46 @@
 package com.physics.model;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
 
+// Лёгкое представление частицы поверх ParticlePool
 public class Particle {
-    private float x, y;
-    private float velocityX, velocityY;
-    private int lifetime;
-    private Color color;
-    private float size;
+    private final ParticlePool pool;
+    private int index;
 
-    public Particle(float x, float y, float vx, float vy, int lifetime, Color color, float size) {
-        this.x = x;
-        this.y = y;
-        this.velocityX = vx;
-        this.velocityY = vy;
-        this.lifetime = lifetime;
-        this.color = color;
-        this.size = size;
+    Particle(ParticlePool pool, int index) {
+        this.pool = pool;
+        this.index = index;
     }
 
-    public float getX() { return x; }
-    public float getY() { return y; }
-    public float getVelocityX() { return velocityX; }
-    public float getVelocityY() { return velocityY; }
-    public int getLifetime() { return lifetime; }
-    public Color getColor() { return color; }
-    public float getSize() { return size; }
-    public float getWidth() { return size; }
-    public float getHeight() { return size; }
-
-    public void setX(float x) { this.x = x; }
-    public void setY(float y) { this.y = y; }
-    public void setVelocityX(float vx) { this.velocityX = vx; }
-    public void setVelocityY(float vy) { this.velocityY = vy; }
-    public void setLifetime(int lifetime) { this.lifetime = lifetime; }
-    public void setColor(Color color) { this.color = color; }
-    public void setSize(float size) { this.size = size; }
-    public void setPosition(float x, float y) {
-        this.x = x;
-        this.y = y;
-    }
-
-    public void addForce(float fx, float fy) {
-        velocityX += fx;
-        velocityY += fy;
+    // Переводит представление на другую частицу без создания нового объекта
+    public Particle at(int index) {
+        this.index = index;
+        return this;
     }
 
-    public void update(int width, int height, double energyField, double gravity) {
-        velocityY += gravity;
-        x += velocityX;
-        y += velocityY;
-        lifetime -= 1;
+    public int getIndex() { return index; }
+
+    public float getX() { return pool.x()[index]; }
+    public float getY() { return pool.y()[index]; }
+    public float getPrevX() { return pool.prevX()[index]; }
+    public float getPrevY() { return pool.prevY()[index]; }
+    public float getVelocityX() { return pool.vx()[index]; }
+    public float getVelocityY() { return pool.vy()[index]; }
+    public int getLifetime() { return pool.lifetime()[index]; }
+    public int getArgb() { return pool.argb()[index]; }
+    public Color getColor() { return new Color(pool.argb()[index], true); }
+    public float getSize() { return pool.particleSize()[index]; }
+
+    public void setX(float x) { pool.x()[index] = x; }
+    public void setY(float y) { pool.y()[index] = y; }
+    public void setVelocityX(float vx) { pool.vx()[index] = vx; }
+    public void setVelocityY(float vy) { pool.vy()[index] = vy; }
+    public void setLifetime(int lifetime) { pool.lifetime()[index] = lifetime; }
+    public void setArgb(int argb) { pool.argb()[index] = argb; }
+    public void setSize(float size) { pool.particleSize()[index] = size; }
+    public void setPosition(float x, float y) { pool.setPosition(index, x, y); }
 
-        if (x < 0 || x > width || y < 0 || y > height) {
-            lifetime = 0;
-        }
-    }
-
-    public void draw(Graphics2D g2d) {
-        if (lifetime <= 0) return;
-        
-        Color particleColor = new Color(
-            color.getRed(),
-            color.getGreen(),
-            color.getBlue(),
-            (int)(255 * (lifetime / 100.0))
-        );
-        
-        g2d.setColor(particleColor);
-        int drawX = (int)(x - size/2);
-        int drawY = (int)(y - size/2);
-        g2d.fillOval(drawX, drawY, (int)size, (int)size);
+    public void addForce(float fx, float fy) {
+        pool.addForce(index, fx, fy);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package com.physics.model;
+
+import java.util.function.IntConsumer;
+
+// Пул частиц фиксированной ёмкости в виде структуры массивов.
+// Живые частицы всегда занимают индексы [0, size): погибшая частица
+// замещается последней, поэтому шаг обходит только живые
+public class ParticlePool {
+    private final int capacity;
+    private int count = 0;
+    private long dropped = 0;
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] prevX;
+    private final float[] prevY;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] size;
+    private final int[] lifetime;
+    private final int[] argb;
+
+    public ParticlePool(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        x = new float[this.capacity];
+        y = new float[this.capacity];
+        prevX = new float[this.capacity];
+        prevY = new float[this.capacity];
+        vx = new float[this.capacity];
+        vy = new float[this.capacity];
+        size = new float[this.capacity];
+        lifetime = new int[this.capacity];
+        argb = new int[this.capacity];
+    }
+
+    // Возвращает индекс частицы или -1, если пул заполнен
+    public int spawn(float px, float py, float velocityX, float velocityY, int life, int color, float particleSize) {
+        if (count == capacity) {
+            dropped++;
+            return -1;
+        }
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        prevX[i] = px;
+        prevY[i] = py;
+        vx[i] = velocityX;
+        vy[i] = velocityY;
+        lifetime[i] = life;
+        argb[i] = color;
+        size[i] = particleSize;
+        return i;
+    }
+
+    // Шаг всех живых частиц; погибшие сразу уплотняются перестановкой с последней
+    public void update(int width, int height, float gravity) {
+        int i = 0;
+        while (i < count) {
+            vy[i] += gravity;
+            x[i] += vx[i];
+            y[i] += vy[i];
+            lifetime[i]--;
+
+            if (lifetime[i] <= 0 || x[i] < 0 || x[i] > width || y[i] < 0 || y[i] > height) {
+                // Последняя частица ещё не обработана - остаёмся на том же индексе
+                remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public void remove(int index) {
+        int last = --count;
+        if (index != last) {
+            x[index] = x[last];
+            y[index] = y[last];
+            prevX[index] = prevX[last];
+            prevY[index] = prevY[last];
+            vx[index] = vx[last];
+            vy[index] = vy[last];
+            size[index] = size[last];
+            lifetime[index] = lifetime[last];
+            argb[index] = argb[last];
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // То же для частиц; лишнее сверх ёмкости отбрасывается, возвращается итоговое число
+    public int setSize(int newCount) {
+        count = Math.min(newCount, capacity);
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // Сколько частиц не поместилось в пул за всё время
+    public long getDropped() {
+        return dropped;
+    }
+
+    public void storePrevious() {
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            action.accept(i);
+        }
+    }
+
+    public void addForce(int i, float fx, float fy) {
+        vx[i] += fx;
+        vy[i] += fy;
+    }
+
+    public void setPosition(int i, float px, float py) {
+        x[i] = px;
+        y[i] = py;
+    }
+
+    public void setVelocity(int i, float velocityX, float velocityY) {
+        vx[i] = velocityX;
+        vy[i] = velocityY;
+    }
+
+    // Прямой доступ к массивам для горячих циклов
+    public float[] x() { return x; }
+    public float[] y() { return y; }
+    public float[] prevX() { return prevX; }
+    public float[] prevY() { return prevY; }
+    public float[] vx() { return vx; }
+    public float[] vy() { return vy; }
+    public float[] particleSize() { return size; }
+    public int[] lifetime() { return lifetime; }
+    public int[] argb() { return argb; }
+
+    // Представление частицы для старого объектного API
+    public Particle view(int index) {
+        return new Particle(this, index);
+    }
+}
@@ -0,0 +1,122 @@
+package com.physics.parallel;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+// Структурированный параллельный цикл: диапазон делится пополам до размера
+// порции, вызов возвращается только после завершения всех частей
+public class PhaseExecutor {
+    // Порций на поток: запас для балансировки неравномерной работы
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final PhaseExecutor shared =
+        new PhaseExecutor(Runtime.getRuntime().availableProcessors());
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final Map<String, PhaseTiming> timings = new ConcurrentHashMap<>();
+
+    public PhaseExecutor(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(this.parallelism, pool -> {
+            ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("phase-worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    public static PhaseExecutor shared() {
+        return shared;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Выполняет task над [from, to); порция не меньше minGrain элементов.
+    // Мелкие диапазоны выполняются в вызывающем потоке без накладных расходов пула
+    public void forRange(String phase, int from, int to, int minGrain, RangeTask task) {
+        long start = System.nanoTime();
+        int count = to - from;
+        if (count > 0) {
+            int grain = Math.max(Math.max(1, minGrain),
+                                 (count + parallelism * CHUNKS_PER_THREAD - 1) / (parallelism * CHUNKS_PER_THREAD));
+            if (parallelism == 1 || count <= grain) {
+                task.run(from, to);
+            } else {
+                pool.invoke(new RangeAction(task, from, to, grain));
+            }
+        }
+        timing(phase).record(System.nanoTime() - start);
+    }
+
+    // Выполняет независимые задачи параллельно и дожидается всех
+    public void invokeAll(String phase, Runnable... tasks) {
+        forRange(phase, 0, tasks.length, 1, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                tasks[i].run();
+            }
+        });
+    }
+
+    // Выполняет задачу в вызывающем потоке и учитывает её время как фазу
+    public void measure(String phase, Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        timing(phase).record(System.nanoTime() - start);
+    }
+
+    private PhaseTiming timing(String phase) {
+        PhaseTiming timing = timings.get(phase);
+        if (timing == null) {
+            timing = timings.computeIfAbsent(phase, PhaseTiming::new);
+        }
+        return timing;
+    }
+
+    public PhaseTiming getTiming(String phase) {
+        return timings.get(phase);
+    }
+
+    public Collection<PhaseTiming> getTimings() {
+        return Collections.unmodifiableCollection(timings.values());
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static final class RangeAction extends RecursiveAction {
+        private final RangeTask task;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        RangeAction(RangeTask task, int from, int to, int grain) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                task.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            RangeAction right = new RangeAction(task, middle, to, grain);
+            right.fork();
+            new RangeAction(task, from, middle, grain).compute();
+            right.join();
+        }
+    }
+}
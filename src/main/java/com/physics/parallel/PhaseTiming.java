@@ -0,0 +1,33 @@
+package com.physics.parallel;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Накопленное время одной фазы. Общие фазы (например, "image") вызываются
+// одновременно из потока отрисовки, экспорта и рабочих потоков пула,
+// поэтому суммы копятся в LongAdder, а не в volatile-полях
+public class PhaseTiming {
+    private final String name;
+    private volatile long lastNanos;
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+
+    PhaseTiming(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos) {
+        lastNanos = nanos;
+        totalNanos.add(nanos);
+        calls.increment();
+    }
+
+    public String getName() { return name; }
+    public long getLastNanos() { return lastNanos; }
+    public long getTotalNanos() { return totalNanos.sum(); }
+    public long getCalls() { return calls.sum(); }
+
+    public double getAverageMillis() {
+        long n = calls.sum();
+        return n == 0 ? 0.0 : totalNanos.sum() / 1e6 / n;
+    }
+}
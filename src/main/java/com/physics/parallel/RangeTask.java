@@ -0,0 +1,7 @@
+package com.physics.parallel;
+
+// Тело параллельного цикла: обрабатывает полуинтервал индексов [start, end)
+@FunctionalInterface
+public interface RangeTask {
+    void run(int start, int end);
+}
@@ -0,0 +1,48 @@
+package com.physics.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Пересоздание внеэкранных буферов эффекта (ensureBufferSize); стек оставлен,
+// чтобы было видно, какая отрисовка вызвала смену размера
+public class BufferReallocationEvent {
+    private final Record record = Jfr.AVAILABLE ? new Record() : null;
+
+    public void begin() {
+        if (record != null) record.begin();
+    }
+
+    // Буферы эффектов - ARGB, 4 байта на пиксель
+    public void finish(String effect, int width, int height, int buffers) {
+        if (record == null || !record.shouldCommit()) return;
+        record.effect = effect;
+        record.width = width;
+        record.height = height;
+        record.buffers = buffers;
+        record.bytes = 4L * width * height * buffers;
+        record.commit();
+    }
+
+    @Name("com.physics.BufferReallocation")
+    @Label("Пересоздание буферов")
+    @Category({"Физическая симуляция", "Отрисовка"})
+    static final class Record extends jdk.jfr.Event {
+        @Label("Эффект")
+        String effect;
+
+        @Label("Ширина")
+        int width;
+
+        @Label("Высота")
+        int height;
+
+        @Label("Буферов")
+        int buffers;
+
+        @Label("Выделено")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,49 @@
+package com.physics.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Применение или отрисовка одного эффекта
+public class EffectEvent {
+    public static final String UPDATE = "update";
+    public static final String APPLY = "apply";
+    public static final String DRAW = "draw";
+
+    private final Record record = Jfr.AVAILABLE ? new Record() : null;
+
+    public void begin() {
+        if (record != null) record.begin();
+    }
+
+    // Пишет ли JFR такие события сейчас
+    public boolean isEnabled() {
+        return record != null && record.isEnabled();
+    }
+
+    public void finish(String effect, String action, int bodies) {
+        if (record == null || !record.shouldCommit()) return;
+        record.effect = effect;
+        record.action = action;
+        record.bodies = bodies;
+        record.commit();
+    }
+
+    @Name("com.physics.Effect")
+    @Label("Эффект")
+    @Category({"Физическая симуляция", "Эффекты"})
+    @StackTrace(false)
+    static final class Record extends jdk.jfr.Event {
+        @Label("Эффект")
+        String effect;
+
+        @Label("Действие")
+        String action;
+
+        @Label("Тел затронуто")
+        @Description("Тела, на которые эффект подействовал; для отрисовки 0")
+        int bodies;
+    }
+}
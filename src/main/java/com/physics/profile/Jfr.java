@@ -0,0 +1,20 @@
+package com.physics.profile;
+
+// Есть ли в среде Java Flight Recorder. Модуль jdk.jfr появился в Java 11 и 8u262;
+// без него классы-наследники jdk.jfr.Event не загружаются вовсе, поэтому события
+// проекта - обёртки, которые создают запись JFR, только если AVAILABLE
+final class Jfr {
+    static final boolean AVAILABLE = detect();
+
+    private Jfr() {
+    }
+
+    private static boolean detect() {
+        try {
+            Class.forName("jdk.jfr.Event", false, Jfr.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.physics.profile;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Реестр участков шага и отрисовки. Участки заводятся один раз при создании
+// владельца, в горячем коде остаётся только замер через RollingHistogram.lap
+public class Profiler {
+    private static final Profiler shared = new Profiler();
+
+    private final Map<String, RollingHistogram> byName = new ConcurrentHashMap<>();
+    private final List<RollingHistogram> ordered = new CopyOnWriteArrayList<>();
+
+    public static Profiler shared() {
+        return shared;
+    }
+
+    // Один и тот же участок для одинакового имени; порядок - порядок регистрации
+    public synchronized RollingHistogram histogram(String name) {
+        RollingHistogram histogram = byName.get(name);
+        if (histogram == null) {
+            histogram = new RollingHistogram(name);
+            byName.put(name, histogram);
+            ordered.add(histogram);
+        }
+        return histogram;
+    }
+
+    // Обнуляет все участки; вызывать, только когда шаг и отрисовка не идут
+    public void reset() {
+        for (RollingHistogram histogram : ordered) {
+            histogram.reset();
+        }
+    }
+
+    public List<RollingHistogram> getHistograms() {
+        return Collections.unmodifiableList(ordered);
+    }
+}
@@ -0,0 +1,51 @@
+package com.physics.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Снимок состояния в историю отката или восстановление из неё
+public class ReversalEvent {
+    public static final String SAVE = "save";
+    public static final String RESTORE = "restore";
+
+    private final Record record = Jfr.AVAILABLE ? new Record() : null;
+
+    public void begin() {
+        if (record != null) record.begin();
+    }
+
+    public void finish(String action, int balls, int particles, int frames, long historyBytes) {
+        if (record == null || !record.shouldCommit()) return;
+        record.action = action;
+        record.balls = balls;
+        record.particles = particles;
+        record.frames = frames;
+        record.historyBytes = historyBytes;
+        record.commit();
+    }
+
+    @Name("com.physics.Reversal")
+    @Label("Откат времени")
+    @Category({"Физическая симуляция", "Откат"})
+    @StackTrace(false)
+    static final class Record extends jdk.jfr.Event {
+        @Label("Действие")
+        String action;
+
+        @Label("Шаров")
+        int balls;
+
+        @Label("Частиц")
+        int particles;
+
+        @Label("Кадров в истории")
+        int frames;
+
+        @Label("Объём истории")
+        @DataAmount
+        long historyBytes;
+    }
+}
@@ -0,0 +1,79 @@
+package com.physics.profile;
+
+import java.util.Arrays;
+
+// Скользящее окно последних WINDOW замеров одного участка. Пишет один поток
+// без блокировок; читатель копирует окно и сортирует копию, так что запись
+// никогда не ждёт чтения. Замер, перезаписанный во время копирования,
+// просто попадает в окно на одну позицию позже
+public class RollingHistogram {
+    public static final int WINDOW = 512; // ~4 с при 120 шагах в секунду
+
+    private final String name;
+    private final long[] samples = new long[WINDOW];
+    // Номер следующей записи; запись volatile публикует и сами замеры
+    private volatile long written = 0;
+    // Сумма за всё время, для средних по длинным прогонам
+    private long totalNanos = 0;
+
+    RollingHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long index = written;
+        samples[(int)(index & (WINDOW - 1))] = nanos;
+        totalNanos += nanos;
+        written = index + 1;
+    }
+
+    // Только пока пишущий поток стоит, например между прогревом и замером
+    public void reset() {
+        totalNanos = 0;
+        written = 0;
+    }
+
+    public long getCount() {
+        return written;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    // Записывает время с start и возвращает текущий момент как начало следующего участка
+    public long lap(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    public void summarize(Summary into) {
+        int count = (int)Math.min(written, WINDOW);
+        long[] sorted = into.scratch;
+        System.arraycopy(samples, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        into.count = count;
+        into.p50 = count == 0 ? 0 : sorted[(count - 1) / 2];
+        into.p99 = count == 0 ? 0 : sorted[(int)((count - 1) * 0.99)];
+        into.max = count == 0 ? 0 : sorted[count - 1];
+    }
+
+    // Сводка окна в наносекундах; переиспользуется читателем без выделений
+    public static final class Summary {
+        private final long[] scratch = new long[WINDOW];
+        private int count;
+        private long p50;
+        private long p99;
+        private long max;
+
+        public int getCount() { return count; }
+        public long getP50() { return p50; }
+        public long getP99() { return p99; }
+        public long getMax() { return max; }
+    }
+}
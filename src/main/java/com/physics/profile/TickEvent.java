@@ -0,0 +1,46 @@
+package com.physics.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Шаг симуляции для Java Flight Recorder. Пока запись не идёт, begin/finish
+// почти ничего не стоят, а сами объекты JIT убирает анализом выхода.
+// Без JFR в среде (Java 8 до 8u262) событие ничего не делает
+public class TickEvent {
+    private final Record record = Jfr.AVAILABLE ? new Record() : null;
+
+    public void begin() {
+        if (record != null) record.begin();
+    }
+
+    public void finish(long tick, int balls, int particles, boolean reversing) {
+        if (record == null || !record.shouldCommit()) return;
+        record.tick = tick;
+        record.balls = balls;
+        record.particles = particles;
+        record.reversing = reversing;
+        record.commit();
+    }
+
+    @Name("com.physics.Tick")
+    @Label("Шаг симуляции")
+    @Category({"Физическая симуляция", "Шаг"})
+    @StackTrace(false)
+    static final class Record extends jdk.jfr.Event {
+        @Label("Номер шага")
+        long tick;
+
+        @Label("Шаров")
+        int balls;
+
+        @Label("Частиц")
+        int particles;
+
+        @Label("Откат")
+        @Description("Шаг восстановил прошлое состояние вместо расчёта физики")
+        boolean reversing;
+    }
+}
@@ -4,46 +4,50 @@ import java.awt.Color;
 import java.awt.GradientPaint;
 import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.Rectangle;
+
+import com.physics.effects.Palette;
 
 public class EffectIndicator {
     private static final int WIDTH = 140;
     private static final int HEIGHT = 25;
+    // Градиенты фона от нуля на всю ширину, рисуются со сдвигом
+    private static final GradientPaint ACTIVE_BACKGROUND = new GradientPaint(
+        0, 0, Palette.rgba(0, 100, 0, 50), WIDTH, 0, Palette.rgba(0, 150, 0, 50));
+    private static final GradientPaint INACTIVE_BACKGROUND = new GradientPaint(
+        0, 0, Palette.rgba(100, 0, 0, 50), WIDTH, 0, Palette.rgba(150, 0, 0, 50));
+    private static final Color HOVER = Palette.rgba(255, 255, 255, 50);
 
     public static void draw(Graphics2D g2d, String name, String key, boolean active, 
                           int x, int y, Point mousePosition, Point[] tooltipData) {
         // Проверяем, находится ли мышь над эффектом
-        if (mousePosition != null) {
-            Rectangle effectBounds = new Rectangle(x, y, WIDTH, HEIGHT);
-            if (effectBounds.contains(mousePosition)) {
-                // Рисуем подсветку при наведении
-                g2d.setColor(new Color(255, 255, 255, 50));
-                g2d.fillRoundRect(x, y, WIDTH, HEIGHT, 10, 10);
-                
-                // Устанавливаем позицию и текст подсказки
-                tooltipData[0] = new Point(x + WIDTH + 10, y);
-                tooltipData[1] = new Point(0, 0); // Используется для передачи текста через Constants
-            }
+        if (mousePosition != null
+                && mousePosition.x >= x && mousePosition.x < x + WIDTH
+                && mousePosition.y >= y && mousePosition.y < y + HEIGHT) {
+            // Рисуем подсветку при наведении
+            g2d.setColor(HOVER);
+            g2d.fillRoundRect(x, y, WIDTH, HEIGHT, 10, 10);
+            
+            // Устанавливаем позицию и текст подсказки
+            tooltipData[0] = new Point(x + WIDTH + 10, y);
+            tooltipData[1] = new Point(0, 0); // Используется для передачи текста через Constants
         }
 
         // Фон с градиентом
-        GradientPaint bgGradient = new GradientPaint(
-            x, y, active ? new Color(0, 100, 0, 50) : new Color(100, 0, 0, 50),
-            x + WIDTH, y, active ? new Color(0, 150, 0, 50) : new Color(150, 0, 0, 50)
-        );
-        g2d.setPaint(bgGradient);
-        g2d.fillRoundRect(x, y, WIDTH, HEIGHT, 10, 10);
+        g2d.setPaint(active ? ACTIVE_BACKGROUND : INACTIVE_BACKGROUND);
+        g2d.translate(x, y);
+        g2d.fillRoundRect(0, 0, WIDTH, HEIGHT, 10, 10);
+        g2d.translate(-x, -y);
         
         // Рамка
-        g2d.setColor(active ? new Color(0, 200, 0, 100) : new Color(200, 0, 0, 100));
+        g2d.setColor(active ? Palette.rgba(0, 200, 0, 100) : Palette.rgba(200, 0, 0, 100));
         g2d.drawRoundRect(x, y, WIDTH, HEIGHT, 10, 10);
         
         // Текст и клавиша
-        g2d.setColor(active ? new Color(0, 100, 0) : new Color(100, 0, 0));
+        g2d.setColor(active ? Palette.rgb(0, 100, 0) : Palette.rgb(100, 0, 0));
         g2d.drawString(name + " [" + key + "]", x + 5, y + 17);
         
         // Индикатор
-        g2d.setColor(active ? new Color(0, 255, 0) : new Color(255, 0, 0));
+        g2d.setColor(active ? Palette.rgb(0, 255, 0) : Palette.rgb(255, 0, 0));
         g2d.fillOval(x + WIDTH - 15, y + 7, 10, 10);
     }
-} 
\ No newline at end of file
+}
@@ -1,31 +1,94 @@
 package com.physics.ui;
 
 import java.awt.AlphaComposite;
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.LinearGradientPaint;
 import java.awt.Point;
-import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 
 import javax.swing.JPanel;
 
 import com.physics.data.Constants;
+import com.physics.effects.EffectUtils;
 import com.physics.effects.Magnet;
+import com.physics.effects.Palette;
 import com.physics.effects.SlowMotion;
 import com.physics.effects.Split;
+import com.physics.effects.Strokes;
 import com.physics.effects.Teleport;
+import com.physics.profile.BufferReallocationEvent;
+import com.physics.profile.Profiler;
+import com.physics.profile.RollingHistogram;
 
 public class InfoPanel extends JPanel {
+    private static final int BAR_WIDTH = 130;
+    // Градиенты полосок строятся от нуля на всю ширину и рисуются со сдвигом
+    private static final LinearGradientPaint NEGATIVE_BAR = barPaint(Palette.rgb(255, 50, 50), Palette.rgb(255, 100, 100));
+    private static final LinearGradientPaint POSITIVE_BAR = barPaint(Palette.rgb(50, 100, 255), Palette.rgb(100, 150, 255));
+    private static final LinearGradientPaint ZERO_BAR = barPaint(Palette.rgb(150, 150, 150), Palette.rgb(200, 200, 200));
+    private static final String[] HELP = {
+        "Управление:",
+        "↑/↓ - Скорость времени",
+        "W/S - Гравитация",
+        "A/D - Искривление",
+        "Q - Обратить время",
+        "R - Сброс физики",
+        "ПРОБЕЛ - Инверсия гравитации",
+        "F - Заморозка времени",
+        "B - Режим чёрной дыры",
+        "V - Временной вихрь",
+        "E/C - Энергия поля",
+        "T - Телепортация",
+        "L - Радужный режим",
+        "P - Эффекты частиц",
+        "X - Квантовое туннелирование",
+        "Z - Режим взрывов",
+        "M - Матричный режим",
+        "G - Гравитационные волны",
+        "Y - Разделение шаров",
+        "U - Магнитное поле",
+        "I - Замедление времени",
+        "N - Взаимная гравитация",
+        "J - Откат повтором ввода",
+        "F5/F9 - Сохранить/загрузить сцену",
+        "F6 - Запись сессии",
+        "F7 - Экспорт кадров в PNG",
+        "F3 - Профилировщик",
+        "ЛКМ - Создать шар",
+        "ПКМ - Создать взрыв"
+    };
+
     private Point mousePosition = null;
+    // Фон, рамки, плитки параметров и эффектов хранятся в готовом слое. Плитка
+    // перерисовывается в слое, только когда меняется её значение или наведение,
+    // и перерисовка в Swing запрашивается лишь для её прямоугольника
+    private final List<Tile> tiles = new ArrayList<>();
+    private BufferedImage layer = null;
+    private Tile hoveredTile = null;
     private Point tooltipPosition = null;
+    private final Point tooltipAnchor = new Point();
     private String tooltipText = null;
+    // Разбивка подсказки на строки и шрифт пересчитываются, только когда меняются
+    private String wrappedText = null;
+    private final List<String> tooltipLines = new ArrayList<>();
+    private Font tooltipBaseFont = null;
+    private Font tooltipFont = null;
+    private LinearGradientPaint backgroundPaint = null;
+    private final Map<String, ValueLabel> valueLabels = new HashMap<>();
     private boolean showHelp = false;
+    private final RollingHistogram paintTime = Profiler.shared().histogram("paint.infoPanel");
 
     // Эффекты
     private Teleport teleport;
@@ -45,65 +108,60 @@ public class InfoPanel extends JPanel {
         this.slowMotion = slowMotion;
         setPreferredSize(new Dimension(800, Constants.INFO_PANEL_HEIGHT));
         setBackground(new Color(240, 240, 240));
+
+        // Статусы параметров с указанием клавиш
+        tiles.add(Tile.parameter("Время", "[↑/↓]", this::getTimeScale, Constants.MIN_TIME_SCALE, Constants.MAX_TIME_SCALE, 10, 10));
+        tiles.add(Tile.parameter("Гравитация", "[W/S]", this::getGravity, Constants.MIN_GRAVITY, Constants.MAX_GRAVITY, 160, 10));
+        tiles.add(Tile.parameter("Искривление", "[A/D]", this::getSpaceWarp, Constants.MIN_WARP, Constants.MAX_WARP, 310, 10));
+        tiles.add(Tile.parameter("Энергия", "[E/C]", this::getEnergyField, Constants.MIN_ENERGY, Constants.MAX_ENERGY, 460, 10));
+        tiles.add(Tile.parameter("Плотность", "[O/P]", this::getParticleDensity, Constants.MIN_DENSITY, Constants.MAX_DENSITY, 610, 10));
+
+        // Индикаторы активных эффектов с указанием клавиш
+        int y = 60;
+        tiles.add(Tile.effect("Заморозка", "[F]", this::isTimeFreeze, 10, y));
+        tiles.add(Tile.effect("Чёрная дыра", "[B]", this::isBlackHoleMode, 160, y));
+        tiles.add(Tile.effect("Врем. вихрь", "[V]", this::isTimeVortexMode, 310, y));
+        tiles.add(Tile.effect("Радужный", "[L]", this::isRainbowMode, 460, y));
+        tiles.add(Tile.effect("Квант. туннель", "[X]", this::isQuantumTunneling, 610, y));
+
+        y += 30;
+        tiles.add(Tile.effect("Взрывы", "[Z]", this::isExplosionMode, 10, y));
+        tiles.add(Tile.effect("Матрица", "[M]", this::isMatrixMode, 160, y));
+        tiles.add(Tile.effect("Грав. волны", "[G]", this::isGravityWaves, 310, y));
+        tiles.add(Tile.effect("Магнетизм", "[U]", this::isMagnetMode, 460, y));
+        tiles.add(Tile.effect("Замедление", "[I]", this::isSlowMode, 610, y));
+
+        y += 30;
+        tiles.add(Tile.effect("Телепорт", "[T]", this::isTeleportMode, 10, y));
+        tiles.add(Tile.effect("Разделение", "[Y]", this::isSplitMode, 160, y));
+        tiles.add(Tile.effect("Взаим. гравит.", "[N]", this::isMutualGravity, 310, y));
+        tiles.add(Tile.effect("Откат повтором", "[J]", this::isReplayRewind, 460, y));
+        tiles.add(Tile.effect("Запись", "[F6]", this::isRecording, 610, y));
+        tiles.add(Tile.effect("Экспорт", "[F7]", this::isExporting, 760, y));
+    }
+
+    // Вызывается таймером и после изменения значений: запрашивает перерисовку
+    // только тех плиток, что разошлись со слоем
+    public void refresh() {
+        for (int i = 0; i < tiles.size(); i++) {
+            Tile tile = tiles.get(i);
+            if (tile.isDirty(tile == hoveredTile)) {
+                repaint(tile.x - 1, tile.y - 1, tile.width + 3, tile.height + 3);
+            }
+        }
     }
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        long paintStart = System.nanoTime();
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
         
-        // Рисуем градиентный фон панели
-        Point2D start = new Point2D.Float(0, 0);
-        Point2D end = new Point2D.Float(0, getHeight());
-        float[] dist = {0.0f, 1.0f};
-        Color[] colors = {
-            new Color(30, 30, 40),
-            new Color(20, 20, 30)
-        };
-        LinearGradientPaint bgGradient = new LinearGradientPaint(start, end, dist, colors);
-        g2d.setPaint(bgGradient);
-        g2d.fillRect(0, 0, getWidth(), getHeight());
-        
-        // Добавляем тонкую линию-разделитель снизу панели
-        g2d.setColor(new Color(100, 100, 255, 50));
-        g2d.setStroke(new BasicStroke(1.0f));
-        g2d.drawLine(0, getHeight() - 1, getWidth(), getHeight() - 1);
-        
-        drawInfo(g2d);
-    }
-
-    private void drawInfo(Graphics2D g2d) {
-        // Рисуем статусы параметров с указанием клавиш
-        drawParameterStatus(g2d, "Время", "↑/↓", getTimeScale(), Constants.MIN_TIME_SCALE, Constants.MAX_TIME_SCALE, 10, 10);
-        drawParameterStatus(g2d, "Гравитация", "W/S", getGravity(), Constants.MIN_GRAVITY, Constants.MAX_GRAVITY, 160, 10);
-        drawParameterStatus(g2d, "Искривление", "A/D", getSpaceWarp(), Constants.MIN_WARP, Constants.MAX_WARP, 310, 10);
-        drawParameterStatus(g2d, "Энергия", "E/C", getEnergyField(), Constants.MIN_ENERGY, Constants.MAX_ENERGY, 460, 10);
-        drawParameterStatus(g2d, "Плотность", "O/P", getParticleDensity(), Constants.MIN_DENSITY, Constants.MAX_DENSITY, 610, 10);
-        
-        // Рисуем индикаторы активных эффектов с указанием клавиш
-        int y = 60;
-        drawEffectStatus(g2d, "Заморозка", "F", isTimeFreeze(), 10, y);
-        drawEffectStatus(g2d, "Чёрная дыра", "B", isBlackHoleMode(), 160, y);
-        drawEffectStatus(g2d, "Врем. вихрь", "V", isTimeVortexMode(), 310, y);
-        drawEffectStatus(g2d, "Радужный", "L", isRainbowMode(), 460, y);
-        drawEffectStatus(g2d, "Квант. туннель", "X", isQuantumTunneling(), 610, y);
-        
-        y += 30;
-        drawEffectStatus(g2d, "Взрывы", "Z", isExplosionMode(), 10, y);
-        drawEffectStatus(g2d, "Матрица", "M", isMatrixMode(), 160, y);
-        drawEffectStatus(g2d, "Грав. волны", "G", isGravityWaves(), 310, y);
-        drawEffectStatus(g2d, "Магнетизм", "U", isMagnetMode(), 460, y);
-        drawEffectStatus(g2d, "Замедление", "I", isSlowMode(), 610, y);
-
-        y += 30;
-        drawEffectStatus(g2d, "Телепорт", "T", isTeleportMode(), 10, y);
-        drawEffectStatus(g2d, "Разделение", "Y", isSplitMode(), 160, y);
-        
-        // Добавляем подсказку для выхода
-        g2d.setColor(new Color(150, 150, 200));
-        g2d.drawString("ESC - Выход", getWidth() - 100, 20);
+        // Слой непрозрачный и закрывает всю панель, поэтому фон JPanel не заливается;
+        // при перерисовке части панели клип ограничивает и копирование
+        updateLayer();
+        g2d.drawImage(layer, 0, 0, null);
         
         if (showHelp) {
             drawHelp(g2d);
@@ -112,49 +170,123 @@ public class InfoPanel extends JPanel {
         if (tooltipPosition != null && tooltipText != null) {
             drawTooltip(g2d);
         }
+        paintTime.lap(paintStart);
     }
 
-    private void drawParameterStatus(Graphics2D g2d, String name, String key, 
-                                   double value, double min, double max, int x, int y) {
-        int width = 140;
-        int height = 40;
+    private void updateLayer() {
+        int width = Math.max(1, getWidth());
+        int height = Math.max(1, getHeight());
+        boolean rebuild = layer == null || layer.getWidth() != width || layer.getHeight() != height;
+        if (rebuild) {
+            BufferReallocationEvent event = new BufferReallocationEvent();
+            event.begin();
+            if (layer != null) {
+                layer.flush();
+            }
+            layer = EffectUtils.createCompatibleImage(width, height, false);
+            event.finish("InfoPanel", width, height, 1);
+        }
+
+        Graphics2D g2d = null;
+        for (int i = 0; i < tiles.size(); i++) {
+            Tile tile = tiles.get(i);
+            boolean hovered = tile == hoveredTile;
+            if (!rebuild && !tile.isDirty(hovered)) continue;
+
+            tile.drawnValue = tile.value.getAsDouble();
+            tile.drawnHovered = hovered;
+            if (rebuild) continue;
+            if (g2d == null) {
+                g2d = createLayerGraphics();
+            }
+            // Клип на пиксель шире плитки: сглаженная рамка выходит за её край, а
+            // соседние ряды плиток касаются рамками. Всё, что задевает клип, рисуется
+            // заново в том же порядке, что и при полной сборке слоя
+            g2d.setClip(tile.x - 1, tile.y - 1, tile.width + 3, tile.height + 3);
+            drawLayer(g2d, width, height);
+        }
+        if (rebuild) {
+            g2d = createLayerGraphics();
+            drawLayer(g2d, width, height);
+        }
+        if (g2d != null) {
+            g2d.dispose();
+        }
+    }
+
+    // Содержимое слоя в состоянии, с которым плитки отмечены нарисованными
+    private void drawLayer(Graphics2D g2d, int width, int height) {
+        g2d.setPaint(backgroundPaint(height));
+        g2d.fillRect(0, 0, width, height);
         
-        // Проверяем, находится ли мышь над параметром
-        boolean isHovered = false;
-        if (mousePosition != null) {
-            Rectangle paramBounds = new Rectangle(x, y, width, height);
-            if (paramBounds.contains(mousePosition)) {
-                isHovered = true;
-                // Подсветка при наведении
-                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.2f));
-                g2d.setColor(new Color(100, 100, 255));
-                g2d.fillRoundRect(x, y, width, height, 15, 15);
-                g2d.setComposite(AlphaComposite.SrcOver);
-                
-                // Устанавливаем позицию и текст подсказки
-                tooltipPosition = new Point(x + width + 10, y);
-                tooltipText = Constants.PARAMETER_DESCRIPTIONS.get(name);
+        // Добавляем тонкую линию-разделитель снизу панели
+        g2d.setColor(Palette.rgba(100, 100, 255, 50));
+        g2d.setStroke(Strokes.of(1.0f));
+        g2d.drawLine(0, height - 1, width, height - 1);
+
+        for (int i = 0; i < tiles.size(); i++) {
+            Tile tile = tiles.get(i);
+            if (!g2d.hitClip(tile.x - 1, tile.y - 1, tile.width + 3, tile.height + 3)) continue;
+            if (tile.parameter) {
+                drawParameterStatus(g2d, tile.name, tile.key, tile.drawnValue, tile.min, tile.max, tile.x, tile.y, tile.drawnHovered);
+            } else {
+                drawEffectStatus(g2d, tile.name, tile.key, tile.drawnValue != 0, tile.x, tile.y, tile.drawnHovered);
             }
         }
+        
+        // Добавляем подсказку для выхода
+        g2d.setColor(Palette.rgb(150, 150, 200));
+        g2d.drawString("ESC - Выход", width - 100, 20);
+    }
+
+    private Graphics2D createLayerGraphics() {
+        Graphics2D g2d = layer.createGraphics();
+        g2d.setFont(getFont());
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
+        return g2d;
+    }
+
+    // Градиентный фон панели; градиент пересоздаётся только при смене высоты
+    private LinearGradientPaint backgroundPaint(int height) {
+        if (backgroundPaint == null || backgroundPaint.getEndPoint().getY() != height) {
+            backgroundPaint = new LinearGradientPaint(0, 0, 0, height,
+                new float[]{0.0f, 1.0f}, new Color[]{Palette.rgb(30, 30, 40), Palette.rgb(20, 20, 30)});
+        }
+        return backgroundPaint;
+    }
+
+    private void drawParameterStatus(Graphics2D g2d, String name, String key, 
+                                   double value, double min, double max, int x, int y, boolean isHovered) {
+        int width = Tile.PARAMETER_WIDTH;
+        int height = Tile.PARAMETER_HEIGHT;
+        
+        if (isHovered) {
+            // Подсветка при наведении
+            g2d.setComposite(Palette.srcOver(0.2f));
+            g2d.setColor(Palette.rgb(100, 100, 255));
+            g2d.fillRoundRect(x, y, width, height, 15, 15);
+            g2d.setComposite(AlphaComposite.SrcOver);
+        }
 
         // Фон параметра
-        g2d.setColor(new Color(0, 0, 0, isHovered ? 80 : 60));
+        g2d.setColor(Palette.rgba(0, 0, 0, isHovered ? 80 : 60));
         g2d.fillRoundRect(x, y, width, height, 15, 15);
         
         // Рамка
-        g2d.setStroke(new BasicStroke(1.0f));
-        g2d.setColor(new Color(100, 100, 255, isHovered ? 100 : 50));
+        g2d.setStroke(Strokes.of(1.0f));
+        g2d.setColor(Palette.rgba(100, 100, 255, isHovered ? 100 : 50));
         g2d.drawRoundRect(x, y, width, height, 15, 15);
         
         // Название и клавиша
-        g2d.setColor(new Color(200, 200, 255));
+        g2d.setColor(Palette.rgb(200, 200, 255));
         g2d.drawString(name, x + 5, y + 15);
-        g2d.setColor(new Color(150, 150, 200));
-        g2d.drawString("[" + key + "] ", x + width - g2d.getFontMetrics().stringWidth("[" + key + "]") - 5, y + 15);
+        g2d.setColor(Palette.rgb(150, 150, 200));
+        g2d.drawString(key, x + width - g2d.getFontMetrics().stringWidth(key) - 5, y + 15);
         
-        // Значение
-        String valueStr = String.format("%.2f", value);
-        g2d.setColor(new Color(150, 150, 255));
+        // Значение; строка форматируется заново, только если значение изменилось
+        String valueStr = valueLabels.computeIfAbsent(name, k -> new ValueLabel()).format(value);
+        g2d.setColor(Palette.rgb(150, 150, 255));
         g2d.drawString(valueStr, x + width - g2d.getFontMetrics().stringWidth(valueStr) - 5, y + 35);
         
         // Прогресс-бар
@@ -164,87 +296,58 @@ public class InfoPanel extends JPanel {
         int barY = y + 25;
         
         // Фон прогресс-бара
-        g2d.setColor(new Color(0, 0, 0, 100));
+        g2d.setColor(Palette.rgba(0, 0, 0, 100));
         g2d.fillRoundRect(barX, barY, barWidth, barHeight, 2, 2);
         
         // Заполнение прогресс-бара
         float progress = (float)((value - min) / (max - min));
-        Point2D barStart = new Point2D.Float(barX, barY);
-        Point2D barEnd = new Point2D.Float(barX + barWidth, barY);
-        
-        Color startColor, endColor;
-        if (value < 0) {
-            startColor = new Color(255, 50, 50);
-            endColor = new Color(255, 100, 100);
-        } else if (value > 0) {
-            startColor = new Color(50, 100, 255);
-            endColor = new Color(100, 150, 255);
-        } else {
-            startColor = new Color(150, 150, 150);
-            endColor = new Color(200, 200, 200);
-        }
-        
-        LinearGradientPaint gradient = new LinearGradientPaint(
-            barStart, barEnd, new float[]{0.0f, 1.0f},
-            new Color[]{startColor, endColor}
-        );
-        
-        g2d.setPaint(gradient);
-        g2d.fillRoundRect(barX, barY, (int)(barWidth * progress), barHeight, 2, 2);
+        g2d.setPaint(value < 0 ? NEGATIVE_BAR : value > 0 ? POSITIVE_BAR : ZERO_BAR);
+        g2d.translate(barX, barY);
+        g2d.fillRoundRect(0, 0, (int)(barWidth * progress), barHeight, 2, 2);
+        g2d.translate(-barX, -barY);
         
         // Блик на прогресс-баре
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
+        g2d.setComposite(Palette.srcOver(0.3f));
         g2d.setColor(Color.WHITE);
         g2d.fillRoundRect(barX, barY, (int)(barWidth * progress), barHeight/2, 1, 1);
         g2d.setComposite(AlphaComposite.SrcOver);
     }
 
-    private void drawEffectStatus(Graphics2D g2d, String name, String key, boolean active, int x, int y) {
-        int width = 140;
-        int height = 30;
-        
-        boolean isHovered = false;
-        if (mousePosition != null) {
-            Rectangle effectBounds = new Rectangle(x, y, width, height);
-            if (effectBounds.contains(mousePosition)) {
-                isHovered = true;
-                tooltipPosition = new Point(x + width + 10, y);
-                tooltipText = Constants.EFFECT_DESCRIPTIONS.get(name);
-            }
-        }
+    private void drawEffectStatus(Graphics2D g2d, String name, String key, boolean active, int x, int y, boolean isHovered) {
+        int width = Tile.EFFECT_WIDTH;
+        int height = Tile.EFFECT_HEIGHT;
         
         // Фон эффекта
-        Color bgColor = active ? new Color(50, 50, 150, 80) : new Color(0, 0, 0, 60);
+        Color bgColor = active ? Palette.rgba(50, 50, 150, 80) : Palette.rgba(0, 0, 0, 60);
         g2d.setColor(bgColor);
         g2d.fillRoundRect(x, y, width, height, 10, 10);
         
         // Рамка
-        g2d.setStroke(new BasicStroke(1.0f));
+        g2d.setStroke(Strokes.of(1.0f));
         Color borderColor = active ? 
-            new Color(100, 100, 255, isHovered ? 200 : 150) : 
-            new Color(100, 100, 255, isHovered ? 100 : 50);
+            Palette.rgba(100, 100, 255, isHovered ? 200 : 150) : 
+            Palette.rgba(100, 100, 255, isHovered ? 100 : 50);
         g2d.setColor(borderColor);
         g2d.drawRoundRect(x, y, width, height, 10, 10);
         
         // Название эффекта
-        g2d.setColor(active ? new Color(150, 150, 255) : new Color(150, 150, 200));
+        g2d.setColor(active ? Palette.rgb(150, 150, 255) : Palette.rgb(150, 150, 200));
         g2d.drawString(name, x + 5, y + 20);
         
         // Клавиша
-        g2d.setColor(new Color(100, 100, 150));
-        String keyText = "[" + key + "]";
-        g2d.drawString(keyText, x + width - g2d.getFontMetrics().stringWidth(keyText) - 5, y + 20);
+        g2d.setColor(Palette.rgb(100, 100, 150));
+        g2d.drawString(key, x + width - g2d.getFontMetrics().stringWidth(key) - 5, y + 20);
         
         // Индикатор активности
         if (active) {
             int indicatorSize = 6;
-            g2d.setColor(new Color(100, 255, 100));
+            g2d.setColor(Palette.rgb(100, 255, 100));
             g2d.fillOval(x + width - indicatorSize - 20, y + height/2 - indicatorSize/2, 
                         indicatorSize, indicatorSize);
             
             // Свечение индикатора
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-            g2d.setColor(new Color(100, 255, 100));
+            g2d.setComposite(Palette.srcOver(0.3f));
+            g2d.setColor(Palette.rgb(100, 255, 100));
             g2d.fillOval(x + width - indicatorSize - 21, y + height/2 - indicatorSize/2 - 1, 
                         indicatorSize + 2, indicatorSize + 2);
             g2d.setComposite(AlphaComposite.SrcOver);
@@ -252,42 +355,16 @@ public class InfoPanel extends JPanel {
     }
 
     private void drawHelp(Graphics2D g2d) {
-        String[] help = {
-            "Управление:",
-            "↑/↓ - Скорость времени",
-            "W/S - Гравитация",
-            "A/D - Искривление",
-            "Q - Обратить время",
-            "R - Сброс физики",
-            "ПРОБЕЛ - Инверсия гравитации",
-            "F - Заморозка времени",
-            "B - Режим чёрной дыры",
-            "V - Временной вихрь",
-            "E/C - Энергия поля",
-            "T - Телепортация",
-            "L - Радужный режим",
-            "P - Эффекты частиц",
-            "X - Квантовое туннелирование",
-            "Z - Режим взрывов",
-            "M - Матричный режим",
-            "G - Гравитационные волны",
-            "Y - Разделение шаров",
-            "U - Магнитное поле",
-            "I - Замедление времени",
-            "ЛКМ - Создать шар",
-            "ПКМ - Создать взрыв"
-        };
-
         // Полупрозрачный фон для помощи
-        g2d.setColor(new Color(0, 0, 0, 200));
+        g2d.setColor(Palette.rgba(0, 0, 0, 200));
         int helpWidth = 300;
-        int helpHeight = help.length * 20 + 10;
+        int helpHeight = HELP.length * 20 + 10;
         g2d.fillRoundRect(10, Constants.INFO_PANEL_HEIGHT + 10, helpWidth, helpHeight, 15, 15);
 
         // Текст помощи
         g2d.setColor(Color.WHITE);
         int y = Constants.INFO_PANEL_HEIGHT + 30;
-        for (String line : help) {
+        for (String line : HELP) {
             g2d.drawString(line, 20, y);
             y += 20;
         }
@@ -295,32 +372,25 @@ public class InfoPanel extends JPanel {
 
     private void drawTooltip(Graphics2D g2d) {
         // Настраиваем шрифт и получаем метрики для расчета размеров
-        g2d.setFont(g2d.getFont().deriveFont(12.0f));
+        if (g2d.getFont() != tooltipBaseFont) {
+            tooltipBaseFont = g2d.getFont();
+            tooltipFont = tooltipBaseFont.deriveFont(12.0f);
+        }
+        g2d.setFont(tooltipFont);
         FontMetrics fm = g2d.getFontMetrics();
         
-        // Разбиваем текст на строки по 40 символов
-        String[] words = tooltipText.split(" ");
-        StringBuilder currentLine = new StringBuilder();
-        java.util.List<String> lines = new java.util.ArrayList<>();
-        
-        for (String word : words) {
-            if (currentLine.length() + word.length() > 40) {
-                lines.add(currentLine.toString());
-                currentLine = new StringBuilder();
-            }
-            if (currentLine.length() > 0) {
-                currentLine.append(" ");
-            }
-            currentLine.append(word);
-        }
-        if (currentLine.length() > 0) {
-            lines.add(currentLine.toString());
+        // Разбиваем текст на строки по 40 символов; описания - константы,
+        // поэтому достаточно сравнить ссылку
+        List<String> lines = tooltipLines;
+        if (tooltipText != wrappedText) {
+            wrapTooltip(tooltipText);
+            wrappedText = tooltipText;
         }
         
         // Вычисляем размеры подсказки
         int maxWidth = 0;
-        for (String line : lines) {
-            maxWidth = Math.max(maxWidth, fm.stringWidth(line));
+        for (int i = 0; i < lines.size(); i++) {
+            maxWidth = Math.max(maxWidth, fm.stringWidth(lines.get(i)));
         }
         int tooltipWidth = maxWidth + 20;
         int tooltipHeight = lines.size() * fm.getHeight() + 10;
@@ -347,25 +417,131 @@ public class InfoPanel extends JPanel {
         }
         
         // Рисуем фон подсказки с тенью
-        g2d.setColor(new Color(0, 0, 0, 50));
+        g2d.setColor(Palette.rgba(0, 0, 0, 50));
         g2d.fillRoundRect(x + 2, y + 2, tooltipWidth, tooltipHeight, 10, 10);
         
-        g2d.setColor(new Color(0, 0, 0, 220));
+        g2d.setColor(Palette.rgba(0, 0, 0, 220));
         g2d.fillRoundRect(x, y, tooltipWidth, tooltipHeight, 10, 10);
         
         // Добавляем рамку
-        g2d.setColor(new Color(255, 255, 255, 50));
+        g2d.setColor(Palette.rgba(255, 255, 255, 50));
         g2d.drawRoundRect(x, y, tooltipWidth, tooltipHeight, 10, 10);
         
         // Рисуем текст
         g2d.setColor(Color.WHITE);
         int textY = y + fm.getAscent() + 5;
-        for (String line : lines) {
-            g2d.drawString(line, x + 10, textY);
+        for (int i = 0; i < lines.size(); i++) {
+            g2d.drawString(lines.get(i), x + 10, textY);
             textY += fm.getHeight();
         }
     }
 
+    private void wrapTooltip(String text) {
+        tooltipLines.clear();
+        StringBuilder currentLine = new StringBuilder();
+        for (String word : text.split(" ")) {
+            if (currentLine.length() + word.length() > 40) {
+                tooltipLines.add(currentLine.toString());
+                currentLine.setLength(0);
+            }
+            if (currentLine.length() > 0) {
+                currentLine.append(" ");
+            }
+            currentLine.append(word);
+        }
+        if (currentLine.length() > 0) {
+            tooltipLines.add(currentLine.toString());
+        }
+    }
+
+    // То же, что Rectangle.contains, без создания прямоугольника на каждый кадр
+    private boolean isMouseOver(int x, int y, int width, int height) {
+        return mousePosition != null
+            && mousePosition.x >= x && mousePosition.x < x + width
+            && mousePosition.y >= y && mousePosition.y < y + height;
+    }
+
+    private Tile tileAt(Point p) {
+        if (p == null) return null;
+        for (int i = 0; i < tiles.size(); i++) {
+            Tile tile = tiles.get(i);
+            if (isMouseOver(tile.x, tile.y, tile.width, tile.height)) {
+                return tile;
+            }
+        }
+        return null;
+    }
+
+    private static LinearGradientPaint barPaint(Color start, Color end) {
+        return new LinearGradientPaint(0, 0, BAR_WIDTH, 0, new float[]{0.0f, 1.0f}, new Color[]{start, end});
+    }
+
+    // Плитка параметра или эффекта: место в панели, источник значения
+    // (у эффекта 1 или 0) и состояние, с которым она нарисована в слое
+    private static class Tile {
+        static final int PARAMETER_WIDTH = 140;
+        static final int PARAMETER_HEIGHT = 40;
+        static final int EFFECT_WIDTH = 140;
+        static final int EFFECT_HEIGHT = 30;
+
+        final String name;
+        final String key;
+        final boolean parameter;
+        final DoubleSupplier value;
+        final double min;
+        final double max;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+        double drawnValue = Double.NaN;
+        boolean drawnHovered = false;
+
+        private Tile(String name, String key, boolean parameter, DoubleSupplier value,
+                     double min, double max, int x, int y, int width, int height) {
+            this.name = name;
+            this.key = key;
+            this.parameter = parameter;
+            this.value = value;
+            this.min = min;
+            this.max = max;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        static Tile parameter(String name, String key, DoubleSupplier value, double min, double max, int x, int y) {
+            return new Tile(name, key, true, value, min, max, x, y, PARAMETER_WIDTH, PARAMETER_HEIGHT);
+        }
+
+        static Tile effect(String name, String key, BooleanSupplier active, int x, int y) {
+            return new Tile(name, key, false, () -> active.getAsBoolean() ? 1 : 0, 0, 1, x, y, EFFECT_WIDTH, EFFECT_HEIGHT);
+        }
+
+        String getDescription() {
+            return parameter ? Constants.PARAMETER_DESCRIPTIONS.get(name) : Constants.EFFECT_DESCRIPTIONS.get(name);
+        }
+
+        boolean isDirty(boolean hovered) {
+            return hovered != drawnHovered || Double.compare(value.getAsDouble(), drawnValue) != 0;
+        }
+    }
+
+    // Последнее показанное значение параметра и его строка
+    private static class ValueLabel {
+        private double value = Double.NaN;
+        private String text;
+
+        String format(double newValue) {
+            if (text == null || Double.compare(newValue, value) != 0) {
+                value = newValue;
+                text = String.format("%.2f", newValue);
+            }
+            return text;
+        }
+    }
+
     // Геттеры и сеттеры для всех необходимых параметров
     private double timeScale = 1.0;
     private double gravity = 0.3;
@@ -381,6 +557,10 @@ public class InfoPanel extends JPanel {
     private boolean matrixMode = false;
     private boolean gravityWaves = false;
     private boolean kingCrimsonActive = false;
+    private boolean mutualGravity = false;
+    private boolean replayRewind = false;
+    private boolean recording = false;
+    private boolean exporting = false;
 
     // Геттеры
     public double getTimeScale() { return timeScale; }
@@ -397,6 +577,10 @@ public class InfoPanel extends JPanel {
     public boolean isMatrixMode() { return matrixMode; }
     public boolean isGravityWaves() { return gravityWaves; }
     public boolean isKingCrimsonActive() { return kingCrimsonActive; }
+    public boolean isMutualGravity() { return mutualGravity; }
+    public boolean isReplayRewind() { return replayRewind; }
+    public boolean isRecording() { return recording; }
+    public boolean isExporting() { return exporting; }
 
     // Сеттеры
     public void setTimeScale(double value) { timeScale = value; }
@@ -413,10 +597,22 @@ public class InfoPanel extends JPanel {
     public void setMatrixMode(boolean value) { matrixMode = value; }
     public void setGravityWaves(boolean value) { gravityWaves = value; }
     public void setKingCrimsonActive(boolean value) { kingCrimsonActive = value; }
+    public void setMutualGravity(boolean value) { mutualGravity = value; }
+    public void setReplayRewind(boolean value) { replayRewind = value; }
+    public void setRecording(boolean value) { recording = value; }
+    public void setExporting(boolean value) { exporting = value; }
 
     public void setMousePosition(Point p) {
         mousePosition = p;
-        if (p == null) {
+        // Подсказка привязана к плитке, поэтому движение внутри плитки ничего не меняет
+        Tile hovered = tileAt(p);
+        if (hovered == hoveredTile) return;
+        hoveredTile = hovered;
+        if (hovered != null) {
+            tooltipAnchor.setLocation(hovered.x + hovered.width + 10, hovered.y);
+            tooltipPosition = tooltipAnchor;
+            tooltipText = hovered.getDescription();
+        } else {
             tooltipPosition = null;
             tooltipText = null;
         }
@@ -450,21 +646,17 @@ public class InfoPanel extends JPanel {
 
     public void setTeleportMode(boolean active) {
         teleportMode = active;
-        repaint();
     }
     
     public void setSplitMode(boolean active) {
         splitMode = active;
-        repaint();
     }
     
     public void setMagnetMode(boolean active) {
         magnetMode = active;
-        repaint();
     }
     
     public void setSlowMode(boolean active) {
         slowMode = active;
-        repaint();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.physics.ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.physics.data.Constants;
+import com.physics.effects.Palette;
+import com.physics.profile.Profiler;
+import com.physics.profile.RollingHistogram;
+
+// Таблица участков профилировщика: p50, p99 и максимум за окно в миллисекундах.
+// Полоса показывает p99 относительно бюджета одного шага (1/TICK_RATE с)
+public class ProfilerOverlay {
+    private static final long REFRESH_NANOS = 250_000_000L;
+    private static final double BUDGET_MS = 1000.0 / Constants.TICK_RATE;
+    private static final int ROW_HEIGHT = 16;
+    private static final int BAR_WIDTH = 120;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final String HEADER = String.format("%8s %8s %8s", "p50", "p99", "max");
+    private static final String BUDGET = String.format("бюджет %.1f", BUDGET_MS);
+
+    private final Profiler profiler;
+    private final List<RollingHistogram.Summary> summaries = new ArrayList<>();
+    // Строки таблицы форматируются только при обновлении сводок, а не каждый кадр
+    private final List<String> rows = new ArrayList<>();
+    private long lastRefresh = 0;
+    private boolean visible = false;
+    // Счётчики активной отрисовки; строка пересобирается только при их изменении
+    private long lateFrames = -1;
+    private long droppedFrames = -1;
+    private String frameCounters = null;
+
+    public ProfilerOverlay(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public boolean isVisible() { return visible; }
+    public void setVisible(boolean visible) { this.visible = visible; }
+
+    public void setFrameCounters(long lateFrames, long droppedFrames) {
+        if (lateFrames == this.lateFrames && droppedFrames == this.droppedFrames) return;
+        this.lateFrames = lateFrames;
+        this.droppedFrames = droppedFrames;
+        frameCounters = "кадров: опоздало " + lateFrames + ", пропущено " + droppedFrames;
+    }
+
+    public void draw(Graphics2D g2d, int width) {
+        if (!visible) return;
+
+        // Сортировка окон дорогая, поэтому сводки обновляются несколько раз в секунду
+        List<RollingHistogram> histograms = profiler.getHistograms();
+        long now = System.nanoTime();
+        if (now - lastRefresh >= REFRESH_NANOS || summaries.size() != histograms.size()) {
+            while (summaries.size() < histograms.size()) {
+                summaries.add(new RollingHistogram.Summary());
+            }
+            rows.clear();
+            for (int i = 0; i < histograms.size(); i++) {
+                RollingHistogram.Summary summary = summaries.get(i);
+                histograms.get(i).summarize(summary);
+                rows.add(String.format("%8.3f %8.3f %8.3f",
+                    summary.getP50() / 1e6, summary.getP99() / 1e6, summary.getMax() / 1e6));
+            }
+            lastRefresh = now;
+        }
+
+        g2d.setFont(FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        int nameWidth = 0;
+        for (int i = 0; i < histograms.size(); i++) {
+            nameWidth = Math.max(nameWidth, fm.stringWidth(histograms.get(i).getName()));
+        }
+        int textWidth = nameWidth + 10 + fm.stringWidth(HEADER);
+        int panelWidth = textWidth + BAR_WIDTH + 30;
+        int rowCount = histograms.size() + (frameCounters != null ? 2 : 1);
+        int panelHeight = rowCount * ROW_HEIGHT + 10;
+        int x = width - panelWidth - 10;
+        int y = 10;
+
+        g2d.setColor(Palette.rgba(0, 0, 0, 200));
+        g2d.fillRoundRect(x, y, panelWidth, panelHeight, 10, 10);
+
+        g2d.setColor(Palette.rgb(150, 150, 200));
+        int textY = y + 5 + fm.getAscent();
+        g2d.drawString("мс", x + 10, textY);
+        g2d.drawString(HEADER, x + 10 + nameWidth + 10, textY);
+        g2d.drawString(BUDGET, x + 20 + textWidth, textY);
+
+        for (int i = 0; i < histograms.size(); i++) {
+            RollingHistogram.Summary summary = summaries.get(i);
+            textY += ROW_HEIGHT;
+            g2d.setColor(Color.WHITE);
+            g2d.drawString(histograms.get(i).getName(), x + 10, textY);
+            g2d.drawString(rows.get(i), x + 10 + nameWidth + 10, textY);
+
+            double share = summary.getP99() / 1e6 / BUDGET_MS;
+            g2d.setColor(share < 0.5 ? Palette.rgb(80, 200, 120) :
+                share < 1.0 ? Palette.rgb(230, 200, 60) : Palette.rgb(230, 80, 80));
+            int barX = x + 20 + textWidth;
+            g2d.fillRect(barX, textY - fm.getAscent() + 2, (int)(BAR_WIDTH * Math.min(1.0, share)), ROW_HEIGHT - 6);
+        }
+
+        if (frameCounters != null) {
+            g2d.setColor(Palette.rgb(150, 150, 200));
+            g2d.drawString(frameCounters, x + 10, textY + ROW_HEIGHT);
+        }
+    }
+}
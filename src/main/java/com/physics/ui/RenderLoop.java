@@ -0,0 +1,150 @@
+package com.physics.ui;
+
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+import com.physics.profile.Profiler;
+import com.physics.profile.RollingHistogram;
+
+// Активная отрисовка: свой поток рисует в BufferStrategy холста с заданной частотой,
+// не дожидаясь repaint и не занимая EDT - ввод обрабатывается без задержки на кадр.
+// Кадр, закончившийся после своего срока, считается опоздавшим; целые пропущенные
+// интервалы - выброшенными кадрами, после них расписание начинается заново
+public class RenderLoop implements Runnable {
+    // Тело кадра: рисует всё окно холста
+    @FunctionalInterface
+    public interface Frame {
+        void draw(Graphics2D g2d, int width, int height);
+    }
+
+    private final Canvas canvas;
+    private final int buffers;
+    private final long frameNanos;
+    private final Frame frame;
+    private final RollingHistogram frameTime = Profiler.shared().histogram("render.frame");
+    private final RollingHistogram showTime = Profiler.shared().histogram("render.show");
+
+    private volatile boolean running = false;
+    private volatile long frames = 0;
+    private volatile long lateFrames = 0;
+    private volatile long droppedFrames = 0;
+    private Thread thread;
+    private BufferStrategy strategy;
+
+    // buffers - 2 (двойная) или 3 (тройная буферизация)
+    public RenderLoop(Canvas canvas, int buffers, int fps, Frame frame) {
+        this.canvas = canvas;
+        this.buffers = buffers;
+        this.frameNanos = 1_000_000_000L / fps;
+        this.frame = frame;
+        canvas.setIgnoreRepaint(true);
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime() + frameNanos;
+
+        while (running) {
+            // Стратегию можно создать только у показанного холста
+            if (!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+                LockSupport.parkNanos(frameNanos);
+                deadline = System.nanoTime() + frameNanos;
+                continue;
+            }
+            if (strategy == null) {
+                canvas.createBufferStrategy(buffers);
+                strategy = canvas.getBufferStrategy();
+            }
+
+            long start = System.nanoTime();
+            try {
+                renderFrame();
+            } catch (IllegalStateException e) {
+                // Холст убран из окна между проверкой и отрисовкой: стратегия пересоздаётся
+                System.err.println("Буферы холста потеряны: " + e.getMessage());
+                strategy = null;
+                continue;
+            }
+            frames++;
+
+            long now = System.nanoTime();
+            if (now > deadline) {
+                lateFrames++;
+                long missed = (now - deadline) / frameNanos;
+                if (missed > 0) {
+                    droppedFrames += missed;
+                    deadline = now;
+                }
+            } else {
+                LockSupport.parkNanos(deadline - now);
+            }
+            deadline += frameNanos;
+        }
+    }
+
+    private void renderFrame() {
+        long t = System.nanoTime();
+        // Содержимое буфера может пропасть (смена режима экрана, свёрнутое окно) -
+        // тогда кадр рисуется заново, как предписывает BufferStrategy
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D)strategy.getDrawGraphics();
+                try {
+                    frame.draw(g2d, canvas.getWidth(), canvas.getHeight());
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            t = frameTime.lap(t);
+
+            strategy.show();
+        } while (strategy.contentsLost());
+        // Без sync на X11 кадры копятся в очереди сервера и выводятся рывками
+        Toolkit.getDefaultToolkit().sync();
+        showTime.lap(t);
+    }
+
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getLateFrames() {
+        return lateFrames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,317 @@
+package com.physics.ui;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.RadialGradientPaint;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import com.physics.data.Constants;
+import com.physics.effects.BlackHole;
+import com.physics.effects.EffectUtils;
+import com.physics.effects.GravityWave;
+import com.physics.effects.Magnet;
+import com.physics.effects.Matrix;
+import com.physics.effects.Palette;
+import com.physics.effects.ParticleSplatter;
+import com.physics.effects.QuantumTunnel;
+import com.physics.effects.Rainbow;
+import com.physics.effects.SlowMotion;
+import com.physics.effects.Strokes;
+import com.physics.effects.Teleport;
+import com.physics.effects.TimeFreeze;
+import com.physics.effects.TimeVortex;
+import com.physics.engine.RenderState;
+import com.physics.profile.BufferReallocationEvent;
+import com.physics.profile.EffectEvent;
+import com.physics.profile.Profiler;
+import com.physics.profile.RollingHistogram;
+
+// Слои сцены в координатах мира: фон, искривление, частицы, шары и накладки эффектов.
+// Общий для окна и экспорта кадров, поэтому ничего не знает о компоненте Swing.
+// Всё берётся из снимка RenderState, блокировка шага при отрисовке не нужна
+public class SceneRenderer {
+    private final double backgroundDistortion = 0.0;
+
+    private static final Color WARP_STRETCH = new Color(255, 100, 100, 50);
+    private static final Color WARP_SQUEEZE = new Color(100, 100, 255, 50);
+    private static final float[] WARP_FRACTIONS = {0.0f, 0.7f, 1.0f};
+
+    // Градиенты пересоздаются только при смене параметров: фон - по знаку гравитации
+    // и высоте, искривление - по знаку и альфе; искривление строится в начале координат
+    private GradientPaint backgroundPaint;
+    private boolean backgroundPositive;
+    private int backgroundHeight = -1;
+    // Фон заранее залит в непрозрачное изображение размером с окно: кадр копирует
+    // его одним drawImage вместо градиентной заливки; перерисовывается вместе с градиентом
+    private BufferedImage backgroundImage;
+    private boolean backgroundImagePositive;
+    private final String backgroundPhase;
+    private RadialGradientPaint warpPaint;
+    private int warpKey = -1;
+    // Частицы закрашиваются прямо в int[] буфера и накладываются одним drawImage
+    private final ParticleSplatter particleSplatter;
+
+    // Свои экземпляры эффектов нужны ради буферов отрисовки: у окна и экспорта они
+    // разные, а данные кадра приходят из снимка
+    private final TimeFreeze timeFreeze = new TimeFreeze();
+    private final BlackHole blackHole = new BlackHole();
+    private final TimeVortex timeVortex = new TimeVortex();
+    private final Matrix matrix = new Matrix();
+    private final GravityWave gravityWave = new GravityWave();
+    private final Rainbow rainbow = new Rainbow();
+    private final QuantumTunnel quantumTunnel = new QuantumTunnel(new Random());
+    private final Teleport teleport = new Teleport();
+    private final Magnet magnet = new Magnet();
+    private final SlowMotion slowMotion = new SlowMotion();
+
+    // Слои замеряются отдельно для окна и для экспорта: у каждого участка один пишущий поток
+    private final RollingHistogram backgroundTime;
+    private final RollingHistogram spaceWarpTime;
+    private final RollingHistogram particlesTime;
+    private final RollingHistogram ballsTime;
+    private final RollingHistogram overlaysTime;
+
+    public SceneRenderer() {
+        this("paint");
+    }
+
+    public SceneRenderer(String profileName) {
+        this.particleSplatter = new ParticleSplatter(profileName + ".particleSplat", ParticleSplatter.Blend.ALPHA);
+        this.backgroundPhase = profileName + ".backgroundLayer";
+        Profiler profiler = Profiler.shared();
+        this.backgroundTime = profiler.histogram(profileName + ".background");
+        this.spaceWarpTime = profiler.histogram(profileName + ".spaceWarp");
+        this.particlesTime = profiler.histogram(profileName + ".particles");
+        this.ballsTime = profiler.histogram(profileName + ".balls");
+        this.overlaysTime = profiler.histogram(profileName + ".overlays");
+    }
+
+    public void draw(Graphics2D g2d, RenderState state, float alpha, int width, int height) {
+        long t = System.nanoTime();
+        drawBackground(g2d, state, width, height);
+        t = backgroundTime.lap(t);
+
+        drawSpaceWarp(g2d, state, width, height);
+        t = spaceWarpTime.lap(t);
+
+        drawParticles(g2d, state, alpha, width, height);
+        t = particlesTime.lap(t);
+
+        drawBalls(g2d, state, alpha);
+        t = ballsTime.lap(t);
+
+        EffectEvent teleportEvent = beginDraw();
+        teleport.draw(g2d, state.getTeleport());
+        drawn(teleportEvent, "Teleport", state.getTeleport().isActive());
+        EffectEvent magnetEvent = beginDraw();
+        magnet.draw(g2d, state.getMagnet());
+        drawn(magnetEvent, "Magnet", state.getMagnet().isActive());
+        EffectEvent slowMotionEvent = beginDraw();
+        slowMotion.draw(g2d, state.getSlowMotion());
+        drawn(slowMotionEvent, "SlowMotion", state.getSlowMotion().isActive());
+        overlaysTime.lap(t);
+    }
+
+    private void drawParticles(Graphics2D g2d, RenderState state, float alpha, int width, int height) {
+        // Буфер в пикселях мира: при масштабе (экспорт с суперсэмплингом, HiDPI)
+        // он бы растянулся, поэтому там частицы рисуются кругами Java2D
+        int type = g2d.getTransform().getType();
+        if ((type & ~AffineTransform.TYPE_TRANSLATION) != 0) {
+            drawParticleOvals(g2d, state, alpha);
+            return;
+        }
+
+        particleSplatter.begin(width, height);
+        for (int i = 0; i < state.getParticleCount(); i++) {
+            int lifetime = state.getParticleLifetime(i);
+            if (lifetime <= 0) continue;
+
+            int alphaBits = Math.min(255, (int)(255 * (lifetime / 100.0)));
+            particleSplatter.add(state.getParticleX(i, alpha), state.getParticleY(i, alpha),
+                                 state.getParticleSize(i) / 2, (state.getParticleArgb(i) & 0xFFFFFF) | alphaBits << 24);
+        }
+        particleSplatter.flush(g2d);
+    }
+
+    private void drawParticleOvals(Graphics2D g2d, RenderState state, float alpha) {
+        for (int i = 0; i < state.getParticleCount(); i++) {
+            int lifetime = state.getParticleLifetime(i);
+            if (lifetime <= 0) continue;
+
+            int alphaBits = Math.min(255, (int)(255 * (lifetime / 100.0)));
+            g2d.setColor(Palette.argb((state.getParticleArgb(i) & 0xFFFFFF) | alphaBits << 24));
+            float size = state.getParticleSize(i);
+            int drawX = (int)(state.getParticleX(i, alpha) - size/2);
+            int drawY = (int)(state.getParticleY(i, alpha) - size/2);
+            g2d.fillOval(drawX, drawY, (int)size, (int)size);
+        }
+    }
+
+    private void drawBalls(Graphics2D g2d, RenderState state, float alpha) {
+        // Цвет меняется только при смене argb между соседними шарами
+        int lastArgb = 0;
+        for (int i = 0; i < state.getBallCount(); i++) {
+            float radius = state.getBallRadius(i);
+            int argb = state.getBallArgb(i);
+            if (i == 0 || argb != lastArgb) {
+                lastArgb = argb;
+                g2d.setColor(Palette.argb(argb));
+            }
+            int drawX = (int)(state.getBallX(i, alpha) - radius);
+            int drawY = (int)(state.getBallY(i, alpha) - radius);
+            int size = (int)(radius * 2);
+            g2d.fillOval(drawX, drawY, size, size);
+        }
+    }
+
+    private void drawSpaceWarp(Graphics2D g2d, RenderState state, int width, int height) {
+        Point mousePosition = state.getMousePosition();
+        double spaceWarp = state.getSpaceWarp();
+
+        EffectEvent timeFreezeEvent = beginDraw();
+        timeFreeze.draw(g2d, state.getTimeFreeze(), width, height);
+        drawn(timeFreezeEvent, "TimeFreeze", state.getTimeFreeze().isActive());
+
+        EffectEvent blackHoleEvent = beginDraw();
+        blackHole.draw(g2d, state.getBlackHole(), width, height);
+        drawn(blackHoleEvent, "BlackHole", state.getBlackHole().isActive());
+
+        if (mousePosition != null) {
+            EffectEvent timeVortexEvent = beginDraw();
+            timeVortex.draw(g2d, state.getTimeVortex(), mousePosition);
+            drawn(timeVortexEvent, "TimeVortex", state.getTimeVortex().isActive());
+        }
+
+        if (spaceWarp == 1.0 || mousePosition == null) return;
+
+        Color warpColor = spaceWarp > 1.0 ? WARP_STRETCH : WARP_SQUEEZE;
+
+        float alpha = Math.abs((float)(spaceWarp - 1.0)) * 0.5f;
+        alpha = Math.min(alpha, 0.7f);
+
+        int key = (spaceWarp > 1.0 ? 256 : 0) | (int)(255 * alpha);
+        if (warpPaint == null || warpKey != key) {
+            warpPaint = new RadialGradientPaint(
+                0, 0,
+                Constants.WARP_RADIUS,
+                WARP_FRACTIONS,
+                new Color[]{
+                    Palette.withAlpha(warpColor, (int)(255 * alpha)),
+                    Palette.withAlpha(warpColor, (int)(100 * alpha)),
+                    Palette.withAlpha(warpColor, 0)
+                }
+            );
+            warpKey = key;
+        }
+
+        g2d.setPaint(warpPaint);
+        g2d.translate(mousePosition.x, mousePosition.y);
+        g2d.fillOval(
+            -Constants.WARP_RADIUS,
+            -Constants.WARP_RADIUS,
+            Constants.WARP_RADIUS * 2,
+            Constants.WARP_RADIUS * 2
+        );
+        g2d.translate(-mousePosition.x, -mousePosition.y);
+
+        g2d.setStroke(Strokes.of(1.0f));
+        g2d.setColor(Palette.withAlpha(warpColor, 100));
+
+        int lines = 16;
+        double angleStep = Math.PI * 2 / lines;
+        for (int i = 0; i < lines; i++) {
+            double angle = i * angleStep;
+            int x1 = mousePosition.x + (int)(Math.cos(angle) * Constants.WARP_RADIUS * 0.3);
+            int y1 = mousePosition.y + (int)(Math.sin(angle) * Constants.WARP_RADIUS * 0.3);
+            int x2 = mousePosition.x + (int)(Math.cos(angle) * Constants.WARP_RADIUS * (spaceWarp > 1.0 ? 1.2 : 0.8));
+            int y2 = mousePosition.y + (int)(Math.sin(angle) * Constants.WARP_RADIUS * (spaceWarp > 1.0 ? 1.2 : 0.8));
+            g2d.drawLine(x1, y1, x2, y2);
+        }
+    }
+
+    private void drawBackground(Graphics2D g2d, RenderState state, int w, int h) {
+        boolean positive = state.isGravityPositive();
+        if (backgroundPaint == null || backgroundPositive != positive || backgroundHeight != h) {
+        int far = (int)(100 + 155 * backgroundDistortion);
+            backgroundPaint = positive ?
+                new GradientPaint(0, 0, Palette.rgb(0, 0, 50), 0, h, Palette.rgb(0, 0, far)) :
+                new GradientPaint(0, 0, Palette.rgb(50, 0, 0), 0, h, Palette.rgb(far, 0, 0));
+            backgroundPositive = positive;
+            backgroundHeight = h;
+        }
+        // При масштабе (экспорт с суперсэмплингом) готовый слой растянулся бы,
+        // поэтому там градиент заливается напрямую
+        int type = g2d.getTransform().getType();
+        if ((type & ~AffineTransform.TYPE_TRANSLATION) != 0 || w <= 0 || h <= 0) {
+            g2d.setPaint(backgroundPaint);
+            g2d.fillRect(0, 0, w, h);
+        } else {
+            g2d.drawImage(backgroundLayer(w, h, positive), 0, 0, null);
+        }
+
+        if (state.getMatrix().isActive()) {
+            EffectEvent matrixEvent = beginDraw();
+            matrix.draw(g2d, state.getMatrix(), w, h);
+            drawn(matrixEvent, "Matrix", true);
+        }
+
+        if (state.getGravityWave().isActive()) {
+            EffectEvent gravityWaveEvent = beginDraw();
+            gravityWave.draw(g2d, state.getGravityWave(), w, h);
+            drawn(gravityWaveEvent, "GravityWave", true);
+        }
+
+        if (state.getRainbow().isActive()) {
+            EffectEvent rainbowEvent = beginDraw();
+            rainbow.draw(g2d, state.getRainbow(), w, h);
+            drawn(rainbowEvent, "Rainbow", true);
+        }
+
+        if (state.getQuantumTunnel().isActive()) {
+            EffectEvent quantumTunnelEvent = beginDraw();
+            quantumTunnel.draw(g2d, state.getQuantumTunnel(), w, h);
+            drawn(quantumTunnelEvent, "QuantumTunnel", true);
+        }
+    }
+
+    private BufferedImage backgroundLayer(int w, int h, boolean positive) {
+        if (backgroundImage == null || backgroundImage.getWidth() != w || backgroundImage.getHeight() != h) {
+            BufferReallocationEvent event = new BufferReallocationEvent();
+            event.begin();
+            if (backgroundImage != null) {
+                backgroundImage.flush();
+            }
+            backgroundImage = EffectUtils.createCompatibleImage(w, h, false);
+            fillBackgroundLayer(w, h, positive);
+            event.finish(backgroundPhase, w, h, 1);
+        } else if (backgroundImagePositive != positive) {
+            fillBackgroundLayer(w, h, positive);
+        }
+        return backgroundImage;
+    }
+
+    private void fillBackgroundLayer(int w, int h, boolean positive) {
+        Graphics2D layer = backgroundImage.createGraphics();
+        layer.setPaint(backgroundPaint);
+        layer.fillRect(0, 0, w, h);
+        layer.dispose();
+        backgroundImagePositive = positive;
+    }
+
+    private static EffectEvent beginDraw() {
+        EffectEvent event = new EffectEvent();
+        event.begin();
+        return event;
+    }
+
+    // Отрисовка выключенного эффекта в JFR не отмечается
+    private static void drawn(EffectEvent event, String effect, boolean active) {
+        if (active) {
+            event.finish(effect, EffectEvent.DRAW, 0);
+        }
+    }
+}